@@ -0,0 +1,120 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Derives the read timeout and the hedging delay of a request from the latencies that
+ * {@link ApiMetrics} has observed for its endpoint.
+ *
+ * Until an endpoint has {@link #MIN_SAMPLES} recorded attempts, its requests use the defaults:
+ * a {@value #DEFAULT_READ_TIMEOUT_MS} ms read timeout, and no hedging. After that, the read
+ * timeout is a multiple of the endpoint's p99 latency, never shorter than
+ * {@value #MIN_READ_TIMEOUT_MS} ms or longer than the default, and the hedging delay is its
+ * p95 latency. The estimate is refreshed every {@value #RECOMPUTE_INTERVAL} attempts, so
+ * reading it is usually a single array lookup.
+ *
+ * Only {@link StripeRequest.Method#GET} requests adapt. Writes such as confirming a
+ * PaymentIntent, creating a token, or 3DS2 authentication can take much longer than the reads
+ * that share their endpoint, and a write that times out leaves its outcome unknown, so they
+ * always use the defaults.
+ *
+ * The connect timeout stays at {@value #DEFAULT_CONNECT_TIMEOUT_MS} ms: connections are shared
+ * by every endpoint on a host, so endpoint latencies say little about how long a handshake
+ * should take.
+ */
+final class AdaptiveTimeouts {
+    static final int DEFAULT_CONNECT_TIMEOUT_MS = 30 * 1000;
+    static final int DEFAULT_READ_TIMEOUT_MS = 80 * 1000;
+    static final long NO_HEDGE = -1;
+
+    @VisibleForTesting static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private static final int MIN_READ_TIMEOUT_MS = 10 * 1000;
+    private static final int READ_TIMEOUT_P99_MULTIPLIER = 4;
+    private static final long MIN_HEDGE_DELAY_MS = 50;
+
+    @Nullable private static AdaptiveTimeouts sInstance;
+
+    @Nullable private final ApiMetrics mApiMetrics;
+    @NonNull private final AtomicReferenceArray<Estimate> mEstimates;
+
+    @NonNull
+    static synchronized AdaptiveTimeouts getInstance() {
+        if (sInstance == null) {
+            sInstance = new AdaptiveTimeouts(ApiMetrics.getInstance());
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param apiMetrics the source of observed latencies, or null to always use the defaults
+     */
+    @VisibleForTesting
+    AdaptiveTimeouts(@Nullable ApiMetrics apiMetrics) {
+        mApiMetrics = apiMetrics;
+        mEstimates = new AtomicReferenceArray<>(ApiMetrics.ENDPOINT_COUNT);
+    }
+
+    int getConnectTimeoutMs() {
+        return DEFAULT_CONNECT_TIMEOUT_MS;
+    }
+
+    int getReadTimeoutMs(@NonNull StripeRequest request) {
+        final Estimate estimate = getEstimate(request);
+        return estimate != null ? estimate.mReadTimeoutMs : DEFAULT_READ_TIMEOUT_MS;
+    }
+
+    /**
+     * @return how long to wait for a response to {@code request} before sending a duplicate,
+     * in milliseconds, or {@link #NO_HEDGE} if too little is known about its endpoint yet
+     */
+    long getHedgeDelayMs(@NonNull StripeRequest request) {
+        final Estimate estimate = getEstimate(request);
+        return estimate != null ? estimate.mHedgeDelayMs : NO_HEDGE;
+    }
+
+    @Nullable
+    private Estimate getEstimate(@NonNull StripeRequest request) {
+        if (mApiMetrics == null || StripeRequest.Method.GET != request.method) {
+            return null;
+        }
+
+        final int endpointIndex = ApiMetrics.getEndpointIndex(request.getBaseUrl());
+        final Estimate estimate = mEstimates.get(endpointIndex);
+        final long requestCount = mApiMetrics.getRequestCount(endpointIndex);
+        // keep the last estimate while too few attempts have been recorded since a reset
+        if (requestCount < MIN_SAMPLES || (estimate != null &&
+                requestCount >= estimate.mRequestCount &&
+                requestCount < estimate.mRequestCount + RECOMPUTE_INTERVAL)) {
+            return estimate;
+        }
+
+        final Estimate newEstimate =
+                new Estimate(requestCount, mApiMetrics.getLatency(endpointIndex));
+        mEstimates.set(endpointIndex, newEstimate);
+        return newEstimate;
+    }
+
+    private static final class Estimate {
+        private final long mRequestCount;
+        private final int mReadTimeoutMs;
+        private final long mHedgeDelayMs;
+
+        private Estimate(long requestCount, @NonNull LatencyHistogram.Snapshot latency) {
+            mRequestCount = requestCount;
+
+            final long p99Ms = TimeUnit.NANOSECONDS.toMillis(latency.getValueAtPercentile(99));
+            mReadTimeoutMs = (int) Math.min(DEFAULT_READ_TIMEOUT_MS,
+                    Math.max(MIN_READ_TIMEOUT_MS, p99Ms * READ_TIMEOUT_P99_MULTIPLIER));
+
+            final long p95Ms = TimeUnit.NANOSECONDS.toMillis(latency.getValueAtPercentile(95));
+            mHedgeDelayMs = Math.max(MIN_HEDGE_DELAY_MS, p95Ms);
+        }
+    }
+}
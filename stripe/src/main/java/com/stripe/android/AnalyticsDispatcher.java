@@ -0,0 +1,383 @@
+package com.stripe.android;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.exception.StripeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends analytics and fingerprint requests on a background thread, so that API calls never wait
+ * on them.
+ *
+ * Requests are held in a bounded queue and sent in batches, a short delay after the first
+ * request of a batch is enqueued. When the queue is full, the {@link AnalyticsDropPolicy}
+ * decides which request is discarded. The host app can choose the policy, but the capacity and
+ * batch size are fixed: they bound the memory and the request size that analytics may use.
+ *
+ * Requests that fail because the device is offline are written to a {@link SegmentedFileQueue},
+ * and replayed in batches once a request succeeds again, including in a later process.
+ *
+ * Hosts that keep failing, e.g. because a network or an ad blocker blocks them, are skipped by a
+ * {@link CircuitBreaker} until they recover, so that their requests are stored at once instead
+ * of each holding the dispatcher thread for a connect timeout.
+ */
+class AnalyticsDispatcher {
+    static final int DEFAULT_CAPACITY = 100;
+    static final int DEFAULT_BATCH_SIZE = 10;
+    static final long DEFAULT_FLUSH_DELAY_MS = 500;
+
+    private static final String DISK_QUEUE_DIRECTORY = "stripe_analytics";
+    private static final int DISK_QUEUE_SEGMENT_BYTES = 64 * 1024;
+    private static final long DISK_QUEUE_MAX_BYTES = 512 * 1024;
+
+    @Nullable private static ScheduledExecutorService sDefaultExecutor;
+    @Nullable private static SegmentedFileQueue sDefaultDiskQueue;
+    @Nullable private static CircuitBreaker sDefaultCircuitBreaker;
+    private static boolean sHasReplayedDefaultDiskQueue;
+    @NonNull private static volatile AnalyticsDropPolicy sDefaultDropPolicy =
+            AnalyticsDropPolicy.DROP_OLDEST;
+
+    @NonNull private final RequestExecutor mRequestExecutor;
+    @NonNull private final ScheduledExecutorService mExecutor;
+    @Nullable private final SegmentedFileQueue mDiskQueue;
+    @Nullable private final AnalyticsDropPolicy mDropPolicy;
+    @NonNull private final CircuitBreaker mCircuitBreaker;
+    private final int mCapacity;
+    private final int mBatchSize;
+    private final long mFlushDelayMs;
+
+    @NonNull private final Deque<StripeRequest> mQueue = new ArrayDeque<>();
+    @NonNull private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private boolean mIsFlushScheduled;
+    private int mDroppedCount;
+
+    AnalyticsDispatcher(@NonNull Context context, @NonNull RequestExecutor requestExecutor) {
+        this(requestExecutor, getDefaultExecutor(), getDefaultDiskQueue(context),
+                null, getDefaultCircuitBreaker(), DEFAULT_CAPACITY,
+                DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_DELAY_MS, claimDefaultDiskQueueReplay());
+    }
+
+    /**
+     * @param diskQueue where requests that could not be sent are kept, or null to drop them
+     * @param dropPolicy what to do with a new request when the queue is full, or null to follow
+     *                   {@link #setDefaultDropPolicy(AnalyticsDropPolicy)}
+     * @param circuitBreaker decides which hosts requests are sent to
+     * @param capacity the maximum number of requests waiting to be sent
+     * @param batchSize the maximum number of requests sent in one flush
+     * @param flushDelayMs how long to wait for more requests before sending a batch
+     */
+    @VisibleForTesting
+    AnalyticsDispatcher(@NonNull RequestExecutor requestExecutor,
+                        @NonNull ScheduledExecutorService executor,
+                        @Nullable SegmentedFileQueue diskQueue,
+                        @Nullable AnalyticsDropPolicy dropPolicy,
+                        @NonNull CircuitBreaker circuitBreaker,
+                        int capacity,
+                        int batchSize,
+                        long flushDelayMs) {
+        this(requestExecutor, executor, diskQueue, dropPolicy, circuitBreaker, capacity,
+                batchSize, flushDelayMs, diskQueue != null);
+    }
+
+    /**
+     * @param shouldReplay whether to replay what is left in the disk queue from a previous
+     *                     session, which only the first dispatcher sharing it needs to do
+     */
+    private AnalyticsDispatcher(@NonNull RequestExecutor requestExecutor,
+                                @NonNull ScheduledExecutorService executor,
+                                @Nullable SegmentedFileQueue diskQueue,
+                                @Nullable AnalyticsDropPolicy dropPolicy,
+                                @NonNull CircuitBreaker circuitBreaker,
+                                int capacity,
+                                int batchSize,
+                                long flushDelayMs,
+                                boolean shouldReplay) {
+        mRequestExecutor = requestExecutor;
+        mExecutor = executor;
+        mDiskQueue = diskQueue;
+        mDropPolicy = dropPolicy;
+        mCircuitBreaker = circuitBreaker;
+        mCapacity = capacity;
+        mBatchSize = batchSize;
+        mFlushDelayMs = flushDelayMs;
+
+        if (mDiskQueue != null && shouldReplay) {
+            // replay anything left over from a previous session
+            mIsFlushScheduled = true;
+            mExecutor.schedule(mFlushRunnable, mFlushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Set the policy of every dispatcher that was not created with its own.
+     */
+    static void setDefaultDropPolicy(@NonNull AnalyticsDropPolicy dropPolicy) {
+        sDefaultDropPolicy = dropPolicy;
+    }
+
+    /**
+     * Queue a request to be sent in the background.
+     *
+     * @return true if the request was queued, false if it was dropped
+     */
+    boolean enqueue(@NonNull StripeRequest request) {
+        final AnalyticsDropPolicy dropPolicy =
+                mDropPolicy != null ? mDropPolicy : sDefaultDropPolicy;
+        final boolean isQueued;
+        final boolean shouldScheduleFlush;
+        synchronized (mQueue) {
+            if (mQueue.size() < mCapacity) {
+                mQueue.addLast(request);
+                isQueued = true;
+            } else if (dropPolicy == AnalyticsDropPolicy.DROP_OLDEST) {
+                mQueue.pollFirst();
+                mQueue.addLast(request);
+                mDroppedCount++;
+                isQueued = true;
+            } else {
+                mDroppedCount++;
+                isQueued = false;
+            }
+
+            shouldScheduleFlush = isQueued && !mIsFlushScheduled;
+            if (shouldScheduleFlush) {
+                mIsFlushScheduled = true;
+            }
+        }
+
+        if (shouldScheduleFlush) {
+            mExecutor.schedule(mFlushRunnable, mFlushDelayMs, TimeUnit.MILLISECONDS);
+        }
+        return isQueued;
+    }
+
+    /**
+     * @return the number of requests discarded because the queue was full
+     */
+    int getDroppedCount() {
+        synchronized (mQueue) {
+            return mDroppedCount;
+        }
+    }
+
+    @VisibleForTesting
+    int getQueueSize() {
+        synchronized (mQueue) {
+            return mQueue.size();
+        }
+    }
+
+    @VisibleForTesting
+    void flush() {
+        final List<StripeRequest> batch = new ArrayList<>(mBatchSize);
+        final boolean hasMore;
+        synchronized (mQueue) {
+            while (batch.size() < mBatchSize && !mQueue.isEmpty()) {
+                batch.add(mQueue.pollFirst());
+            }
+            hasMore = !mQueue.isEmpty();
+            mIsFlushScheduled = hasMore;
+        }
+
+        final List<StripeRequest> unsent = new ArrayList<>();
+        send(batch, unsent);
+        final boolean hasMoreStored;
+        if (!unsent.isEmpty()) {
+            store(unsent);
+            hasMoreStored = false;
+        } else {
+            hasMoreStored = replayStoredBatch();
+        }
+
+        if (hasMore) {
+            mExecutor.execute(mFlushRunnable);
+        } else if (hasMoreStored) {
+            // keep replaying until the disk queue is empty or a request fails
+            final boolean shouldScheduleFlush;
+            synchronized (mQueue) {
+                shouldScheduleFlush = !mIsFlushScheduled;
+                mIsFlushScheduled = true;
+            }
+            if (shouldScheduleFlush) {
+                mExecutor.execute(mFlushRunnable);
+            }
+        }
+    }
+
+    /**
+     * Send requests in order until one fails because the device is offline. Requests to hosts
+     * whose circuit is open are skipped.
+     *
+     * @param unsent receives the requests that were skipped, and every request from the one that
+     *               failed onwards
+     * @return the number of requests handled
+     */
+    private int send(@NonNull List<StripeRequest> requests,
+                     @NonNull List<StripeRequest> unsent) {
+        int handledCount = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            final StripeRequest request = requests.get(i);
+            final String host = CircuitBreaker.getHost(request.getBaseUrl());
+            if (host != null && !mCircuitBreaker.allowRequest(host)) {
+                unsent.add(request);
+                continue;
+            }
+
+            try {
+                mRequestExecutor.execute(request);
+                if (host != null) {
+                    mCircuitBreaker.onSuccess(host);
+                }
+            } catch (APIConnectionException e) {
+                if (host != null) {
+                    mCircuitBreaker.onFailure(host);
+                }
+                unsent.addAll(requests.subList(i, requests.size()));
+                return handledCount;
+            } catch (StripeException ignore) {
+                // We're just logging. No need to crash here or attempt to re-log things.
+                if (host != null) {
+                    // the request was at fault, not the host
+                    mCircuitBreaker.onSuccess(host);
+                }
+            }
+            handledCount++;
+        }
+        return handledCount;
+    }
+
+    /**
+     * Send the oldest batch of stored requests.
+     *
+     * @return true if the whole batch was sent and more stored requests remain
+     */
+    private boolean replayStoredBatch() {
+        if (mDiskQueue == null) {
+            return false;
+        }
+
+        try {
+            final SegmentedFileQueue.Segment segment = mDiskQueue.claimOldest();
+            if (segment == null) {
+                return false;
+            }
+
+            final List<StripeRequest> requests = new ArrayList<>(segment.getRecords().size());
+            for (byte[] record : segment.getRecords()) {
+                final StoredRequest request = StoredRequest.fromBytes(record);
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+
+            final List<StripeRequest> unsent = new ArrayList<>();
+            final int sentCount = send(requests, unsent);
+            if (sentCount == 0 && !requests.isEmpty()) {
+                mDiskQueue.restore(segment);
+                return false;
+            }
+
+            mDiskQueue.complete(segment);
+            if (!unsent.isEmpty()) {
+                store(unsent);
+                return false;
+            }
+            return !mDiskQueue.isEmpty();
+        } catch (IOException ignore) {
+            return false;
+        }
+    }
+
+    private void store(@NonNull List<StripeRequest> requests) {
+        if (mDiskQueue == null) {
+            return;
+        }
+
+        for (StripeRequest request : requests) {
+            try {
+                mDiskQueue.append(StoredRequest.create(request).toBytes());
+            } catch (IOException | InvalidRequestException ignore) {
+                // the request is dropped, as it would have been without the disk queue
+            }
+        }
+    }
+
+    @VisibleForTesting
+    @NonNull
+    CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
+    }
+
+    @NonNull
+    private static synchronized ScheduledExecutorService getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "StripeAnalytics");
+                            thread.setDaemon(true);
+                            thread.setPriority(Thread.MIN_PRIORITY);
+                            return thread;
+                        }
+                    });
+            executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultExecutor = executor;
+        }
+        return sDefaultExecutor;
+    }
+
+    @NonNull
+    private static synchronized SegmentedFileQueue getDefaultDiskQueue(@NonNull Context context) {
+        if (sDefaultDiskQueue == null) {
+            final File directory = new File(context.getApplicationContext().getCacheDir(),
+                    DISK_QUEUE_DIRECTORY);
+            sDefaultDiskQueue = new SegmentedFileQueue(directory, DISK_QUEUE_SEGMENT_BYTES,
+                    DISK_QUEUE_MAX_BYTES);
+        }
+        return sDefaultDiskQueue;
+    }
+
+    /**
+     * The breaker is shared by every dispatcher, so that a new {@link Stripe} instance does not
+     * wait out the timeouts of a host that another one has already found to be down.
+     */
+    @NonNull
+    private static synchronized CircuitBreaker getDefaultCircuitBreaker() {
+        if (sDefaultCircuitBreaker == null) {
+            sDefaultCircuitBreaker = new CircuitBreaker();
+        }
+        return sDefaultCircuitBreaker;
+    }
+
+    /**
+     * @return true for the first dispatcher of the process only, which replays what is left in
+     * the shared disk queue from a previous session
+     */
+    private static synchronized boolean claimDefaultDiskQueueReplay() {
+        final boolean shouldReplay = !sHasReplayedDefaultDiskQueue;
+        sHasReplayedDefaultDiskQueue = true;
+        return shouldReplay;
+    }
+}
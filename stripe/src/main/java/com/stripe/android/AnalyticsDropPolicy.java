@@ -0,0 +1,17 @@
+package com.stripe.android;
+
+/**
+ * What the SDK does with a new analytics request when too many are already waiting to be sent.
+ * Set it with {@link Stripe#setAnalyticsDropPolicy(AnalyticsDropPolicy)}.
+ */
+public enum AnalyticsDropPolicy {
+    /**
+     * Discard the oldest waiting request to make room for the new one. This is the default.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the new request.
+     */
+    DROP_NEWEST
+}
@@ -0,0 +1,242 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates the latency and outcome of every request that {@link StripeApiHandler} sends,
+ * grouped by the endpoint that the request went to, e.g. {@code tokens} or
+ * {@code payment_intents}.
+ *
+ * Every attempt at a request is recorded, so a request that is retried twice counts three times.
+ * Recording never blocks or allocates, so it can be left on for every request; read the
+ * metrics with {@link #snapshot(boolean)}.
+ */
+final class ApiMetrics {
+    static final String ENDPOINT_OTHER = "other";
+
+    /**
+     * The first path segment after {@code /v1/} of each endpoint that is tracked separately.
+     * Requests to any other path are recorded under {@link #ENDPOINT_OTHER}.
+     */
+    private static final String[] ENDPOINTS = {
+            "tokens",
+            "sources",
+            "payment_methods",
+            "payment_intents",
+            "customers",
+            "issuing",
+            "3ds2"
+    };
+    static final int ENDPOINT_COUNT = ENDPOINTS.length + 1;
+    private static final String API_PATH_PREFIX = "/v1/";
+
+    @Nullable private static ApiMetrics sInstance;
+
+    @NonNull private final Clock mClock;
+    @NonNull private final EndpointMetrics[] mEndpointMetrics;
+    @NonNull private final AtomicLong mStartNanos;
+    @NonNull private final AtomicLong mTlsHandshakeCount = new AtomicLong();
+    @NonNull private final AtomicLong mResumedTlsHandshakeCount = new AtomicLong();
+    @NonNull private final AtomicInteger mRateLimitQueueDepth = new AtomicInteger();
+    @NonNull private final LatencyHistogram mRateLimitWait = new LatencyHistogram();
+    @NonNull private final AtomicLong mRateLimitRejectedCount = new AtomicLong();
+
+    @NonNull
+    static synchronized ApiMetrics getInstance() {
+        if (sInstance == null) {
+            sInstance = new ApiMetrics(Clock.SYSTEM);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ApiMetrics(@NonNull Clock clock) {
+        mClock = clock;
+        mEndpointMetrics = new EndpointMetrics[ENDPOINT_COUNT];
+        for (int i = 0; i < mEndpointMetrics.length; i++) {
+            mEndpointMetrics[i] = new EndpointMetrics();
+        }
+        mStartNanos = new AtomicLong(clock.nanoTime());
+    }
+
+    /**
+     * @return the time to pass to {@link #record} when the attempt ends
+     */
+    long nanoTime() {
+        return mClock.nanoTime();
+    }
+
+    /**
+     * Record one attempt at sending {@code request}.
+     *
+     * @param startNanos the value of {@link #nanoTime()} when the attempt started
+     * @param isRetry true if this attempt retried an earlier, failed one
+     * @param response the response, or null if the request failed to connect
+     */
+    void record(@NonNull StripeRequest request, long startNanos, boolean isRetry,
+                @Nullable StripeResponse response) {
+        final EndpointMetrics metrics =
+                mEndpointMetrics[getEndpointIndex(request.getBaseUrl())];
+        metrics.mLatency.record(mClock.nanoTime() - startNanos);
+        if (isRetry) {
+            metrics.mRetryCount.incrementAndGet();
+        }
+
+        if (response == null) {
+            metrics.mConnectionFailureCount.incrementAndGet();
+        } else if (response.getResponseCode() >= 500) {
+            metrics.mServerErrorCount.incrementAndGet();
+        } else if (response.getResponseCode() >= 400) {
+            metrics.mClientErrorCount.incrementAndGet();
+        } else {
+            metrics.mSuccessCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a completed TLS handshake.
+     *
+     * @param isResumed true if the handshake resumed a cached session
+     */
+    void recordTlsHandshake(boolean isResumed) {
+        mTlsHandshakeCount.incrementAndGet();
+        if (isResumed) {
+            mResumedTlsHandshakeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record that a request started waiting for the {@link RateLimiter}.
+     */
+    void onRateLimitWaitStart() {
+        mRateLimitQueueDepth.incrementAndGet();
+    }
+
+    /**
+     * Record that a request stopped waiting for the {@link RateLimiter}.
+     *
+     * @param waitNanos how long the request was scheduled to wait
+     */
+    void onRateLimitWaitEnd(long waitNanos) {
+        mRateLimitQueueDepth.decrementAndGet();
+        mRateLimitWait.record(waitNanos);
+    }
+
+    /**
+     * Record a request whose task the {@link RateLimiter} deferred instead of letting it wait on
+     * its thread.
+     *
+     * @param waitNanos how long the task was deferred for
+     */
+    void recordRateLimitDeferral(long waitNanos) {
+        mRateLimitWait.record(waitNanos);
+    }
+
+    /**
+     * Record a request that the {@link RateLimiter} failed because it would have waited too
+     * long.
+     */
+    void recordRateLimitRejection() {
+        mRateLimitRejectedCount.incrementAndGet();
+    }
+
+    /**
+     * @param reset if true, also start a new interval, so the next snapshot only holds the
+     *              requests that are recorded after this one
+     */
+    @NonNull
+    ApiMetricsSnapshot snapshot(boolean reset) {
+        final long nowNanos = mClock.nanoTime();
+        final long startNanos = reset ? mStartNanos.getAndSet(nowNanos) : mStartNanos.get();
+
+        final ApiMetricsSnapshot.Endpoint[] endpoints =
+                new ApiMetricsSnapshot.Endpoint[mEndpointMetrics.length];
+        for (int i = 0; i < mEndpointMetrics.length; i++) {
+            endpoints[i] = mEndpointMetrics[i].snapshot(getEndpointName(i), reset);
+        }
+        return new ApiMetricsSnapshot(nowNanos - startNanos, endpoints,
+                EndpointMetrics.read(mTlsHandshakeCount, reset),
+                EndpointMetrics.read(mResumedTlsHandshakeCount, reset),
+                mRateLimitQueueDepth.get(), mRateLimitWait.snapshot(reset),
+                EndpointMetrics.read(mRateLimitRejectedCount, reset));
+    }
+
+    /**
+     * @return the number of attempts recorded for the endpoint at {@code endpointIndex} since
+     * the last reset. Cheaper than {@link #getLatency(int)}.
+     */
+    long getRequestCount(int endpointIndex) {
+        final EndpointMetrics metrics = mEndpointMetrics[endpointIndex];
+        return metrics.mSuccessCount.get() + metrics.mClientErrorCount.get() +
+                metrics.mServerErrorCount.get() + metrics.mConnectionFailureCount.get();
+    }
+
+    /**
+     * @return the latencies recorded for the endpoint at {@code endpointIndex} since the last
+     * reset
+     */
+    @NonNull
+    LatencyHistogram.Snapshot getLatency(int endpointIndex) {
+        return mEndpointMetrics[endpointIndex].mLatency.snapshot(false);
+    }
+
+    /**
+     * Find the endpoint of {@code url} without allocating, by comparing the path that follows
+     * {@code /v1/} with each of {@link #ENDPOINTS}.
+     */
+    @VisibleForTesting
+    static int getEndpointIndex(@NonNull String url) {
+        final int pathStart = url.indexOf(API_PATH_PREFIX);
+        if (pathStart == -1) {
+            return ENDPOINTS.length;
+        }
+
+        final int segmentStart = pathStart + API_PATH_PREFIX.length();
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            final String endpoint = ENDPOINTS[i];
+            final int segmentEnd = segmentStart + endpoint.length();
+            if (url.startsWith(endpoint, segmentStart) &&
+                    (segmentEnd == url.length() || url.charAt(segmentEnd) == '/' ||
+                            url.charAt(segmentEnd) == '?')) {
+                return i;
+            }
+        }
+        return ENDPOINTS.length;
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static String getEndpointName(int index) {
+        return index < ENDPOINTS.length ? ENDPOINTS[index] : ENDPOINT_OTHER;
+    }
+
+    private static final class EndpointMetrics {
+        @NonNull private final LatencyHistogram mLatency = new LatencyHistogram();
+        @NonNull private final AtomicLong mSuccessCount = new AtomicLong();
+        @NonNull private final AtomicLong mClientErrorCount = new AtomicLong();
+        @NonNull private final AtomicLong mServerErrorCount = new AtomicLong();
+        @NonNull private final AtomicLong mConnectionFailureCount = new AtomicLong();
+        @NonNull private final AtomicLong mRetryCount = new AtomicLong();
+
+        @NonNull
+        private ApiMetricsSnapshot.Endpoint snapshot(@NonNull String name, boolean reset) {
+            return new ApiMetricsSnapshot.Endpoint(
+                    name,
+                    mLatency.snapshot(reset),
+                    read(mSuccessCount, reset),
+                    read(mClientErrorCount, reset),
+                    read(mServerErrorCount, reset),
+                    read(mConnectionFailureCount, reset),
+                    read(mRetryCount, reset));
+        }
+
+        static long read(@NonNull AtomicLong counter, boolean reset) {
+            return reset ? counter.getAndSet(0) : counter.get();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The latency and outcome of the requests that the SDK sent to each Stripe API endpoint during
+ * an interval. Take one with {@link Stripe#getApiMetricsSnapshot(boolean)}.
+ */
+public final class ApiMetricsSnapshot {
+    private final long mIntervalNanos;
+    @NonNull private final Map<String, Endpoint> mEndpoints;
+    private final long mTlsHandshakeCount;
+    private final long mResumedTlsHandshakeCount;
+    private final int mRateLimitQueueDepth;
+    @NonNull private final LatencyHistogram.Snapshot mRateLimitWait;
+    private final long mRateLimitRejectedCount;
+
+    ApiMetricsSnapshot(long intervalNanos, @NonNull Endpoint[] endpoints,
+                       long tlsHandshakeCount, long resumedTlsHandshakeCount,
+                       int rateLimitQueueDepth, @NonNull LatencyHistogram.Snapshot rateLimitWait,
+                       long rateLimitRejectedCount) {
+        mIntervalNanos = intervalNanos;
+        mTlsHandshakeCount = tlsHandshakeCount;
+        mResumedTlsHandshakeCount = resumedTlsHandshakeCount;
+        mRateLimitQueueDepth = rateLimitQueueDepth;
+        mRateLimitWait = rateLimitWait;
+        mRateLimitRejectedCount = rateLimitRejectedCount;
+        final Map<String, Endpoint> endpointMap = new LinkedHashMap<>(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            endpointMap.put(endpoint.getName(), endpoint);
+        }
+        mEndpoints = Collections.unmodifiableMap(endpointMap);
+    }
+
+    /**
+     * @return the length of the interval that this snapshot covers, in nanoseconds, from the
+     * last reset, or from when the SDK first sent a request if the metrics were never reset
+     */
+    public long getIntervalNanos() {
+        return mIntervalNanos;
+    }
+
+    /**
+     * @return the metrics of every endpoint, by name, including endpoints with no requests
+     */
+    @NonNull
+    public Map<String, Endpoint> getEndpoints() {
+        return mEndpoints;
+    }
+
+    /**
+     * @param name the name of an endpoint, e.g. {@code "payment_intents"}, or {@code "other"}
+     *             for requests to endpoints that are not tracked separately
+     */
+    @Nullable
+    public Endpoint getEndpoint(@NonNull String name) {
+        return mEndpoints.get(name);
+    }
+
+    /**
+     * @return the number of TLS handshakes with Stripe hosts
+     */
+    public long getTlsHandshakeCount() {
+        return mTlsHandshakeCount;
+    }
+
+    /**
+     * @return the number of TLS handshakes that resumed an earlier session instead of running a
+     * full handshake
+     */
+    public long getResumedTlsHandshakeCount() {
+        return mResumedTlsHandshakeCount;
+    }
+
+    /**
+     * @return the fraction of TLS handshakes that resumed an earlier session, from 0 to 1, or 0
+     * if there were no handshakes
+     */
+    public double getTlsResumptionRate() {
+        return mTlsHandshakeCount > 0 ?
+                (double) mResumedTlsHandshakeCount / mTlsHandshakeCount : 0;
+    }
+
+    /**
+     * @return the number of requests waiting on their thread for their turn to be sent when the
+     * snapshot was taken, because too many requests were sent with the same key. Requests of
+     * the SDK's own background tasks are rescheduled instead of waiting, and are not counted.
+     */
+    public int getRateLimitQueueDepth() {
+        return mRateLimitQueueDepth;
+    }
+
+    /**
+     * @return the number of requests that had to wait for their turn to be sent
+     */
+    public long getRateLimitedCount() {
+        return mRateLimitWait.getCount();
+    }
+
+    /**
+     * @param percentile a percentile from 0 to 100, e.g. 99.9
+     * @return the time that {@code percentile} percent of the requests that had to wait for
+     * their turn waited at most, in nanoseconds, or 0 if none had to wait
+     */
+    public long getRateLimitWaitNanos(double percentile) {
+        return mRateLimitWait.getValueAtPercentile(percentile);
+    }
+
+    public long getMaxRateLimitWaitNanos() {
+        return mRateLimitWait.getMaxNanos();
+    }
+
+    /**
+     * @return the number of requests that failed with a
+     * {@link com.stripe.android.exception.RateLimitException} before being sent, because they
+     * would have waited too long for their turn
+     */
+    public long getRateLimitRejectedCount() {
+        return mRateLimitRejectedCount;
+    }
+
+    /**
+     * The metrics of one endpoint. Every attempt at a request is counted, including retries.
+     */
+    public static final class Endpoint {
+        @NonNull private final String mName;
+        @NonNull private final LatencyHistogram.Snapshot mLatency;
+        private final long mSuccessCount;
+        private final long mClientErrorCount;
+        private final long mServerErrorCount;
+        private final long mConnectionFailureCount;
+        private final long mRetryCount;
+
+        Endpoint(@NonNull String name,
+                 @NonNull LatencyHistogram.Snapshot latency,
+                 long successCount,
+                 long clientErrorCount,
+                 long serverErrorCount,
+                 long connectionFailureCount,
+                 long retryCount) {
+            mName = name;
+            mLatency = latency;
+            mSuccessCount = successCount;
+            mClientErrorCount = clientErrorCount;
+            mServerErrorCount = serverErrorCount;
+            mConnectionFailureCount = connectionFailureCount;
+            mRetryCount = retryCount;
+        }
+
+        @NonNull
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return the number of attempts, whatever their outcome
+         */
+        public long getRequestCount() {
+            return mSuccessCount + mClientErrorCount + mServerErrorCount +
+                    mConnectionFailureCount;
+        }
+
+        /**
+         * @return the number of attempts that got a response with a status below 400
+         */
+        public long getSuccessCount() {
+            return mSuccessCount;
+        }
+
+        /**
+         * @return the number of attempts that got a {@code 4xx} response
+         */
+        public long getClientErrorCount() {
+            return mClientErrorCount;
+        }
+
+        /**
+         * @return the number of attempts that got a {@code 5xx} response
+         */
+        public long getServerErrorCount() {
+            return mServerErrorCount;
+        }
+
+        /**
+         * @return the number of attempts that failed before a response arrived
+         */
+        public long getConnectionFailureCount() {
+            return mConnectionFailureCount;
+        }
+
+        /**
+         * @return the number of attempts that retried an earlier one
+         */
+        public long getRetryCount() {
+            return mRetryCount;
+        }
+
+        /**
+         * @param percentile a percentile from 0 to 100, e.g. 99.9
+         * @return the latency that {@code percentile} percent of attempts were at or below, in
+         * nanoseconds, accurate to within about 6%, or 0 if there were no attempts
+         */
+        public long getLatencyNanos(double percentile) {
+            return mLatency.getValueAtPercentile(percentile);
+        }
+
+        public long getMeanLatencyNanos() {
+            return mLatency.getMeanNanos();
+        }
+
+        public long getMaxLatencyNanos() {
+            return mLatency.getMaxNanos();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.stripe.android;
 
-import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -8,36 +7,64 @@ import com.stripe.android.exception.StripeException;
 
 import org.json.JSONException;
 
-abstract class ApiOperation<ResultType>
-        extends AsyncTask<Void, Void, ResultWrapper<ResultType>> {
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+abstract class ApiOperation<ResultType> {
     @NonNull private final ApiResultCallback<ResultType> mCallback;
+    @NonNull private final StripeExecutor mStripeExecutor;
 
     ApiOperation(@NonNull ApiResultCallback<ResultType> callback) {
+        this(callback, StripeExecutor.getInstance());
+    }
+
+    ApiOperation(@NonNull ApiResultCallback<ResultType> callback,
+                 @NonNull StripeExecutor stripeExecutor) {
         mCallback = callback;
+        mStripeExecutor = stripeExecutor;
     }
 
-    @Override
-    protected final ResultWrapper<ResultType> doInBackground(Void... voids) {
-        try {
-            return new ResultWrapper<>(getResult());
-        } catch (StripeException | JSONException e) {
-            return new ResultWrapper<>(e);
-        }
+    /**
+     * Run the operation on the SDK's executor and deliver the result to the callback on the main
+     * thread.
+     */
+    @NonNull
+    final StripeExecutor.Task<ResultType> execute() {
+        return execute(null);
     }
 
-    @Override
-    protected final void onPostExecute(@NonNull ResultWrapper<ResultType> resultWrapper) {
-        super.onPostExecute(resultWrapper);
-        if (resultWrapper.result != null) {
-            mCallback.onSuccess(resultWrapper.result);
-        } else if (resultWrapper.error != null) {
-            mCallback.onError(resultWrapper.error);
+    /**
+     * Every operation is work the customer is waiting on to complete a payment, so it runs at
+     * {@link StripeExecutor.Priority#PAYMENT} unless an {@link Executor} is given.
+     *
+     * @param executor the {@link Executor} to run the operation on, or null to use the SDK's
+     *                 executor
+     * @param tag an object that can be passed to {@link StripeExecutor#cancelAll(Object)} to
+     *            cancel the operation
+     */
+    @NonNull
+    final StripeExecutor.Task<ResultType> execute(@Nullable Executor executor,
+                                                  @Nullable Object tag) {
+        final Callable<ResultType> callable = new Callable<ResultType>() {
+            @Nullable
+            @Override
+            public ResultType call() throws StripeException, JSONException {
+                return getResult();
+            }
+        };
+        if (executor != null) {
+            return mStripeExecutor.submit(executor, tag, callable, mCallback);
         } else {
-            mCallback.onError(new RuntimeException(
-                    "The API operation returned neither a result or exception"));
+            return mStripeExecutor.submit(StripeExecutor.Priority.PAYMENT, tag, callable,
+                    mCallback);
         }
     }
 
+    @NonNull
+    final StripeExecutor.Task<ResultType> execute(@Nullable Executor executor) {
+        return execute(executor, null);
+    }
+
     @Nullable
     abstract ResultType getResult() throws StripeException, JSONException;
 }
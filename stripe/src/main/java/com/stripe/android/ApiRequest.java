@@ -9,11 +9,13 @@ import com.stripe.android.utils.ObjectUtils;
 
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * A class representing a Stripe API or Analytics request.
@@ -21,17 +23,28 @@ import java.util.Map;
 final class ApiRequest extends StripeRequest {
     static final String MIME_TYPE = "application/x-www-form-urlencoded";
     static final String API_HOST = "https://api.stripe.com";
+    static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
 
     private static final String ANALYTICS_HOST = "https://q.stripe.com";
 
     @NonNull final Options options;
 
+    /**
+     * Sent with every POST, so that the request can be retried without being applied twice.
+     * It is the same for every attempt of this request.
+     */
+    @Nullable private final String mIdempotencyKey;
+
+    // built on first use; a race only means the same map is built twice
+    @Nullable private Map<String, String> mHeaders;
+
     private ApiRequest(@NonNull Method method,
                        @NonNull String url,
                        @Nullable Map<String, ?> params,
                        @NonNull Options options) {
         super(method, url, params, MIME_TYPE);
         this.options = options;
+        mIdempotencyKey = Method.POST == method ? UUID.randomUUID().toString() : null;
     }
 
     @NonNull
@@ -72,32 +85,28 @@ final class ApiRequest extends StripeRequest {
         return new ApiRequest(Method.GET, ANALYTICS_HOST, params, options);
     }
 
+    /**
+     * @return the headers for this request, which cannot be modified. Requests without a body
+     * share the map of their {@link Options}.
+     */
     @NonNull
     @Override
     Map<String, String> getHeaders() {
-        final Map<String, String> headers = new HashMap<>();
-        headers.put("Accept-Charset", CHARSET);
-        headers.put("Accept", "application/json");
-        headers.put("User-Agent",
-                String.format(Locale.ROOT, "Stripe/v1 AndroidBindings/%s",
-                        BuildConfig.VERSION_NAME));
-
-        // debug headers
-        final AbstractMap<String, String> propertyMap = new HashMap<>();
-        propertyMap.put("java.version", System.getProperty("java.version"));
-        propertyMap.put("os.name", "android");
-        propertyMap.put("os.version", String.valueOf(Build.VERSION.SDK_INT));
-        propertyMap.put("bindings.version", BuildConfig.VERSION_NAME);
-        propertyMap.put("lang", "Java");
-        propertyMap.put("publisher", "Stripe");
-
-        headers.put("X-Stripe-Client-User-Agent", new JSONObject(propertyMap).toString());
-        headers.put("Stripe-Version", ApiVersion.getDefault().getCode());
+        if (mIdempotencyKey == null && !isBodyCompressed()) {
+            return options.getHeaders();
+        }
 
-        headers.put("Authorization", String.format(Locale.ENGLISH,
-                "Bearer %s", options.apiKey));
-        if (options.stripeAccount != null) {
-            headers.put("Stripe-Account", options.stripeAccount);
+        Map<String, String> headers = mHeaders;
+        if (headers == null) {
+            final Map<String, String> newHeaders = new HashMap<>(options.getHeaders());
+            if (mIdempotencyKey != null) {
+                newHeaders.put(HEADER_IDEMPOTENCY_KEY, mIdempotencyKey);
+            }
+            if (isBodyCompressed()) {
+                newHeaders.put(GzipUtils.HEADER_CONTENT_ENCODING, GzipUtils.GZIP);
+            }
+            headers = Collections.unmodifiableMap(newHeaders);
+            mHeaders = headers;
         }
         return headers;
     }
@@ -105,7 +114,21 @@ final class ApiRequest extends StripeRequest {
     @NonNull
     @Override
     byte[] getOutputBytes() throws UnsupportedEncodingException, InvalidRequestException {
-        return createQuery().getBytes(CHARSET);
+        final byte[] body = createQueryBytes();
+        if (!isBodyCompressed()) {
+            return body;
+        }
+
+        try {
+            return GzipUtils.compress(body);
+        } catch (IOException e) {
+            throw new InvalidRequestException("Unable to compress the request body.",
+                    null, null, 0, null, null, null, e);
+        }
+    }
+
+    private boolean isBodyCompressed() {
+        return options.compressRequest && Method.POST == method;
     }
 
     @Override
@@ -123,33 +146,162 @@ final class ApiRequest extends StripeRequest {
         return super.typedEquals(obj) && ObjectUtils.equals(options, obj.options);
     }
 
+    /**
+     * Creates the headers that are the same for every request made by this process, apart from
+     * the API version, which is added with the headers of each {@link Options}.
+     */
+    @NonNull
+    private static Map<String, String> createStaticHeaders() {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Accept-Charset", CHARSET);
+        headers.put("Accept", "application/json");
+        headers.put("User-Agent", "Stripe/v1 AndroidBindings/" + BuildConfig.VERSION_NAME);
+
+        // debug headers
+        final AbstractMap<String, String> propertyMap = new HashMap<>();
+        propertyMap.put("java.version", System.getProperty("java.version"));
+        propertyMap.put("os.name", "android");
+        propertyMap.put("os.version", String.valueOf(Build.VERSION.SDK_INT));
+        propertyMap.put("bindings.version", BuildConfig.VERSION_NAME);
+        propertyMap.put("lang", "Java");
+        propertyMap.put("publisher", "Stripe");
+
+        headers.put("X-Stripe-Client-User-Agent", new JSONObject(propertyMap).toString());
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Holds the static headers, so that they are built on first use rather than when
+     * {@link ApiRequest} is loaded.
+     */
+    private static final class StaticHeaders {
+        @NonNull private static final Map<String, String> HEADERS = createStaticHeaders();
+    }
+
+    /**
+     * Keeps the headers of the last few distinct {@link Options}, since {@link StripeApiHandler}
+     * creates new options for every call, mostly with the same key. Entries are matched by
+     * comparing the values they were built from, so that looking one up allocates nothing.
+     */
+    private static final class HeadersCache {
+        private static final int SIZE = 4;
+
+        @NonNull private static final HeadersCache INSTANCE = new HeadersCache();
+
+        @NonNull private final Entry[] mEntries = new Entry[SIZE];
+        private int mNextIndex;
+
+        @NonNull
+        synchronized Map<String, String> get(@NonNull String apiKey,
+                                             @Nullable String stripeAccount) {
+            final String apiVersion = ApiVersion.getDefault().getCode();
+            for (Entry entry : mEntries) {
+                if (entry != null && entry.mApiKey.equals(apiKey) &&
+                        ObjectUtils.equals(entry.mStripeAccount, stripeAccount) &&
+                        entry.mApiVersion.equals(apiVersion)) {
+                    return entry.mHeaders;
+                }
+            }
+
+            final Entry entry = new Entry(apiKey, stripeAccount, apiVersion,
+                    createHeaders(apiKey, stripeAccount, apiVersion));
+            mEntries[mNextIndex] = entry;
+            mNextIndex = (mNextIndex + 1) % SIZE;
+            return entry.mHeaders;
+        }
+
+        @NonNull
+        private static Map<String, String> createHeaders(@NonNull String apiKey,
+                                                         @Nullable String stripeAccount,
+                                                         @NonNull String apiVersion) {
+            final Map<String, String> staticHeaders = StaticHeaders.HEADERS;
+            final Map<String, String> headers =
+                    new HashMap<>((staticHeaders.size() + 3) * 4 / 3 + 1);
+            headers.putAll(staticHeaders);
+            headers.put("Stripe-Version", apiVersion);
+            headers.put("Authorization", "Bearer " + apiKey);
+            if (stripeAccount != null) {
+                headers.put("Stripe-Account", stripeAccount);
+            }
+            return Collections.unmodifiableMap(headers);
+        }
+
+        private static final class Entry {
+            @NonNull private final String mApiKey;
+            @Nullable private final String mStripeAccount;
+            @NonNull private final String mApiVersion;
+            @NonNull private final Map<String, String> mHeaders;
+
+            private Entry(@NonNull String apiKey,
+                          @Nullable String stripeAccount,
+                          @NonNull String apiVersion,
+                          @NonNull Map<String, String> headers) {
+                mApiKey = apiKey;
+                mStripeAccount = stripeAccount;
+                mApiVersion = apiVersion;
+                mHeaders = headers;
+            }
+        }
+    }
+
     /**
      * Data class representing options for a Stripe API request.
      */
     static final class Options {
         @NonNull final String apiKey;
         @Nullable final String stripeAccount;
+        final boolean compressRequest;
+
+        // built on first use; a race only means the same map is built twice
+        @Nullable private Map<String, String> mHeaders;
 
         @NonNull
         static Options create(@NonNull String apiKey) {
-            return new Options(apiKey, null);
+            return new Options(apiKey, null, false);
         }
 
         @NonNull
         static Options create(@NonNull String apiKey, @Nullable String stripeAccount) {
-            return new Options(apiKey, stripeAccount);
+            return new Options(apiKey, stripeAccount, false);
+        }
+
+        /**
+         * @param compressRequest if true, POST bodies are gzip-encoded and sent with
+         *                        {@code Content-Encoding: gzip}
+         */
+        @NonNull
+        static Options create(@NonNull String apiKey, @Nullable String stripeAccount,
+                              boolean compressRequest) {
+            return new Options(apiKey, stripeAccount, compressRequest);
         }
 
         private Options(
                 @NonNull String apiKey,
-                @Nullable String stripeAccount) {
+                @Nullable String stripeAccount,
+                boolean compressRequest) {
             this.apiKey = new ApiKeyValidator().requireValid(apiKey);
             this.stripeAccount = stripeAccount;
+            this.compressRequest = compressRequest;
+        }
+
+        /**
+         * @return the static headers plus the headers that depend on these options, which are
+         * shared with other options of the same key, account and API version through the
+         * {@link HeadersCache}
+         */
+        @NonNull
+        Map<String, String> getHeaders() {
+            Map<String, String> headers = mHeaders;
+            if (headers == null) {
+                headers = HeadersCache.INSTANCE.get(apiKey, stripeAccount);
+                mHeaders = headers;
+            }
+            return headers;
         }
 
         @Override
         public int hashCode() {
-            return ObjectUtils.hash(apiKey, stripeAccount);
+            return ObjectUtils.hash(apiKey, stripeAccount, compressRequest);
         }
 
         @Override
@@ -159,7 +311,8 @@ final class ApiRequest extends StripeRequest {
 
         private boolean typedEquals(@NonNull Options obj) {
             return ObjectUtils.equals(apiKey, obj.apiKey) &&
-                    ObjectUtils.equals(stripeAccount, obj.stripeAccount);
+                    ObjectUtils.equals(stripeAccount, obj.stripeAccount) &&
+                    compressRequest == obj.compressRequest;
         }
     }
 }
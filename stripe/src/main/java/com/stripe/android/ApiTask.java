@@ -0,0 +1,23 @@
+package com.stripe.android;
+
+/**
+ * A handle to an API operation that runs in the background, such as one started by
+ * {@link Stripe}'s asynchronous methods
+ */
+public interface ApiTask {
+    /**
+     * Cancel the operation. An operation that has not started yet never runs, and the callback
+     * of a cancelled operation is not called. A request that was already sent may still be
+     * completed by Stripe.
+     *
+     * @return false if the operation had already completed or been cancelled
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    /**
+     * @return true if the operation completed, failed or was cancelled
+     */
+    boolean isDone();
+}
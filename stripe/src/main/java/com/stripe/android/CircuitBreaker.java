@@ -0,0 +1,156 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops requests to a host that keeps failing, so that they fail at once instead of each
+ * waiting for the connect timeout.
+ *
+ * Each host has its own {@link State}. A host starts {@link State#CLOSED}, and opens after
+ * {@code failureThreshold} requests in a row fail to connect. While {@link State#OPEN}, no
+ * requests are allowed. When the cool-down has passed, the host becomes
+ * {@link State#HALF_OPEN}, and a single probe request is allowed: if it succeeds the host
+ * closes again, and if it fails the host reopens with twice the cool-down, up to
+ * {@code maxCoolDownMs}.
+ */
+final class CircuitBreaker {
+    static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    static final long DEFAULT_COOL_DOWN_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long DEFAULT_MAX_COOL_DOWN_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @NonNull private final Map<String, HostState> mHostStates = new HashMap<>();
+    @NonNull private final Clock mClock;
+    private final int mFailureThreshold;
+    private final long mCoolDownNanos;
+    private final long mMaxCoolDownNanos;
+
+    CircuitBreaker() {
+        this(Clock.SYSTEM, DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOL_DOWN_MS,
+                DEFAULT_MAX_COOL_DOWN_MS);
+    }
+
+    /**
+     * @param failureThreshold the number of failures in a row that opens the circuit of a host
+     * @param coolDownMs how long the circuit stays open before a probe request is allowed
+     * @param maxCoolDownMs the longest cool-down after repeated failed probes
+     */
+    @VisibleForTesting
+    CircuitBreaker(@NonNull Clock clock, int failureThreshold, long coolDownMs,
+                   long maxCoolDownMs) {
+        mClock = clock;
+        mFailureThreshold = failureThreshold;
+        mCoolDownNanos = TimeUnit.MILLISECONDS.toNanos(coolDownMs);
+        mMaxCoolDownNanos = TimeUnit.MILLISECONDS.toNanos(maxCoolDownMs);
+    }
+
+    /**
+     * @return true if a request to {@code host} may be sent now. When this returns true, the
+     * outcome of the request must be reported with {@link #onSuccess(String)} or
+     * {@link #onFailure(String)}.
+     */
+    synchronized boolean allowRequest(@NonNull String host) {
+        final HostState hostState = mHostStates.get(host);
+        if (hostState == null) {
+            return true;
+        }
+
+        if (hostState.mState == State.CLOSED) {
+            return true;
+        }
+        if (hostState.mState == State.HALF_OPEN ||
+                mClock.nanoTime() - hostState.mOpenedAtNanos < hostState.mCoolDownNanos) {
+            // a probe is already in flight, or the cool-down has not passed yet
+            return false;
+        }
+
+        // let one probe through
+        hostState.mState = State.HALF_OPEN;
+        return true;
+    }
+
+    synchronized void onSuccess(@NonNull String host) {
+        // only hosts that have failed need any state
+        mHostStates.remove(host);
+    }
+
+    synchronized void onFailure(@NonNull String host) {
+        HostState hostState = mHostStates.get(host);
+        if (hostState == null) {
+            hostState = new HostState();
+            mHostStates.put(host, hostState);
+        }
+
+        if (hostState.mState == State.HALF_OPEN) {
+            hostState.mCoolDownNanos = Math.min(mMaxCoolDownNanos, hostState.mCoolDownNanos * 2);
+            open(hostState);
+        } else if (hostState.mState == State.CLOSED &&
+                ++hostState.mFailureCount >= mFailureThreshold) {
+            hostState.mCoolDownNanos = mCoolDownNanos;
+            open(hostState);
+        }
+    }
+
+    @VisibleForTesting
+    @NonNull
+    synchronized State getState(@NonNull String host) {
+        final HostState hostState = mHostStates.get(host);
+        return hostState != null ? hostState.mState : State.CLOSED;
+    }
+
+    private void open(@NonNull HostState hostState) {
+        hostState.mState = State.OPEN;
+        hostState.mOpenedAtNanos = mClock.nanoTime();
+    }
+
+    /**
+     * @return the host of {@code url}, e.g. {@code q.stripe.com}, or null if it has none
+     */
+    @Nullable
+    static String getHost(@NonNull String url) {
+        final int schemeEnd = url.indexOf("://");
+        if (schemeEnd < 0) {
+            return null;
+        }
+
+        final int hostStart = schemeEnd + 3;
+        int hostEnd = hostStart;
+        while (hostEnd < url.length()) {
+            final char c = url.charAt(hostEnd);
+            if (c == '/' || c == ':' || c == '?' || c == '#') {
+                break;
+            }
+            hostEnd++;
+        }
+        return hostEnd > hostStart ? url.substring(hostStart, hostEnd) : null;
+    }
+
+    enum State {
+        /**
+         * Requests are allowed
+         */
+        CLOSED,
+
+        /**
+         * Requests fail at once until the cool-down has passed
+         */
+        OPEN,
+
+        /**
+         * A single probe request is in flight
+         */
+        HALF_OPEN
+    }
+
+    private static final class HostState {
+        @NonNull private State mState = State.CLOSED;
+        private int mFailureCount;
+        private long mOpenedAtNanos;
+        private long mCoolDownNanos;
+    }
+}
@@ -0,0 +1,19 @@
+package com.stripe.android;
+
+/**
+ * A source of monotonic time. Time-based policies take a {@link Clock} so that tests can control
+ * the passage of time.
+ */
+interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * @return the current value of a monotonic time source, in nanoseconds
+     */
+    long nanoTime();
+}
@@ -0,0 +1,152 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds idle keep-alive {@link HttpConnection}s, grouped by {@link HttpConnection.Address}, so
+ * that they can be reused by later requests to the same host. Connections that have been idle
+ * for longer than the keep-alive duration are evicted and closed.
+ */
+final class ConnectionPool {
+    static final int DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST = 5;
+
+    // Kept below the idle timeout of Stripe's load balancers so that pooled connections are
+    // rarely closed by the server before they are reused.
+    static final long DEFAULT_KEEP_ALIVE_DURATION_MS = TimeUnit.SECONDS.toMillis(30);
+
+    @NonNull private final Map<HttpConnection.Address, Deque<HttpConnection>> mIdleConnections =
+            new HashMap<>();
+    private final int mMaxIdleConnectionsPerHost;
+    private final long mKeepAliveDurationNanos;
+
+    ConnectionPool() {
+        this(DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST, DEFAULT_KEEP_ALIVE_DURATION_MS);
+    }
+
+    @VisibleForTesting
+    ConnectionPool(int maxIdleConnectionsPerHost, long keepAliveDurationMs) {
+        mMaxIdleConnectionsPerHost = maxIdleConnectionsPerHost;
+        mKeepAliveDurationNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveDurationMs);
+    }
+
+    /**
+     * @return the most recently used idle connection to the given address, or {@code null} if
+     * there is none
+     */
+    @Nullable
+    HttpConnection acquire(@NonNull HttpConnection.Address address) {
+        final List<HttpConnection> expired = new ArrayList<>();
+        final HttpConnection connection;
+        synchronized (this) {
+            evictExpired(System.nanoTime(), expired);
+            final Deque<HttpConnection> connections = mIdleConnections.get(address);
+            connection = connections != null ? connections.pollFirst() : null;
+        }
+        closeAll(expired);
+        return connection;
+    }
+
+    /**
+     * @return true if the pool holds an idle connection to the given address that has not
+     * outlived the keep-alive duration
+     */
+    boolean hasIdleConnection(@NonNull HttpConnection.Address address) {
+        final List<HttpConnection> expired = new ArrayList<>();
+        final boolean hasIdleConnection;
+        synchronized (this) {
+            evictExpired(System.nanoTime(), expired);
+            final Deque<HttpConnection> connections = mIdleConnections.get(address);
+            hasIdleConnection = connections != null && !connections.isEmpty();
+        }
+        closeAll(expired);
+        return hasIdleConnection;
+    }
+
+    /**
+     * Return a connection to the pool after an exchange completed. Connections that cannot be
+     * reused are closed instead.
+     */
+    void release(@NonNull HttpConnection connection) {
+        if (!connection.isReusable()) {
+            connection.close();
+            return;
+        }
+
+        final List<HttpConnection> evicted = new ArrayList<>();
+        synchronized (this) {
+            final long now = System.nanoTime();
+            evictExpired(now, evicted);
+            connection.markIdle(now);
+
+            final HttpConnection.Address address = connection.getAddress();
+            Deque<HttpConnection> connections = mIdleConnections.get(address);
+            if (connections == null) {
+                connections = new ArrayDeque<>();
+                mIdleConnections.put(address, connections);
+            }
+            connections.offerFirst(connection);
+            while (connections.size() > mMaxIdleConnectionsPerHost) {
+                evicted.add(connections.pollLast());
+            }
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * Close and remove every idle connection.
+     */
+    void evictAll() {
+        final List<HttpConnection> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (Deque<HttpConnection> connections : mIdleConnections.values()) {
+                evicted.addAll(connections);
+            }
+            mIdleConnections.clear();
+        }
+        closeAll(evicted);
+    }
+
+    @VisibleForTesting
+    synchronized int getIdleConnectionCount() {
+        int count = 0;
+        for (Deque<HttpConnection> connections : mIdleConnections.values()) {
+            count += connections.size();
+        }
+        return count;
+    }
+
+    private void evictExpired(long nowNanos, @NonNull List<HttpConnection> evicted) {
+        final Iterator<Deque<HttpConnection>> hosts = mIdleConnections.values().iterator();
+        while (hosts.hasNext()) {
+            final Deque<HttpConnection> connections = hosts.next();
+            final Iterator<HttpConnection> iterator = connections.iterator();
+            while (iterator.hasNext()) {
+                final HttpConnection connection = iterator.next();
+                if (nowNanos - connection.getIdleAtNanos() >= mKeepAliveDurationNanos) {
+                    iterator.remove();
+                    evicted.add(connection);
+                }
+            }
+            if (connections.isEmpty()) {
+                hosts.remove();
+            }
+        }
+    }
+
+    private static void closeAll(@NonNull List<HttpConnection> connections) {
+        for (HttpConnection connection : connections) {
+            connection.close();
+        }
+    }
+}
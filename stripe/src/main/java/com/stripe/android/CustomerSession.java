@@ -35,8 +35,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -91,13 +89,6 @@ public class CustomerSession {
         int PAYMENT_METHODS_RETRIEVED = 6;
     }
 
-    // The maximum number of active threads we support
-    private static final int THREAD_POOL_SIZE = 3;
-    // Sets the amount of time an idle thread waits before terminating
-    private static final int KEEP_ALIVE_TIME = 2;
-    // Sets the Time Unit to seconds
-    private static final TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.SECONDS;
-
     private static final long KEY_REFRESH_BUFFER_IN_SECONDS = 30L;
     private static final long CUSTOMER_CACHE_DURATION_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
 
@@ -113,7 +104,7 @@ public class CustomerSession {
     @NonNull private final Handler mUiThreadHandler;
     @NonNull private final Set<String> mProductUsageTokens;
     @Nullable private final Calendar mProxyNowCalendar;
-    @NonNull private final ThreadPoolExecutor mThreadPoolExecutor;
+    @NonNull private final StripeExecutor mStripeExecutor;
     @NonNull private final StripeApiHandler mApiHandler;
 
     /**
@@ -180,11 +171,11 @@ public class CustomerSession {
         if (mInstance == null) {
             return;
         }
-        mInstance.mThreadPoolExecutor.shutdownNow();
+        mInstance.mStripeExecutor.cancelAll(mInstance);
     }
 
     private CustomerSession(@NonNull Context context, @NonNull EphemeralKeyProvider keyProvider) {
-        this(context, keyProvider, null, createThreadPoolExecutor(),
+        this(context, keyProvider, null, StripeExecutor.getInstance(),
                 new StripeApiHandler(context));
     }
 
@@ -193,11 +184,11 @@ public class CustomerSession {
             @NonNull Context context,
             @NonNull EphemeralKeyProvider keyProvider,
             @Nullable Calendar proxyNowCalendar,
-            @NonNull ThreadPoolExecutor threadPoolExecutor,
+            @NonNull StripeExecutor stripeExecutor,
             @NonNull StripeApiHandler apiHandler) {
         mOperationIdFactory = new OperationIdFactory();
         mLocalBroadcastManager = LocalBroadcastManager.getInstance(context);
-        mThreadPoolExecutor = threadPoolExecutor;
+        mStripeExecutor = stripeExecutor;
         mProxyNowCalendar = proxyNowCalendar;
         mProductUsageTokens = new HashSet<>();
         mApiHandler = apiHandler;
@@ -602,7 +593,7 @@ public class CustomerSession {
     }
 
     private void executeRunnable(@NonNull Runnable runnable) {
-        mThreadPoolExecutor.execute(runnable);
+        mStripeExecutor.execute(StripeExecutor.Priority.CUSTOMER, this, runnable);
     }
 
     @NonNull
@@ -705,16 +696,6 @@ public class CustomerSession {
         resetUsageTokens();
     }
 
-    @NonNull
-    private static ThreadPoolExecutor createThreadPoolExecutor() {
-        return new ThreadPoolExecutor(
-                THREAD_POOL_SIZE,
-                THREAD_POOL_SIZE,
-                KEEP_ALIVE_TIME,
-                KEEP_ALIVE_TIME_UNIT,
-                new LinkedBlockingQueue<Runnable>());
-    }
-
     @NonNull
     private Calendar getCalendarInstance() {
         return mProxyNowCalendar == null ? Calendar.getInstance() : mProxyNowCalendar;
@@ -0,0 +1,239 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DnsResolver} that caches the results of another resolver.
+ *
+ * <ul>
+ *     <li>Successful lookups are cached for the TTL.</li>
+ *     <li>Failed lookups are cached for the negative TTL, so that an unresolvable host does not
+ *     cost a lookup on every request.</li>
+ *     <li>Once a successful lookup expires, it is still served for the stale TTL while it is
+ *     refreshed in the background.</li>
+ * </ul>
+ *
+ * Unlike changing the "networkaddress.cache.ttl" security property, this only affects the
+ * SDK's own requests. The host app can change the TTLs and the resolver of the process-wide
+ * instance through {@link Stripe#setDnsCacheTtl(long, long)} and
+ * {@link Stripe#setDnsResolver(DnsResolver)}.
+ */
+final class DnsCache implements DnsResolver {
+    static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(1);
+    static final long DEFAULT_NEGATIVE_TTL_MS = TimeUnit.SECONDS.toMillis(5);
+    static final long DEFAULT_STALE_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @Nullable private static DnsCache sInstance;
+
+    @NonNull private final Executor mRefreshExecutor;
+    @NonNull private final Clock mClock;
+    private final long mStaleTtlNanos;
+
+    // guarded by this
+    @NonNull private DnsResolver mResolver;
+    private long mTtlNanos;
+    private long mNegativeTtlNanos;
+    @NonNull private final Map<String, Entry> mEntries = new HashMap<>();
+
+    @NonNull
+    static synchronized DnsCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new DnsCache(DnsResolver.SYSTEM, createRefreshExecutor(), Clock.SYSTEM,
+                    DEFAULT_TTL_MS, DEFAULT_NEGATIVE_TTL_MS, DEFAULT_STALE_TTL_MS);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param resolver the resolver used on a cache miss and to refresh stale entries
+     * @param refreshExecutor the {@link Executor} that stale entries are refreshed on
+     * @param ttlMs how long a successful lookup is served from the cache
+     * @param negativeTtlMs how long a failed lookup is served from the cache
+     * @param staleTtlMs how long an expired successful lookup is still served while it is
+     *                   being refreshed
+     */
+    @VisibleForTesting
+    DnsCache(@NonNull DnsResolver resolver,
+             @NonNull Executor refreshExecutor,
+             @NonNull Clock clock,
+             long ttlMs,
+             long negativeTtlMs,
+             long staleTtlMs) {
+        mResolver = resolver;
+        mRefreshExecutor = refreshExecutor;
+        mClock = clock;
+        mTtlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        mNegativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+        mStaleTtlNanos = TimeUnit.MILLISECONDS.toNanos(staleTtlMs);
+    }
+
+    @NonNull
+    @Override
+    public InetAddress[] lookup(@NonNull String host) throws UnknownHostException {
+        final String key = host.toLowerCase(Locale.ROOT);
+        final long now = mClock.nanoTime();
+
+        final Entry entry;
+        boolean shouldRefresh = false;
+        synchronized (this) {
+            entry = mEntries.get(key);
+            if (entry != null && entry.isServableWhileStale(now) && !entry.mIsRefreshing) {
+                entry.mIsRefreshing = true;
+                shouldRefresh = true;
+            }
+        }
+
+        if (entry != null) {
+            if (entry.isFresh(now)) {
+                return entry.getAddresses(host);
+            } else if (entry.isServableWhileStale(now)) {
+                if (shouldRefresh) {
+                    refresh(key, host, entry);
+                }
+                return entry.getAddresses(host);
+            }
+        }
+
+        return resolve(key, host);
+    }
+
+    /**
+     * Remove every cached lookup.
+     */
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * Change how long lookups are cached, and remove every cached lookup.
+     *
+     * @param ttlMs how long a successful lookup is served from the cache
+     * @param negativeTtlMs how long a failed lookup is served from the cache
+     */
+    synchronized void setTtls(long ttlMs, long negativeTtlMs) {
+        if (ttlMs < 0 || negativeTtlMs < 0) {
+            throw new IllegalArgumentException("ttlMs and negativeTtlMs must not be negative");
+        }
+        mTtlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        mNegativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+        mEntries.clear();
+    }
+
+    /**
+     * Change the resolver used on a cache miss, and remove every cached lookup. Lookups that are
+     * still running on the previous resolver are not cached.
+     */
+    synchronized void setResolver(@NonNull DnsResolver resolver) {
+        mResolver = resolver;
+        mEntries.clear();
+    }
+
+    @NonNull
+    private InetAddress[] resolve(@NonNull String key, @NonNull String host)
+            throws UnknownHostException {
+        final DnsResolver resolver = getResolver();
+        try {
+            final InetAddress[] addresses = resolver.lookup(host);
+            put(key, resolver, addresses.clone(), null);
+            return addresses;
+        } catch (UnknownHostException e) {
+            put(key, resolver, null, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void refresh(@NonNull final String key,
+                         @NonNull final String host,
+                         @NonNull final Entry staleEntry) {
+        mRefreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DnsResolver resolver = getResolver();
+                try {
+                    final InetAddress[] addresses = resolver.lookup(host);
+                    put(key, resolver, addresses.clone(), null);
+                } catch (UnknownHostException ignore) {
+                    // keep serving the stale addresses until they are too old
+                    synchronized (DnsCache.this) {
+                        staleEntry.mIsRefreshing = false;
+                    }
+                }
+            }
+        });
+    }
+
+    @NonNull
+    private synchronized DnsResolver getResolver() {
+        return mResolver;
+    }
+
+    /**
+     * Cache the result of a lookup, unless the resolver that made it has been replaced.
+     */
+    private synchronized void put(@NonNull String key,
+                                  @NonNull DnsResolver resolver,
+                                  @Nullable InetAddress[] addresses,
+                                  @Nullable String errorMessage) {
+        if (resolver != mResolver) {
+            return;
+        }
+        final long ttlNanos = addresses != null ? mTtlNanos : mNegativeTtlNanos;
+        mEntries.put(key, new Entry(addresses, errorMessage, mClock.nanoTime() + ttlNanos));
+    }
+
+    @NonNull
+    private static Executor createRefreshExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                final Thread thread = new Thread(runnable, "StripeDnsRefresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private final class Entry {
+        @Nullable private final InetAddress[] mAddresses;
+        @Nullable private final String mErrorMessage;
+        private final long mExpiresAtNanos;
+        private boolean mIsRefreshing;
+
+        private Entry(@Nullable InetAddress[] addresses,
+                      @Nullable String errorMessage,
+                      long expiresAtNanos) {
+            mAddresses = addresses;
+            mErrorMessage = errorMessage;
+            mExpiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isFresh(long nowNanos) {
+            return nowNanos - mExpiresAtNanos < 0;
+        }
+
+        private boolean isServableWhileStale(long nowNanos) {
+            return mAddresses != null && !isFresh(nowNanos)
+                    && nowNanos - (mExpiresAtNanos + mStaleTtlNanos) < 0;
+        }
+
+        @NonNull
+        private InetAddress[] getAddresses(@NonNull String host) throws UnknownHostException {
+            if (mAddresses == null) {
+                throw new UnknownHostException(mErrorMessage != null ? mErrorMessage : host);
+            }
+            return mAddresses.clone();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves a host name to the IP addresses that the SDK connects to. Set one with
+ * {@link Stripe#setDnsResolver(DnsResolver)}, e.g. to resolve the Stripe API over
+ * DNS-over-HTTPS.
+ */
+public interface DnsResolver {
+    /**
+     * Resolves through {@link InetAddress#getAllByName(String)}
+     */
+    DnsResolver SYSTEM = new DnsResolver() {
+        @NonNull
+        @Override
+        public InetAddress[] lookup(@NonNull String host) throws UnknownHostException {
+            return InetAddress.getAllByName(host);
+        }
+    };
+
+    /**
+     * @return the addresses of the host, in the order they should be attempted
+     * @throws UnknownHostException if the host could not be resolved
+     */
+    @NonNull
+    InetAddress[] lookup(@NonNull String host) throws UnknownHostException;
+}
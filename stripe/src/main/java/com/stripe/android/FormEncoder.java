@@ -0,0 +1,259 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes nested request params as {@code application/x-www-form-urlencoded} in a single pass.
+ *
+ * Nested maps and lists are flattened into keys such as {@code card[number]} and
+ * {@code items[][type]}, and every key and value is encoded the same way as
+ * {@link java.net.URLEncoder#encode(String, String)} with UTF-8. Keys and pairs are written
+ * straight into a per-thread byte buffer that is reused between requests, so no intermediate
+ * lists of pairs or encoded strings are created.
+ */
+final class FormEncoder {
+    private static final String CHARSET = StripeRequest.CHARSET;
+
+    /**
+     * Buffers that have grown past this size are dropped after use rather than kept for reuse.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 16 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+
+    /**
+     * For each ASCII character, the byte it is written as, or 0 if it has to be percent-encoded.
+     */
+    private static final byte[] ASCII_TABLE = createAsciiTable();
+
+    private static final byte[] OPEN_BRACKET = {'%', '5', 'B'};
+    private static final byte[] CLOSE_BRACKET = {'%', '5', 'D'};
+    private static final byte[] LIST_SUFFIX = {'%', '5', 'B', '%', '5', 'D'};
+    private static final String NULL_KEY = "null";
+
+    private static final ThreadLocal<FormEncoder> ENCODERS = new ThreadLocal<FormEncoder>() {
+        @Override
+        protected FormEncoder initialValue() {
+            return new FormEncoder();
+        }
+    };
+
+    @NonNull private byte[] mOutput = new byte[INITIAL_BUFFER_SIZE];
+    private int mOutputLength;
+    @NonNull private byte[] mKey = new byte[INITIAL_BUFFER_SIZE];
+    private int mKeyLength;
+
+    private FormEncoder() {
+    }
+
+    /**
+     * @return the encoded params, or an empty array if there are none
+     * @throws InvalidRequestException if a value is an empty string
+     */
+    @NonNull
+    static byte[] encode(@Nullable Map<String, ?> params) throws InvalidRequestException {
+        final FormEncoder encoder = ENCODERS.get();
+        try {
+            encoder.writeMap(params, false);
+            return Arrays.copyOf(encoder.mOutput, encoder.mOutputLength);
+        } finally {
+            encoder.reset();
+        }
+    }
+
+    private void reset() {
+        mOutputLength = 0;
+        mKeyLength = 0;
+        if (mOutput.length > MAX_RETAINED_BUFFER_SIZE) {
+            mOutput = new byte[INITIAL_BUFFER_SIZE];
+        }
+        if (mKey.length > MAX_RETAINED_BUFFER_SIZE) {
+            mKey = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    private void writeMap(@Nullable Map<?, ?> params, boolean isNested)
+            throws InvalidRequestException {
+        if (params == null) {
+            return;
+        }
+
+        final int prefixLength = mKeyLength;
+        for (Map.Entry<?, ?> entry : params.entrySet()) {
+            final String key = (String) entry.getKey();
+            if (isNested) {
+                appendKey(OPEN_BRACKET);
+                appendKey(key != null ? key : NULL_KEY);
+                appendKey(CLOSE_BRACKET);
+            } else {
+                appendKey(key != null ? key : NULL_KEY);
+            }
+
+            writeValue(entry.getValue());
+            mKeyLength = prefixLength;
+        }
+    }
+
+    private void writeList(@NonNull List<?> params) throws InvalidRequestException {
+        // Because application/x-www-form-urlencoded cannot represent an empty
+        // list, convention is to take the list parameter and just set it to an
+        // empty string. (e.g. A regular list might look like `a[]=1&b[]=2`.
+        // Emptying it would look like `a=`.)
+        if (params.isEmpty()) {
+            writePair("");
+            return;
+        }
+
+        final int prefixLength = mKeyLength;
+        appendKey(LIST_SUFFIX);
+        for (Object param : params) {
+            writeValue(param);
+        }
+        mKeyLength = prefixLength;
+    }
+
+    private void writeValue(@Nullable Object value) throws InvalidRequestException {
+        if (value instanceof Map<?, ?>) {
+            writeMap((Map<?, ?>) value, true);
+        } else if (value instanceof List<?>) {
+            writeList((List<?>) value);
+        } else if ("".equals(value)) {
+            final String key = getKey();
+            throw new InvalidRequestException("You cannot set '" + key + "' to an empty "
+                    + "string. " + "We interpret empty strings as null in requests. "
+                    + "You may set '" + key + "' to null to delete the property.",
+                    key, null, 0, null, null, null, null);
+        } else if (value == null) {
+            writePair("");
+        } else {
+            writePair(value.toString());
+        }
+    }
+
+    private void writePair(@NonNull String value) {
+        ensureOutputCapacity(mKeyLength + 2);
+        if (mOutputLength > 0) {
+            mOutput[mOutputLength++] = '&';
+        }
+        System.arraycopy(mKey, 0, mOutput, mOutputLength, mKeyLength);
+        mOutputLength += mKeyLength;
+        mOutput[mOutputLength++] = '=';
+        writeEncoded(value);
+    }
+
+    private void appendKey(@NonNull String key) {
+        // swap buffers so that the key can be encoded with the same code as values
+        final byte[] output = mOutput;
+        final int outputLength = mOutputLength;
+        mOutput = mKey;
+        mOutputLength = mKeyLength;
+        writeEncoded(key);
+        mKey = mOutput;
+        mKeyLength = mOutputLength;
+        mOutput = output;
+        mOutputLength = outputLength;
+    }
+
+    private void appendKey(@NonNull byte[] encoded) {
+        if (mKeyLength + encoded.length > mKey.length) {
+            mKey = Arrays.copyOf(mKey, Math.max(mKey.length * 2, mKeyLength + encoded.length));
+        }
+        System.arraycopy(encoded, 0, mKey, mKeyLength, encoded.length);
+        mKeyLength += encoded.length;
+    }
+
+    /**
+     * Write {@code value} encoded as UTF-8 and percent-encoded, matching
+     * {@link java.net.URLEncoder}: unreserved characters are written as-is, a space becomes
+     * {@code +}, and unpaired surrogates are replaced with {@code ?} before encoding.
+     */
+    private void writeEncoded(@NonNull String value) {
+        final int length = value.length();
+        // worst case: every char is a 3-byte UTF-8 sequence written as %XX%XX%XX
+        ensureOutputCapacity(length * 9);
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                final byte safe = ASCII_TABLE[c];
+                if (safe != 0) {
+                    mOutput[mOutputLength++] = safe;
+                } else {
+                    writePercentEncoded(c);
+                }
+            } else if (c < 0x800) {
+                writePercentEncoded(0xC0 | (c >> 6));
+                writePercentEncoded(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writePercentEncoded(0xF0 | (codePoint >> 18));
+                writePercentEncoded(0x80 | ((codePoint >> 12) & 0x3F));
+                writePercentEncoded(0x80 | ((codePoint >> 6) & 0x3F));
+                writePercentEncoded(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writePercentEncoded('?');
+            } else {
+                writePercentEncoded(0xE0 | (c >> 12));
+                writePercentEncoded(0x80 | ((c >> 6) & 0x3F));
+                writePercentEncoded(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writePercentEncoded(int b) {
+        mOutput[mOutputLength++] = '%';
+        mOutput[mOutputLength++] = HEX_DIGITS[(b >> 4) & 0xF];
+        mOutput[mOutputLength++] = HEX_DIGITS[b & 0xF];
+    }
+
+    private void ensureOutputCapacity(int additional) {
+        if (mOutputLength + additional > mOutput.length) {
+            mOutput = Arrays.copyOf(mOutput,
+                    Math.max(mOutput.length * 2, mOutputLength + additional));
+        }
+    }
+
+    /**
+     * @return the unencoded key currently being written, for error messages
+     */
+    @NonNull
+    private String getKey() {
+        try {
+            return URLDecoder.decode(new String(mKey, 0, mKeyLength, CHARSET), CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NonNull
+    private static byte[] createAsciiTable() {
+        final byte[] table = new byte[0x80];
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[c] = (byte) c;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            table[c] = (byte) c;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            table[c] = (byte) c;
+        }
+        table['.'] = '.';
+        table['-'] = '-';
+        table['*'] = '*';
+        table['_'] = '_';
+        table[' '] = '+';
+        return table;
+    }
+}
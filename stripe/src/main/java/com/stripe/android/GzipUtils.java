@@ -0,0 +1,71 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class for gzip content coding of request and response bodies.
+ */
+final class GzipUtils {
+    static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private GzipUtils() {
+    }
+
+    /**
+     * @return true if the response headers say that the body is gzip-encoded
+     */
+    static boolean isGzipped(@Nullable Map<String, List<String>> headers) {
+        if (headers == null) {
+            return false;
+        }
+
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (HEADER_CONTENT_ENCODING.equalsIgnoreCase(header.getKey())
+                    && header.getValue() != null) {
+                for (String value : header.getValue()) {
+                    if (GZIP.equalsIgnoreCase(value.trim())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    static byte[] compress(@NonNull byte[] bytes) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2 + 32);
+        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+            gzipOutput.write(bytes);
+        }
+        return output.toByteArray();
+    }
+
+    @NonNull
+    static byte[] decompress(@NonNull byte[] bytes) throws IOException {
+        // compressed JSON is typically 4-10x smaller than the original
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+        try (GZIPInputStream gzipInput = new GZIPInputStream(
+                new ByteArrayInputStream(bytes), BUFFER_SIZE)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = gzipInput.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,484 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A single HTTP/1.1 connection to a host that can carry several request/response exchanges,
+ * one after another. Instances are handed out and taken back by {@link ConnectionPool}.
+ */
+final class HttpConnection {
+    private static final String HEADER_CHARSET = "ISO-8859-1";
+    private static final String CRLF = "\r\n";
+    private static final int BUFFER_SIZE = 8192;
+
+    @NonNull private final Address mAddress;
+    @NonNull private final Socket mSocket;
+    @NonNull private final InputStream mInput;
+    @NonNull private final OutputStream mOutput;
+
+    private boolean mIsReusable = true;
+    private boolean mHasResponseStarted;
+    private long mIdleAtNanos;
+
+    private HttpConnection(@NonNull Address address, @NonNull Socket socket) throws IOException {
+        mAddress = address;
+        mSocket = socket;
+        mInput = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        mOutput = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+    }
+
+    /**
+     * Open a new connection to the given {@link Address}, trying each of its resolved IP
+     * addresses in turn, and completing the TLS handshake and hostname verification when the
+     * address is secure.
+     *
+     * @param events where to report the DNS lookup, connect and handshake phases
+     */
+    @NonNull
+    static HttpConnection open(@NonNull Address address,
+                               int connectTimeoutMs,
+                               int readTimeoutMs,
+                               @NonNull DnsResolver dnsResolver,
+                               @NonNull SSLSocketFactory sslSocketFactory,
+                               @NonNull HostnameVerifier hostnameVerifier,
+                               @NonNull RequestEvents events)
+            throws IOException {
+        events.dnsStart();
+        final InetAddress[] inetAddresses = dnsResolver.lookup(address.host);
+        events.dnsEnd();
+
+        events.connectStart();
+        final Socket rawSocket = connect(address, inetAddresses, connectTimeoutMs);
+        boolean isOpen = false;
+        try {
+            rawSocket.setSoTimeout(readTimeoutMs);
+            rawSocket.setTcpNoDelay(true);
+            if (!address.isSecure) {
+                events.connectEnd();
+                final HttpConnection connection = new HttpConnection(address, rawSocket);
+                isOpen = true;
+                return connection;
+            }
+
+            events.secureConnectStart();
+            final SSLSocket sslSocket = (SSLSocket) sslSocketFactory
+                    .createSocket(rawSocket, address.host, address.port, true);
+            sslSocket.startHandshake();
+            if (!hostnameVerifier.verify(address.host, sslSocket.getSession())) {
+                sslSocket.close();
+                throw new SSLPeerUnverifiedException(
+                        "Hostname " + address.host + " not verified");
+            }
+            events.secureConnectEnd();
+            events.connectEnd();
+            final HttpConnection connection = new HttpConnection(address, sslSocket);
+            isOpen = true;
+            return connection;
+        } finally {
+            if (!isOpen) {
+                closeQuietly(rawSocket);
+            }
+        }
+    }
+
+    @NonNull
+    private static Socket connect(@NonNull Address address,
+                                  @NonNull InetAddress[] inetAddresses,
+                                  int connectTimeoutMs)
+            throws IOException {
+        IOException lastException = new UnknownHostException(address.host);
+        for (InetAddress inetAddress : inetAddresses) {
+            final Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(inetAddress, address.port),
+                        connectTimeoutMs);
+                return socket;
+            } catch (IOException e) {
+                closeQuietly(socket);
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+
+    @NonNull
+    Address getAddress() {
+        return mAddress;
+    }
+
+    /**
+     * @return true if the connection can be returned to the pool after the last exchange
+     */
+    boolean isReusable() {
+        return mIsReusable && !mSocket.isClosed() && !mSocket.isInputShutdown()
+                && !mSocket.isOutputShutdown();
+    }
+
+    /**
+     * @return true if any byte of a response was read during the current exchange. A pooled
+     * connection that fails before this point was most likely closed by the server while idle.
+     */
+    boolean hasResponseStarted() {
+        return mHasResponseStarted;
+    }
+
+    /**
+     * Set the read timeout of the exchanges that follow, which may differ from the timeout that
+     * the connection was opened with.
+     */
+    void setReadTimeout(int readTimeoutMs) throws IOException {
+        mSocket.setSoTimeout(readTimeoutMs);
+    }
+
+    long getIdleAtNanos() {
+        return mIdleAtNanos;
+    }
+
+    void markIdle(long nowNanos) {
+        mIdleAtNanos = nowNanos;
+    }
+
+    /**
+     * Write the request and read back the complete response.
+     *
+     * @param body the request body, or {@code null} if the request has none
+     * @param events where to report the request and response phases
+     */
+    @NonNull
+    StripeResponse exchange(@NonNull StripeRequest.Method method,
+                            @NonNull URL url,
+                            @NonNull Map<String, String> headers,
+                            @Nullable String contentType,
+                            @Nullable byte[] body,
+                            @NonNull RequestEvents events)
+            throws IOException {
+        mHasResponseStarted = false;
+        StripeResponse response = null;
+        try {
+            events.requestStart();
+            events.requestEnd(writeRequest(method, url, headers, contentType, body));
+            response = readResponse(events);
+            return response;
+        } finally {
+            // whatever interrupted the exchange, the rest of it may still be in the stream
+            if (response == null) {
+                close();
+            }
+        }
+    }
+
+    void close() {
+        mIsReusable = false;
+        closeQuietly(mSocket);
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    private long writeRequest(@NonNull StripeRequest.Method method,
+                              @NonNull URL url,
+                              @NonNull Map<String, String> headers,
+                              @Nullable String contentType,
+                              @Nullable byte[] body)
+            throws IOException {
+        final String file = url.getFile();
+        final StringBuilder head = new StringBuilder(512)
+                .append(method.code).append(' ')
+                .append(file.isEmpty() ? "/" : file)
+                .append(" HTTP/1.1").append(CRLF);
+        appendHeader(head, "Host", mAddress.hostHeader);
+        boolean hasAcceptEncoding = false;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            appendHeader(head, header.getKey(), header.getValue());
+            hasAcceptEncoding |= GzipUtils.HEADER_ACCEPT_ENCODING.equalsIgnoreCase(
+                    header.getKey());
+        }
+        if (!hasAcceptEncoding) {
+            // gzip-encoded responses are decoded transparently by StripeResponse
+            appendHeader(head, GzipUtils.HEADER_ACCEPT_ENCODING, GzipUtils.GZIP);
+        }
+        if (body != null) {
+            if (contentType != null) {
+                appendHeader(head, "Content-Type", contentType);
+            }
+            appendHeader(head, "Content-Length", String.valueOf(body.length));
+        }
+        head.append(CRLF);
+
+        final byte[] headBytes = head.toString().getBytes(HEADER_CHARSET);
+        mOutput.write(headBytes);
+        if (body != null) {
+            mOutput.write(body);
+        }
+        mOutput.flush();
+        return headBytes.length + (body != null ? body.length : 0);
+    }
+
+    private static void appendHeader(@NonNull StringBuilder head,
+                                     @NonNull String name,
+                                     @NonNull String value) {
+        head.append(name).append(": ").append(value).append(CRLF);
+    }
+
+    @NonNull
+    private StripeResponse readResponse(@NonNull RequestEvents events) throws IOException {
+        String statusLine = readStatusLine();
+        events.responseStart();
+        int responseCode = parseResponseCode(statusLine);
+        Map<String, List<String>> responseHeaders = readHeaders();
+
+        // skip any interim 1xx responses
+        while (responseCode >= 100 && responseCode < 200) {
+            statusLine = readStatusLine();
+            responseCode = parseResponseCode(statusLine);
+            responseHeaders = readHeaders();
+        }
+
+        final boolean isHttp11 = statusLine.startsWith("HTTP/1.1");
+        final String connectionHeader = getFirstHeader(responseHeaders, "Connection");
+        mIsReusable = isHttp11
+                ? !"close".equalsIgnoreCase(connectionHeader)
+                : "keep-alive".equalsIgnoreCase(connectionHeader);
+
+        final byte[] body;
+        final String transferEncoding = getFirstHeader(responseHeaders, "Transfer-Encoding");
+        final String contentLength = getFirstHeader(responseHeaders, "Content-Length");
+        if (responseCode == 204 || responseCode == 304) {
+            body = new byte[0];
+        } else if (transferEncoding != null && "chunked".equalsIgnoreCase(transferEncoding)) {
+            body = readChunkedBody();
+        } else if (contentLength != null) {
+            body = readFixedLengthBody(parseContentLength(contentLength));
+        } else {
+            // the body is delimited by the end of the stream
+            body = readToEnd();
+            mIsReusable = false;
+        }
+
+        events.responseEnd(responseCode, body.length,
+                getFirstHeader(responseHeaders, StripeResponse.HEADER_REQUEST_ID));
+        return StripeResponse.fromWireBytes(responseCode, body, responseHeaders, events);
+    }
+
+    @NonNull
+    private String readStatusLine() throws IOException {
+        final int first = mInput.read();
+        if (first == -1) {
+            throw new EOFException("Connection closed by " + mAddress.host);
+        }
+        mHasResponseStarted = true;
+        return ((char) first) + readLine();
+    }
+
+    private static int parseResponseCode(@NonNull String statusLine) throws ProtocolException {
+        // e.g. "HTTP/1.1 200 OK"
+        if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+            throw new ProtocolException("Unexpected status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(statusLine.substring(9, 12));
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Unexpected status line: " + statusLine);
+        }
+    }
+
+    @NonNull
+    private Map<String, List<String>> readHeaders() throws IOException {
+        final Map<String, List<String>> headers =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            final int separator = line.indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            final String name = line.substring(0, separator).trim();
+            final String value = line.substring(separator + 1).trim();
+            List<String> values = headers.get(name);
+            if (values == null) {
+                values = new ArrayList<>(1);
+                headers.put(name, values);
+            }
+            values.add(value);
+        }
+        return headers;
+    }
+
+    @Nullable
+    private static String getFirstHeader(@NonNull Map<String, List<String>> headers,
+                                         @NonNull String name) {
+        final List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static int parseContentLength(@NonNull String contentLength)
+            throws ProtocolException {
+        try {
+            final int length = Integer.parseInt(contentLength.trim());
+            if (length < 0) {
+                throw new ProtocolException("Invalid Content-Length: " + contentLength);
+            }
+            return length;
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid Content-Length: " + contentLength);
+        }
+    }
+
+    @NonNull
+    private byte[] readFixedLengthBody(int length) throws IOException {
+        final byte[] body = new byte[length];
+        readFully(body, 0, length);
+        return body;
+    }
+
+    @NonNull
+    private byte[] readChunkedBody() throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(BUFFER_SIZE);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        while (true) {
+            final String sizeLine = readLine();
+            final int extensionStart = sizeLine.indexOf(';');
+            final String size = extensionStart == -1 ?
+                    sizeLine.trim() : sizeLine.substring(0, extensionStart).trim();
+            final int chunkSize;
+            try {
+                chunkSize = Integer.parseInt(size, 16);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid chunk size: " + sizeLine);
+            }
+
+            if (chunkSize == 0) {
+                // skip any trailers
+                readHeaders();
+                return body.toByteArray();
+            }
+
+            int remaining = chunkSize;
+            while (remaining > 0) {
+                final int count = Math.min(remaining, buffer.length);
+                readFully(buffer, 0, count);
+                body.write(buffer, 0, count);
+                remaining -= count;
+            }
+            // each chunk is followed by a CRLF
+            readLine();
+        }
+    }
+
+    @NonNull
+    private byte[] readToEnd() throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(BUFFER_SIZE);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = mInput.read(buffer)) != -1) {
+            body.write(buffer, 0, count);
+        }
+        return body.toByteArray();
+    }
+
+    private void readFully(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int count = mInput.read(buffer, offset + read, length - read);
+            if (count == -1) {
+                throw new EOFException("Unexpected end of response body from " + mAddress.host);
+            }
+            read += count;
+        }
+    }
+
+    /**
+     * Read a single CRLF- or LF-terminated line, without the line terminator.
+     */
+    @NonNull
+    private String readLine() throws IOException {
+        final StringBuilder line = new StringBuilder(64);
+        int c;
+        while ((c = mInput.read()) != -1) {
+            if (c == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        throw new EOFException("Unexpected end of stream from " + mAddress.host);
+    }
+
+    private static void closeQuietly(@NonNull Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * The scheme, host, and port that a connection is made to. Connections are only shared
+     * between requests with an equal {@link Address}.
+     */
+    static final class Address {
+        @NonNull final String host;
+        final int port;
+        final boolean isSecure;
+        @NonNull final String hostHeader;
+        @NonNull final String key;
+
+        private Address(@NonNull String host, int port, boolean isSecure, int defaultPort) {
+            this.host = host;
+            this.port = port;
+            this.isSecure = isSecure;
+            this.hostHeader = port == defaultPort ? host : host + ":" + port;
+            this.key = String.format(Locale.ROOT, "%s://%s:%d",
+                    isSecure ? "https" : "http", host, port);
+        }
+
+        @NonNull
+        static Address create(@NonNull URL url) throws IOException {
+            final String protocol = url.getProtocol();
+            final boolean isSecure = "https".equalsIgnoreCase(protocol);
+            if (!isSecure && !"http".equalsIgnoreCase(protocol)) {
+                throw new ProtocolException("Unsupported protocol: " + protocol);
+            }
+            final int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            return new Address(url.getHost(), port, isSecure, url.getDefaultPort());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            return this == obj || (obj instanceof Address && key.equals(((Address) obj).key));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.IOException;
+
+/**
+ * Used by {@link RequestExecutor} to send a {@link StripeRequest} over the wire and read back
+ * the {@link StripeResponse}.
+ */
+interface HttpTransport {
+    /**
+     * @param events where to report the phases of the exchange that the transport can observe
+     */
+    @NonNull
+    StripeResponse execute(@NonNull StripeRequest request, @NonNull RequestEvents events)
+            throws IOException, InvalidRequestException;
+}
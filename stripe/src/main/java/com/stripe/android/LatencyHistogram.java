@@ -0,0 +1,143 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ *
+ * Values are counted in buckets whose width grows with the value: every power of two is split
+ * into {@value #SUB_BUCKET_COUNT} buckets, so a bucket is never wider than 1/16 of the values it
+ * holds and a percentile read from the histogram is within about 6% of the real value. Values
+ * from 0 to {@link #MAX_VALUE_NANOS}, about 18 minutes, fit into {@link #BUCKET_COUNT} buckets;
+ * longer values are counted as {@link #MAX_VALUE_NANOS}.
+ *
+ * Recording a value takes a few atomic operations and never blocks, so any thread can record
+ * while another takes a snapshot.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+
+    static final long MAX_VALUE_NANOS = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = getBucketIndex(MAX_VALUE_NANOS) + 1;
+
+    @NonNull private final AtomicLongArray mBucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    @NonNull private final AtomicLong mTotalNanos = new AtomicLong();
+    @NonNull private final AtomicLong mMaxNanos = new AtomicLong();
+
+    void record(long valueNanos) {
+        final long value = Math.min(Math.max(valueNanos, 0), MAX_VALUE_NANOS);
+        mBucketCounts.incrementAndGet(getBucketIndex(value));
+        mTotalNanos.addAndGet(value);
+
+        long max = mMaxNanos.get();
+        while (value > max && !mMaxNanos.compareAndSet(max, value)) {
+            max = mMaxNanos.get();
+        }
+    }
+
+    /**
+     * Copy the recorded values into a {@link Snapshot}.
+     *
+     * @param reset if true, also clear the histogram, so the next snapshot only holds values
+     *              recorded after this one. A value recorded while the snapshot is taken is
+     *              counted in exactly one of the two.
+     */
+    @NonNull
+    Snapshot snapshot(boolean reset) {
+        final long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = reset ? mBucketCounts.getAndSet(i, 0) : mBucketCounts.get(i);
+        }
+        final long totalNanos = reset ? mTotalNanos.getAndSet(0) : mTotalNanos.get();
+        final long maxNanos = reset ? mMaxNanos.getAndSet(0) : mMaxNanos.get();
+        return new Snapshot(bucketCounts, totalNanos, maxNanos);
+    }
+
+    /**
+     * Values below {@code 2 * SUB_BUCKET_COUNT} get a bucket each. Above that, a value's bucket
+     * is found from the position of its highest bit and the {@link #SUB_BUCKET_BITS} bits below
+     * it.
+     */
+    @VisibleForTesting
+    static int getBucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * @return the highest value that is counted in the bucket at {@code index}
+     */
+    @VisibleForTesting
+    static long getBucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of a {@link LatencyHistogram}.
+     */
+    static final class Snapshot {
+        @NonNull private final long[] mBucketCounts;
+        private final long mCount;
+        private final long mTotalNanos;
+        private final long mMaxNanos;
+
+        private Snapshot(@NonNull long[] bucketCounts, long totalNanos, long maxNanos) {
+            long count = 0;
+            for (long bucketCount : bucketCounts) {
+                count += bucketCount;
+            }
+            mBucketCounts = bucketCounts;
+            mCount = count;
+            mTotalNanos = totalNanos;
+            mMaxNanos = maxNanos;
+        }
+
+        long getCount() {
+            return mCount;
+        }
+
+        long getMeanNanos() {
+            return mCount > 0 ? mTotalNanos / mCount : 0;
+        }
+
+        long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * @param percentile a percentile from 0 to 100, e.g. 99.9
+         * @return the value that {@code percentile} percent of the values are at or below,
+         * rounded up to the end of its bucket, or 0 if there are no values
+         */
+        long getValueAtPercentile(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+
+            final double clampedPercentile = Math.min(Math.max(percentile, 0), 100);
+            final long rank = Math.max(1, (long) Math.ceil(clampedPercentile / 100 * mCount));
+            long seen = 0;
+            for (int i = 0; i < mBucketCounts.length; i++) {
+                seen += mBucketCounts[i];
+                if (seen >= rank) {
+                    return Math.min(getBucketUpperBound(i), mMaxNanos);
+                }
+            }
+            return mMaxNanos;
+        }
+    }
+}
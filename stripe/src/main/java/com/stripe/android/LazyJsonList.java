@@ -0,0 +1,265 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list response whose elements are decoded when they are first read, instead of all at once
+ * as {@link StreamingJsonParser#parseList(Reader, StreamingJsonParser.ElementParser)} does.
+ *
+ * {@link #parse(Reader, StreamingJsonParser.ElementParser)} only scans the response for the
+ * bounds of each object in its {@code data} array, and keeps the JSON text of each of them,
+ * without the whitespace between tokens, rather than the response body or a {@link JSONObject}
+ * tree. Reading an element decodes its text with {@link StreamingJsonParser} and drops it, so
+ * each element is decoded at most once. An element whose text is not well-formed JSON decodes
+ * to {@code null}, like one that the {@link StreamingJsonParser.ElementParser} rejects.
+ *
+ * Scanning takes about half the time of decoding every element, but the text of an element takes
+ * more heap than its decoded model, so this only pays off when most elements are never read.
+ *
+ * The list can be changed like an {@link ArrayList}, and every method is synchronized.
+ */
+final class LazyJsonList<ModelType> extends AbstractList<ModelType> implements RandomAccess {
+    private static final int BUFFER_SIZE = 2048;
+
+    @NonNull private final StreamingJsonParser.ElementParser<ModelType> mElementParser;
+
+    // holds the decoded elements, and an EncodedElement for each element that was not read yet
+    @NonNull private final List<Object> mElements;
+
+    private LazyJsonList(@NonNull StreamingJsonParser.ElementParser<ModelType> elementParser,
+                         @NonNull List<Object> elements) {
+        mElementParser = elementParser;
+        mElements = elements;
+    }
+
+    /**
+     * Read a list response, such as {@code {"object": "list", "data": [...]}}, keeping the text of
+     * each object in its {@code data} array for the given parser. Other top-level fields, and
+     * elements of {@code data} that are not objects, are skipped.
+     *
+     * @throws JSONException if the content is not a JSON object, or is cut off
+     */
+    @NonNull
+    static <ModelType> LazyJsonList<ModelType> parse(
+            @NonNull Reader reader,
+            @NonNull StreamingJsonParser.ElementParser<ModelType> elementParser)
+            throws JSONException {
+        final List<Object> elements = new ArrayList<>();
+        final char[] buffer = new char[BUFFER_SIZE];
+        final StringBuilder name = new StringBuilder();
+        @Nullable StringBuilder element = null;
+        int elementStart = 0;
+        int depth = 0;
+        boolean hasTopLevelObject = false;
+        boolean isInString = false;
+        boolean isEscaped = false;
+        boolean isExpectingName = false;
+        boolean isReadingName = false;
+        boolean isDataValue = false;
+        boolean isInData = false;
+
+        try (Reader input = reader) {
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    final char c = buffer[i];
+                    if (isInString) {
+                        if (isEscaped) {
+                            isEscaped = false;
+                        } else if (c == '\\') {
+                            isEscaped = true;
+                        } else if (c == '"') {
+                            isInString = false;
+                            continue;
+                        }
+                        if (isReadingName) {
+                            name.append(c);
+                        }
+                        continue;
+                    }
+
+                    switch (c) {
+                        case '"': {
+                            isInString = true;
+                            // only the names of top-level fields are needed
+                            isReadingName = depth == 1 && isExpectingName;
+                            if (isReadingName) {
+                                name.setLength(0);
+                            }
+                            break;
+                        }
+                        case '{':
+                        case '[': {
+                            if (depth == 0) {
+                                if (hasTopLevelObject || c != '{') {
+                                    throw new JSONException("Expected a single JSON object");
+                                }
+                                hasTopLevelObject = true;
+                                isExpectingName = true;
+                            } else if (depth == 1 && isDataValue && c == '[') {
+                                isInData = true;
+                            } else if (depth == 2 && isInData && c == '{') {
+                                element = new StringBuilder();
+                                elementStart = i;
+                            }
+                            depth++;
+                            break;
+                        }
+                        case '}':
+                        case ']': {
+                            depth--;
+                            if (depth < 0) {
+                                throw new JSONException("Unbalanced " + c);
+                            } else if (depth == 2 && element != null) {
+                                element.append(buffer, elementStart, i + 1 - elementStart);
+                                elements.add(new EncodedElement(element.toString()));
+                                element = null;
+                            } else if (depth == 1) {
+                                isInData = false;
+                            }
+                            break;
+                        }
+                        case ':': {
+                            if (depth == 1) {
+                                isExpectingName = false;
+                                isDataValue = StreamingJsonParser.FIELD_DATA.contentEquals(name);
+                            }
+                            break;
+                        }
+                        case ',': {
+                            if (depth == 1) {
+                                isExpectingName = true;
+                                isDataValue = false;
+                            }
+                            break;
+                        }
+                        case ' ':
+                        case '\t':
+                        case '\n':
+                        case '\r': {
+                            // leave the whitespace between tokens out of the element's text
+                            if (element != null) {
+                                element.append(buffer, elementStart, i - elementStart);
+                                elementStart = i + 1;
+                            }
+                            break;
+                        }
+                        default: {
+                            if (depth == 0) {
+                                throw new JSONException("Expected a single JSON object");
+                            }
+                            break;
+                        }
+                    }
+                }
+
+                // the element continues in the next read
+                if (element != null) {
+                    element.append(buffer, elementStart, count - elementStart);
+                    elementStart = 0;
+                }
+            }
+        } catch (IOException e) {
+            final JSONException jsonException = new JSONException(e.getMessage());
+            jsonException.initCause(e);
+            throw jsonException;
+        }
+
+        if (!hasTopLevelObject || depth != 0 || isInString) {
+            throw new JSONException("Unterminated JSON object");
+        }
+        return new LazyJsonList<>(elementParser, elements);
+    }
+
+    /**
+     * @return the element at {@code index}, decoding it if it was not read before
+     */
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized ModelType get(int index) {
+        final Object element = mElements.get(index);
+        if (element instanceof EncodedElement) {
+            final ModelType decodedElement = decode(((EncodedElement) element).mJson);
+            mElements.set(index, decodedElement);
+            return decodedElement;
+        }
+        return (ModelType) element;
+    }
+
+    @Override
+    public synchronized int size() {
+        return mElements.size();
+    }
+
+    @Nullable
+    @Override
+    public synchronized ModelType set(int index, @Nullable ModelType element) {
+        final ModelType previousElement = get(index);
+        mElements.set(index, element);
+        return previousElement;
+    }
+
+    @Override
+    public synchronized void add(int index, @Nullable ModelType element) {
+        mElements.add(index, element);
+        modCount++;
+    }
+
+    @Nullable
+    @Override
+    public synchronized ModelType remove(int index) {
+        final ModelType removedElement = get(index);
+        mElements.remove(index);
+        modCount++;
+        return removedElement;
+    }
+
+    /**
+     * @return the number of elements that were not read yet
+     */
+    @VisibleForTesting
+    synchronized int getEncodedCount() {
+        int encodedCount = 0;
+        for (Object element : mElements) {
+            if (element instanceof EncodedElement) {
+                encodedCount++;
+            }
+        }
+        return encodedCount;
+    }
+
+    @Nullable
+    private ModelType decode(@NonNull String json) {
+        try {
+            return mElementParser.parse(
+                    StreamingJsonParser.parseObject(new StringReader(json)));
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The JSON text of an element that was not read yet.
+     */
+    private static final class EncodedElement {
+        @NonNull private final String mJson;
+
+        private EncodedElement(@NonNull String json) {
+            mJson = json;
+        }
+    }
+}
@@ -82,9 +82,12 @@ class PaymentAuthenticationController {
                              @NonNull PaymentIntentParams paymentIntentParams,
                              @NonNull String publishableKey) {
         mApiKeyValidator.requireValid(publishableKey);
-        new ConfirmPaymentIntentTask(stripe, paymentIntentParams, publishableKey,
-                new ConfirmPaymentIntentCallback(activity, publishableKey, this))
-                .execute();
+        final ConfirmPaymentIntentCallback callback =
+                new ConfirmPaymentIntentCallback(activity, publishableKey, this);
+        new ConfirmPaymentIntentTask(stripe, paymentIntentParams, publishableKey, callback)
+                .execute(null, callback);
+        // the result is only used to start authentication in this activity
+        StripeExecutor.getInstance().cancelAllWhenDestroyed(activity, callback);
     }
 
     void startAuth(@NonNull Activity activity,
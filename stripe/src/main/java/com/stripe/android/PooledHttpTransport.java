@@ -0,0 +1,270 @@
+package com.stripe.android;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * An {@link HttpTransport} that keeps connections alive in a {@link ConnectionPool}, so that
+ * back-to-back requests to the same host skip the TCP and TLS handshake.
+ *
+ * Requests that the system routes through a proxy are delegated to a fallback transport.
+ *
+ * If the attempt carries a {@link CancellationSignal}, cancelling it closes the connection that
+ * the request is using, and the request fails with an {@link InterruptedIOException}.
+ *
+ * A connection can be opened ahead of time with {@link #prewarm(String)}, e.g. when a payment
+ * form is shown, so that the first request from the form does not wait for the handshakes. The
+ * SDK's own forms only do so once the host enables it with
+ * {@link #setAutoPrewarmEnabled(boolean)}.
+ */
+final class PooledHttpTransport implements HttpTransport {
+    @Nullable private static PooledHttpTransport sInstance;
+    private static volatile boolean sIsAutoPrewarmEnabled;
+
+    @NonNull private final ConnectionPool mConnectionPool;
+    @NonNull private final DnsResolver mDnsResolver;
+    @NonNull private final SSLSocketFactory mSslSocketFactory;
+    @NonNull private final HostnameVerifier mHostnameVerifier;
+    @NonNull private final HttpTransport mProxyTransport;
+    @NonNull private final AdaptiveTimeouts mAdaptiveTimeouts;
+    @NonNull private final Set<HttpConnection.Address> mPrewarmingAddresses = new HashSet<>();
+
+    private PooledHttpTransport() {
+        this(new ConnectionPool(), DnsCache.getInstance(), StripeSSLSocketFactory.getInstance(),
+                HttpsURLConnection.getDefaultHostnameVerifier(),
+                new RequestExecutor.UrlConnectionTransport(), AdaptiveTimeouts.getInstance());
+    }
+
+    /**
+     * @return the process-wide transport, so that every {@link RequestExecutor} shares the same
+     * pooled connections and DNS cache
+     */
+    @NonNull
+    static synchronized PooledHttpTransport getInstance() {
+        if (sInstance == null) {
+            sInstance = new PooledHttpTransport();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PooledHttpTransport(@NonNull ConnectionPool connectionPool,
+                        @NonNull DnsResolver dnsResolver,
+                        @NonNull SSLSocketFactory sslSocketFactory,
+                        @NonNull HostnameVerifier hostnameVerifier,
+                        @NonNull HttpTransport proxyTransport,
+                        @NonNull AdaptiveTimeouts adaptiveTimeouts) {
+        mConnectionPool = connectionPool;
+        mDnsResolver = dnsResolver;
+        mSslSocketFactory = sslSocketFactory;
+        mHostnameVerifier = hostnameVerifier;
+        mProxyTransport = proxyTransport;
+        mAdaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    @NonNull
+    @Override
+    public StripeResponse execute(@NonNull StripeRequest request,
+                                  @NonNull RequestEvents events)
+            throws IOException, InvalidRequestException {
+        final URL url = new URL(request.getUrl());
+        if (isProxied(url)) {
+            return mProxyTransport.execute(request, events);
+        }
+
+        final HttpConnection.Address address = HttpConnection.Address.create(url);
+        final boolean hasBody = StripeRequest.Method.POST == request.method;
+        final byte[] body = hasBody ? RequestExecutor.getRequestOutputBytes(request) : null;
+        final String contentType = hasBody ? request.getContentType() : null;
+        final int readTimeoutMs = mAdaptiveTimeouts.getReadTimeoutMs(request);
+        final CancellationSignal cancellationSignal = events.getCancellationSignal();
+        final Map<String, String> headers = request.getHeaders();
+
+        HttpConnection connection = mConnectionPool.acquire(address);
+        while (true) {
+            throwIfCanceled(cancellationSignal);
+            final boolean isPooled = connection != null;
+            if (connection == null) {
+                connection = HttpConnection.open(address,
+                        mAdaptiveTimeouts.getConnectTimeoutMs(), readTimeoutMs, mDnsResolver,
+                        mSslSocketFactory, mHostnameVerifier, events);
+            }
+
+            StripeResponse response = null;
+            try {
+                connection.setReadTimeout(readTimeoutMs);
+                events.connectionAcquired(isPooled);
+                setOnCancelListener(cancellationSignal, connection);
+                response = connection.exchange(request.method, url, headers, contentType,
+                        body, events);
+            } catch (IOException e) {
+                throwIfCanceled(cancellationSignal);
+                // A pooled connection that fails before any response arrives was most likely
+                // closed by the server while idle. The server may still have received the
+                // request, though, so only requests that are safe to send twice are replayed.
+                if (!isPooled || connection.hasResponseStarted() ||
+                        !isReplayable(request.method, headers)) {
+                    throw e;
+                }
+            } finally {
+                setOnCancelListener(cancellationSignal, null);
+                // the exchange did not complete, so the state of the connection is unknown
+                if (response == null) {
+                    connection.close();
+                }
+            }
+
+            if (response != null) {
+                mConnectionPool.release(connection);
+                return response;
+            }
+            connection = mConnectionPool.acquire(address);
+        }
+    }
+
+    /**
+     * @return true if sending a request a second time can't repeat its effect, because it is a
+     * {@link StripeRequest.Method#GET} or carries an {@code Idempotency-Key}
+     */
+    private static boolean isReplayable(@NonNull StripeRequest.Method method,
+                                        @NonNull Map<String, String> headers) {
+        if (StripeRequest.Method.GET == method) {
+            return true;
+        }
+        for (String name : headers.keySet()) {
+            if (ApiRequest.HEADER_IDEMPOTENCY_KEY.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the SDK's payment forms may call {@link #prewarm(String)} when they are
+     * shown. Static, so that checking it does not create the transport.
+     */
+    static boolean isAutoPrewarmEnabled() {
+        return sIsAutoPrewarmEnabled;
+    }
+
+    static void setAutoPrewarmEnabled(boolean isEnabled) {
+        sIsAutoPrewarmEnabled = isEnabled;
+    }
+
+    /**
+     * Resolve the host of {@code url}, open a connection to it, complete the TLS handshake, and
+     * park the connection in the pool for the next request to that host. Blocks until the
+     * connection is open, so it should be called from a background thread.
+     *
+     * Does nothing if the pool already holds an idle connection to the host, if another thread
+     * is already pre-warming it, or if requests to it go through a proxy.
+     *
+     * @return true if a new connection was added to the pool
+     */
+    boolean prewarm(@NonNull String url) throws IOException {
+        final URL parsedUrl = new URL(url);
+        if (isProxied(parsedUrl)) {
+            return false;
+        }
+
+        final HttpConnection.Address address = HttpConnection.Address.create(parsedUrl);
+        synchronized (mPrewarmingAddresses) {
+            if (mConnectionPool.hasIdleConnection(address) ||
+                    !mPrewarmingAddresses.add(address)) {
+                return false;
+            }
+        }
+
+        try {
+            final HttpConnection connection = HttpConnection.open(address,
+                    mAdaptiveTimeouts.getConnectTimeoutMs(),
+                    AdaptiveTimeouts.DEFAULT_READ_TIMEOUT_MS, mDnsResolver, mSslSocketFactory,
+                    mHostnameVerifier, RequestEvents.NONE);
+            mConnectionPool.release(connection);
+            return true;
+        } finally {
+            synchronized (mPrewarmingAddresses) {
+                mPrewarmingAddresses.remove(address);
+            }
+        }
+    }
+
+    /**
+     * Close {@code connection} when the signal is cancelled, which unblocks any read or write
+     * in progress on it, or stop listening if {@code connection} is null.
+     */
+    private static void setOnCancelListener(@Nullable CancellationSignal cancellationSignal,
+                                            @Nullable final HttpConnection connection) {
+        if (cancellationSignal == null) {
+            return;
+        }
+
+        cancellationSignal.setOnCancelListener(connection == null ? null :
+                new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        connection.close();
+                    }
+                });
+    }
+
+    static void throwIfCanceled(@Nullable CancellationSignal cancellationSignal)
+            throws InterruptedIOException {
+        if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+            throw new InterruptedIOException("Request canceled");
+        }
+    }
+
+    /**
+     * Close all idle connections held by this transport.
+     */
+    void evictAll() {
+        mConnectionPool.evictAll();
+    }
+
+    private static boolean isProxied(@NonNull URL url) {
+        final ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector == null) {
+            return false;
+        }
+
+        final List<Proxy> proxies;
+        try {
+            proxies = proxySelector.select(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+        return !isDirect(proxies);
+    }
+
+    private static boolean isDirect(@Nullable List<Proxy> proxies) {
+        if (proxies == null || proxies.isEmpty()) {
+            return true;
+        }
+        for (Proxy proxy : proxies) {
+            if (proxy.type() != Proxy.Type.DIRECT) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
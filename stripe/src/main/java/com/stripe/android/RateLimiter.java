@@ -0,0 +1,309 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.RateLimitException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out requests to the Stripe API so that bursts from the UI, e.g. repeatedly refreshing
+ * a customer's payment methods, stay below the API's rate limits instead of failing with a
+ * {@link RateLimitException}.
+ *
+ * Each API key has a token bucket per endpoint, e.g. {@code payment_methods} or
+ * {@code customers} as grouped by {@link ApiMetrics}, and per kind of request: reads
+ * ({@code GET}) and writes have separate budgets, so that refreshing a customer's payment
+ * methods does not hold up attaching one. A bucket holds up to {@code burst} tokens and refills
+ * at {@code permitsPerSecond}. Every attempt at a request takes a token. When the bucket is
+ * empty:
+ * <ul>
+ *     <li>a {@link StripeExecutor} task that has not sent a request yet is not held on its
+ *     thread; {@link #acquire(ApiRequest)} throws a {@link DeferredException}, and the task is
+ *     run again once a token should be available</li>
+ *     <li>any other caller waits on its thread for its turn, in arrival order</li>
+ * </ul>
+ * A request that would wait longer than {@link #DEFAULT_MAX_WAIT_MS} fails at once with a
+ * {@link RateLimitException} instead. Identical reads that are already in flight are coalesced
+ * by {@link SingleFlight} before they get here, so they only take one token.
+ *
+ * The number of waiting requests and their wait times are recorded in {@link ApiMetrics}.
+ */
+final class RateLimiter {
+    static final int DEFAULT_BURST = 20;
+    static final double DEFAULT_PERMITS_PER_SECOND = 10;
+    static final int DEFAULT_WRITE_BURST = 10;
+    static final double DEFAULT_WRITE_PERMITS_PER_SECOND = 5;
+    static final long DEFAULT_MAX_WAIT_MS = TimeUnit.SECONDS.toMillis(10);
+
+    // the buckets of a key, one for the reads and one for the writes of each endpoint
+    private static final int BUCKET_COUNT = 2 * ApiMetrics.ENDPOINT_COUNT;
+
+    // buckets of keys that have not been used for a while are dropped past this many keys,
+    // e.g. after ephemeral keys are rotated
+    private static final int MAX_KEYS = 16;
+
+    // set while the thread runs a StripeExecutor task that has not sent a request yet, to true
+    // if an earlier run of the task was deferred
+    @NonNull private static final ThreadLocal<Boolean> sDeferrableRun = new ThreadLocal<>();
+
+    @Nullable private static RateLimiter sInstance;
+
+    @NonNull private final Map<String, Bucket[]> mBuckets = new HashMap<>();
+    @NonNull private final Clock mClock;
+    @NonNull private final RetryPolicy.Sleeper mSleeper;
+    @NonNull private final ApiMetrics mApiMetrics;
+    private final long mMaxWaitNanos;
+    @NonNull private volatile Limits mLimits;
+    @NonNull private volatile Limits mWriteLimits;
+
+    @NonNull
+    static synchronized RateLimiter getInstance() {
+        if (sInstance == null) {
+            sInstance = new RateLimiter(Clock.SYSTEM, new RetryPolicy.ThreadSleeper(),
+                    ApiMetrics.getInstance(), DEFAULT_BURST, DEFAULT_PERMITS_PER_SECOND,
+                    DEFAULT_MAX_WAIT_MS);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param burst the number of reads that can be sent at once after a quiet period
+     * @param permitsPerSecond the sustained number of reads per second
+     * @param maxWaitMs the longest a request may wait for its turn
+     */
+    @VisibleForTesting
+    RateLimiter(@NonNull Clock clock,
+                @NonNull RetryPolicy.Sleeper sleeper,
+                @NonNull ApiMetrics apiMetrics,
+                int burst,
+                double permitsPerSecond,
+                long maxWaitMs) {
+        mClock = clock;
+        mSleeper = sleeper;
+        mApiMetrics = apiMetrics;
+        mMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        mLimits = new Limits(burst, permitsPerSecond);
+        mWriteLimits = new Limits(DEFAULT_WRITE_BURST, DEFAULT_WRITE_PERMITS_PER_SECOND);
+    }
+
+    /**
+     * Change the limits of every read bucket. Tokens that a bucket already holds beyond the new
+     * burst are discarded on its next use.
+     */
+    void setLimits(int burst, double permitsPerSecond) {
+        mLimits = createLimits(burst, permitsPerSecond);
+    }
+
+    /**
+     * Change the limits of every write bucket, like {@link #setLimits(int, double)} does for
+     * reads.
+     */
+    void setWriteLimits(int burst, double permitsPerSecond) {
+        mWriteLimits = createLimits(burst, permitsPerSecond);
+    }
+
+    /**
+     * Mark whether the current thread runs a task that can be deferred by
+     * {@link #acquire(ApiRequest)}, i.e. one that can be run again from the start because it
+     * has not sent a request yet.
+     */
+    static void setCanDefer(boolean canDefer) {
+        setCanDefer(canDefer, false);
+    }
+
+    /**
+     * @param isRerun whether the task runs again after it was deferred
+     */
+    static void setCanDefer(boolean canDefer, boolean isRerun) {
+        if (canDefer) {
+            sDeferrableRun.set(isRerun);
+        } else {
+            sDeferrableRun.remove();
+        }
+    }
+
+    /**
+     * @return true while the current thread runs a task again after it was deferred, and has
+     * not sent a request yet. Until then, the task repeats what its deferred run already did,
+     * such as logging an analytics event, which should not be done twice.
+     */
+    static boolean isRerunOfDeferredTask() {
+        return Boolean.TRUE.equals(sDeferrableRun.get());
+    }
+
+    /**
+     * Wait until {@code request} may be sent.
+     *
+     * @throws DeferredException if the request may not be sent yet, and the current thread runs
+     * a task that can be deferred
+     * @throws RateLimitException if the request would have to wait longer than the maximum
+     * @throws APIConnectionException if the thread was interrupted while waiting
+     */
+    void acquire(@NonNull ApiRequest request)
+            throws RateLimitException, APIConnectionException {
+        final boolean canDefer = sDeferrableRun.get() != null;
+        // running the task again after this request has been sent would send it twice
+        setCanDefer(false);
+
+        final long waitNanos = reserve(request, canDefer);
+        if (waitNanos < 0) {
+            mApiMetrics.recordRateLimitRejection();
+            throw new RateLimitException("Too many requests are waiting to be sent to Stripe. " +
+                    "Please try again later.", null, null, null);
+        }
+        if (waitNanos == 0) {
+            return;
+        }
+
+        if (canDefer) {
+            mApiMetrics.recordRateLimitDeferral(waitNanos);
+            throw new DeferredException(TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999));
+        }
+
+        mApiMetrics.onRateLimitWaitStart();
+        try {
+            mSleeper.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIConnectionException("Interrupted while waiting to send a request", e);
+        } finally {
+            mApiMetrics.onRateLimitWaitEnd(waitNanos);
+        }
+    }
+
+    /**
+     * Take a token from the bucket, going into debt if it is empty.
+     *
+     * @param isDeferrable if true, only take a token that is available now, since the caller
+     *                     will try again later rather than wait for it
+     * @return how long to wait for the token, in nanoseconds, or -1 if the wait would exceed
+     * the maximum. No token is taken if the wait would exceed the maximum, or if the caller is
+     * deferrable and would have to wait.
+     */
+    private synchronized long reserve(@NonNull ApiRequest request, boolean isDeferrable) {
+        final long nowNanos = mClock.nanoTime();
+        final boolean isWrite = StripeRequest.Method.GET != request.method;
+        final Limits limits = isWrite ? mWriteLimits : mLimits;
+        Bucket[] buckets = mBuckets.get(request.options.apiKey);
+        if (buckets == null) {
+            if (mBuckets.size() >= MAX_KEYS) {
+                evictIdleBuckets(nowNanos);
+            }
+            buckets = new Bucket[BUCKET_COUNT];
+            mBuckets.put(request.options.apiKey, buckets);
+        }
+        final int bucketIndex =
+                2 * ApiMetrics.getEndpointIndex(request.getBaseUrl()) + (isWrite ? 1 : 0);
+        Bucket bucket = buckets[bucketIndex];
+        if (bucket == null) {
+            bucket = new Bucket(nowNanos, limits);
+            buckets[bucketIndex] = bucket;
+        }
+
+        bucket.refill(nowNanos, limits);
+        final double tokens = bucket.mTokens - 1;
+        final long waitNanos = tokens >= 0 ? 0 :
+                (long) (-tokens / limits.mPermitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        if (waitNanos > mMaxWaitNanos) {
+            return -1;
+        }
+        if (waitNanos == 0 || !isDeferrable) {
+            bucket.mTokens = tokens;
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Drop the buckets of every key whose buckets are all full again.
+     */
+    private void evictIdleBuckets(long nowNanos) {
+        final Iterator<Bucket[]> iterator = mBuckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (areFull(iterator.next(), nowNanos)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean areFull(@NonNull Bucket[] buckets, long nowNanos) {
+        for (int i = 0; i < buckets.length; i++) {
+            final Limits limits = i % 2 == 0 ? mLimits : mWriteLimits;
+            if (buckets[i] != null && !buckets[i].isFull(nowNanos, limits)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NonNull
+    private static Limits createLimits(int burst, double permitsPerSecond) {
+        if (burst < 1 || permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("burst and permitsPerSecond must be positive");
+        }
+        return new Limits(burst, permitsPerSecond);
+    }
+
+    /**
+     * Thrown instead of waiting for a token when the current thread runs a deferrable task.
+     * The task should be run again, from the start, after {@link #getDelayMs()}.
+     */
+    static final class DeferredException extends RuntimeException {
+        private final long mDelayMs;
+
+        private DeferredException(long delayMs) {
+            super("Deferred by the rate limiter");
+            mDelayMs = delayMs;
+        }
+
+        long getDelayMs() {
+            return mDelayMs;
+        }
+
+        @NonNull
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // thrown for control flow, so there is no use for a stack trace
+            return this;
+        }
+    }
+
+    private static final class Limits {
+        private final int mBurst;
+        private final double mPermitsPerSecond;
+
+        private Limits(int burst, double permitsPerSecond) {
+            mBurst = burst;
+            mPermitsPerSecond = permitsPerSecond;
+        }
+    }
+
+    private static final class Bucket {
+        // negative while requests are waiting for tokens that have not been added yet
+        private double mTokens;
+        private long mRefilledAtNanos;
+
+        private Bucket(long nowNanos, @NonNull Limits limits) {
+            mTokens = limits.mBurst;
+            mRefilledAtNanos = nowNanos;
+        }
+
+        private void refill(long nowNanos, @NonNull Limits limits) {
+            final double elapsedSeconds =
+                    (double) (nowNanos - mRefilledAtNanos) / TimeUnit.SECONDS.toNanos(1);
+            mTokens = Math.min(limits.mBurst, mTokens + elapsedSeconds * limits.mPermitsPerSecond);
+            mRefilledAtNanos = nowNanos;
+        }
+
+        private boolean isFull(long nowNanos, @NonNull Limits limits) {
+            refill(nowNanos, limits);
+            return mTokens >= limits.mBurst;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Receives the phases of every request that the SDK sends, e.g. to report them to an
+ * application performance monitoring tool. Register one with
+ * {@link Stripe#setRequestEventListener(RequestEventListener)}.
+ *
+ * Every method receives the {@link Call} that it belongs to and a timestamp from
+ * {@link System#nanoTime()}, so the time spent in a phase is the difference between the
+ * timestamps of its start and end events. A call is one attempt at sending a request; if the
+ * SDK retries a request, every attempt is a new {@link Call}.
+ *
+ * For a call on a new connection, events are delivered in this order:
+ * <ol>
+ *     <li>{@link #callStart}</li>
+ *     <li>{@link #dnsStart} and {@link #dnsEnd}</li>
+ *     <li>{@link #connectStart}, with {@link #secureConnectStart} and
+ *     {@link #secureConnectEnd} for the TLS handshake, then {@link #connectEnd}</li>
+ *     <li>{@link #connectionAcquired}</li>
+ *     <li>{@link #requestStart} and {@link #requestEnd}</li>
+ *     <li>{@link #responseStart}, when the first byte of the response arrives, and
+ *     {@link #responseEnd}, when the whole body has been read</li>
+ *     <li>{@link #decodeStart} and {@link #decodeEnd}, if the body was compressed</li>
+ *     <li>{@link #callEnd}, or {@link #callFailed} at any point</li>
+ *     <li>{@link #parseStart} and {@link #parseEnd}, when the SDK parses the body</li>
+ * </ol>
+ * A call on a pooled connection skips the DNS and connect events, and a call that goes through
+ * a proxy only reports the request and response events.
+ *
+ * Events are delivered synchronously on the thread that sends the request, so implementations
+ * must be thread-safe and return quickly. A {@link RuntimeException} thrown by a method is
+ * dropped and does not affect the request. All methods do nothing by default.
+ */
+@SuppressWarnings("unused")
+public abstract class RequestEventListener {
+
+    public void callStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void dnsStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void dnsEnd(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void connectStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void secureConnectStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void secureConnectEnd(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void connectEnd(@NonNull Call call, long timestampNanos) {
+    }
+
+    /**
+     * @param isReused true if the connection was taken from the pool, rather than opened for
+     *                 this call
+     */
+    public void connectionAcquired(@NonNull Call call, long timestampNanos, boolean isReused) {
+    }
+
+    public void requestStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    /**
+     * @param requestBytes the number of bytes sent, including the request line and headers
+     *                     when they are known
+     */
+    public void requestEnd(@NonNull Call call, long timestampNanos, long requestBytes) {
+    }
+
+    /**
+     * Called when the first byte of the response arrives. The time since
+     * {@link #requestEnd} is mostly the time that the server spent on the request.
+     */
+    public void responseStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    /**
+     * @param responseCode the HTTP status code
+     * @param responseBodyBytes the number of body bytes received, before any decoding
+     * @param requestId the value of the {@code Request-Id} header that Stripe sends with every
+     *                  response, or null if there is none
+     */
+    public void responseEnd(@NonNull Call call, long timestampNanos, int responseCode,
+                            long responseBodyBytes, @Nullable String requestId) {
+    }
+
+    public void decodeStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    /**
+     * @param decodedBodyBytes the number of body bytes after decoding
+     */
+    public void decodeEnd(@NonNull Call call, long timestampNanos, long decodedBodyBytes) {
+    }
+
+    public void callEnd(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void callFailed(@NonNull Call call, long timestampNanos,
+                           @NonNull Exception exception) {
+    }
+
+    /**
+     * Called each time the SDK starts parsing the body of the response into JSON, which happens
+     * after {@link #callEnd}.
+     */
+    public void parseStart(@NonNull Call call, long timestampNanos) {
+    }
+
+    public void parseEnd(@NonNull Call call, long timestampNanos) {
+    }
+
+    /**
+     * Identifies one attempt at sending a request.
+     */
+    public static final class Call {
+        private final long mId;
+        @NonNull private final String mMethod;
+        @NonNull private final String mUrl;
+        private final int mRetryCount;
+
+        Call(long id, @NonNull String method, @NonNull String url, int retryCount) {
+            mId = id;
+            mMethod = method;
+            mUrl = url;
+            mRetryCount = retryCount;
+        }
+
+        /**
+         * @return a number that is unique to this call within the process
+         */
+        public long getId() {
+            return mId;
+        }
+
+        /**
+         * @return the HTTP method, e.g. {@code POST}
+         */
+        @NonNull
+        public String getMethod() {
+            return mMethod;
+        }
+
+        /**
+         * @return the URL of the request, without the query string, which can hold secrets
+         */
+        @NonNull
+        public String getUrl() {
+            return mUrl;
+        }
+
+        /**
+         * @return 0 for the first attempt at a request, and the number of earlier attempts for
+         * a retry
+         */
+        public int getRetryCount() {
+            return mRetryCount;
+        }
+    }
+}
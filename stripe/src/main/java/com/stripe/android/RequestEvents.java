@@ -0,0 +1,251 @@
+package com.stripe.android;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports the phases of one {@link RequestEventListener.Call} to the registered
+ * {@link RequestEventListener}, stamping each event with the time from a {@link Clock}.
+ *
+ * Passed down through {@link RequestExecutor} and {@link HttpTransport} to the code that runs
+ * each phase. When no listener is registered, every method returns without reading the clock.
+ *
+ * Also carries the {@link CancellationSignal} of the attempt, if it can be cancelled, so that
+ * the transport can abort the exchange that it is running.
+ *
+ * A {@link RuntimeException} thrown by the listener is dropped, so that host code can't break
+ * a request, or leave a connection in an unknown state, by failing in a callback.
+ */
+final class RequestEvents {
+    static final RequestEvents NONE = new RequestEvents(null, null, Clock.SYSTEM);
+
+    @Nullable private static volatile RequestEventListener sListener;
+    @NonNull private static final AtomicLong NEXT_CALL_ID = new AtomicLong();
+
+    @Nullable private final RequestEventListener mListener;
+    @Nullable private final RequestEventListener.Call mCall;
+    @NonNull private final Clock mClock;
+    @Nullable private final CancellationSignal mCancellationSignal;
+
+    @VisibleForTesting
+    RequestEvents(@Nullable RequestEventListener listener,
+                  @Nullable RequestEventListener.Call call,
+                  @NonNull Clock clock) {
+        this(listener, call, clock, null);
+    }
+
+    private RequestEvents(@Nullable RequestEventListener listener,
+                          @Nullable RequestEventListener.Call call,
+                          @NonNull Clock clock,
+                          @Nullable CancellationSignal cancellationSignal) {
+        mListener = call != null ? listener : null;
+        mCall = call;
+        mClock = clock;
+        mCancellationSignal = cancellationSignal;
+    }
+
+    static void setListener(@Nullable RequestEventListener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * @param retryCount the number of earlier attempts at this request
+     * @return the events for a new attempt at {@code request}, reported to the listener that is
+     * registered now
+     */
+    @NonNull
+    static RequestEvents create(@NonNull StripeRequest request, int retryCount) {
+        return create(request, retryCount, null);
+    }
+
+    /**
+     * @param cancellationSignal the signal that cancels this attempt, or null if it can't be
+     *                           cancelled
+     */
+    @NonNull
+    static RequestEvents create(@NonNull StripeRequest request, int retryCount,
+                                @Nullable CancellationSignal cancellationSignal) {
+        final RequestEventListener listener = sListener;
+        if (listener == null && cancellationSignal == null) {
+            return NONE;
+        }
+
+        final RequestEventListener.Call call = listener != null ?
+                new RequestEventListener.Call(NEXT_CALL_ID.incrementAndGet(),
+                        request.method.code, request.getBaseUrl(), retryCount) :
+                null;
+        return new RequestEvents(listener, call, Clock.SYSTEM, cancellationSignal);
+    }
+
+    @Nullable
+    CancellationSignal getCancellationSignal() {
+        return mCancellationSignal;
+    }
+
+    void callStart() {
+        if (mListener != null) {
+            try {
+                mListener.callStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void dnsStart() {
+        if (mListener != null) {
+            try {
+                mListener.dnsStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void dnsEnd() {
+        if (mListener != null) {
+            try {
+                mListener.dnsEnd(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void connectStart() {
+        if (mListener != null) {
+            try {
+                mListener.connectStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void secureConnectStart() {
+        if (mListener != null) {
+            try {
+                mListener.secureConnectStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void secureConnectEnd() {
+        if (mListener != null) {
+            try {
+                mListener.secureConnectEnd(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void connectEnd() {
+        if (mListener != null) {
+            try {
+                mListener.connectEnd(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void connectionAcquired(boolean isReused) {
+        if (mListener != null) {
+            try {
+                mListener.connectionAcquired(mCall, mClock.nanoTime(), isReused);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void requestStart() {
+        if (mListener != null) {
+            try {
+                mListener.requestStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void requestEnd(long requestBytes) {
+        if (mListener != null) {
+            try {
+                mListener.requestEnd(mCall, mClock.nanoTime(), requestBytes);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void responseStart() {
+        if (mListener != null) {
+            try {
+                mListener.responseStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void responseEnd(int responseCode, long responseBodyBytes, @Nullable String requestId) {
+        if (mListener != null) {
+            try {
+                mListener.responseEnd(mCall, mClock.nanoTime(), responseCode, responseBodyBytes,
+                        requestId);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void decodeStart() {
+        if (mListener != null) {
+            try {
+                mListener.decodeStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void decodeEnd(long decodedBodyBytes) {
+        if (mListener != null) {
+            try {
+                mListener.decodeEnd(mCall, mClock.nanoTime(), decodedBodyBytes);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void callEnd() {
+        if (mListener != null) {
+            try {
+                mListener.callEnd(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void callFailed(@NonNull Exception exception) {
+        if (mListener != null) {
+            try {
+                mListener.callFailed(mCall, mClock.nanoTime(), exception);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void parseStart() {
+        if (mListener != null) {
+            try {
+                mListener.parseStart(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    void parseEnd() {
+        if (mListener != null) {
+            try {
+                mListener.parseEnd(mCall, mClock.nanoTime());
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+}
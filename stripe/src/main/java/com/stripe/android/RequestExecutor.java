@@ -1,11 +1,14 @@
 package com.stripe.android;
 
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 
 import com.stripe.android.exception.APIConnectionException;
 import com.stripe.android.exception.InvalidRequestException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -14,7 +17,6 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Scanner;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
@@ -25,30 +27,41 @@ import javax.net.ssl.SSLSocketFactory;
 class RequestExecutor {
 
     private static final String CHARSET = "UTF-8";
+    private static final int BUFFER_SIZE = 8192;
 
-    @NonNull private final ConnectionFactory mConnectionFactory;
+    @NonNull private final HttpTransport mTransport;
 
     RequestExecutor() {
-        mConnectionFactory = new ConnectionFactory();
+        this(PooledHttpTransport.getInstance());
+    }
+
+    @VisibleForTesting
+    RequestExecutor(@NonNull HttpTransport transport) {
+        mTransport = transport;
     }
 
     @NonNull
     StripeResponse execute(@NonNull StripeRequest request)
             throws APIConnectionException, InvalidRequestException {
-        // HttpURLConnection verifies SSL cert by default
-        HttpURLConnection conn = null;
+        return execute(request, RequestEvents.create(request, 0));
+    }
+
+    /**
+     * @param events where to report the phases of this attempt at the request
+     */
+    @NonNull
+    StripeResponse execute(@NonNull StripeRequest request, @NonNull RequestEvents events)
+            throws APIConnectionException, InvalidRequestException {
+        events.callStart();
         try {
-            conn = mConnectionFactory.create(request);
-            // trigger the request
-            final int rCode = conn.getResponseCode();
-            final String rBody;
-            if (rCode >= 200 && rCode < 300) {
-                rBody = getResponseBody(conn.getInputStream());
-            } else {
-                rBody = getResponseBody(conn.getErrorStream());
-            }
-            return new StripeResponse(rCode, rBody, conn.getHeaderFields());
+            final StripeResponse response = mTransport.execute(request, events);
+            events.callEnd();
+            return response;
+        } catch (InvalidRequestException e) {
+            events.callFailed(e);
+            throw e;
         } catch (IOException e) {
+            events.callFailed(e);
             throw new APIConnectionException(
                     String.format(Locale.ENGLISH,
                             "IOException during API request to Stripe (%s): %s "
@@ -57,36 +70,139 @@ class RequestExecutor {
                                     + "service status at https://twitter.com/stripestatus, "
                                     + "or let us know at support@stripe.com.",
                             StripeApiHandler.getTokensUrl(), e.getMessage()), e);
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
         }
     }
 
-    @Nullable
-    private String getResponseBody(@NonNull InputStream responseStream)
-            throws IOException {
-        //\A is the beginning of
-        // the stream boundary
-        final Scanner scanner = new Scanner(responseStream, CHARSET).useDelimiter("\\A");
-        final String rBody = scanner.hasNext() ? scanner.next() : null;
-        responseStream.close();
-        return rBody;
+    @NonNull
+    static byte[] getRequestOutputBytes(@NonNull StripeRequest request)
+            throws InvalidRequestException {
+        try {
+            return request.getOutputBytes();
+        } catch (UnsupportedEncodingException e) {
+            throw new InvalidRequestException("Unable to encode parameters to " + CHARSET
+                    + ". Please contact support@stripe.com for assistance.",
+                    null, null, 0, null, null, null, e);
+        }
+    }
+
+    /**
+     * An {@link HttpTransport} that opens a new {@link HttpURLConnection} for every request.
+     * Used when a request has to go through a proxy.
+     */
+    static final class UrlConnectionTransport implements HttpTransport {
+        @NonNull private final ConnectionFactory mConnectionFactory;
+
+        UrlConnectionTransport() {
+            mConnectionFactory = new ConnectionFactory(AdaptiveTimeouts.getInstance());
+        }
+
+        @NonNull
+        @Override
+        public StripeResponse execute(@NonNull StripeRequest request,
+                                      @NonNull RequestEvents events)
+                throws IOException, InvalidRequestException {
+            // HttpURLConnection verifies SSL cert by default
+            HttpURLConnection conn = null;
+            final CancellationSignal cancellationSignal = events.getCancellationSignal();
+            try {
+                // the connection, DNS lookup and handshake are hidden inside HttpURLConnection,
+                // so they are reported as part of the request
+                events.requestStart();
+                final byte[] body = StripeRequest.Method.POST == request.method ?
+                        mConnectionFactory.getRequestOutputBytes(request) : null;
+                PooledHttpTransport.throwIfCanceled(cancellationSignal);
+                conn = mConnectionFactory.create(request, body);
+                setOnCancelListener(cancellationSignal, conn);
+                events.requestEnd(body != null ? body.length : 0);
+
+                // trigger the request
+                final int rCode = conn.getResponseCode();
+                events.responseStart();
+                final byte[] rBody;
+                if (rCode >= 200 && rCode < 300) {
+                    rBody = getResponseBytes(conn.getInputStream(), conn.getContentLength());
+                } else {
+                    rBody = getResponseBytes(conn.getErrorStream(), conn.getContentLength());
+                }
+                events.responseEnd(rCode, rBody != null ? rBody.length : 0,
+                        conn.getHeaderField(StripeResponse.HEADER_REQUEST_ID));
+                return StripeResponse.fromWireBytes(rCode, rBody, conn.getHeaderFields(),
+                        events);
+            } catch (IOException e) {
+                PooledHttpTransport.throwIfCanceled(cancellationSignal);
+                throw e;
+            } finally {
+                if (cancellationSignal != null) {
+                    cancellationSignal.setOnCancelListener(null);
+                }
+                if (conn != null) {
+                    conn.disconnect();
+                }
+            }
+        }
+
+        private static void setOnCancelListener(@Nullable CancellationSignal cancellationSignal,
+                                                @NonNull final HttpURLConnection conn) {
+            if (cancellationSignal != null) {
+                cancellationSignal.setOnCancelListener(
+                        new CancellationSignal.OnCancelListener() {
+                            @Override
+                            public void onCancel() {
+                                conn.disconnect();
+                            }
+                        });
+            }
+        }
+
+        /**
+         * Read the body as raw bytes. It is decoded later, by {@link StripeResponse}, either
+         * straight into JSON or into a String if one is needed.
+         */
+        @Nullable
+        private byte[] getResponseBytes(@Nullable InputStream responseStream, int contentLength)
+                throws IOException {
+            if (responseStream == null) {
+                return null;
+            }
+
+            try (InputStream input = responseStream) {
+                final ByteArrayOutputStream body = new ByteArrayOutputStream(
+                        contentLength > 0 ? contentLength : BUFFER_SIZE);
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    body.write(buffer, 0, count);
+                }
+                return body.toByteArray();
+            }
+        }
     }
 
     static class ConnectionFactory {
-        private static final SSLSocketFactory SSL_SOCKET_FACTORY = new StripeSSLSocketFactory();
+        private static final SSLSocketFactory SSL_SOCKET_FACTORY =
+                StripeSSLSocketFactory.getInstance();
+
+        @NonNull private final AdaptiveTimeouts mAdaptiveTimeouts;
 
+        ConnectionFactory(@NonNull AdaptiveTimeouts adaptiveTimeouts) {
+            mAdaptiveTimeouts = adaptiveTimeouts;
+        }
+
+        /**
+         * @param body the encoded request body, or null if the request has none
+         */
         @NonNull
-        private HttpURLConnection create(@NonNull StripeRequest request)
+        private HttpURLConnection create(@NonNull StripeRequest request, @Nullable byte[] body)
                 throws IOException, InvalidRequestException {
             final URL stripeURL = new URL(request.getUrl());
             final HttpURLConnection conn = (HttpURLConnection) stripeURL.openConnection();
-            conn.setConnectTimeout(30 * 1000);
-            conn.setReadTimeout(80 * 1000);
+            conn.setConnectTimeout(mAdaptiveTimeouts.getConnectTimeoutMs());
+            conn.setReadTimeout(mAdaptiveTimeouts.getReadTimeoutMs(request));
             conn.setUseCaches(false);
 
+            // Setting Accept-Encoding turns off HttpURLConnection's own transparent gzip, so
+            // that the body arrives as sent and StripeResponse decodes it
+            conn.setRequestProperty(GzipUtils.HEADER_ACCEPT_ENCODING, GzipUtils.GZIP);
             for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
                 conn.setRequestProperty(header.getKey(), header.getValue());
             }
@@ -97,12 +213,12 @@ class RequestExecutor {
 
             conn.setRequestMethod(request.method.code);
 
-            if (StripeRequest.Method.POST == request.method) {
+            if (body != null) {
                 conn.setDoOutput(true);
                 conn.setRequestProperty("Content-Type", request.getContentType());
 
                 try (OutputStream output = conn.getOutputStream()) {
-                    output.write(getRequestOutputBytes(request));
+                    output.write(body);
                 }
             }
 
@@ -112,13 +228,7 @@ class RequestExecutor {
         @NonNull
         byte[] getRequestOutputBytes(@NonNull StripeRequest request)
                 throws InvalidRequestException {
-            try {
-                return request.getOutputBytes();
-            } catch (UnsupportedEncodingException e) {
-                throw new InvalidRequestException("Unable to encode parameters to " + CHARSET
-                        + ". Please contact support@stripe.com for assistance.",
-                        null, null, 0, null, null, null, e);
-            }
+            return RequestExecutor.getRequestOutputBytes(request);
         }
     }
 }
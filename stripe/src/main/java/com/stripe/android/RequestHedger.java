@@ -0,0 +1,199 @@
+package com.stripe.android;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a duplicate of a slow, idempotent request and takes whichever response arrives first.
+ *
+ * The first attempt starts at once. If it has not completed after the hedging delay, usually
+ * the endpoint's p95 latency, a second attempt starts, and the first response from either of
+ * them is returned; the other attempt is cancelled through its {@link CancellationSignal}. If
+ * one attempt fails, the other one is still awaited, and the call only fails if both do.
+ *
+ * Hedging is off until enabled with {@link #setEnabled(boolean)}, because it adds load on the
+ * API for the slowest requests.
+ *
+ * Attempts run on at most {@value #MAX_THREADS} threads, shared by every request. When they
+ * are all busy, a request runs its first attempt on the calling thread, and a slow attempt
+ * waits without a hedge, so hedging never adds more than that many threads.
+ */
+final class RequestHedger {
+    @VisibleForTesting static final int MAX_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    @Nullable private static RequestHedger sInstance;
+
+    @NonNull private final ExecutorService mExecutorService;
+    private volatile boolean mIsEnabled;
+
+    @NonNull
+    static synchronized RequestHedger getInstance() {
+        if (sInstance == null) {
+            sInstance = new RequestHedger(createExecutorService());
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return a pool of up to {@link #MAX_THREADS} threads that rejects work when they are all
+     * busy, rather than queueing it behind a slow attempt
+     */
+    @NonNull
+    @VisibleForTesting
+    static ExecutorService createExecutorService() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "StripeRequestHedger");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @VisibleForTesting
+    RequestHedger(@NonNull ExecutorService executorService) {
+        mExecutorService = executorService;
+    }
+
+    boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    void setEnabled(boolean isEnabled) {
+        mIsEnabled = isEnabled;
+    }
+
+    /**
+     * Run {@code attempt}, and run it a second time if the first run has not completed after
+     * {@code hedgeDelayMs}.
+     *
+     * @return the response of the attempt that completed first
+     * @throws APIConnectionException if both attempts failed, or the calling thread was
+     *         interrupted while waiting for them
+     */
+    @NonNull
+    StripeResponse execute(long hedgeDelayMs, @NonNull Attempt attempt)
+            throws InvalidRequestException, APIConnectionException {
+        final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        final CancellationSignal[] cancellationSignals = {
+                new CancellationSignal(), new CancellationSignal()
+        };
+
+        if (!start(attempt, cancellationSignals[0], outcomes)) {
+            // every hedging thread is busy, so send the request without a hedge
+            return attempt.execute(cancellationSignals[0]);
+        }
+
+        int startedCount = 1;
+        try {
+            Outcome outcome = outcomes.poll(hedgeDelayMs, TimeUnit.MILLISECONDS);
+            if (outcome == null) {
+                if (start(attempt, cancellationSignals[1], outcomes)) {
+                    startedCount++;
+                }
+                outcome = outcomes.take();
+            }
+
+            Outcome firstFailure = null;
+            for (int completedCount = 1; ; completedCount++) {
+                if (outcome.mResponse != null) {
+                    return outcome.mResponse;
+                }
+                if (firstFailure == null) {
+                    firstFailure = outcome;
+                }
+                if (completedCount == startedCount) {
+                    return firstFailure.throwException();
+                }
+                outcome = outcomes.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIConnectionException("Interrupted while waiting for a response", e);
+        } finally {
+            // stop the attempt that lost, if it is still running
+            for (CancellationSignal cancellationSignal : cancellationSignals) {
+                cancellationSignal.cancel();
+            }
+        }
+    }
+
+    /**
+     * @return true if the attempt was started, or false if no thread was free to run it
+     */
+    private boolean start(@NonNull final Attempt attempt,
+                          @NonNull final CancellationSignal cancellationSignal,
+                          @NonNull final BlockingQueue<Outcome> outcomes) {
+        try {
+            mExecutorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Outcome outcome;
+                    try {
+                        outcome = new Outcome(attempt.execute(cancellationSignal), null);
+                    } catch (InvalidRequestException | APIConnectionException e) {
+                        outcome = new Outcome(null, e);
+                    } catch (RuntimeException e) {
+                        outcome = new Outcome(null,
+                                new APIConnectionException("Hedged request failed", e));
+                    }
+                    outcomes.add(outcome);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * One attempt at sending a request.
+     */
+    interface Attempt {
+        /**
+         * @param cancellationSignal cancelled when the attempt is no longer needed
+         */
+        @NonNull
+        StripeResponse execute(@NonNull CancellationSignal cancellationSignal)
+                throws InvalidRequestException, APIConnectionException;
+    }
+
+    private static final class Outcome {
+        @Nullable private final StripeResponse mResponse;
+        @Nullable private final Exception mException;
+
+        private Outcome(@Nullable StripeResponse response, @Nullable Exception exception) {
+            mResponse = response;
+            mException = exception;
+        }
+
+        @NonNull
+        private StripeResponse throwException()
+                throws InvalidRequestException, APIConnectionException {
+            if (mException instanceof InvalidRequestException) {
+                throw (InvalidRequestException) mException;
+            }
+            throw (APIConnectionException) mException;
+        }
+    }
+}
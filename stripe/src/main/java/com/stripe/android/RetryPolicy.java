@@ -0,0 +1,189 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Decides whether, and after how long, a failed API request is sent again.
+ *
+ * A request is retried after a connection failure, or when the response is a
+ * {@code 409 Conflict}, a {@code 429 Too Many Requests} or a server error, unless the
+ * {@code Stripe-Should-Retry} header says otherwise. Only requests that are safe to replay are
+ * retried: requests other than {@link StripeRequest.Method#POST}, and POST requests that carry
+ * an {@code Idempotency-Key}.
+ *
+ * The delay grows exponentially with each retry and is jittered, so that clients that failed
+ * together don't retry together. A {@code Retry-After} header is respected as a minimum delay.
+ * Every call has a budget of retries and of total time spent waiting; once the budget is spent,
+ * the last failure is returned to the caller.
+ */
+final class RetryPolicy {
+    static final long NO_RETRY = -1;
+
+    static final String HEADER_RETRY_AFTER = "Retry-After";
+    static final String HEADER_SHOULD_RETRY = "Stripe-Should-Retry";
+
+    private static final int DEFAULT_MAX_RETRIES = 2;
+    private static final long DEFAULT_INITIAL_DELAY_MS = 500;
+    private static final long DEFAULT_MAX_DELAY_MS = 5000;
+    private static final long DEFAULT_MAX_TOTAL_DELAY_MS = 10000;
+
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final int mMaxRetries;
+    private final long mInitialDelayMs;
+    private final long mMaxDelayMs;
+    private final long mMaxTotalDelayMs;
+    @NonNull private final Random mRandom;
+    @NonNull private final Sleeper mSleeper;
+
+    @NonNull
+    static RetryPolicy createDefault() {
+        return new RetryPolicy(DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_DELAY_MS,
+                DEFAULT_MAX_DELAY_MS, DEFAULT_MAX_TOTAL_DELAY_MS, new Random(),
+                new ThreadSleeper());
+    }
+
+    /**
+     * @param maxRetries the number of times a call can be retried
+     * @param initialDelayMs the delay before the first retry, before jitter
+     * @param maxDelayMs the longest delay before a single retry
+     * @param maxTotalDelayMs the longest total time a call can spend waiting to retry
+     */
+    @VisibleForTesting
+    RetryPolicy(int maxRetries,
+                long initialDelayMs,
+                long maxDelayMs,
+                long maxTotalDelayMs,
+                @NonNull Random random,
+                @NonNull Sleeper sleeper) {
+        mMaxRetries = maxRetries;
+        mInitialDelayMs = initialDelayMs;
+        mMaxDelayMs = maxDelayMs;
+        mMaxTotalDelayMs = maxTotalDelayMs;
+        mRandom = random;
+        mSleeper = sleeper;
+    }
+
+    /**
+     * @return true if sending the request more than once has the same effect as sending it once
+     */
+    boolean canRetry(@NonNull StripeRequest request) {
+        return StripeRequest.Method.POST != request.method ||
+                request.getHeaders().containsKey(ApiRequest.HEADER_IDEMPOTENCY_KEY);
+    }
+
+    /**
+     * @param retryCount the number of times the call has already been retried
+     * @param totalDelayMs the time the call has already spent waiting to retry
+     * @param response the response, or null if the request failed to connect
+     * @return how long to wait before retrying, in milliseconds, or {@link #NO_RETRY}
+     */
+    long getRetryDelayMs(int retryCount, long totalDelayMs, @Nullable StripeResponse response) {
+        if (retryCount >= mMaxRetries || (response != null && !shouldRetry(response))) {
+            return NO_RETRY;
+        }
+
+        final long backoffMs = Math.min(mMaxDelayMs, mInitialDelayMs << Math.min(retryCount, 20));
+        // "equal jitter": wait at least half of the backoff, and a random part of the rest
+        final long jitteredMs = backoffMs / 2 + (long) (mRandom.nextDouble() * (backoffMs / 2));
+
+        final long retryAfterMs = response != null ?
+                getRetryAfterMs(response.getResponseHeaders()) : 0;
+        if (retryAfterMs > mMaxDelayMs) {
+            // the server wants us to wait longer than we're willing to block the caller
+            return NO_RETRY;
+        }
+
+        final long delayMs = Math.max(jitteredMs, retryAfterMs);
+        return totalDelayMs + delayMs <= mMaxTotalDelayMs ? delayMs : NO_RETRY;
+    }
+
+    /**
+     * Wait before the next retry.
+     *
+     * @return false if the thread was interrupted, in which case the call should not be retried
+     */
+    boolean sleep(long delayMs) {
+        try {
+            mSleeper.sleep(delayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean shouldRetry(@NonNull StripeResponse response) {
+        final String shouldRetry =
+                getHeaderValue(response.getResponseHeaders(), HEADER_SHOULD_RETRY);
+        if (shouldRetry != null) {
+            return Boolean.parseBoolean(shouldRetry.trim());
+        }
+
+        final int responseCode = response.getResponseCode();
+        return responseCode == 409 || responseCode == 429 || responseCode >= 500;
+    }
+
+    /**
+     * @return the delay requested by a {@code Retry-After} header, given either in seconds or
+     * as an HTTP date, or 0 if there is none
+     */
+    @VisibleForTesting
+    static long getRetryAfterMs(@Nullable Map<String, List<String>> headers) {
+        final String retryAfter = getHeaderValue(headers, HEADER_RETRY_AFTER);
+        if (retryAfter == null) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, (long) (Double.parseDouble(retryAfter.trim()) * 1000));
+        } catch (NumberFormatException ignored) {
+            // not a number of seconds, so try an HTTP date
+        }
+
+        try {
+            final Date date =
+                    new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(retryAfter.trim());
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (ParseException ignored) {
+            return 0;
+        }
+    }
+
+    @Nullable
+    private static String getHeaderValue(@Nullable Map<String, List<String>> headers,
+                                         @NonNull String name) {
+        if (headers == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && header.getValue() != null
+                    && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    interface Sleeper {
+        void sleep(long delayMs) throws InterruptedException;
+    }
+
+    static final class ThreadSleeper implements Sleeper {
+        @Override
+        public void sleep(long delayMs) throws InterruptedException {
+            Thread.sleep(delayMs);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A queue of byte records stored on disk in append-only segment files.
+ *
+ * Each segment starts with a magic number and holds records framed as
+ * {@code [length][crc32][payload]}. A record cut short by a crash, or whose checksum does not
+ * match, marks the end of its segment; recovery truncates the segment there.
+ *
+ * Segments are consumed whole: {@link #claimOldest()} renames the oldest segment so that no
+ * other caller can claim it, and the caller then either {@link #complete(Segment) completes} it
+ * or {@link #restore(Segment) restores} it. Segments left claimed by a process that died are
+ * restored the next time the queue is opened.
+ *
+ * When the total size exceeds the byte cap, the oldest segments are evicted.
+ */
+class SegmentedFileQueue {
+    private static final int MAGIC = 0x53514631; // "SQF1"
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_OVERHEAD_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CLAIMED_SUFFIX = ".claimed";
+
+    @NonNull private final File mDirectory;
+    private final int mMaxSegmentBytes;
+    private final long mMaxTotalBytes;
+
+    /**
+     * Sizes of the unclaimed segments, keyed by sequence number
+     */
+    @NonNull private final TreeMap<Long, Long> mSegmentSizes = new TreeMap<>();
+    private long mTotalBytes;
+    private long mNextSequence;
+    private long mActiveSequence = -1;
+    private int mEvictedSegmentCount;
+    private boolean mIsOpen;
+
+    /**
+     * @param maxSegmentBytes the size at which a new segment is started
+     * @param maxTotalBytes the total size above which the oldest segments are evicted
+     */
+    SegmentedFileQueue(@NonNull File directory, int maxSegmentBytes, long maxTotalBytes) {
+        if (maxSegmentBytes <= HEADER_BYTES || maxTotalBytes < maxSegmentBytes) {
+            throw new IllegalArgumentException("Invalid segment sizes");
+        }
+        mDirectory = directory;
+        mMaxSegmentBytes = maxSegmentBytes;
+        mMaxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Append a record to the newest segment, starting a new segment if it is full.
+     *
+     * @return false if the record is too large to fit in a segment
+     */
+    synchronized boolean append(@NonNull byte[] record) throws IOException {
+        ensureOpen();
+        final long recordBytes = RECORD_OVERHEAD_BYTES + record.length;
+        if (HEADER_BYTES + recordBytes > mMaxSegmentBytes) {
+            return false;
+        }
+
+        if (mActiveSequence < 0 ||
+                mSegmentSizes.get(mActiveSequence) + recordBytes > mMaxSegmentBytes) {
+            startSegment();
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        try (DataOutputStream output = new DataOutputStream(
+                new FileOutputStream(getSegmentFile(mActiveSequence), true))) {
+            output.writeInt(record.length);
+            output.writeInt((int) crc.getValue());
+            output.write(record);
+        }
+        mSegmentSizes.put(mActiveSequence, mSegmentSizes.get(mActiveSequence) + recordBytes);
+        mTotalBytes += recordBytes;
+
+        evictOldestSegments();
+        return true;
+    }
+
+    /**
+     * Claim the oldest segment and read its records. If it is the segment being appended to,
+     * later records go to a new segment.
+     *
+     * @return the claimed segment, or null if the queue is empty
+     */
+    @Nullable
+    synchronized Segment claimOldest() throws IOException {
+        ensureOpen();
+        while (!mSegmentSizes.isEmpty()) {
+            final long sequence = mSegmentSizes.firstKey();
+            final long size = mSegmentSizes.remove(sequence);
+            mTotalBytes -= size;
+            if (sequence == mActiveSequence) {
+                mActiveSequence = -1;
+            }
+
+            final File claimedFile = getClaimedFile(sequence);
+            if (!getSegmentFile(sequence).renameTo(claimedFile)) {
+                throw new IOException("Unable to claim segment " + sequence);
+            }
+
+            final List<byte[]> records = readRecords(claimedFile);
+            if (records.isEmpty()) {
+                deleteFile(claimedFile);
+            } else {
+                return new Segment(sequence, records);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Delete a claimed segment once its records have been handled.
+     */
+    synchronized void complete(@NonNull Segment segment) {
+        deleteFile(getClaimedFile(segment.mSequence));
+    }
+
+    /**
+     * Return a claimed segment to the queue so that it can be claimed again.
+     */
+    synchronized void restore(@NonNull Segment segment) throws IOException {
+        ensureOpen();
+        final File segmentFile = getSegmentFile(segment.mSequence);
+        if (!getClaimedFile(segment.mSequence).renameTo(segmentFile)) {
+            throw new IOException("Unable to restore segment " + segment.mSequence);
+        }
+        final long size = segmentFile.length();
+        mSegmentSizes.put(segment.mSequence, size);
+        mTotalBytes += size;
+        evictOldestSegments();
+    }
+
+    /**
+     * @return the total size of the unclaimed segments
+     */
+    synchronized long getSizeBytes() throws IOException {
+        ensureOpen();
+        return mTotalBytes;
+    }
+
+    synchronized boolean isEmpty() throws IOException {
+        ensureOpen();
+        return mSegmentSizes.isEmpty();
+    }
+
+    /**
+     * @return the number of segments dropped to stay under the byte cap
+     */
+    synchronized int getEvictedSegmentCount() {
+        return mEvictedSegmentCount;
+    }
+
+    @VisibleForTesting
+    synchronized int getSegmentCount() throws IOException {
+        ensureOpen();
+        return mSegmentSizes.size();
+    }
+
+    /**
+     * Scan the directory, restore segments that were left claimed, and truncate any segment
+     * that ends in an incomplete or corrupt record.
+     */
+    private void ensureOpen() throws IOException {
+        if (mIsOpen) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Unable to create " + mDirectory);
+        }
+
+        final Map<Long, File> segmentFiles = new TreeMap<>();
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                final boolean isClaimed = name.endsWith(CLAIMED_SUFFIX);
+                if (!isClaimed && !name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+
+                final long sequence = parseSequence(name);
+                if (sequence < 0) {
+                    continue;
+                }
+                mNextSequence = Math.max(mNextSequence, sequence + 1);
+                if (isClaimed) {
+                    final File segmentFile = getSegmentFile(sequence);
+                    if (!file.renameTo(segmentFile)) {
+                        continue;
+                    }
+                    segmentFiles.put(sequence, segmentFile);
+                } else {
+                    segmentFiles.put(sequence, file);
+                }
+            }
+        }
+
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            final long validBytes = recover(entry.getValue());
+            if (validBytes > HEADER_BYTES) {
+                mSegmentSizes.put(entry.getKey(), validBytes);
+                mTotalBytes += validBytes;
+            } else {
+                deleteFile(entry.getValue());
+            }
+        }
+
+        // recovered segments are never appended to
+        mActiveSequence = -1;
+        mIsOpen = true;
+        evictOldestSegments();
+    }
+
+    /**
+     * @return the number of bytes in the file up to the end of its last valid record, after
+     * truncating anything past it, or 0 if the file is not a segment
+     */
+    private static long recover(@NonNull File file) throws IOException {
+        final long validBytes = scanValidBytes(file);
+        if (validBytes > HEADER_BYTES && validBytes < file.length()) {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.setLength(validBytes);
+            }
+        }
+        return validBytes;
+    }
+
+    private static long scanValidBytes(@NonNull File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            if (input.readInt() != MAGIC) {
+                return 0;
+            }
+            long validBytes = HEADER_BYTES;
+            while (true) {
+                final byte[] record = readRecord(input);
+                if (record == null) {
+                    return validBytes;
+                }
+                validBytes += RECORD_OVERHEAD_BYTES + record.length;
+            }
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    @NonNull
+    private static List<byte[]> readRecords(@NonNull File file) throws IOException {
+        final List<byte[]> records = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            if (input.readInt() != MAGIC) {
+                return records;
+            }
+            byte[] record;
+            while ((record = readRecord(input)) != null) {
+                records.add(record);
+            }
+        } catch (EOFException e) {
+            // an empty file has no records
+        }
+        return records;
+    }
+
+    /**
+     * @return the next record, or null at the end of the segment or at the first record that is
+     * incomplete or fails its checksum
+     */
+    @Nullable
+    private static byte[] readRecord(@NonNull DataInputStream input) throws IOException {
+        try {
+            final int length = input.readInt();
+            final int checksum = input.readInt();
+            if (length < 0 || length > input.available()) {
+                return null;
+            }
+            final byte[] record = new byte[length];
+            input.readFully(record);
+
+            final CRC32 crc = new CRC32();
+            crc.update(record, 0, length);
+            return (int) crc.getValue() == checksum ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void startSegment() throws IOException {
+        final long sequence = mNextSequence++;
+        try (DataOutputStream output =
+                     new DataOutputStream(new FileOutputStream(getSegmentFile(sequence)))) {
+            output.writeInt(MAGIC);
+        }
+        mSegmentSizes.put(sequence, (long) HEADER_BYTES);
+        mTotalBytes += HEADER_BYTES;
+        mActiveSequence = sequence;
+    }
+
+    private void evictOldestSegments() {
+        while (mTotalBytes > mMaxTotalBytes && mSegmentSizes.size() > 1) {
+            final long sequence = mSegmentSizes.firstKey();
+            mTotalBytes -= mSegmentSizes.remove(sequence);
+            deleteFile(getSegmentFile(sequence));
+            mEvictedSegmentCount++;
+        }
+    }
+
+    @NonNull
+    private File getSegmentFile(long sequence) {
+        return new File(mDirectory, formatSequence(sequence) + SEGMENT_SUFFIX);
+    }
+
+    @NonNull
+    private File getClaimedFile(long sequence) {
+        return new File(mDirectory, formatSequence(sequence) + CLAIMED_SUFFIX);
+    }
+
+    @NonNull
+    private static String formatSequence(long sequence) {
+        return String.format(Locale.ROOT, "%016d", sequence);
+    }
+
+    private static long parseSequence(@NonNull String fileName) {
+        final int end = fileName.indexOf('.');
+        try {
+            return Long.parseLong(fileName.substring(0, end));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private static void deleteFile(@NonNull File file) {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /**
+     * A segment claimed by {@link #claimOldest()}.
+     */
+    static final class Segment {
+        private final long mSequence;
+        @NonNull private final List<byte[]> mRecords;
+
+        private Segment(long sequence, @NonNull List<byte[]> records) {
+            mSequence = sequence;
+            mRecords = Collections.unmodifiableList(records);
+        }
+
+        @NonNull
+        List<byte[]> getRecords() {
+            return mRecords;
+        }
+    }
+}
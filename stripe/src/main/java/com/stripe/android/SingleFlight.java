@@ -0,0 +1,159 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.StripeException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Shares one in-flight call among callers that make an identical request at the same time.
+ *
+ * The first caller for a key runs the call; callers that arrive with an equal key before it
+ * completes wait for it and receive the same result, or the same exception. The key is
+ * forgotten as soon as the call completes, so nothing is cached: a request made after the
+ * previous one has returned always runs again.
+ *
+ * Only use this for idempotent requests, such as {@link StripeRequest.Method#GET}, where
+ * sending the request once has the same effect as sending it several times, and only share
+ * results that no caller can modify, such as a {@link StripeResponse} that each caller parses
+ * into its own model.
+ */
+class SingleFlight {
+    @Nullable private static SingleFlight sInstance;
+
+    @NonNull private final Map<Object, Flight<?>> mFlights = new HashMap<>();
+
+    @VisibleForTesting
+    SingleFlight() {
+    }
+
+    @NonNull
+    static synchronized SingleFlight getInstance() {
+        if (sInstance == null) {
+            sInstance = new SingleFlight();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Run {@code call}, unless a call for an equal key is already in flight, in which case wait
+     * for that call and return its result.
+     *
+     * @param key identifies the request, e.g. an {@link ApiRequest}
+     * @throws StripeException the exception thrown by the call, whichever caller ran it
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    <ResultType> ResultType execute(@NonNull Object key, @NonNull Call<ResultType> call)
+            throws StripeException {
+        while (true) {
+            final Flight<ResultType> flight;
+            final boolean isWaiter;
+            synchronized (mFlights) {
+                final Flight<?> inFlight = mFlights.get(key);
+                isWaiter = inFlight != null;
+                if (isWaiter) {
+                    flight = (Flight<ResultType>) inFlight;
+                    flight.mWaiterCount++;
+                } else {
+                    flight = new Flight<>();
+                    mFlights.put(key, flight);
+                }
+            }
+
+            if (!isWaiter) {
+                return run(key, flight, call);
+            }
+            try {
+                return flight.await();
+            } catch (RateLimiter.DeferredException e) {
+                // the caller that ran the call was deferred before it sent the request, which
+                // says nothing about this caller, so it makes the request itself
+            }
+        }
+    }
+
+    @Nullable
+    private <ResultType> ResultType run(@NonNull Object key,
+                                        @NonNull Flight<ResultType> flight,
+                                        @NonNull Call<ResultType> call)
+            throws StripeException {
+        try {
+            final ResultType result = call.call();
+            complete(key, flight, result, null);
+            return result;
+        } catch (StripeException | RuntimeException e) {
+            complete(key, flight, null, e);
+            throw e;
+        } catch (Error e) {
+            complete(key, flight, null, e);
+            throw e;
+        }
+    }
+
+    private <ResultType> void complete(@NonNull Object key,
+                                       @NonNull Flight<ResultType> flight,
+                                       @Nullable ResultType result,
+                                       @Nullable Throwable throwable) {
+        // remove the key first, so that no new caller joins a flight that has already landed
+        synchronized (mFlights) {
+            mFlights.remove(key);
+        }
+        flight.mResult = result;
+        flight.mThrowable = throwable;
+        flight.mLatch.countDown();
+    }
+
+    /**
+     * @return the number of callers waiting on the in-flight call for {@code key}, or -1 if
+     * there is no such call
+     */
+    @VisibleForTesting
+    int getWaiterCount(@NonNull Object key) {
+        synchronized (mFlights) {
+            final Flight<?> flight = mFlights.get(key);
+            return flight != null ? flight.mWaiterCount : -1;
+        }
+    }
+
+    interface Call<ResultType> {
+        @Nullable
+        ResultType call() throws StripeException;
+    }
+
+    private static final class Flight<ResultType> {
+        @NonNull private final CountDownLatch mLatch = new CountDownLatch(1);
+        @Nullable private volatile ResultType mResult;
+        @Nullable private volatile Throwable mThrowable;
+
+        // guarded by SingleFlight#mFlights
+        private int mWaiterCount;
+
+        @Nullable
+        private ResultType await() throws StripeException {
+            try {
+                mLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new APIConnectionException("Interrupted while waiting for an identical "
+                        + "request that is in flight", e);
+            }
+
+            final Throwable throwable = mThrowable;
+            if (throwable instanceof StripeException) {
+                throw (StripeException) throwable;
+            } else if (throwable instanceof RuntimeException) {
+                throw (RuntimeException) throwable;
+            } else if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+            return mResult;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link StripeRequest} that has been fully encoded, so that it can be written to disk and
+ * sent later, possibly by another process.
+ */
+final class StoredRequest extends StripeRequest {
+    private static final int VERSION = 1;
+
+    @NonNull private final String mContentType;
+    @NonNull private final Map<String, String> mHeaders;
+    @NonNull private final byte[] mBody;
+
+    private StoredRequest(@NonNull Method method,
+                          @NonNull String url,
+                          @NonNull String contentType,
+                          @NonNull Map<String, String> headers,
+                          @NonNull byte[] body) {
+        // the URL already includes the query string, so there are no params to encode
+        super(method, url, null, "");
+        mContentType = contentType;
+        mHeaders = headers;
+        mBody = body;
+    }
+
+    /**
+     * Encode a request so that it can be stored.
+     */
+    @NonNull
+    static StoredRequest create(@NonNull StripeRequest request)
+            throws IOException, InvalidRequestException {
+        final byte[] body = Method.POST == request.method ?
+                request.getOutputBytes() : new byte[0];
+        return new StoredRequest(request.method, request.getUrl(), request.getContentType(),
+                new HashMap<>(request.getHeaders()), body);
+    }
+
+    /**
+     * @return the request encoded by {@link #toBytes()}, or null if the bytes are not a
+     * stored request
+     */
+    @Nullable
+    static StoredRequest fromBytes(@NonNull byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (input.readInt() != VERSION) {
+                return null;
+            }
+            final Method method = Method.valueOf(readString(input));
+            final String url = readString(input);
+            final String contentType = readString(input);
+
+            final int headerCount = input.readInt();
+            final Map<String, String> headers = new HashMap<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(readString(input), readString(input));
+            }
+
+            final byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new StoredRequest(method, url, contentType, headers, body);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @NonNull
+    byte[] toBytes() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(VERSION);
+            writeString(output, method.name());
+            writeString(output, getUrl());
+            writeString(output, mContentType);
+
+            output.writeInt(mHeaders.size());
+            for (Map.Entry<String, String> header : mHeaders.entrySet()) {
+                writeString(output, header.getKey());
+                writeString(output, header.getValue());
+            }
+
+            output.writeInt(mBody.length);
+            output.write(mBody);
+        } catch (InvalidRequestException e) {
+            // the URL was encoded when the request was created
+            throw new IOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @NonNull
+    @Override
+    String getContentType() {
+        return mContentType;
+    }
+
+    @NonNull
+    @Override
+    Map<String, String> getHeaders() {
+        return mHeaders;
+    }
+
+    @NonNull
+    @Override
+    byte[] getOutputBytes() {
+        return mBody;
+    }
+
+    private static void writeString(@NonNull DataOutputStream output, @NonNull String value)
+            throws IOException {
+        final byte[] bytes = value.getBytes(CHARSET);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Invalid string length");
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+}
@@ -0,0 +1,167 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull-parses a response body with {@link JsonReader}, instead of first reading the whole body
+ * into a {@link String} and tokenizing it again with {@link JSONObject#JSONObject(String)}.
+ *
+ * The result is the same {@link JSONObject} tree that the models' {@code fromJson} methods
+ * already consume. For list responses, each element of the {@code data} array is handed to the
+ * caller as soon as it has been read, so only one element's tree is alive at a time.
+ */
+final class StreamingJsonParser {
+    static final String FIELD_DATA = "data";
+
+    private StreamingJsonParser() {
+    }
+
+    /**
+     * @return the top-level JSON object read from the given reader
+     * @throws JSONException if the content is not a well-formed JSON object
+     */
+    @NonNull
+    static JSONObject parseObject(@NonNull Reader reader) throws JSONException {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            return readObject(jsonReader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw createJsonException(e);
+        }
+    }
+
+    /**
+     * Read a list response, such as {@code {"object": "list", "data": [...]}}, passing each
+     * object in its {@code data} array to the given parser. Other top-level fields are skipped.
+     *
+     * @return the parsed elements, in order
+     * @throws JSONException if the content is not a well-formed JSON object
+     */
+    @NonNull
+    static <ModelType> List<ModelType> parseList(
+            @NonNull Reader reader,
+            @NonNull ElementParser<ModelType> elementParser) throws JSONException {
+        final List<ModelType> elements = new ArrayList<>();
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (FIELD_DATA.equals(jsonReader.nextName())
+                        && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        if (jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                            elements.add(elementParser.parse(readObject(jsonReader)));
+                        } else {
+                            jsonReader.skipValue();
+                        }
+                    }
+                    jsonReader.endArray();
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw createJsonException(e);
+        }
+        return elements;
+    }
+
+    @NonNull
+    private static JSONObject readObject(@NonNull JsonReader jsonReader)
+            throws IOException, JSONException {
+        final JSONObject jsonObject = new JSONObject();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            jsonObject.put(jsonReader.nextName(), readValue(jsonReader));
+        }
+        jsonReader.endObject();
+        return jsonObject;
+    }
+
+    @NonNull
+    private static JSONArray readArray(@NonNull JsonReader jsonReader)
+            throws IOException, JSONException {
+        final JSONArray jsonArray = new JSONArray();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            jsonArray.put(readValue(jsonReader));
+        }
+        jsonReader.endArray();
+        return jsonArray;
+    }
+
+    @NonNull
+    private static Object readValue(@NonNull JsonReader jsonReader)
+            throws IOException, JSONException {
+        switch (jsonReader.peek()) {
+            case BEGIN_OBJECT: {
+                return readObject(jsonReader);
+            }
+            case BEGIN_ARRAY: {
+                return readArray(jsonReader);
+            }
+            case STRING: {
+                return jsonReader.nextString();
+            }
+            case NUMBER: {
+                return toNumber(jsonReader.nextString());
+            }
+            case BOOLEAN: {
+                return jsonReader.nextBoolean();
+            }
+            case NULL: {
+                jsonReader.nextNull();
+                return JSONObject.NULL;
+            }
+            default: {
+                throw new JSONException("Unexpected token " + jsonReader.peek());
+            }
+        }
+    }
+
+    /**
+     * Convert a number literal the same way {@link org.json.JSONTokener} does, so that models
+     * see the same {@link Integer}, {@link Long} or {@link Double} values as before.
+     */
+    @NonNull
+    private static Object toNumber(@NonNull String literal) {
+        if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1
+                && literal.indexOf('E') == -1) {
+            try {
+                final long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                } else {
+                    return longValue;
+                }
+            } catch (NumberFormatException ignored) {
+                // fall through to a double, as JSONTokener does for very large values
+            }
+        }
+        return Double.valueOf(literal);
+    }
+
+    @NonNull
+    private static JSONException createJsonException(@NonNull Exception cause) {
+        final JSONException jsonException = new JSONException(cause.getMessage());
+        jsonException.initCause(cause);
+        return jsonException;
+    }
+
+    interface ElementParser<ModelType> {
+        @Nullable
+        ModelType parse(@NonNull JSONObject jsonObject);
+    }
+}
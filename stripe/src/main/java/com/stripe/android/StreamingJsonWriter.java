@@ -0,0 +1,277 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.model.StripeJsonModel;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes request params and models to UTF-8 JSON straight into a byte buffer, instead of
+ * first building a {@link JSONObject} tree, turning it into a {@link String} and encoding that.
+ *
+ * Maps and lists may be nested, and may contain {@link StripeJsonModel}s, {@link JSONObject}s
+ * and {@link JSONArray}s. As in {@link StripeJsonModel#toJson()}, map entries whose value is
+ * null, whose key is not a {@link String}, or whose value is a number that JSON cannot represent
+ * are left out, and values other than maps, lists, numbers and booleans are written as strings.
+ */
+final class StreamingJsonWriter {
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    @NonNull private byte[] mBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private int mCount;
+
+    private StreamingJsonWriter() {
+    }
+
+    /**
+     * @return {@code map} as a UTF-8 encoded JSON object
+     */
+    @NonNull
+    static byte[] toBytes(@NonNull Map<String, ?> map) {
+        final StreamingJsonWriter writer = new StreamingJsonWriter();
+        writer.writeMap(map);
+        return writer.toByteArray();
+    }
+
+    /**
+     * @return the {@link StripeJsonModel#toJson()} form of {@code model}, UTF-8 encoded
+     */
+    @NonNull
+    static byte[] toBytes(@NonNull StripeJsonModel model) {
+        final StreamingJsonWriter writer = new StreamingJsonWriter();
+        writer.writeJsonObject(model.toJson());
+        return writer.toByteArray();
+    }
+
+    private void writeMap(@NonNull Map<?, ?> map) {
+        write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            final Object value = entry.getValue();
+            if (entry.getKey() instanceof String && isWritable(value)) {
+                first = writeName((String) entry.getKey(), first);
+                writeValue(value);
+            }
+        }
+        write('}');
+    }
+
+    private void writeList(@NonNull List<?> list) {
+        write('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeArrayElement(list.get(i));
+        }
+        write(']');
+    }
+
+    private void writeJsonObject(@NonNull JSONObject jsonObject) {
+        write('{');
+        boolean first = true;
+        final Iterator<String> keys = jsonObject.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            final Object value = jsonObject.opt(key);
+            if (isWritable(value)) {
+                first = writeName(key, first);
+                writeValue(value);
+            }
+        }
+        write('}');
+    }
+
+    private void writeJsonArray(@NonNull JSONArray jsonArray) {
+        write('[');
+        for (int i = 0; i < jsonArray.length(); i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeArrayElement(jsonArray.opt(i));
+        }
+        write(']');
+    }
+
+    private void writeArrayElement(@Nullable Object value) {
+        if (isWritable(value)) {
+            writeValue(value);
+        } else {
+            write(NULL);
+        }
+    }
+
+    /**
+     * @return false, the new value of {@code first} for the next name of the same object
+     */
+    private boolean writeName(@NonNull String name, boolean first) {
+        if (!first) {
+            write(',');
+        }
+        writeString(name);
+        write(':');
+        return false;
+    }
+
+    private void writeValue(@NonNull Object value) {
+        if (value == JSONObject.NULL) {
+            write(NULL);
+        } else if (value instanceof Map<?, ?>) {
+            writeMap((Map<?, ?>) value);
+        } else if (value instanceof List<?>) {
+            writeList((List<?>) value);
+        } else if (value instanceof JSONObject) {
+            writeJsonObject((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            writeJsonArray((JSONArray) value);
+        } else if (value instanceof StripeJsonModel) {
+            writeJsonObject(((StripeJsonModel) value).toJson());
+        } else if (value instanceof Boolean) {
+            write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long ||
+                value instanceof Short || value instanceof Byte) {
+            writeAscii(Long.toString(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            writeNumber((Number) value);
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeNumber(@NonNull Number number) {
+        try {
+            // formats whole doubles without a fraction, as JSONObject#toString() does
+            writeAscii(JSONObject.numberToString(number));
+        } catch (JSONException e) {
+            // unreachable, non-finite numbers are filtered out by isWritable()
+            write(NULL);
+        }
+    }
+
+    /**
+     * Write {@code value} as a quoted JSON string, encoded as UTF-8.
+     */
+    private void writeString(@NonNull String value) {
+        final int length = value.length();
+        ensureCapacity(length + 2);
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        buffer[count++] = '"';
+        for (int i = 0; i < length; i++) {
+            // a char takes at most 6 bytes, as an escape, and the closing quote 1 more
+            if (count + 7 > buffer.length) {
+                mCount = count;
+                ensureCapacity(7 + length - i);
+                buffer = mBuffer;
+            }
+
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buffer[count++] = '\\';
+                    buffer[count++] = (byte) c;
+                } else if (c >= 0x20) {
+                    buffer[count++] = (byte) c;
+                } else if (c == '\n') {
+                    buffer[count++] = '\\';
+                    buffer[count++] = 'n';
+                } else if (c == '\r') {
+                    buffer[count++] = '\\';
+                    buffer[count++] = 'r';
+                } else if (c == '\t') {
+                    buffer[count++] = '\\';
+                    buffer[count++] = 't';
+                } else {
+                    count = writeUnicodeEscape(buffer, count, c);
+                }
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (c == '\u2028' || c == '\u2029') {
+                // valid in JSON, but not in JavaScript string literals
+                count = writeUnicodeEscape(buffer, count, c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                    Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate cannot be encoded, so replace it as String#getBytes does
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buffer[count++] = '"';
+        mCount = count;
+    }
+
+    private static int writeUnicodeEscape(@NonNull byte[] buffer, int count, char c) {
+        buffer[count++] = '\\';
+        buffer[count++] = 'u';
+        buffer[count++] = HEX_DIGITS[(c >> 12) & 0xf];
+        buffer[count++] = HEX_DIGITS[(c >> 8) & 0xf];
+        buffer[count++] = HEX_DIGITS[(c >> 4) & 0xf];
+        buffer[count++] = HEX_DIGITS[c & 0xf];
+        return count;
+    }
+
+    private void writeAscii(@NonNull String value) {
+        final int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            mBuffer[mCount++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void write(@NonNull byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, mBuffer, mCount, bytes.length);
+        mCount += bytes.length;
+    }
+
+    private void write(char c) {
+        ensureCapacity(1);
+        mBuffer[mCount++] = (byte) c;
+    }
+
+    private void ensureCapacity(int additional) {
+        final int required = mCount + additional;
+        if (required > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(required, mBuffer.length * 2));
+        }
+    }
+
+    @NonNull
+    private byte[] toByteArray() {
+        return Arrays.copyOf(mBuffer, mCount);
+    }
+
+    /**
+     * @return false if {@code value} is null, or a number that JSON cannot represent
+     */
+    private static boolean isWritable(@Nullable Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            final double doubleValue = ((Number) value).doubleValue();
+            return !Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue);
+        }
+        return value != null;
+    }
+}
@@ -3,7 +3,8 @@ package com.stripe.android;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.os.AsyncTask;
+import android.support.annotation.FloatRange;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.Size;
@@ -26,6 +27,7 @@ import com.stripe.android.model.Source;
 import com.stripe.android.model.SourceParams;
 import com.stripe.android.model.Token;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Executor;
@@ -84,13 +86,13 @@ public class Stripe {
         this(apiHandler, stripeNetworkUtils, paymentAuthenticationController, publishableKey,
                 new TokenCreator() {
                     @Override
-                    public void create(
+                    public ApiTask create(
                             @NonNull final Map<String, Object> tokenParams,
                             @NonNull final ApiRequest.Options options,
                             @NonNull @Token.TokenType final String tokenType,
                             @Nullable final Executor executor,
                             @NonNull final TokenCallback callback) {
-                        executeTask(executor,
+                        return executeTask(executor,
                                 new CreateTokenTask(apiHandler, tokenParams, options,
                                         tokenType, callback));
                     }
@@ -178,11 +180,13 @@ public class Stripe {
      *
      * @param bankAccount the {@link BankAccount} used to create this token
      * @param callback a {@link TokenCallback} to receive either the token or an error
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createBankAccountToken(
+    @NonNull
+    public ApiTask createBankAccountToken(
             @NonNull final BankAccount bankAccount,
             @NonNull final TokenCallback callback) {
-        createBankAccountToken(bankAccount, mDefaultPublishableKey, null, callback);
+        return createBankAccountToken(bankAccount, mDefaultPublishableKey, null, callback);
     }
 
     /**
@@ -194,8 +198,10 @@ public class Stripe {
      * @param executor an {@link Executor} to run this operation on. If null, this is run on a
      *         default non-ui executor
      * @param callback a {@link TokenCallback} to receive the result or error message
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createBankAccountToken(
+    @NonNull
+    public ApiTask createBankAccountToken(
             @NonNull final BankAccount bankAccount,
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
@@ -204,7 +210,7 @@ public class Stripe {
 
                     "Required parameter: 'bankAccount' is requred to create a token");
 
-        createTokenFromParams(
+        return createTokenFromParams(
                 mStripeNetworkUtils.hashMapFromBankAccount(bankAccount),
                 publishableKey,
                 Token.TYPE_BANK_ACCOUNT,
@@ -218,11 +224,13 @@ public class Stripe {
      *
      * @param personalId the personal id used to create this token
      * @param callback a {@link TokenCallback} to receive either the token or an error
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createPiiToken(
+    @NonNull
+    public ApiTask createPiiToken(
             @NonNull final String personalId,
             @NonNull final TokenCallback callback) {
-        createPiiToken(personalId, mDefaultPublishableKey, null, callback);
+        return createPiiToken(personalId, mDefaultPublishableKey, null, callback);
     }
 
     /**
@@ -234,13 +242,15 @@ public class Stripe {
      * @param executor an {@link Executor} to run this operation on. If null, this is run on a
      *         default non-ui executor
      * @param callback a {@link TokenCallback} to receive the result or error message
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createPiiToken(
+    @NonNull
+    public ApiTask createPiiToken(
             @NonNull final String personalId,
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
             @NonNull final TokenCallback callback) {
-        createTokenFromParams(
+        return createTokenFromParams(
                 hashMapFromPersonalId(personalId),
                 publishableKey,
                 Token.TYPE_PII,
@@ -309,11 +319,13 @@ public class Stripe {
      *
      * @param cvc the CVC used to create this token
      * @param callback a {@link TokenCallback} to receive either the token or an error
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createCvcUpdateToken(
+    @NonNull
+    public ApiTask createCvcUpdateToken(
             @NonNull @Size(min = 3, max = 4) final String cvc,
             @NonNull final TokenCallback callback) {
-        createCvcUpdateToken(cvc, mDefaultPublishableKey, null, callback);
+        return createCvcUpdateToken(cvc, mDefaultPublishableKey, null, callback);
     }
 
     /**
@@ -325,13 +337,15 @@ public class Stripe {
      * @param executor an {@link Executor} to run this operation on. If null, this is run on a
      *         default non-ui executor
      * @param callback a {@link TokenCallback} to receive the result or error message
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createCvcUpdateToken(
+    @NonNull
+    public ApiTask createCvcUpdateToken(
             @NonNull @Size(min = 3, max = 4) final String cvc,
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
             @NonNull final TokenCallback callback) {
-        createTokenFromParams(
+        return createTokenFromParams(
                 mapFromCvc(cvc),
                 publishableKey,
                 Token.TYPE_CVC_UPDATE,
@@ -340,63 +354,75 @@ public class Stripe {
     }
 
     /**
-     * Create a {@link Source} using an {@link AsyncTask} on the default {@link Executor} with a
+     * Create a {@link Source} in the background on the default {@link Executor} with a
      * publishable api key that has already been set on this {@link Stripe} instance.
      *
      * @param sourceParams the {@link SourceParams} to be used
      * @param callback a {@link SourceCallback} to receive a result or an error message
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createSource(@NonNull SourceParams sourceParams, @NonNull SourceCallback callback) {
-        createSource(sourceParams, callback, mDefaultPublishableKey, null);
+    @NonNull
+    public ApiTask createSource(@NonNull SourceParams sourceParams,
+                                @NonNull SourceCallback callback) {
+        return createSource(sourceParams, callback, mDefaultPublishableKey, null);
     }
 
     /**
-     * Create a {@link Source} using an {@link AsyncTask}.
+     * Create a {@link Source} in the background.
      *
      * @param sourceParams the {@link SourceParams} to be used
      * @param callback a {@link SourceCallback} to receive a result or an error message
      * @param publishableKey the publishable api key to be used
      * @param executor an {@link Executor} on which to execute the task, or {@link null} for default
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createSource(
+    @NonNull
+    public ApiTask createSource(
             @NonNull SourceParams sourceParams,
             @NonNull SourceCallback callback,
             @NonNull String publishableKey,
             @Nullable Executor executor) {
-        executeTask(executor,
+        return executeTask(executor,
                 new CreateSourceTask(mApiHandler, sourceParams, publishableKey, mStripeAccount,
                         callback));
     }
 
     /**
-     * Create a {@link PaymentMethod} using an {@link AsyncTask} on the default {@link Executor}
+     * Create a {@link PaymentMethod} in the background on the default {@link Executor}
      * with a publishable api key that has already been set on this {@link Stripe} instance.
      *
      * @param paymentMethodCreateParams the {@link PaymentMethodCreateParams} to be used
      * @param callback a {@link ApiResultCallback<PaymentMethod>} to receive a result or an error
      *         message
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createPaymentMethod(@NonNull PaymentMethodCreateParams paymentMethodCreateParams,
-                                    @NonNull ApiResultCallback<PaymentMethod> callback) {
-        createPaymentMethod(paymentMethodCreateParams, callback, mDefaultPublishableKey, null);
+    @NonNull
+    public ApiTask createPaymentMethod(
+            @NonNull PaymentMethodCreateParams paymentMethodCreateParams,
+            @NonNull ApiResultCallback<PaymentMethod> callback) {
+        return createPaymentMethod(paymentMethodCreateParams, callback, mDefaultPublishableKey,
+                null);
     }
 
     /**
-     * Create a {@link PaymentMethod} using an {@link AsyncTask}.
+     * Create a {@link PaymentMethod} in the background.
      *
      * @param paymentMethodCreateParams the {@link PaymentMethodCreateParams} to be used
      * @param callback a {@link ApiResultCallback<PaymentMethod>} to receive a result or an error
      *         message
      * @param publishableKey the publishable api key to be used
      * @param executor an {@link Executor} on which to execute the task, or {@link null} for default
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createPaymentMethod(
+    @NonNull
+    public ApiTask createPaymentMethod(
             @NonNull PaymentMethodCreateParams paymentMethodCreateParams,
             @NonNull ApiResultCallback<PaymentMethod> callback,
             @NonNull String publishableKey,
             @Nullable Executor executor) {
-        executeTask(executor, new CreatePaymentMethodTask(mApiHandler, paymentMethodCreateParams,
-                publishableKey, mStripeAccount, callback));
+        return executeTask(executor,
+                new CreatePaymentMethodTask(mApiHandler, paymentMethodCreateParams,
+                        publishableKey, mStripeAccount, callback));
     }
 
     /**
@@ -406,9 +432,11 @@ public class Stripe {
      *
      * @param card the {@link Card} used to create this payment token
      * @param callback a {@link TokenCallback} to receive either the token or an error
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createToken(@NonNull final Card card, @NonNull final TokenCallback callback) {
-        createToken(card, mDefaultPublishableKey, callback);
+    @NonNull
+    public ApiTask createToken(@NonNull final Card card, @NonNull final TokenCallback callback) {
+        return createToken(card, mDefaultPublishableKey, callback);
     }
 
     /**
@@ -417,12 +445,14 @@ public class Stripe {
      * @param card the {@link Card} used for this transaction
      * @param publishableKey the public key used for this transaction
      * @param callback a {@link TokenCallback} to receive the result of this operation
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createToken(
+    @NonNull
+    public ApiTask createToken(
             @NonNull final Card card,
             @NonNull final String publishableKey,
             @NonNull final TokenCallback callback) {
-        createToken(card, publishableKey, null, callback);
+        return createToken(card, publishableKey, null, callback);
     }
 
     /**
@@ -432,12 +462,14 @@ public class Stripe {
      * @param executor An {@link Executor} on which to run this operation. If you don't wish to
      *         specify an executor, use one of the other createTokenFromParams methods.
      * @param callback a {@link TokenCallback} to receive the result of this operation
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createToken(
+    @NonNull
+    public ApiTask createToken(
             @NonNull final Card card,
             @NonNull final Executor executor,
             @NonNull final TokenCallback callback) {
-        createToken(card, mDefaultPublishableKey, executor, callback);
+        return createToken(card, mDefaultPublishableKey, executor, callback);
     }
 
     /**
@@ -448,8 +480,10 @@ public class Stripe {
      * @param executor an {@link Executor} to run this operation on. If null, this is run on a
      *         default non-ui executor
      * @param callback a {@link TokenCallback} to receive the result or error message
+     * @return an {@link ApiTask} that can cancel the operation
      */
-    public void createToken(
+    @NonNull
+    public ApiTask createToken(
             @NonNull final Card card,
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
@@ -457,7 +491,7 @@ public class Stripe {
         Objects.requireNonNull(card,
                 "Required Parameter: 'card' is required to create a token");
 
-        createTokenFromParams(
+        return createTokenFromParams(
                 mStripeNetworkUtils.hashMapFromCard(card),
                 publishableKey,
                 Token.TYPE_CARD,
@@ -879,7 +913,169 @@ public class Stripe {
         mStripeAccount = stripeAccount;
     }
 
-    private void createTokenFromParams(
+    /**
+     * Set the listener that receives the phases of every request that the SDK sends, for all
+     * {@link Stripe} instances.
+     *
+     * @param listener the listener to be set, or {@code null} to stop reporting requests
+     */
+    public static void setRequestEventListener(@Nullable RequestEventListener listener) {
+        RequestEvents.setListener(listener);
+    }
+
+    /**
+     * Enable or disable hedging of requests that retrieve objects, such as
+     * {@link #retrievePaymentIntentSynchronous(PaymentIntentParams)}. When enabled, if a response
+     * takes longer than 95% of recent responses from the same endpoint, the SDK sends a
+     * duplicate request and uses whichever response arrives first. This cuts the slowest
+     * retrievals on congested networks, at the cost of a few extra requests. Disabled by default.
+     *
+     * @param isEnabled true to enable hedging
+     */
+    public static void setRequestHedgingEnabled(boolean isEnabled) {
+        RequestHedger.getInstance().setEnabled(isEnabled);
+    }
+
+    /**
+     * Set how often the SDK may send the device fingerprint, which Stripe uses for fraud
+     * detection, while its payload stays the same, for all {@link Stripe} instances. A changed
+     * payload, e.g. after the locale changes, is sent with the next request. The default is
+     * 30 minutes; 0 sends it with every request that includes it, such as creating a token.
+     *
+     * @param intervalMs the minimum time between two fingerprints with the same payload
+     */
+    public static void setFingerprintInterval(@IntRange(from = 0) long intervalMs) {
+        TelemetryClientUtil.setDefaultFingerprintIntervalMs(intervalMs);
+    }
+
+    /**
+     * Set how fast the SDK may send reads, such as retrieving a Source or a customer's payment
+     * methods, to each endpoint of the Stripe API with the same key. Reads beyond the limit wait
+     * for their turn instead of failing with a
+     * {@link com.stripe.android.exception.RateLimitException} from the API; the SDK's own
+     * background work is rescheduled rather than holding a thread while it waits. Writes have a
+     * budget of their own, see {@link #setWriteRateLimit(int, double)}. The defaults are a burst
+     * of {@value RateLimiter#DEFAULT_BURST} requests, then 10 requests per second.
+     *
+     * @param burst the number of requests that can be sent at once after a quiet period
+     * @param requestsPerSecond the sustained number of requests per second
+     */
+    public static void setRateLimit(@IntRange(from = 1) int burst,
+                                    @FloatRange(from = 0, fromInclusive = false)
+                                            double requestsPerSecond) {
+        RateLimiter.getInstance().setLimits(burst, requestsPerSecond);
+    }
+
+    /**
+     * Set how fast the SDK may send writes, such as attaching a PaymentMethod to a customer, to
+     * each endpoint of the Stripe API with the same key, like
+     * {@link #setRateLimit(int, double)} does for reads. The defaults are a burst of
+     * {@value RateLimiter#DEFAULT_WRITE_BURST} requests, then 5 requests per second.
+     *
+     * @param burst the number of requests that can be sent at once after a quiet period
+     * @param requestsPerSecond the sustained number of requests per second
+     */
+    public static void setWriteRateLimit(@IntRange(from = 1) int burst,
+                                         @FloatRange(from = 0, fromInclusive = false)
+                                                 double requestsPerSecond) {
+        RateLimiter.getInstance().setWriteLimits(burst, requestsPerSecond);
+    }
+
+    /**
+     * Set what the SDK does with a new analytics request when
+     * {@value AnalyticsDispatcher#DEFAULT_CAPACITY} requests are already waiting to be sent, for
+     * all {@link Stripe} instances.
+     *
+     * @param dropPolicy the policy to be set
+     */
+    public static void setAnalyticsDropPolicy(@NonNull AnalyticsDropPolicy dropPolicy) {
+        AnalyticsDispatcher.setDefaultDropPolicy(dropPolicy);
+    }
+
+    /**
+     * Set how long the SDK caches the IP addresses of the Stripe API. Once a successful lookup
+     * expires, it is still used for up to 10 minutes while it is refreshed in the background.
+     * Changing the TTLs removes every cached lookup. The defaults are 1 minute for successful
+     * lookups and 5 seconds for failed ones.
+     *
+     * @param ttlMs how long a successful lookup is used
+     * @param negativeTtlMs how long a failed lookup is reported without resolving the host again
+     */
+    public static void setDnsCacheTtl(@IntRange(from = 0) long ttlMs,
+                                      @IntRange(from = 0) long negativeTtlMs) {
+        DnsCache.getInstance().setTtls(ttlMs, negativeTtlMs);
+    }
+
+    /**
+     * Set the {@link DnsResolver} that the SDK uses to resolve the Stripe API's host name, for
+     * all {@link Stripe} instances. Its results are cached as set by
+     * {@link #setDnsCacheTtl(long, long)}.
+     *
+     * @param resolver the resolver to be set, or {@code null} to use the system resolver
+     */
+    public static void setDnsResolver(@Nullable DnsResolver resolver) {
+        DnsCache.getInstance().setResolver(resolver != null ? resolver : DnsResolver.SYSTEM);
+    }
+
+    /**
+     * Open a connection to the Stripe API in the background, so that the next request, such as
+     * {@link #createToken(Card, TokenCallback)}, does not wait for the DNS lookup and the TCP
+     * and TLS handshakes. Call it when a payment form is about to be shown. To let the SDK's
+     * own forms call it, see {@link #setConnectionPrewarmingEnabled(boolean)}.
+     *
+     * The connection is closed if it is not used within 30 seconds. Calling this while a
+     * connection is already open does nothing.
+     */
+    public static void prewarmConnection() {
+        StripeExecutor.getInstance().execute(StripeExecutor.Priority.BACKGROUND, null,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            PooledHttpTransport.getInstance().prewarm(ApiRequest.API_HOST);
+                        } catch (IOException ignored) {
+                            // the first request will open its own connection
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Let the SDK's {@link com.stripe.android.view.CardInputWidget},
+     * {@link com.stripe.android.view.CardMultilineWidget} and
+     * {@link com.stripe.android.view.PaymentMethodsActivity} call {@link #prewarmConnection()}
+     * when they become visible. Disabled by default, because each call resolves the API's host
+     * name and opens a socket whether or not a payment follows.
+     *
+     * @param isEnabled true to let the SDK's forms open a connection ahead of time
+     */
+    public static void setConnectionPrewarmingEnabled(boolean isEnabled) {
+        PooledHttpTransport.setAutoPrewarmEnabled(isEnabled);
+    }
+
+    /**
+     * @return whether the SDK's forms call {@link #prewarmConnection()}, as set with
+     * {@link #setConnectionPrewarmingEnabled(boolean)}
+     */
+    public static boolean isConnectionPrewarmingEnabled() {
+        return PooledHttpTransport.isAutoPrewarmEnabled();
+    }
+
+    /**
+     * Get the latency and outcome of the requests that the SDK has sent to each Stripe API
+     * endpoint, e.g. to report percentiles to a dashboard.
+     *
+     * @param reset if true, also start a new interval, so that the next snapshot only covers the
+     *              requests that are sent after this one
+     * @return the metrics since the last reset
+     */
+    @NonNull
+    public static ApiMetricsSnapshot getApiMetricsSnapshot(boolean reset) {
+        return ApiMetrics.getInstance().snapshot(reset);
+    }
+
+    @NonNull
+    private ApiTask createTokenFromParams(
             @NonNull final Map<String, Object> tokenParams,
             @NonNull @Size(min = 1) final String publishableKey,
             @NonNull @Token.TokenType final String tokenType,
@@ -888,29 +1084,27 @@ public class Stripe {
         Objects.requireNonNull(callback,
                     "Required Parameter: 'callback' is required to use the created " +
                             "token and handle errors");
-        mTokenCreator.create(
+        return mTokenCreator.create(
                 tokenParams,
                 ApiRequest.Options.create(publishableKey, mStripeAccount),
                 tokenType,
                 executor, callback);
     }
 
-    private static void executeTask(@Nullable Executor executor,
-                             @NonNull AsyncTask<Void, Void, ?> task) {
-        if (executor != null) {
-            task.executeOnExecutor(executor);
-        } else {
-            task.execute();
-        }
+    @NonNull
+    private static ApiTask executeTask(@Nullable Executor executor,
+                                       @NonNull ApiOperation<?> task) {
+        return task.execute(executor);
     }
 
     @VisibleForTesting
     interface TokenCreator {
-        void create(@NonNull Map<String, Object> params,
-                    @NonNull ApiRequest.Options options,
-                    @NonNull @Token.TokenType String tokenType,
-                    @Nullable Executor executor,
-                    @NonNull TokenCallback callback);
+        @NonNull
+        ApiTask create(@NonNull Map<String, Object> params,
+                       @NonNull ApiRequest.Options options,
+                       @NonNull @Token.TokenType String tokenType,
+                       @Nullable Executor executor,
+                       @NonNull TokenCallback callback);
     }
 
     private static class CreateSourceTask extends ApiOperation<Source> {
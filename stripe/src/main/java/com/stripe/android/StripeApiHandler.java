@@ -1,6 +1,7 @@
 package com.stripe.android;
 
 import android.content.Context;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -24,12 +25,11 @@ import com.stripe.android.model.SourceParams;
 import com.stripe.android.model.Stripe3ds2AuthResult;
 import com.stripe.android.model.Token;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.Reader;
 import java.net.HttpURLConnection;
-import java.security.Security;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,12 +42,17 @@ import java.util.Objects;
  */
 class StripeApiHandler {
 
-    private static final String DNS_CACHE_TTL_PROPERTY_NAME = "networkaddress.cache.ttl";
-
     @NonNull private final LoggingUtils mLoggingUtils;
     @NonNull private final TelemetryClientUtil mTelemetryClientUtil;
     @NonNull private final StripeNetworkUtils mNetworkUtils;
     @NonNull private final RequestExecutor mRequestExecutor;
+    @NonNull private final AnalyticsDispatcher mAnalyticsDispatcher;
+    @NonNull private final SingleFlight mSingleFlight;
+    @NonNull private final RetryPolicy mRetryPolicy;
+    @NonNull private final ApiMetrics mApiMetrics;
+    @NonNull private final AdaptiveTimeouts mAdaptiveTimeouts;
+    @NonNull private final RequestHedger mRequestHedger;
+    @NonNull private final RateLimiter mRateLimiter;
     private final boolean mShouldLogRequest;
 
     StripeApiHandler(@NonNull Context context) {
@@ -58,24 +63,67 @@ class StripeApiHandler {
     StripeApiHandler(@NonNull Context context,
                      @NonNull RequestExecutor requestExecutor,
                      boolean shouldLogRequest) {
+        this(context, requestExecutor, new AnalyticsDispatcher(context, requestExecutor),
+                shouldLogRequest);
+    }
+
+    @VisibleForTesting
+    StripeApiHandler(@NonNull Context context,
+                     @NonNull RequestExecutor requestExecutor,
+                     @NonNull AnalyticsDispatcher analyticsDispatcher,
+                     boolean shouldLogRequest) {
+        this(context, requestExecutor, analyticsDispatcher, SingleFlight.getInstance(),
+                RetryPolicy.createDefault(), ApiMetrics.getInstance(),
+                AdaptiveTimeouts.getInstance(), RequestHedger.getInstance(),
+                RateLimiter.getInstance(), shouldLogRequest);
+    }
+
+    @VisibleForTesting
+    StripeApiHandler(@NonNull Context context,
+                     @NonNull RequestExecutor requestExecutor,
+                     @NonNull AnalyticsDispatcher analyticsDispatcher,
+                     @NonNull SingleFlight singleFlight,
+                     @NonNull RetryPolicy retryPolicy,
+                     @NonNull ApiMetrics apiMetrics,
+                     @NonNull AdaptiveTimeouts adaptiveTimeouts,
+                     @NonNull RequestHedger requestHedger,
+                     @NonNull RateLimiter rateLimiter,
+                     boolean shouldLogRequest) {
         mRequestExecutor = requestExecutor;
+        mAnalyticsDispatcher = analyticsDispatcher;
+        mSingleFlight = singleFlight;
+        mRetryPolicy = retryPolicy;
+        mApiMetrics = apiMetrics;
+        mAdaptiveTimeouts = adaptiveTimeouts;
+        mRequestHedger = requestHedger;
+        mRateLimiter = rateLimiter;
         mShouldLogRequest = shouldLogRequest;
         mLoggingUtils = new LoggingUtils(context);
-        mTelemetryClientUtil = new TelemetryClientUtil(context);
+        mTelemetryClientUtil = TelemetryClientUtil.getInstance(context);
         mNetworkUtils = new StripeNetworkUtils(context);
     }
 
+    @VisibleForTesting
+    @NonNull
+    AnalyticsDispatcher getAnalyticsDispatcher() {
+        return mAnalyticsDispatcher;
+    }
+
     /**
-     * @return true if a request was made and it was successful
+     * Queue an analytics request to be sent in the background by the {@link AnalyticsDispatcher}.
+     * Nothing is queued while a task that the {@link RateLimiter} deferred runs again, since its
+     * deferred run already logged the call.
+     *
+     * @return true if the request was queued
      */
     boolean logApiCall(
             @NonNull Map<String, Object> loggingMap,
             @NonNull String publishableKey) {
-        if (!mShouldLogRequest) {
+        if (!mShouldLogRequest || RateLimiter.isRerunOfDeferredTask()) {
             return false;
         }
 
-        return makeFireAndForgetRequest(
+        return mAnalyticsDispatcher.enqueue(
                 ApiRequest.createAnalyticsRequest(loggingMap,
                         ApiRequest.Options.create(publishableKey)));
     }
@@ -112,7 +160,7 @@ class StripeApiHandler {
                     Objects.requireNonNull(paymentIntentParams.getClientSecret()));
             final StripeResponse response = makeApiRequest(ApiRequest.createPost(
                     getConfirmPaymentIntentUrl(paymentIntentId), paramMap, options));
-            return PaymentIntent.fromString(response.getResponseBody());
+            return PaymentIntent.fromJson(response.getResponseJson());
         } catch (CardException unexpected) {
             // This particular kind of exception should not be possible from a PaymentI API endpoint
             throw new APIException(unexpected.getMessage(), unexpected.getRequestId(),
@@ -141,9 +189,17 @@ class StripeApiHandler {
                     options.apiKey);
             final String paymentIntentId = PaymentIntent.parseIdFromClientSecret(
                     Objects.requireNonNull(paymentIntentParams.getClientSecret()));
-            final StripeResponse response = makeApiRequest(ApiRequest.createGet(
-                    getRetrievePaymentIntentUrl(paymentIntentId), paramMap, options));
-            return PaymentIntent.fromString(response.getResponseBody());
+            final ApiRequest request = ApiRequest.createGet(
+                    getRetrievePaymentIntentUrl(paymentIntentId), paramMap, options);
+            final StripeResponse response = executeShared(request,
+                    new SingleFlight.Call<StripeResponse>() {
+                        @NonNull
+                        @Override
+                        public StripeResponse call() throws StripeException {
+                            return makeApiRequest(request);
+                        }
+                    });
+            return PaymentIntent.fromJson(response.getResponseJson());
         } catch (CardException unexpected) {
             // This particular kind of exception should not be possible from a PaymentI API endpoint
             throw new APIException(unexpected.getMessage(), unexpected.getRequestId(),
@@ -181,7 +237,7 @@ class StripeApiHandler {
                     options.apiKey);
             final StripeResponse response = makeApiRequest(
                     ApiRequest.createPost(getSourcesUrl(), paramMap, options));
-            return Source.fromString(response.getResponseBody());
+            return Source.fromJson(response.getResponseJson());
         } catch (CardException unexpected) {
             // This particular kind of exception should not be possible from a Source API endpoint.
             throw new APIException(unexpected.getMessage(), unexpected.getRequestId(),
@@ -213,10 +269,17 @@ class StripeApiHandler {
             APIException {
         final Map<String, String> paramMap = SourceParams.createRetrieveSourceParams(clientSecret);
         try {
-            final StripeResponse response = makeApiRequest(
-                    ApiRequest.createGet(getRetrieveSourceApiUrl(sourceId), paramMap,
-                            options));
-            return Source.fromString(response.getResponseBody());
+            final ApiRequest request = ApiRequest.createGet(getRetrieveSourceApiUrl(sourceId),
+                    paramMap, options);
+            final StripeResponse response = executeShared(request,
+                    new SingleFlight.Call<StripeResponse>() {
+                        @NonNull
+                        @Override
+                        public StripeResponse call() throws StripeException {
+                            return makeApiRequest(request);
+                        }
+                    });
+            return Source.fromJson(response.getResponseJson());
         } catch (CardException unexpected) {
             // This particular kind of exception should not be possible from a Source API endpoint.
             throw new APIException(unexpected.getMessage(), unexpected.getRequestId(),
@@ -244,7 +307,7 @@ class StripeApiHandler {
         try {
             final StripeResponse response = makeApiRequest(
                     ApiRequest.createPost(getPaymentMethodsUrl(), params, options));
-            return PaymentMethod.fromString(response.getResponseBody());
+            return PaymentMethod.fromJson(response.getResponseJson());
         } catch (CardException unexpected) {
             throw new APIException(unexpected.getMessage(), unexpected.getRequestId(),
                     unexpected.getStatusCode(), null, unexpected);
@@ -327,7 +390,7 @@ class StripeApiHandler {
         );
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return Source.fromString(response.getResponseBody());
+        return Source.fromJson(response.getResponseJson());
     }
 
     @Nullable
@@ -356,7 +419,7 @@ class StripeApiHandler {
 
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return Source.fromString(response.getResponseBody());
+        return Source.fromJson(response.getResponseJson());
     }
 
     @Nullable
@@ -388,7 +451,7 @@ class StripeApiHandler {
         );
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return PaymentMethod.fromString(response.getResponseBody());
+        return PaymentMethod.fromJson(response.getResponseJson());
     }
 
     @Nullable
@@ -415,7 +478,7 @@ class StripeApiHandler {
         );
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return PaymentMethod.fromString(response.getResponseBody());
+        return PaymentMethod.fromJson(response.getResponseJson());
     }
 
     /**
@@ -443,27 +506,48 @@ class StripeApiHandler {
                 publishableKey
         );
 
-        final StripeResponse response = getStripeResponse(
-                ApiRequest.createGet(
-                        getPaymentMethodsUrl(),
-                        queryParams,
-                        ApiRequest.Options.create(ephemeralKey))
-        );
-        // Method throws if errors are found, so no return value occurs.
-        convertErrorsToExceptionsAndThrowIfNecessary(response);
+        final ApiRequest request = ApiRequest.createGet(
+                getPaymentMethodsUrl(),
+                queryParams,
+                ApiRequest.Options.create(ephemeralKey));
+        final StripeResponse response = executeShared(request,
+                new SingleFlight.Call<StripeResponse>() {
+                    @NonNull
+                    @Override
+                    public StripeResponse call() throws StripeException {
+                        final StripeResponse sharedResponse = getStripeResponse(request);
+                        // Method throws if errors are found, so no return value occurs.
+                        convertErrorsToExceptionsAndThrowIfNecessary(sharedResponse);
+                        return sharedResponse;
+                    }
+                });
+        return parsePaymentMethods(response);
+    }
 
-        final JSONArray data;
-        try {
-            data = new JSONObject(response.getResponseBody()).optJSONArray("data");
-        } catch (JSONException e) {
+    @NonNull
+    private static List<PaymentMethod> parsePaymentMethods(@NonNull StripeResponse response) {
+        final Reader reader = response.getResponseReader();
+        if (reader == null) {
             return new ArrayList<>();
         }
 
-        final List<PaymentMethod> paymentMethods = new ArrayList<>();
-        for (int i = 0; i < data.length(); i++) {
-            paymentMethods.add(PaymentMethod.fromJson(data.optJSONObject(i)));
+        // decode one payment method at a time rather than building a tree of the whole list
+        final RequestEvents events = response.getRequestEvents();
+        events.parseStart();
+        try {
+            return StreamingJsonParser.parseList(reader,
+                    new StreamingJsonParser.ElementParser<PaymentMethod>() {
+                        @Nullable
+                        @Override
+                        public PaymentMethod parse(@NonNull JSONObject jsonObject) {
+                            return PaymentMethod.fromJson(jsonObject);
+                        }
+                    });
+        } catch (JSONException e) {
+            return new ArrayList<>();
+        } finally {
+            events.parseEnd();
         }
-        return paymentMethods;
     }
 
     @Nullable
@@ -497,7 +581,7 @@ class StripeApiHandler {
 
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return Customer.fromString(response.getResponseBody());
+        return Customer.fromJson(response.getResponseJson());
     }
 
     @Nullable
@@ -529,7 +613,7 @@ class StripeApiHandler {
         );
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return Customer.fromString(response.getResponseBody());
+        return Customer.fromJson(response.getResponseJson());
     }
 
 
@@ -540,13 +624,20 @@ class StripeApiHandler {
             APIException,
             AuthenticationException,
             CardException {
-        final StripeResponse response = getStripeResponse(
-                ApiRequest.createGet(
-                        getRetrieveCustomerUrl(customerId),
-                        ApiRequest.Options.create(ephemeralKey))
-        );
-        convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return Customer.fromString(response.getResponseBody());
+        final ApiRequest request = ApiRequest.createGet(
+                getRetrieveCustomerUrl(customerId),
+                ApiRequest.Options.create(ephemeralKey));
+        final StripeResponse response = executeShared(request,
+                new SingleFlight.Call<StripeResponse>() {
+                    @NonNull
+                    @Override
+                    public StripeResponse call() throws StripeException {
+                        final StripeResponse sharedResponse = getStripeResponse(request);
+                        convertErrorsToExceptionsAndThrowIfNecessary(sharedResponse);
+                        return sharedResponse;
+                    }
+                });
+        return Customer.fromJson(response.getResponseJson());
     }
 
     @NonNull
@@ -804,123 +895,65 @@ class StripeApiHandler {
     }
 
     /**
-     * Converts a string-keyed {@link Map} into a {@link JSONObject}. This will cause a
-     * {@link ClassCastException} if any sub-map has keys that are not {@link String Strings}.
+     * Execute the request, retrying connection failures and retryable error responses as
+     * allowed by the {@link RetryPolicy}. The last response or failure is returned or thrown.
+     * Every attempt is recorded in the {@link ApiMetrics}.
      *
-     * @param mapObject the {@link Map} that you'd like in JSON form
-     * @return a {@link JSONObject} representing the input map, or {@code null} if the input
-     * object is {@code null}
-     */
-    @Nullable
-    @SuppressWarnings("unchecked")
-    private JSONObject mapToJsonObject(@Nullable Map<String, ?> mapObject) {
-        if (mapObject == null) {
-            return null;
-        }
-        JSONObject jsonObject = new JSONObject();
-        for (String key : mapObject.keySet()) {
-            Object value = mapObject.get(key);
-            if (value == null) {
-                continue;
-            }
-
-            try {
-                if (value instanceof Map<?, ?>) {
-                    try {
-                        Map<String, Object> mapValue = (Map<String, Object>) value;
-                        jsonObject.put(key, mapToJsonObject(mapValue));
-                    } catch (ClassCastException classCastException) {
-                        // We don't include the item in the JSONObject if the keys are not Strings.
-                    }
-                } else if (value instanceof List<?>) {
-                    jsonObject.put(key, listToJsonArray((List<Object>) value));
-                } else if (value instanceof Number || value instanceof Boolean) {
-                    jsonObject.put(key, value);
-                } else {
-                    jsonObject.put(key, value.toString());
-                }
-            } catch (JSONException jsonException) {
-                // Simply skip this value
-            }
-        }
-        return jsonObject;
-    }
-
-    /**
-     * Converts a {@link List} into a {@link JSONArray}. A {@link ClassCastException} will be
-     * thrown if any object in the list (or any sub-list or sub-map) is a {@link Map} whose keys
-     * are not {@link String Strings}.
+     * GET requests are idempotent, so when hedging is enabled, an attempt at one that is slower
+     * than usual for its endpoint is raced against a duplicate by the {@link RequestHedger}.
      *
-     * @param values a {@link List} of values to be put in a {@link JSONArray}
-     * @return a {@link JSONArray}, or {@code null} if the input was {@code null}
+     * Each attempt waits for its turn from the {@link RateLimiter} before it is sent, or defers
+     * the task that sends it.
      */
-    @Nullable
-    @SuppressWarnings("unchecked")
-    private JSONArray listToJsonArray(@Nullable List<?> values) {
-        if (values == null) {
-            return null;
-        }
-
-        final JSONArray jsonArray = new JSONArray();
-        for (Object object : values) {
-            if (object instanceof Map<?, ?>) {
-                // We are ignoring type erasure here and crashing on bad input.
-                // Now that this method is not public, we have more control on what is
-                // passed to it.
-                final Map<String, Object> mapObject = (Map<String, Object>) object;
-                jsonArray.put(mapToJsonObject(mapObject));
-            } else if (object instanceof List<?>) {
-                jsonArray.put(listToJsonArray((List) object));
-            } else if (object instanceof Number || object instanceof Boolean) {
-                jsonArray.put(object);
-            } else {
-                jsonArray.put(object.toString());
+    @NonNull
+    private StripeResponse getStripeResponse(@NonNull ApiRequest request)
+            throws InvalidRequestException, APIConnectionException {
+        final boolean canRetry = mRetryPolicy.canRetry(request);
+        long totalDelayMs = 0;
+        for (int retryCount = 0; ; retryCount++) {
+            StripeResponse response = null;
+            APIConnectionException connectionException = null;
+            mRateLimiter.acquire(request);
+            final long startNanos = mApiMetrics.nanoTime();
+            try {
+                response = execute(request, retryCount);
+            } catch (APIConnectionException e) {
+                connectionException = e;
             }
-        }
-        return jsonArray;
-    }
-
-    /**
-     * @return true if a request was made and it was successful
-     */
-    private boolean makeFireAndForgetRequest(@NonNull StripeRequest request) {
-        String originalDNSCacheTTL = null;
-        boolean allowedToSetTTL = true;
-
-        try {
-            originalDNSCacheTTL = Security.getProperty(DNS_CACHE_TTL_PROPERTY_NAME);
-            // disable DNS cache
-            Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME, "0");
-        } catch (SecurityException se) {
-            allowedToSetTTL = false;
-        }
-
-        boolean isSuccessful = false;
-        try {
-            final StripeResponse response = getStripeResponse(request);
-            isSuccessful = response.getResponseCode() == 200;
-        } catch (StripeException ignore) {
-            // We're just logging. No need to crash here or attempt to re-log things.
-        } finally {
-            if (allowedToSetTTL) {
-                if (originalDNSCacheTTL == null) {
-                    // value unspecified by implementation
-                    // DNS_CACHE_TTL_PROPERTY_NAME of -1 = cache forever
-                    Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME, "-1");
-                } else {
-                    Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME,
-                            originalDNSCacheTTL);
+            mApiMetrics.record(request, startNanos, retryCount > 0, response);
+
+            final long delayMs = canRetry ?
+                    mRetryPolicy.getRetryDelayMs(retryCount, totalDelayMs, response) :
+                    RetryPolicy.NO_RETRY;
+            if (delayMs == RetryPolicy.NO_RETRY || !mRetryPolicy.sleep(delayMs)) {
+                if (connectionException != null) {
+                    throw connectionException;
                 }
+                return Objects.requireNonNull(response);
             }
+            totalDelayMs += delayMs;
         }
-
-        return isSuccessful;
     }
 
     @NonNull
-    private StripeResponse getStripeResponse(@NonNull StripeRequest request)
+    private StripeResponse execute(@NonNull final StripeRequest request, final int retryCount)
             throws InvalidRequestException, APIConnectionException {
-        return mRequestExecutor.execute(request);
+        final long hedgeDelayMs = StripeRequest.Method.GET == request.method &&
+                mRequestHedger.isEnabled() ?
+                mAdaptiveTimeouts.getHedgeDelayMs(request) : AdaptiveTimeouts.NO_HEDGE;
+        if (hedgeDelayMs == AdaptiveTimeouts.NO_HEDGE) {
+            return mRequestExecutor.execute(request, RequestEvents.create(request, retryCount));
+        }
+
+        return mRequestHedger.execute(hedgeDelayMs, new RequestHedger.Attempt() {
+            @NonNull
+            @Override
+            public StripeResponse execute(@NonNull CancellationSignal cancellationSignal)
+                    throws InvalidRequestException, APIConnectionException {
+                return mRequestExecutor.execute(request,
+                        RequestEvents.create(request, retryCount, cancellationSignal));
+            }
+        });
     }
 
     private void handleAPIError(@Nullable String responseBody, int responseCode,
@@ -973,36 +1006,36 @@ class StripeApiHandler {
     StripeResponse makeApiRequest(@NonNull ApiRequest request)
             throws AuthenticationException, InvalidRequestException,
             APIConnectionException, CardException, APIException {
-
-        String originalDNSCacheTTL = null;
-        boolean allowedToSetTTL = true;
-
-        try {
-            originalDNSCacheTTL = Security.getProperty(DNS_CACHE_TTL_PROPERTY_NAME);
-            // disable DNS cache
-            Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME, "0");
-        } catch (SecurityException se) {
-            allowedToSetTTL = false;
-        }
-
         final StripeResponse response = getStripeResponse(request);
         if (response.hasErrorCode()) {
             handleAPIError(response.getResponseBody(), response.getResponseCode(),
                     response.getRequestId());
         }
+        return response;
+    }
 
-        if (allowedToSetTTL) {
-            if (originalDNSCacheTTL == null) {
-                // value unspecified by implementation
-                // DNS_CACHE_TTL_PROPERTY_NAME of -1 = cache forever
-                Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME, "-1");
-            } else {
-                Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME,
-                        originalDNSCacheTTL);
-            }
+    /**
+     * Run {@code call} for an idempotent {@code request}, sharing one network call with any
+     * identical request that is already in flight, from this or any other
+     * {@link StripeApiHandler}.
+     *
+     * Only the {@link StripeResponse} is shared. Each caller parses it into its own model, since
+     * models such as {@link Source} can be modified.
+     */
+    @NonNull
+    private StripeResponse executeShared(@NonNull ApiRequest request,
+                                         @NonNull SingleFlight.Call<StripeResponse> call)
+            throws AuthenticationException, InvalidRequestException,
+            APIConnectionException, CardException, APIException {
+        try {
+            return Objects.requireNonNull(mSingleFlight.execute(request, call));
+        } catch (AuthenticationException | InvalidRequestException | APIConnectionException
+                | CardException | APIException e) {
+            throw e;
+        } catch (StripeException unexpected) {
+            throw new APIException(unexpected.getMessage(), unexpected.getRequestId(),
+                    unexpected.getStatusCode(), null, unexpected);
         }
-
-        return response;
     }
 
     @Nullable
@@ -1013,18 +1046,20 @@ class StripeApiHandler {
             throws AuthenticationException, InvalidRequestException,
             APIConnectionException, CardException, APIException {
         final StripeResponse response = makeApiRequest(ApiRequest.createPost(url, params, options));
-        return Token.fromString(response.getResponseBody());
+        return Token.fromJson(response.getResponseJson());
     }
 
     private void logTelemetryData() {
-        final Map<String, Object> params = mTelemetryClientUtil.createTelemetryMap();
-        StripeNetworkUtils.removeNullAndEmptyParams(params);
-        if (!mShouldLogRequest) {
+        if (!mShouldLogRequest || RateLimiter.isRerunOfDeferredTask() ||
+                !mTelemetryClientUtil.shouldSendFingerprint()) {
             return;
         }
 
-        final String guid = mTelemetryClientUtil.getHashedId();
-        makeFireAndForgetRequest(new FingerprintRequest(params, guid));
+        // a fingerprint that was dropped is sent with the next request instead
+        if (mAnalyticsDispatcher.enqueue(new FingerprintRequest(
+                mTelemetryClientUtil.getTelemetryMap(), mTelemetryClientUtil.getHashedId()))) {
+            mTelemetryClientUtil.onFingerprintQueued();
+        }
     }
 
     private static final class Start3ds2AuthTask extends ApiOperation<Stripe3ds2AuthResult> {
@@ -0,0 +1,478 @@
+package com.stripe.android;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the SDK's background work on bounded pools of threads owned by the SDK, instead of
+ * sharing {@link android.os.AsyncTask}'s serial executor with the host app.
+ *
+ * {@link Priority#PAYMENT} tasks run on their own pool, so that customer and background work
+ * can't delay them. The other tasks share a second pool, and queued tasks run in
+ * {@link Priority} order, and in submission order within a priority.
+ * Results are delivered to an {@link ApiResultCallback} on the main thread, unless the task was
+ * cancelled first. Tasks can be cancelled one at a time through their {@link Task}, or together
+ * through the tag they were submitted with.
+ *
+ * A task whose first request has to wait for the {@link RateLimiter} gives up its thread, and
+ * is submitted again from the start once the request may be sent.
+ */
+class StripeExecutor {
+    private static final int MAX_POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    @Nullable private static StripeExecutor sInstance;
+
+    @NonNull private final ThreadPoolExecutor mPaymentThreadPoolExecutor;
+    @NonNull private final ThreadPoolExecutor mThreadPoolExecutor;
+    @NonNull private final ScheduledThreadPoolExecutor mDeferredTaskExecutor;
+    @NonNull private final Executor mCallbackExecutor;
+    @NonNull private final AtomicLong mSequence = new AtomicLong();
+    @NonNull private final Set<Task<?>> mActiveTasks = new HashSet<>();
+
+    private StripeExecutor() {
+        this(Math.max(2, Math.min(MAX_POOL_SIZE, Runtime.getRuntime().availableProcessors())),
+                new MainThreadExecutor());
+    }
+
+    /**
+     * @param poolSize the maximum number of payment tasks, and of other tasks, that run at the
+     *                 same time
+     * @param callbackExecutor the {@link Executor} that results are delivered on
+     */
+    @VisibleForTesting
+    StripeExecutor(int poolSize, @NonNull Executor callbackExecutor) {
+        mPaymentThreadPoolExecutor = createThreadPoolExecutor(poolSize, "Stripe-Payment");
+        mThreadPoolExecutor = createThreadPoolExecutor(poolSize, "Stripe");
+        // only holds deferred tasks until they are due, and never runs them
+        mDeferredTaskExecutor = new ScheduledThreadPoolExecutor(1,
+                new StripeThreadFactory("Stripe-Deferred"));
+        mDeferredTaskExecutor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        mDeferredTaskExecutor.allowCoreThreadTimeOut(true);
+        mCallbackExecutor = callbackExecutor;
+    }
+
+    @NonNull
+    static synchronized StripeExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new StripeExecutor();
+        }
+        return sInstance;
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor createThreadPoolExecutor(int poolSize,
+                                                               @NonNull String threadName) {
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+                new StripeThreadFactory(threadName));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    /**
+     * Run a {@link Callable} on the SDK's pool for its priority.
+     *
+     * @param tag an object identifying the owner of the task, for {@link #cancelAll(Object)}
+     * @param callback notified on the main thread with the result, unless the task is cancelled
+     */
+    @NonNull
+    <ResultType> Task<ResultType> submit(@NonNull Priority priority,
+                                         @Nullable Object tag,
+                                         @NonNull Callable<ResultType> callable,
+                                         @Nullable ApiResultCallback<ResultType> callback) {
+        final Task<ResultType> task = new Task<>(this, priority, tag, mSequence.getAndIncrement(),
+                callable, callback);
+        start(task, priority == Priority.PAYMENT ?
+                mPaymentThreadPoolExecutor : mThreadPoolExecutor);
+        return task;
+    }
+
+    /**
+     * Run a {@link Callable} on an executor provided by the host app. The result is still
+     * delivered on the main thread, and the task can still be cancelled by tag.
+     */
+    @NonNull
+    <ResultType> Task<ResultType> submit(@NonNull Executor executor,
+                                         @Nullable Object tag,
+                                         @NonNull Callable<ResultType> callable,
+                                         @Nullable ApiResultCallback<ResultType> callback) {
+        final Task<ResultType> task = new Task<>(this, Priority.PAYMENT, tag,
+                mSequence.getAndIncrement(), callable, callback);
+        start(task, executor);
+        return task;
+    }
+
+    /**
+     * Run a {@link Runnable} on the SDK's pool for its priority.
+     */
+    void execute(@NonNull Priority priority, @Nullable Object tag, @NonNull Runnable runnable) {
+        submit(priority, tag, new RunnableCallable(runnable), null);
+    }
+
+    /**
+     * Cancel every queued or running task that was submitted with the given tag. Queued tasks
+     * never run, and no callbacks are delivered for running tasks.
+     */
+    void cancelAll(@NonNull Object tag) {
+        final List<Task<?>> tasks = new ArrayList<>();
+        synchronized (mActiveTasks) {
+            for (Task<?> task : mActiveTasks) {
+                if (tag.equals(task.mTag)) {
+                    tasks.add(task);
+                }
+            }
+        }
+
+        for (Task<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Cancel the tasks submitted with the given tag once the activity is destroyed, unless it is
+     * being recreated for a configuration change.
+     */
+    void cancelAllWhenDestroyed(@NonNull Activity activity, @NonNull Object tag) {
+        final Application application = activity.getApplication();
+        if (application != null) {
+            application.registerActivityLifecycleCallbacks(
+                    new CancelOnDestroyCallbacks(this, application, activity, tag));
+        }
+    }
+
+    @VisibleForTesting
+    int getActiveTaskCount() {
+        synchronized (mActiveTasks) {
+            return mActiveTasks.size();
+        }
+    }
+
+    private void start(@NonNull Task<?> task, @NonNull Executor executor) {
+        synchronized (mActiveTasks) {
+            mActiveTasks.add(task);
+        }
+        task.mRunExecutor = executor;
+        executor.execute(task);
+    }
+
+    /**
+     * Submit {@code task} again after {@code delayMs}, without holding a thread of its executor
+     * in the meantime. The task stays active, so it can still be cancelled.
+     */
+    private void defer(@NonNull final Task<?> task, long delayMs) {
+        mDeferredTaskExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (task.isDone()) {
+                    return;
+                }
+                try {
+                    task.mRunExecutor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // e.g. the host app shut its executor down in the meantime
+                    task.fail(e);
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void onTaskDone(@NonNull final Task<?> task) {
+        synchronized (mActiveTasks) {
+            mActiveTasks.remove(task);
+        }
+
+        if (task.isCancelled()) {
+            if (task.mRunExecutor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) task.mRunExecutor).remove(task);
+            }
+        } else if (task.mCallback != null) {
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    task.deliverResult();
+                }
+            });
+        }
+    }
+
+    /**
+     * Task priorities, from highest to lowest.
+     */
+    enum Priority {
+        /**
+         * Work the customer is waiting on to complete a payment, such as creating a token or
+         * confirming a PaymentIntent. Runs on its own pool.
+         */
+        PAYMENT,
+
+        /**
+         * Customer data shown in the SDK's UI
+         */
+        CUSTOMER,
+
+        /**
+         * Work nobody is waiting on
+         */
+        BACKGROUND
+    }
+
+    /**
+     * A handle to a submitted task.
+     */
+    static final class Task<ResultType> extends FutureTask<ResultType>
+            implements ApiTask, Comparable<Task<?>> {
+        @NonNull private final StripeExecutor mExecutor;
+        @NonNull private final Priority mPriority;
+        @Nullable private final Object mTag;
+        private final long mSequence;
+        @NonNull private final DeferrableCallable<ResultType> mCallable;
+        @Nullable private final ApiResultCallback<ResultType> mCallback;
+
+        // the executor that runs the task, set before it is first submitted
+        private volatile Executor mRunExecutor;
+
+        private Task(@NonNull StripeExecutor executor,
+                     @NonNull Priority priority,
+                     @Nullable Object tag,
+                     long sequence,
+                     @NonNull Callable<ResultType> callable,
+                     @Nullable ApiResultCallback<ResultType> callback) {
+            this(executor, priority, tag, sequence, new DeferrableCallable<>(callable),
+                    callback);
+        }
+
+        private Task(@NonNull StripeExecutor executor,
+                     @NonNull Priority priority,
+                     @Nullable Object tag,
+                     long sequence,
+                     @NonNull DeferrableCallable<ResultType> callable,
+                     @Nullable ApiResultCallback<ResultType> callback) {
+            super(callable);
+            mExecutor = executor;
+            mPriority = priority;
+            mTag = tag;
+            mSequence = sequence;
+            mCallable = callable;
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            // runs the callable without completing the task, so that it can run again if it
+            // is deferred; a failure or cancellation still completes it
+            if (!runAndReset()) {
+                return;
+            }
+
+            final long delayMs = mCallable.mDelayMs;
+            if (delayMs > 0) {
+                mExecutor.defer(this, delayMs);
+            } else {
+                set(mCallable.mResult);
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            return cancel(true);
+        }
+
+        @Override
+        public int compareTo(@NonNull Task<?> other) {
+            final int priorityComparison = mPriority.compareTo(other.mPriority);
+            if (priorityComparison != 0) {
+                return priorityComparison;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+
+        @Override
+        protected void done() {
+            mExecutor.onTaskDone(this);
+        }
+
+        private void fail(@NonNull Throwable throwable) {
+            setException(throwable);
+        }
+
+        private void deliverResult() {
+            // the task may have been cancelled after it completed
+            if (mCallback == null || isCancelled()) {
+                return;
+            }
+
+            final ResultType result;
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                mCallback.onError(cause instanceof Exception ?
+                        (Exception) cause : new RuntimeException(cause));
+                return;
+            } catch (InterruptedException e) {
+                mCallback.onError(e);
+                return;
+            }
+
+            if (result != null) {
+                mCallback.onSuccess(result);
+            } else {
+                mCallback.onError(new RuntimeException(
+                        "The API operation returned neither a result or exception"));
+            }
+        }
+    }
+
+    /**
+     * Runs a {@link Callable} that may be deferred by the {@link RateLimiter}, and keeps its
+     * result for the {@link Task} instead of returning it.
+     */
+    private static final class DeferrableCallable<ResultType> implements Callable<ResultType> {
+        @NonNull private final Callable<ResultType> mCallable;
+
+        // written and read by the thread that runs the task
+        @Nullable private ResultType mResult;
+        private long mDelayMs;
+        private boolean mWasDeferred;
+
+        private DeferrableCallable(@NonNull Callable<ResultType> callable) {
+            mCallable = callable;
+        }
+
+        @Nullable
+        @Override
+        public ResultType call() throws Exception {
+            mResult = null;
+            mDelayMs = 0;
+            RateLimiter.setCanDefer(true, mWasDeferred);
+            try {
+                mResult = mCallable.call();
+            } catch (RateLimiter.DeferredException e) {
+                mDelayMs = e.getDelayMs();
+                mWasDeferred = true;
+            } finally {
+                RateLimiter.setCanDefer(false);
+            }
+            return null;
+        }
+    }
+
+    private static final class RunnableCallable implements Callable<Void> {
+        @NonNull private final Runnable mRunnable;
+
+        private RunnableCallable(@NonNull Runnable runnable) {
+            mRunnable = runnable;
+        }
+
+        @Nullable
+        @Override
+        public Void call() {
+            mRunnable.run();
+            return null;
+        }
+    }
+
+    private static final class CancelOnDestroyCallbacks
+            implements Application.ActivityLifecycleCallbacks {
+        @NonNull private final StripeExecutor mExecutor;
+        @NonNull private final Application mApplication;
+        @NonNull private final Activity mActivity;
+        @NonNull private final Object mTag;
+
+        private CancelOnDestroyCallbacks(@NonNull StripeExecutor executor,
+                                         @NonNull Application application,
+                                         @NonNull Activity activity,
+                                         @NonNull Object tag) {
+            mExecutor = executor;
+            mApplication = application;
+            mActivity = activity;
+            mTag = tag;
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+            if (activity != mActivity) {
+                return;
+            }
+            mApplication.unregisterActivityLifecycleCallbacks(this);
+            if (!activity.isChangingConfigurations()) {
+                mExecutor.cancelAll(mTag);
+            }
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity,
+                                      @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity,
+                                                @NonNull Bundle outState) {
+        }
+    }
+
+    private static final class MainThreadExecutor implements Executor {
+        @NonNull private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            mHandler.post(runnable);
+        }
+    }
+
+    private static final class StripeThreadFactory implements ThreadFactory {
+        @NonNull private final String mName;
+        @NonNull private final AtomicInteger mCount = new AtomicInteger();
+
+        private StripeThreadFactory(@NonNull String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            final Thread thread = new Thread(runnable, mName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -7,9 +7,6 @@ import com.stripe.android.exception.InvalidRequestException;
 import com.stripe.android.utils.ObjectUtils;
 
 import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -45,6 +42,14 @@ abstract class StripeRequest {
         return StripeRequest.Method.GET == method ? urlWithQuery() : mUrl;
     }
 
+    /**
+     * @return the URL without the query string
+     */
+    @NonNull
+    String getBaseUrl() {
+        return mUrl;
+    }
+
     @NonNull
     String getContentType() {
         return String.format(Locale.ROOT, "%s; charset=%s", mMimeType, CHARSET);
@@ -58,15 +63,15 @@ abstract class StripeRequest {
 
     @NonNull
     String createQuery() throws InvalidRequestException, UnsupportedEncodingException {
-        final StringBuilder queryStringBuffer = new StringBuilder();
-        for (Parameter flatParam : flattenParams(params)) {
-            if (queryStringBuffer.length() > 0) {
-                queryStringBuffer.append("&");
-            }
-            queryStringBuffer.append(urlEncodePair(flatParam.key, flatParam.value));
-        }
+        return new String(createQueryBytes(), CHARSET);
+    }
 
-        return queryStringBuffer.toString();
+    /**
+     * @return the params encoded as {@code application/x-www-form-urlencoded}
+     */
+    @NonNull
+    byte[] createQueryBytes() throws InvalidRequestException {
+        return FormEncoder.encode(params);
     }
 
     @NonNull
@@ -83,103 +88,6 @@ abstract class StripeRequest {
         }
     }
 
-    @NonNull
-    private List<Parameter> flattenParams(@Nullable Map<String, ?> params)
-            throws InvalidRequestException {
-        return flattenParamsMap(params, null);
-    }
-
-    @NonNull
-    private List<Parameter> flattenParamsList(@NonNull List<?> params,
-                                                              @NonNull String keyPrefix)
-            throws InvalidRequestException {
-        final List<Parameter> flatParams = new LinkedList<>();
-
-        // Because application/x-www-form-urlencoded cannot represent an empty
-        // list, convention is to take the list parameter and just set it to an
-        // empty string. (e.g. A regular list might look like `a[]=1&b[]=2`.
-        // Emptying it would look like `a=`.)
-        if (params.isEmpty()) {
-            flatParams.add(new Parameter(keyPrefix, ""));
-        } else {
-            final String newPrefix = String.format(Locale.ROOT, "%s[]", keyPrefix);
-            for (Object param : params) {
-                flatParams.addAll(flattenParamsValue(param, newPrefix));
-            }
-        }
-
-        return flatParams;
-    }
-
-    @NonNull
-    private List<Parameter> flattenParamsMap(@Nullable Map<String, ?> params,
-                                                             @Nullable String keyPrefix)
-            throws InvalidRequestException {
-        final List<Parameter> flatParams = new LinkedList<>();
-        if (params == null) {
-            return flatParams;
-        }
-
-        for (Map.Entry<String, ?> entry : params.entrySet()) {
-            final String key = entry.getKey();
-            final Object value = entry.getValue();
-            final String newPrefix;
-            if (keyPrefix != null) {
-                newPrefix = String.format(Locale.ROOT, "%s[%s]", keyPrefix, key);
-            } else {
-                newPrefix = key;
-            }
-
-            flatParams.addAll(flattenParamsValue(value, newPrefix));
-        }
-
-        return flatParams;
-    }
-
-    @NonNull
-    private List<Parameter> flattenParamsValue(@Nullable Object value,
-                                               @NonNull String keyPrefix)
-            throws InvalidRequestException {
-        final List<Parameter> flatParams;
-        if (value instanceof Map<?, ?>) {
-            //noinspection unchecked
-            flatParams = flattenParamsMap((Map<String, Object>) value, keyPrefix);
-        } else if (value instanceof List<?>) {
-            flatParams = flattenParamsList((List<?>) value, keyPrefix);
-        } else if ("".equals(value)) {
-            throw new InvalidRequestException("You cannot set '" + keyPrefix + "' to an empty "
-                    + "string. " + "We interpret empty strings as null in requests. "
-                    + "You may set '" + keyPrefix + "' to null to delete the property.",
-                    keyPrefix, null, 0, null, null, null, null);
-        } else if (value == null) {
-            flatParams = new LinkedList<>();
-            flatParams.add(new Parameter(keyPrefix, ""));
-        } else {
-            flatParams = new LinkedList<>();
-            flatParams.add(new Parameter(keyPrefix, value.toString()));
-        }
-
-        return flatParams;
-    }
-
-
-    @NonNull
-    private String urlEncodePair(@NonNull String k, @NonNull String v)
-            throws UnsupportedEncodingException {
-        return String.format(Locale.ROOT, "%s=%s", urlEncode(k), urlEncode(v));
-    }
-
-    @Nullable
-    private String urlEncode(@Nullable String str) throws UnsupportedEncodingException {
-        // Preserve original behavior that passing null for an object id will lead
-        // to us actually making a request to /v1/foo/null
-        if (str == null) {
-            return null;
-        } else {
-            return URLEncoder.encode(str, CHARSET);
-        }
-    }
-
     int getBaseHashCode() {
         return ObjectUtils.hash(method, mUrl, params);
     }
@@ -201,14 +109,4 @@ abstract class StripeRequest {
             this.code = code;
         }
     }
-
-    private static final class Parameter {
-        @NonNull private final String key;
-        @NonNull private final String value;
-
-        Parameter(@NonNull String key, @NonNull String value) {
-            this.key = key;
-            this.value = value;
-        }
-    }
 }
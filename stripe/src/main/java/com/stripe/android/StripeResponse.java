@@ -1,8 +1,18 @@
 package com.stripe.android;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -10,10 +20,17 @@ import java.util.Map;
  * Represents a response from the Stripe servers.
  */
 class StripeResponse {
+    static final String HEADER_REQUEST_ID = "Request-Id";
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
 
     private final int mResponseCode;
-    @Nullable private final String mResponseBody;
+    @Nullable private final byte[] mResponseBytes;
+    @Nullable private String mResponseBody;
     @Nullable private final Map<String, List<String>> mResponseHeaders;
+    private final int mWireBodyLength;
+    private final long mDecodeNanos;
+    @NonNull private final RequestEvents mRequestEvents;
 
     /**
      * Object constructor.
@@ -26,9 +43,86 @@ class StripeResponse {
             int responseCode,
             @Nullable String responseBody,
             @Nullable Map<String, List<String>> responseHeaders) {
+        this(responseCode, null, responseBody, responseHeaders, 0, 0, RequestEvents.NONE);
+    }
+
+    private StripeResponse(
+            int responseCode,
+            @Nullable byte[] responseBytes,
+            @Nullable String responseBody,
+            @Nullable Map<String, List<String>> responseHeaders,
+            int wireBodyLength,
+            long decodeNanos,
+            @NonNull RequestEvents requestEvents) {
         mResponseCode = responseCode;
+        mResponseBytes = responseBytes;
         mResponseBody = responseBody;
         mResponseHeaders = responseHeaders;
+        mWireBodyLength = wireBodyLength;
+        mDecodeNanos = decodeNanos;
+        mRequestEvents = requestEvents;
+    }
+
+    /**
+     * Create a response from the raw bytes of a UTF-8 body. The body is only decoded into a
+     * {@link String} if {@link #getResponseBody()} is called; {@link #getResponseJson()} parses
+     * the bytes directly.
+     */
+    @NonNull
+    static StripeResponse fromBytes(
+            int responseCode,
+            @Nullable byte[] responseBytes,
+            @Nullable Map<String, List<String>> responseHeaders) {
+        return fromBytes(responseCode, responseBytes, responseHeaders, RequestEvents.NONE);
+    }
+
+    @NonNull
+    private static StripeResponse fromBytes(
+            int responseCode,
+            @Nullable byte[] responseBytes,
+            @Nullable Map<String, List<String>> responseHeaders,
+            @NonNull RequestEvents requestEvents) {
+        final int length = responseBytes == null ? 0 : responseBytes.length;
+        return new StripeResponse(responseCode, length == 0 ? null : responseBytes, null,
+                responseHeaders, length, 0, requestEvents);
+    }
+
+    /**
+     * Create a response from the body as it was received, decoding it first if the headers say
+     * that it is gzip-encoded.
+     *
+     * @throws IOException if the body can't be decoded
+     */
+    @NonNull
+    static StripeResponse fromWireBytes(
+            int responseCode,
+            @Nullable byte[] wireBytes,
+            @Nullable Map<String, List<String>> responseHeaders) throws IOException {
+        return fromWireBytes(responseCode, wireBytes, responseHeaders, RequestEvents.NONE);
+    }
+
+    /**
+     * @param requestEvents where to report decoding now, and parsing when the body is parsed
+     */
+    @NonNull
+    static StripeResponse fromWireBytes(
+            int responseCode,
+            @Nullable byte[] wireBytes,
+            @Nullable Map<String, List<String>> responseHeaders,
+            @NonNull RequestEvents requestEvents) throws IOException {
+        if (wireBytes == null || wireBytes.length == 0
+                || !GzipUtils.isGzipped(responseHeaders)) {
+            return fromBytes(responseCode, wireBytes, responseHeaders, requestEvents);
+        }
+
+        requestEvents.decodeStart();
+        final long startNanos = System.nanoTime();
+        final byte[] responseBytes = GzipUtils.decompress(wireBytes);
+        final long decodeNanos = System.nanoTime() - startNanos;
+        requestEvents.decodeEnd(responseBytes.length);
+        return new StripeResponse(responseCode,
+                responseBytes.length == 0 ? null : responseBytes, null, responseHeaders,
+                wireBytes.length, decodeNanos, requestEvents);
     }
 
     /**
@@ -51,9 +145,47 @@ class StripeResponse {
      */
     @Nullable
     String getResponseBody() {
+        if (mResponseBody == null && mResponseBytes != null) {
+            mResponseBody = new String(mResponseBytes, CHARSET);
+        }
         return mResponseBody;
     }
 
+    /**
+     * @return the response body parsed as a JSON object, or {@code null} if the body is empty or
+     * is not a JSON object
+     */
+    @Nullable
+    JSONObject getResponseJson() {
+        final Reader reader = getResponseReader();
+        if (reader == null) {
+            return null;
+        }
+
+        mRequestEvents.parseStart();
+        try {
+            return StreamingJsonParser.parseObject(reader);
+        } catch (JSONException e) {
+            return null;
+        } finally {
+            mRequestEvents.parseEnd();
+        }
+    }
+
+    /**
+     * @return a {@link Reader} over the response body, or {@code null} if there is no body
+     */
+    @Nullable
+    Reader getResponseReader() {
+        if (mResponseBody != null) {
+            return new StringReader(mResponseBody);
+        } else if (mResponseBytes != null) {
+            return new InputStreamReader(new ByteArrayInputStream(mResponseBytes), CHARSET);
+        } else {
+            return null;
+        }
+    }
+
     /**
      * @return the {@link #mResponseHeaders response headers}.
      */
@@ -62,10 +194,41 @@ class StripeResponse {
         return mResponseHeaders;
     }
 
+    /**
+     * @return the number of body bytes received over the network, before any content decoding
+     */
+    int getWireBodyLength() {
+        return mWireBodyLength;
+    }
+
+    /**
+     * @return the number of body bytes after content decoding
+     */
+    int getBodyLength() {
+        return mResponseBytes != null ? mResponseBytes.length : mWireBodyLength;
+    }
+
+    /**
+     * @return the time spent decoding a compressed body, in nanoseconds, or 0 if the body was
+     * not compressed
+     */
+    long getDecodeNanos() {
+        return mDecodeNanos;
+    }
+
+    /**
+     * @return where to report parsing the body of this response
+     */
+    @NonNull
+    RequestEvents getRequestEvents() {
+        return mRequestEvents;
+    }
+
     @Nullable
     String getRequestId() {
         final Map<String, List<String>> headers = getResponseHeaders();
-        final List<String> requestIdList = headers == null ? null : headers.get("Request-Id");
+        final List<String> requestIdList =
+                headers == null ? null : headers.get(HEADER_REQUEST_ID);
         final String requestId;
         if (requestIdList != null && requestIdList.size() > 0) {
             requestId = requestIdList.get(0);
@@ -1,36 +1,89 @@
 package com.stripe.android;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
 /**
  * Wraps a SSLSocketFactory and enables more TLS versions on older versions of Android.
  * Most of the code is taken from stripe-java.
+ *
+ * Unless the app has replaced the default {@link SSLSocketFactory}, sockets come from the SDK's
+ * own {@link SSLContext}, whose client session cache is sized for the few Stripe hosts and
+ * keeps sessions for {@value #SESSION_TIMEOUT_SECONDS} seconds, so that reconnecting to a host
+ * resumes the previous TLS session instead of running a full handshake. Whether each handshake
+ * was resumed is recorded in {@link ApiMetrics}.
  */
 class StripeSSLSocketFactory extends SSLSocketFactory {
+    @VisibleForTesting static final int SESSION_CACHE_SIZE = 16;
+    @VisibleForTesting static final int SESSION_TIMEOUT_SECONDS = 60 * 60;
+
+    @Nullable private static StripeSSLSocketFactory sInstance;
 
     private final SSLSocketFactory under;
+    @Nullable private final SSLSessionContext mSessionContext;
+    @NonNull private final ApiMetrics mApiMetrics;
     private final boolean tlsv11Supported;
     private final boolean tlsv12Supported;
 
+    // the protocols enabled on the last socket, and what they were changed to; sockets from the
+    // same factory start with the same protocols, so this is computed once in practice
+    @Nullable private volatile ProtocolFixup mProtocolFixup;
+
     private static final String TLS_V11_PROTO = "TLSv1.1";
     private static final String TLS_V12_PROTO = "TLSv1.2";
 
+    /**
+     * @return the factory shared by every transport, so that they share one TLS session cache
+     */
+    @NonNull
+    static synchronized StripeSSLSocketFactory getInstance() {
+        if (sInstance == null) {
+            sInstance = new StripeSSLSocketFactory();
+        }
+        return sInstance;
+    }
+
     /**
      * Constructor for a socket factory instance.
      */
     StripeSSLSocketFactory() {
-        this.under = HttpsURLConnection.getDefaultSSLSocketFactory();
+        this(createSslContext(), ApiMetrics.getInstance());
+    }
+
+    /**
+     * @param sslContext the context to create sockets with, or null to use the default
+     *                   {@link HttpsURLConnection} socket factory and its session cache
+     */
+    @VisibleForTesting
+    StripeSSLSocketFactory(@Nullable SSLContext sslContext, @NonNull ApiMetrics apiMetrics) {
+        if (sslContext != null) {
+            this.under = sslContext.getSocketFactory();
+            mSessionContext = sslContext.getClientSessionContext();
+            mSessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+            mSessionContext.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+        } else {
+            this.under = HttpsURLConnection.getDefaultSSLSocketFactory();
+            mSessionContext = null;
+        }
+        mApiMetrics = apiMetrics;
 
         // For Android prior to 4.1, TLSv1.1 and TLSv1.2 might not be supported
         boolean tlsv11Supported = false, tlsv12Supported = false;
@@ -54,6 +107,32 @@ class StripeSSLSocketFactory extends SSLSocketFactory {
         this.tlsv12Supported = tlsv12Supported;
     }
 
+    /**
+     * @return a new {@link SSLContext} with the platform's default trust and key managers, or
+     * null if the app has replaced the default socket factory, e.g. to pin certificates, or a
+     * context could not be created
+     */
+    @Nullable
+    private static SSLContext createSslContext() {
+        if (HttpsURLConnection.getDefaultSSLSocketFactory() != SSLSocketFactory.getDefault()) {
+            return null;
+        }
+
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    @Nullable
+    SSLSessionContext getSessionContext() {
+        return mSessionContext;
+    }
+
     @Override
     public String[] getDefaultCipherSuites() {
         return this.under.getDefaultCipherSuites();
@@ -102,22 +181,71 @@ class StripeSSLSocketFactory extends SSLSocketFactory {
                 this.under.createSocket(address, port, localAddress, localPort));
     }
 
-    private Socket fixupSocket(Socket sock) {
+    @VisibleForTesting
+    Socket fixupSocket(Socket sock) {
         if (!(sock instanceof SSLSocket)) {
             return sock;
         }
 
         SSLSocket sslSock = (SSLSocket) sock;
 
-        Set<String> protos = new HashSet<>(Arrays.asList(sslSock.getEnabledProtocols()));
-        if (tlsv11Supported) {
-            protos.add(TLS_V11_PROTO);
+        final String[] enabledProtocols = sslSock.getEnabledProtocols();
+        ProtocolFixup protocolFixup = mProtocolFixup;
+        if (protocolFixup == null ||
+                !Arrays.equals(protocolFixup.mEnabledProtocols, enabledProtocols)) {
+            protocolFixup = new ProtocolFixup(enabledProtocols, tlsv11Supported, tlsv12Supported);
+            mProtocolFixup = protocolFixup;
         }
-        if (tlsv12Supported) {
-            protos.add(TLS_V12_PROTO);
+        if (protocolFixup.mFixedProtocols != null) {
+            sslSock.setEnabledProtocols(protocolFixup.mFixedProtocols);
         }
 
-        sslSock.setEnabledProtocols(protos.toArray(new String[0]));
+        sslSock.addHandshakeCompletedListener(
+                new ResumptionListener(System.currentTimeMillis(), mApiMetrics));
         return sslSock;
     }
+
+    private static final class ProtocolFixup {
+        @NonNull private final String[] mEnabledProtocols;
+
+        // null if the enabled protocols do not need to change
+        @Nullable private final String[] mFixedProtocols;
+
+        private ProtocolFixup(@NonNull String[] enabledProtocols,
+                              boolean tlsv11Supported,
+                              boolean tlsv12Supported) {
+            mEnabledProtocols = enabledProtocols;
+
+            final Set<String> protos = new LinkedHashSet<>(Arrays.asList(enabledProtocols));
+            if (tlsv11Supported) {
+                protos.add(TLS_V11_PROTO);
+            }
+            if (tlsv12Supported) {
+                protos.add(TLS_V12_PROTO);
+            }
+            mFixedProtocols = protos.size() != enabledProtocols.length ?
+                    protos.toArray(new String[0]) : null;
+        }
+    }
+
+    /**
+     * Records whether the handshake of a socket resumed an earlier session. A resumed session
+     * was created by an earlier handshake, so before the socket itself was created.
+     */
+    @VisibleForTesting
+    static final class ResumptionListener implements HandshakeCompletedListener {
+        private final long mSocketCreatedAtMillis;
+        @NonNull private final ApiMetrics mApiMetrics;
+
+        ResumptionListener(long socketCreatedAtMillis, @NonNull ApiMetrics apiMetrics) {
+            mSocketCreatedAtMillis = socketCreatedAtMillis;
+            mApiMetrics = apiMetrics;
+        }
+
+        @Override
+        public void handshakeCompleted(@NonNull HandshakeCompletedEvent event) {
+            mApiMetrics.recordTlsHandshake(
+                    event.getSession().getCreationTime() < mSocketCreatedAtMillis);
+        }
+    }
 }
@@ -5,26 +5,130 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.DisplayMetrics;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Builds the device fingerprint sent to m.stripe.com.
+ *
+ * The payload is computed once per process and rebuilt only when the locale, time zone, or
+ * display configuration changes. The fingerprint is sent at most once per interval unless the
+ * payload changes; the interval is set for the whole process with
+ * {@link Stripe#setFingerprintInterval(long)}.
+ */
 class TelemetryClientUtil {
+    static final long DEFAULT_FINGERPRINT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(30);
+
+    // passed instead of an interval to follow setDefaultFingerprintIntervalMs(long)
+    static final long FOLLOW_DEFAULT_INTERVAL = -1;
+
+    @Nullable private static TelemetryClientUtil sInstance;
+    private static volatile long sDefaultFingerprintIntervalNanos =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_FINGERPRINT_INTERVAL_MS);
 
     @NonNull private final Context mContext;
     @NonNull private final UidProvider mUidProvider;
+    @NonNull private final Clock mClock;
+    private final long mFingerprintIntervalNanos;
+
+    @Nullable private Snapshot mSnapshot;
+    @Nullable private String mHashedId;
+    @Nullable private Snapshot mSentSnapshot;
+    private long mSentAtNanos;
 
     TelemetryClientUtil(@NonNull Context context) {
+        this(context, new UidProvider(context), Clock.SYSTEM, FOLLOW_DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param fingerprintIntervalMs the minimum time between two fingerprints with the same
+     *                              payload, or {@link #FOLLOW_DEFAULT_INTERVAL}
+     */
+    @VisibleForTesting
+    TelemetryClientUtil(@NonNull Context context,
+                        @NonNull UidProvider uidProvider,
+                        @NonNull Clock clock,
+                        long fingerprintIntervalMs) {
         mContext = context.getApplicationContext();
-        mUidProvider = new UidProvider(context);
+        mUidProvider = uidProvider;
+        mClock = clock;
+        mFingerprintIntervalNanos = fingerprintIntervalMs == FOLLOW_DEFAULT_INTERVAL ?
+                FOLLOW_DEFAULT_INTERVAL : TimeUnit.MILLISECONDS.toNanos(fingerprintIntervalMs);
     }
 
+    /**
+     * Set the interval of every instance that was not created with its own.
+     */
+    static void setDefaultFingerprintIntervalMs(long fingerprintIntervalMs) {
+        if (fingerprintIntervalMs < 0) {
+            throw new IllegalArgumentException("fingerprintIntervalMs must not be negative");
+        }
+        sDefaultFingerprintIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fingerprintIntervalMs);
+    }
+
+    /**
+     * @return the process-wide instance, so that the cached payload outlives any one
+     * {@link StripeApiHandler}
+     */
     @NonNull
+    static synchronized TelemetryClientUtil getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new TelemetryClientUtil(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return the telemetry payload, without null or empty values. The map cannot be modified,
+     * and the same instance is returned until the device configuration changes.
+     */
+    @NonNull
+    synchronized Map<String, Object> getTelemetryMap() {
+        final Locale locale = Locale.getDefault();
+        final int timeZoneOffset = TimeZone.getDefault().getRawOffset();
+        final DisplayMetrics displayMetrics = mContext.getResources() != null ?
+                mContext.getResources().getDisplayMetrics() : null;
+        if (mSnapshot == null || !mSnapshot.matches(locale, timeZoneOffset, displayMetrics)) {
+            final Map<String, Object> telemetryMap = createTelemetryMap();
+            StripeNetworkUtils.removeNullAndEmptyParams(telemetryMap);
+            mSnapshot = new Snapshot(locale, timeZoneOffset, displayMetrics,
+                    unmodifiableCopy(telemetryMap));
+        }
+        return mSnapshot.mTelemetryMap;
+    }
+
+    /**
+     * @return true unless a fingerprint with the same payload was queued within the fingerprint
+     * interval. Nothing is recorded until {@link #onFingerprintQueued()}.
+     */
+    synchronized boolean shouldSendFingerprint() {
+        getTelemetryMap();
+        final long intervalNanos = mFingerprintIntervalNanos != FOLLOW_DEFAULT_INTERVAL ?
+                mFingerprintIntervalNanos : sDefaultFingerprintIntervalNanos;
+        return mSentSnapshot != mSnapshot || mClock.nanoTime() - mSentAtNanos >= intervalNanos;
+    }
+
+    /**
+     * Record that the fingerprint of the current payload was queued to be sent, so that
+     * {@link #shouldSendFingerprint()} returns false until the interval has passed.
+     */
+    synchronized void onFingerprintQueued() {
+        mSentSnapshot = mSnapshot;
+        mSentAtNanos = mClock.nanoTime();
+    }
+
+    @NonNull
+    @VisibleForTesting
     Map<String, Object> createTelemetryMap() {
         Map<String, Object> telemetryMap = new HashMap<>();
         Map<String, Object> firstMap = new HashMap<>();
@@ -61,6 +165,18 @@ class TelemetryClientUtil {
         return telemetryMap;
     }
 
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> unmodifiableCopy(@NonNull Map<String, Object> map) {
+        final Map<String, Object> copy = new HashMap<>(map.size());
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            final Object value = entry.getValue();
+            copy.put(entry.getKey(), value instanceof Map ?
+                    unmodifiableCopy((Map<String, Object>) value) : value);
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
     @NonNull
     private static Map<String, Object> createSingleValuePair(Object value) {
         Map<String, Object> singleItemMap = new HashMap<>();
@@ -110,14 +226,14 @@ class TelemetryClientUtil {
     }
 
     @NonNull
-    String getHashedId() {
-        final String id = mUidProvider.get();
-        if (StripeTextUtils.isBlank(id)) {
-            return "";
+    synchronized String getHashedId() {
+        if (mHashedId == null) {
+            final String id = mUidProvider.get();
+            final String hashId = StripeTextUtils.isBlank(id) ?
+                    null : StripeTextUtils.shaHashInput(id);
+            mHashedId = hashId == null ? "" : hashId;
         }
-
-        final String hashId = StripeTextUtils.shaHashInput(id);
-        return hashId == null ? "" : hashId;
+        return mHashedId;
     }
 
     @NonNull
@@ -133,5 +249,36 @@ class TelemetryClientUtil {
         }
         return mContext.getPackageName();
     }
-}
 
+    /**
+     * A computed telemetry payload and the configuration it was computed for.
+     */
+    private static final class Snapshot {
+        @NonNull private final Locale mLocale;
+        private final int mTimeZoneOffset;
+        private final int mWidthPixels;
+        private final int mHeightPixels;
+        private final int mDensityDpi;
+        @NonNull private final Map<String, Object> mTelemetryMap;
+
+        private Snapshot(@NonNull Locale locale, int timeZoneOffset,
+                         @Nullable DisplayMetrics displayMetrics,
+                         @NonNull Map<String, Object> telemetryMap) {
+            mLocale = locale;
+            mTimeZoneOffset = timeZoneOffset;
+            mWidthPixels = displayMetrics != null ? displayMetrics.widthPixels : 0;
+            mHeightPixels = displayMetrics != null ? displayMetrics.heightPixels : 0;
+            mDensityDpi = displayMetrics != null ? displayMetrics.densityDpi : 0;
+            mTelemetryMap = telemetryMap;
+        }
+
+        private boolean matches(@NonNull Locale locale, int timeZoneOffset,
+                                @Nullable DisplayMetrics displayMetrics) {
+            return mLocale.equals(locale) &&
+                    mTimeZoneOffset == timeZoneOffset &&
+                    mWidthPixels == (displayMetrics != null ? displayMetrics.widthPixels : 0) &&
+                    mHeightPixels == (displayMetrics != null ? displayMetrics.heightPixels : 0) &&
+                    mDensityDpi == (displayMetrics != null ? displayMetrics.densityDpi : 0);
+        }
+    }
+}
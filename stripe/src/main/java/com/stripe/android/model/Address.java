@@ -178,6 +178,52 @@ public class Address extends StripeJsonModel implements Parcelable {
         return new Address(city, country, line1, line2, postalCode, state);
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_CITY, mCity);
+        writer.writeValue(FIELD_COUNTRY, mCountry);
+        writer.writeValue(FIELD_LINE_1, mLine1);
+        writer.writeValue(FIELD_LINE_2, mLine2);
+        writer.writeValue(FIELD_POSTAL_CODE, mPostalCode);
+        writer.writeValue(FIELD_STATE, mState);
+    }
+
+    @Nullable
+    static Address readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        final Builder builder = new Builder();
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_CITY:
+                    builder.setCity(reader.readString());
+                    break;
+                case FIELD_COUNTRY:
+                    builder.setCountry(reader.readString());
+                    break;
+                case FIELD_LINE_1:
+                    builder.setLine1(reader.readString());
+                    break;
+                case FIELD_LINE_2:
+                    builder.setLine2(reader.readString());
+                    break;
+                case FIELD_POSTAL_CODE:
+                    builder.setPostalCode(reader.readString());
+                    break;
+                case FIELD_STATE:
+                    builder.setState(reader.readString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj || (obj instanceof Address && typedEquals((Address) obj));
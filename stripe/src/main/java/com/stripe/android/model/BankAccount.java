@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.Size;
@@ -19,7 +21,7 @@ import java.lang.annotation.RetentionPolicy;
  * <a href="https://stripe.com/docs/api/java#create_bank_account_token">the Stripe
  * documentation.</a>
  */
-public class BankAccount {
+public class BankAccount implements Parcelable {
 
     @Retention(RetentionPolicy.SOURCE)
     @StringDef({TYPE_COMPANY, TYPE_INDIVIDUAL})
@@ -112,6 +114,18 @@ public class BankAccount {
         mRoutingNumber = routingNumber;
     }
 
+    private BankAccount(@NonNull Parcel in) {
+        mAccountNumber = null;
+        mAccountHolderName = in.readString();
+        mAccountHolderType = asBankAccountType(in.readString());
+        mBankName = in.readString();
+        mCountryCode = in.readString();
+        mCurrency = in.readString();
+        mFingerprint = in.readString();
+        mLast4 = in.readString();
+        mRoutingNumber = in.readString();
+    }
+
     @Nullable
     public String getAccountNumber() {
         return mAccountNumber;
@@ -229,4 +243,36 @@ public class BankAccount {
                 && ObjectUtils.equals(mLast4, bankAccount.mLast4)
                 && ObjectUtils.equals(mRoutingNumber, bankAccount.mRoutingNumber);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        // the account number is left out, so that it is never written to saved state
+        dest.writeString(mAccountHolderName);
+        dest.writeString(mAccountHolderType);
+        dest.writeString(mBankName);
+        dest.writeString(mCountryCode);
+        dest.writeString(mCurrency);
+        dest.writeString(mFingerprint);
+        dest.writeString(mLast4);
+        dest.writeString(mRoutingNumber);
+    }
+
+    public static final Parcelable.Creator<BankAccount> CREATOR =
+            new Parcelable.Creator<BankAccount>() {
+                @NonNull
+                @Override
+                public BankAccount createFromParcel(@NonNull Parcel in) {
+                    return new BankAccount(in);
+                }
+
+                @Override
+                public BankAccount[] newArray(int size) {
+                    return new BankAccount[size];
+                }
+            };
 }
@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
@@ -23,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import static com.stripe.android.model.StripeJsonUtils.optCountryCode;
@@ -37,7 +40,7 @@ import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
 /**
  * A model object representing a Card in the Android SDK.
  */
-public class Card extends StripeJsonModel implements StripePaymentSource {
+public class Card extends StripeJsonModel implements StripePaymentSource, Parcelable {
 
     @Retention(RetentionPolicy.SOURCE)
     @StringDef({
@@ -134,6 +137,16 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
                 put(Card.UNKNOWN, R.drawable.ic_unknown);
             }};
 
+    /**
+     * The {@link CardBrand}s and {@link FundingType}s, keyed by themselves and by their lower case
+     * form as the API returns them, so that a decoded value resolves to the constant without
+     * comparing it with each one.
+     */
+    private static final Map<String, String> CARD_BRANDS = createLookupTable(
+            AMERICAN_EXPRESS, DISCOVER, JCB, DINERS_CLUB, VISA, MASTERCARD, UNIONPAY);
+    private static final Map<String, String> FUNDING_TYPES = createLookupTable(
+            FUNDING_CREDIT, FUNDING_DEBIT, FUNDING_PREPAID);
+
     @Nullable private final String number;
     @Nullable private final String cvc;
     @Nullable private final Integer expMonth;
@@ -166,8 +179,8 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
     public static final class Builder {
         @Nullable private final String number;
         @Nullable private final String cvc;
-        private final Integer expMonth;
-        private final Integer expYear;
+        private Integer expMonth;
+        private Integer expYear;
         private String name;
         private String addressLine1;
         private String addressLine1Check;
@@ -352,23 +365,8 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
             return null;
         }
 
-        if (Card.AMERICAN_EXPRESS.equalsIgnoreCase(possibleCardType)) {
-            return Card.AMERICAN_EXPRESS;
-        } else if (Card.MASTERCARD.equalsIgnoreCase(possibleCardType)) {
-            return Card.MASTERCARD;
-        } else if (Card.DINERS_CLUB.equalsIgnoreCase(possibleCardType)) {
-            return Card.DINERS_CLUB;
-        } else if (Card.DISCOVER.equalsIgnoreCase(possibleCardType)) {
-            return Card.DISCOVER;
-        } else if (Card.JCB.equalsIgnoreCase(possibleCardType)) {
-            return Card.JCB;
-        } else if (Card.VISA.equalsIgnoreCase(possibleCardType)) {
-            return Card.VISA;
-        } else if (Card.UNIONPAY.equalsIgnoreCase(possibleCardType)) {
-            return Card.UNIONPAY;
-        } else {
-            return Card.UNKNOWN;
-        }
+        final String cardBrand = lookUp(CARD_BRANDS, possibleCardType);
+        return cardBrand != null ? cardBrand : Card.UNKNOWN;
     }
 
     /**
@@ -384,15 +382,27 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
             return null;
         }
 
-        if (Card.FUNDING_CREDIT.equalsIgnoreCase(possibleFundingType)) {
-            return Card.FUNDING_CREDIT;
-        } else if (Card.FUNDING_DEBIT.equalsIgnoreCase(possibleFundingType)) {
-            return Card.FUNDING_DEBIT;
-        } else if (Card.FUNDING_PREPAID.equalsIgnoreCase(possibleFundingType)) {
-            return Card.FUNDING_PREPAID;
-        } else {
-            return Card.FUNDING_UNKNOWN;
+        final String fundingType = lookUp(FUNDING_TYPES, possibleFundingType);
+        return fundingType != null ? fundingType : Card.FUNDING_UNKNOWN;
+    }
+
+    /**
+     * @return the constant in {@code table} that equals {@code value} ignoring case, or
+     * {@code null} if there is none
+     */
+    @Nullable
+    private static String lookUp(@NonNull Map<String, String> table, @NonNull String value) {
+        final String constant = table.get(value);
+        if (constant != null) {
+            return constant;
+        }
+        // neither the constant nor its lower case form, e.g. "VISA"
+        for (String tableConstant : table.values()) {
+            if (tableConstant.equalsIgnoreCase(value)) {
+                return tableConstant;
+            }
         }
+        return null;
     }
 
     @DrawableRes
@@ -401,6 +411,16 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
         return brandIcon != null ? brandIcon : R.drawable.ic_unknown;
     }
 
+    @NonNull
+    private static Map<String, String> createLookupTable(@NonNull String... constants) {
+        final Map<String, String> table = new HashMap<>();
+        for (String constant : constants) {
+            table.put(constant, constant);
+            table.put(constant.toLowerCase(Locale.ROOT), constant);
+        }
+        return table;
+    }
+
     /**
      * Create a Card object from a raw JSON string.
      *
@@ -905,6 +925,34 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
         this.metadata = builder.metadata;
     }
 
+    private Card(@NonNull Parcel in) {
+        number = null;
+        cvc = null;
+        expMonth = ParcelUtils.readInteger(in);
+        expYear = ParcelUtils.readInteger(in);
+        name = in.readString();
+        addressLine1 = in.readString();
+        addressLine1Check = in.readString();
+        addressLine2 = in.readString();
+        addressCity = in.readString();
+        addressState = in.readString();
+        addressZip = in.readString();
+        addressZipCheck = in.readString();
+        addressCountry = in.readString();
+        last4 = in.readString();
+        brand = asCardBrand(in.readString());
+        funding = asFundingType(in.readString());
+        fingerprint = in.readString();
+        country = in.readString();
+        currency = in.readString();
+        customerId = in.readString();
+        cvcCheck = in.readString();
+        id = in.readString();
+        in.readStringList(loggingTokens);
+        tokenizationMethod = in.readString();
+        metadata = ParcelUtils.readStringMap(in);
+    }
+
     @Nullable
     private String normalizeCardNumber(@Nullable String number) {
         if (number == null) {
@@ -913,6 +961,120 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
         return number.trim().replaceAll("\\s+|-", "");
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ADDRESS_CITY, addressCity);
+        writer.writeValue(FIELD_ADDRESS_COUNTRY, addressCountry);
+        writer.writeValue(FIELD_ADDRESS_LINE1, addressLine1);
+        writer.writeValue(FIELD_ADDRESS_LINE1_CHECK, addressLine1Check);
+        writer.writeValue(FIELD_ADDRESS_LINE2, addressLine2);
+        writer.writeValue(FIELD_ADDRESS_STATE, addressState);
+        writer.writeValue(FIELD_ADDRESS_ZIP, addressZip);
+        writer.writeValue(FIELD_ADDRESS_ZIP_CHECK, addressZipCheck);
+        writer.writeValue(FIELD_BRAND, brand);
+        writer.writeValue(FIELD_COUNTRY, country);
+        writer.writeValue(FIELD_CURRENCY, currency);
+        writer.writeValue(FIELD_CUSTOMER, customerId);
+        writer.writeValue(FIELD_CVC_CHECK, cvcCheck);
+        writer.writeValue(FIELD_EXP_MONTH, expMonth);
+        writer.writeValue(FIELD_EXP_YEAR, expYear);
+        writer.writeValue(FIELD_FINGERPRINT, fingerprint);
+        writer.writeValue(FIELD_FUNDING, funding);
+        writer.writeValue(FIELD_ID, id);
+        writer.writeValue(FIELD_LAST4, last4);
+        writer.writeValue(FIELD_METADATA, metadata);
+        writer.writeValue(FIELD_NAME, name);
+        writer.writeValue(FIELD_TOKENIZATION_METHOD, tokenizationMethod);
+    }
+
+    /**
+     * @return the {@link Card} that {@link #writeSnapshot(ModelSnapshot.Writer)} wrote, which
+     * like one read from JSON has no number or CVC
+     */
+    @Nullable
+    static Card readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        final Builder builder = new Builder(null, null, null, null);
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ADDRESS_CITY:
+                    builder.addressCity(reader.readString());
+                    break;
+                case FIELD_ADDRESS_COUNTRY:
+                    builder.addressCountry(reader.readString());
+                    break;
+                case FIELD_ADDRESS_LINE1:
+                    builder.addressLine1(reader.readString());
+                    break;
+                case FIELD_ADDRESS_LINE1_CHECK:
+                    builder.addressLine1Check(reader.readString());
+                    break;
+                case FIELD_ADDRESS_LINE2:
+                    builder.addressLine2(reader.readString());
+                    break;
+                case FIELD_ADDRESS_STATE:
+                    builder.addressState(reader.readString());
+                    break;
+                case FIELD_ADDRESS_ZIP:
+                    builder.addressZip(reader.readString());
+                    break;
+                case FIELD_ADDRESS_ZIP_CHECK:
+                    builder.addressZipCheck(reader.readString());
+                    break;
+                case FIELD_BRAND:
+                    builder.brand(asCardBrand(reader.readString()));
+                    break;
+                case FIELD_COUNTRY:
+                    builder.country(reader.readString());
+                    break;
+                case FIELD_CURRENCY:
+                    builder.currency(reader.readString());
+                    break;
+                case FIELD_CUSTOMER:
+                    builder.customer(reader.readString());
+                    break;
+                case FIELD_CVC_CHECK:
+                    builder.cvcCheck(reader.readString());
+                    break;
+                case FIELD_EXP_MONTH:
+                    builder.expMonth = reader.readInteger();
+                    break;
+                case FIELD_EXP_YEAR:
+                    builder.expYear = reader.readInteger();
+                    break;
+                case FIELD_FINGERPRINT:
+                    builder.fingerprint(reader.readString());
+                    break;
+                case FIELD_FUNDING:
+                    builder.funding(asFundingType(reader.readString()));
+                    break;
+                case FIELD_ID:
+                    builder.id(reader.readString());
+                    break;
+                case FIELD_LAST4:
+                    builder.last4(reader.readString());
+                    break;
+                case FIELD_METADATA:
+                    builder.metadata(reader.readStringMap());
+                    break;
+                case FIELD_NAME:
+                    builder.name(reader.readString());
+                    break;
+                case FIELD_TOKENIZATION_METHOD:
+                    builder.tokenizationMethod(reader.readString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof Card && typedEquals((Card) obj));
@@ -954,4 +1116,52 @@ public class Card extends StripeJsonModel implements StripePaymentSource {
                 country, currency, customerId, cvcCheck, id, loggingTokens, tokenizationMethod,
                 metadata);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        // the number and cvc are left out, as they are from toJson(), so that they are never
+        // written to saved state
+        ParcelUtils.writeInteger(dest, expMonth);
+        ParcelUtils.writeInteger(dest, expYear);
+        dest.writeString(name);
+        dest.writeString(addressLine1);
+        dest.writeString(addressLine1Check);
+        dest.writeString(addressLine2);
+        dest.writeString(addressCity);
+        dest.writeString(addressState);
+        dest.writeString(addressZip);
+        dest.writeString(addressZipCheck);
+        dest.writeString(addressCountry);
+        dest.writeString(last4);
+        dest.writeString(brand);
+        dest.writeString(funding);
+        dest.writeString(fingerprint);
+        dest.writeString(country);
+        dest.writeString(currency);
+        dest.writeString(customerId);
+        dest.writeString(cvcCheck);
+        dest.writeString(id);
+        dest.writeStringList(loggingTokens);
+        dest.writeString(tokenizationMethod);
+        ParcelUtils.writeStringMap(dest, metadata);
+    }
+
+    public static final Parcelable.Creator<Card> CREATOR =
+            new Parcelable.Creator<Card>() {
+                @NonNull
+                @Override
+                public Card createFromParcel(@NonNull Parcel in) {
+                    return new Card(in);
+                }
+
+                @Override
+                public Card[] newArray(int size) {
+                    return new Card[size];
+                }
+            };
 }
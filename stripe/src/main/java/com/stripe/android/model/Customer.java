@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -27,7 +29,7 @@ import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
 /**
  * Model for a Stripe Customer object
  */
-public class Customer extends StripeJsonModel {
+public class Customer extends StripeJsonModel implements Parcelable {
 
     private static final String FIELD_ID = "id";
     private static final String FIELD_OBJECT = "object";
@@ -66,6 +68,16 @@ public class Customer extends StripeJsonModel {
         mUrl = url;
     }
 
+    private Customer(@NonNull Parcel in) {
+        mId = in.readString();
+        mDefaultSource = in.readString();
+        mShippingInformation = in.readParcelable(ShippingInformation.class.getClassLoader());
+        mSources = in.createTypedArrayList(CustomerSource.CREATOR);
+        mHasMore = ParcelUtils.readBoolean(in);
+        mTotalCount = ParcelUtils.readInteger(in);
+        mUrl = in.readString();
+    }
+
     public String getId() {
         return mId;
     }
@@ -171,7 +183,11 @@ public class Customer extends StripeJsonModel {
     }
 
     @Nullable
-    public static Customer fromJson(@NonNull JSONObject jsonObject) {
+    public static Customer fromJson(@Nullable JSONObject jsonObject) {
+        if (jsonObject == null) {
+            return null;
+        }
+
         String objectType = optString(jsonObject, FIELD_OBJECT);
         if (!VALUE_CUSTOMER.equals(objectType)) {
             return null;
@@ -213,6 +229,69 @@ public class Customer extends StripeJsonModel {
                 url);
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ID, mId);
+        writer.writeValue(FIELD_DEFAULT_SOURCE, mDefaultSource);
+        writer.writeModel(FIELD_SHIPPING, mShippingInformation);
+        writer.writeModels(FIELD_SOURCES, mSources);
+        writer.writeValue(FIELD_HAS_MORE, mHasMore);
+        writer.writeValue(FIELD_TOTAL_COUNT, mTotalCount);
+        writer.writeValue(FIELD_URL, mUrl);
+    }
+
+    @Nullable
+    static Customer readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        String id = null;
+        String defaultSource = null;
+        ShippingInformation shippingInformation = null;
+        final List<CustomerSource> sources = new ArrayList<>();
+        Boolean hasMore = null;
+        Integer totalCount = null;
+        String url = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ID:
+                    id = reader.readString();
+                    break;
+                case FIELD_DEFAULT_SOURCE:
+                    defaultSource = reader.readString();
+                    break;
+                case FIELD_SHIPPING:
+                    shippingInformation = ShippingInformation.readSnapshot(reader);
+                    break;
+                case FIELD_SOURCES:
+                    final int size = reader.beginArray();
+                    for (int i = 0; i < size; i++) {
+                        final CustomerSource source = CustomerSource.readSnapshot(reader);
+                        if (source != null) {
+                            sources.add(source);
+                        }
+                    }
+                    break;
+                case FIELD_HAS_MORE:
+                    hasMore = reader.readBoolean();
+                    break;
+                case FIELD_TOTAL_COUNT:
+                    totalCount = reader.readInteger();
+                    break;
+                case FIELD_URL:
+                    url = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return new Customer(id, defaultSource, shippingInformation, sources, hasMore, totalCount,
+                url);
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof Customer && typedEquals((Customer) obj));
@@ -233,4 +312,34 @@ public class Customer extends StripeJsonModel {
         return ObjectUtils.hash(mId, mDefaultSource, mShippingInformation, mSources, mHasMore,
                 mTotalCount, mUrl);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mId);
+        dest.writeString(mDefaultSource);
+        dest.writeParcelable(mShippingInformation, flags);
+        dest.writeTypedList(mSources);
+        ParcelUtils.writeBoolean(dest, mHasMore);
+        ParcelUtils.writeInteger(dest, mTotalCount);
+        dest.writeString(mUrl);
+    }
+
+    public static final Parcelable.Creator<Customer> CREATOR =
+            new Parcelable.Creator<Customer>() {
+                @NonNull
+                @Override
+                public Customer createFromParcel(@NonNull Parcel in) {
+                    return new Customer(in);
+                }
+
+                @Override
+                public Customer[] newArray(int size) {
+                    return new Customer[size];
+                }
+            };
 }
@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -16,7 +18,8 @@ import static com.stripe.android.model.StripeJsonUtils.optString;
 /**
  * Model of the "data" object inside a {@link Customer} "source" object.
  */
-public class CustomerSource extends StripeJsonModel implements StripePaymentSource {
+public class CustomerSource extends StripeJsonModel
+        implements StripePaymentSource, Parcelable {
 
     @NonNull private final StripePaymentSource mStripePaymentSource;
 
@@ -24,6 +27,10 @@ public class CustomerSource extends StripeJsonModel implements StripePaymentSour
         mStripePaymentSource = paymentSource;
     }
 
+    private CustomerSource(@NonNull Parcel in) {
+        mStripePaymentSource = in.readParcelable(CustomerSource.class.getClassLoader());
+    }
+
     @NonNull
     public StripePaymentSource getStripePaymentSource() {
         return mStripePaymentSource;
@@ -132,6 +139,39 @@ public class CustomerSource extends StripeJsonModel implements StripePaymentSour
         return new JSONObject();
     }
 
+    /**
+     * Write the {@link Source} or {@link Card} under a field of its own, so that reading it
+     * back knows which of the two it is.
+     */
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        if (mStripePaymentSource instanceof Source) {
+            writer.writeModel(Source.VALUE_SOURCE, (Source) mStripePaymentSource);
+        } else if (mStripePaymentSource instanceof Card) {
+            writer.writeModel(Card.VALUE_CARD, (Card) mStripePaymentSource);
+        }
+    }
+
+    @Nullable
+    static CustomerSource readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        StripePaymentSource sourceObject = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            if (Source.VALUE_SOURCE.equals(field)) {
+                sourceObject = Source.readSnapshot(reader);
+            } else if (Card.VALUE_CARD.equals(field)) {
+                sourceObject = Card.readSnapshot(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        return sourceObject != null ? new CustomerSource(sourceObject) : null;
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof CustomerSource && typedEquals((CustomerSource) obj));
@@ -145,4 +185,29 @@ public class CustomerSource extends StripeJsonModel implements StripePaymentSour
     public int hashCode() {
         return ObjectUtils.hash(mStripePaymentSource);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        // the payment source is always a Source or a Card, both of which are Parcelable
+        dest.writeParcelable((Parcelable) mStripePaymentSource, flags);
+    }
+
+    public static final Parcelable.Creator<CustomerSource> CREATOR =
+            new Parcelable.Creator<CustomerSource>() {
+                @NonNull
+                @Override
+                public CustomerSource createFromParcel(@NonNull Parcel in) {
+                    return new CustomerSource(in);
+                }
+
+                @Override
+                public CustomerSource[] newArray(int size) {
+                    return new CustomerSource[size];
+                }
+            };
 }
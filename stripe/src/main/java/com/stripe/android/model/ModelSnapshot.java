@@ -0,0 +1,693 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form of models, for keeping them on disk between launches, e.g. a
+ * {@link Customer}, a list of {@link PaymentMethod}s or the {@link ShippingMethod}s offered.
+ *
+ * Each model writes its own fields to a snapshot and reads them back, so neither goes through
+ * the model's JSON. A snapshot starts with a {@link #MAGIC}, {@link #VERSION} and kind of model
+ * header and a table of every distinct string in the snapshot, field names and values alike,
+ * after which strings are written as their index in the table, and integers and lengths as
+ * varints. Fields are tagged with the table index of their name, so a snapshot written by a
+ * later version decodes here with its new fields skipped.
+ *
+ * A snapshot that is truncated, corrupt, of a later {@link #VERSION} or of another kind of model
+ * decodes as null, which a cache should treat as a miss.
+ */
+public final class ModelSnapshot {
+    private static final byte[] MAGIC = {'S', 'T', 'S', 'N'};
+
+    /**
+     * Incremented when a snapshot gains a value type that earlier versions cannot skip.
+     */
+    static final int VERSION = 1;
+
+    static final int KIND_CUSTOMER = 1;
+    static final int KIND_SHIPPING_METHOD = 2;
+    static final int KIND_PAYMENT_METHODS = 3;
+    static final int KIND_SHIPPING_METHODS = 4;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_FALSE = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_INTEGER = 3;
+    private static final int TYPE_DOUBLE = 4;
+    private static final int TYPE_STRING = 5;
+    private static final int TYPE_OBJECT = 6;
+    private static final int TYPE_ARRAY = 7;
+
+    /**
+     * Written after the last field of an object, where a field name's table index plus one
+     * would otherwise be.
+     */
+    private static final int END_OF_OBJECT = 0;
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ModelSnapshot() {
+    }
+
+    /**
+     * @return a snapshot of {@code customer}
+     */
+    @NonNull
+    public static byte[] encode(@NonNull Customer customer) {
+        final Writer writer = new Writer();
+        writer.writeObject(customer);
+        return writer.toSnapshot(KIND_CUSTOMER);
+    }
+
+    /**
+     * @return a snapshot of {@code shippingMethod}
+     */
+    @NonNull
+    public static byte[] encode(@NonNull ShippingMethod shippingMethod) {
+        final Writer writer = new Writer();
+        writer.writeObject(shippingMethod);
+        return writer.toSnapshot(KIND_SHIPPING_METHOD);
+    }
+
+    /**
+     * @return a snapshot of {@code paymentMethods}, in order
+     */
+    @NonNull
+    public static byte[] encodePaymentMethods(@NonNull List<PaymentMethod> paymentMethods) {
+        final Writer writer = new Writer();
+        writer.writeArray(paymentMethods);
+        return writer.toSnapshot(KIND_PAYMENT_METHODS);
+    }
+
+    /**
+     * @return a snapshot of {@code shippingMethods}, in order
+     */
+    @NonNull
+    public static byte[] encodeShippingMethods(@NonNull List<ShippingMethod> shippingMethods) {
+        final Writer writer = new Writer();
+        writer.writeArray(shippingMethods);
+        return writer.toSnapshot(KIND_SHIPPING_METHODS);
+    }
+
+    /**
+     * @return the {@link Customer} in {@code snapshot}, or null if it cannot be decoded
+     */
+    @Nullable
+    public static Customer decodeCustomer(@NonNull byte[] snapshot) {
+        try {
+            final Reader reader = Reader.open(snapshot, KIND_CUSTOMER);
+            return reader != null ? reader.finish(Customer.readSnapshot(reader)) : null;
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the {@link ShippingMethod} in {@code snapshot}, or null if it cannot be decoded
+     */
+    @Nullable
+    public static ShippingMethod decodeShippingMethod(@NonNull byte[] snapshot) {
+        try {
+            final Reader reader = Reader.open(snapshot, KIND_SHIPPING_METHOD);
+            return reader != null ? reader.finish(ShippingMethod.readSnapshot(reader)) : null;
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the {@link PaymentMethod}s in {@code snapshot}, leaving out any that cannot be
+     * decoded, or null if the snapshot itself cannot be decoded
+     */
+    @Nullable
+    public static List<PaymentMethod> decodePaymentMethods(@NonNull byte[] snapshot) {
+        try {
+            final Reader reader = Reader.open(snapshot, KIND_PAYMENT_METHODS);
+            if (reader == null) {
+                return null;
+            }
+            final int size = reader.beginArray();
+            if (size < 0) {
+                return null;
+            }
+            final List<PaymentMethod> paymentMethods = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final PaymentMethod paymentMethod = PaymentMethod.readSnapshot(reader);
+                if (paymentMethod != null) {
+                    paymentMethods.add(paymentMethod);
+                }
+            }
+            return reader.finish(paymentMethods);
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the {@link ShippingMethod}s in {@code snapshot}, leaving out any that cannot be
+     * decoded, or null if the snapshot itself cannot be decoded
+     */
+    @Nullable
+    public static List<ShippingMethod> decodeShippingMethods(@NonNull byte[] snapshot) {
+        try {
+            final Reader reader = Reader.open(snapshot, KIND_SHIPPING_METHODS);
+            if (reader == null) {
+                return null;
+            }
+            final int size = reader.beginArray();
+            if (size < 0) {
+                return null;
+            }
+            final List<ShippingMethod> shippingMethods = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final ShippingMethod shippingMethod = ShippingMethod.readSnapshot(reader);
+                if (shippingMethod != null) {
+                    shippingMethods.add(shippingMethod);
+                }
+            }
+            return reader.finish(shippingMethods);
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * The distinct strings of a snapshot, in the order they were first written.
+     */
+    private static final class StringTable {
+        @NonNull private final Map<String, Integer> mIndexes = new HashMap<>();
+        @NonNull private final List<String> mStrings = new ArrayList<>();
+
+        private int indexOf(@NonNull String string) {
+            final Integer index = mIndexes.get(string);
+            if (index != null) {
+                return index;
+            }
+            mIndexes.put(string, mStrings.size());
+            mStrings.add(string);
+            return mStrings.size() - 1;
+        }
+    }
+
+    /**
+     * Writes the fields of a model, which calls back into it from
+     * {@link StripeJsonModel#writeSnapshot(Writer)}. Null fields are left out.
+     */
+    static final class Writer {
+        @NonNull private final StringTable mStringTable = new StringTable();
+        @NonNull private byte[] mBuffer = new byte[INITIAL_BUFFER_SIZE];
+        private int mCount;
+
+        /**
+         * Write a field holding a {@link String}, {@link Boolean}, number or a {@link Map},
+         * {@link List}, {@link JSONObject} or {@link JSONArray} of those.
+         */
+        void writeValue(@NonNull String name, @Nullable Object value) {
+            if (value != null && value != JSONObject.NULL) {
+                writeName(name);
+                writeValue(value);
+            }
+        }
+
+        void writeModel(@NonNull String name, @Nullable StripeJsonModel model) {
+            if (model != null) {
+                writeName(name);
+                writeObject(model);
+            }
+        }
+
+        void writeModels(@NonNull String name, @Nullable List<? extends StripeJsonModel> models) {
+            if (models != null) {
+                writeName(name);
+                writeArray(models);
+            }
+        }
+
+        private void writeName(@NonNull String name) {
+            writeVarint(mStringTable.indexOf(name) + 1);
+        }
+
+        void writeObject(@NonNull StripeJsonModel model) {
+            writeVarint(TYPE_OBJECT);
+            model.writeSnapshot(this);
+            writeVarint(END_OF_OBJECT);
+        }
+
+        private void writeArray(@NonNull List<? extends StripeJsonModel> models) {
+            writeVarint(TYPE_ARRAY);
+            writeVarint(models.size());
+            for (StripeJsonModel model : models) {
+                writeObject(model);
+            }
+        }
+
+        private void writeValue(@Nullable Object value) {
+            if (value == null || value == JSONObject.NULL) {
+                writeVarint(TYPE_NULL);
+            } else if (value instanceof Boolean) {
+                writeVarint((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+            } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+                writeVarint(TYPE_INTEGER);
+                final long longValue = ((Number) value).longValue();
+                // zigzag, so that small negative values stay short
+                writeVarint((longValue << 1) ^ (longValue >> 63));
+            } else if (value instanceof Number) {
+                writeVarint(TYPE_DOUBLE);
+                final long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                ensureCapacity(8);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    mBuffer[mCount++] = (byte) (bits >>> shift);
+                }
+            } else if (value instanceof Map<?, ?>) {
+                writeVarint(TYPE_OBJECT);
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    writeValue(String.valueOf(entry.getKey()), entry.getValue());
+                }
+                writeVarint(END_OF_OBJECT);
+            } else if (value instanceof JSONObject) {
+                final JSONObject jsonObject = (JSONObject) value;
+                writeVarint(TYPE_OBJECT);
+                final Iterator<String> keys = jsonObject.keys();
+                while (keys.hasNext()) {
+                    final String key = keys.next();
+                    writeValue(key, jsonObject.opt(key));
+                }
+                writeVarint(END_OF_OBJECT);
+            } else if (value instanceof List<?>) {
+                final List<?> list = (List<?>) value;
+                writeVarint(TYPE_ARRAY);
+                writeVarint(list.size());
+                for (Object element : list) {
+                    writeValue(element);
+                }
+            } else if (value instanceof JSONArray) {
+                final JSONArray jsonArray = (JSONArray) value;
+                writeVarint(TYPE_ARRAY);
+                writeVarint(jsonArray.length());
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    writeValue(jsonArray.opt(i));
+                }
+            } else {
+                writeVarint(TYPE_STRING);
+                writeVarint(mStringTable.indexOf(value.toString()));
+            }
+        }
+
+        /**
+         * Write {@code value} as an unsigned varint, 7 bits per byte with the lowest bits first.
+         */
+        private void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                mBuffer[mCount++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mCount++] = (byte) value;
+        }
+
+        private void write(@NonNull byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, mBuffer, mCount, length);
+            mCount += length;
+        }
+
+        private void ensureCapacity(int additional) {
+            final int required = mCount + additional;
+            if (required > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(required, mBuffer.length * 2));
+            }
+        }
+
+        /**
+         * @return the header and string table, followed by what has been written so far
+         */
+        @NonNull
+        byte[] toSnapshot(int kind) {
+            final Writer snapshot = new Writer();
+            snapshot.write(MAGIC, 0, MAGIC.length);
+            snapshot.writeVarint(VERSION);
+            snapshot.writeVarint(kind);
+            snapshot.writeVarint(mStringTable.mStrings.size());
+            for (String string : mStringTable.mStrings) {
+                final byte[] bytes = string.getBytes(UTF_8);
+                snapshot.writeVarint(bytes.length);
+                snapshot.write(bytes, 0, bytes.length);
+            }
+            snapshot.write(mBuffer, 0, mCount);
+            return Arrays.copyOf(snapshot.mBuffer, snapshot.mCount);
+        }
+    }
+
+    /**
+     * Reads the fields of a model, throwing {@link IllegalArgumentException} where the snapshot
+     * is malformed. A model reads its fields with
+     * <pre>
+     * if (!reader.beginObject()) {
+     *     return null;
+     * }
+     * String field;
+     * while ((field = reader.nextField()) != null) {
+     *     // read the value of each known field and skip the rest
+     * }
+     * </pre>
+     * A value of another type than the one asked for is skipped and read as null.
+     */
+    static final class Reader {
+        @NonNull private final byte[] mBytes;
+        @NonNull private final String[] mStrings;
+        private int mPosition;
+        @Nullable private String mField;
+
+        /**
+         * @return a reader positioned at the value of {@code snapshot}, or null if it is not a
+         * snapshot of {@code kind} that this {@link #VERSION} can read
+         */
+        @Nullable
+        static Reader open(@NonNull byte[] snapshot, int kind) {
+            final Reader reader = new Reader(snapshot, new String[0]);
+            for (byte magicByte : MAGIC) {
+                if (reader.readByte() != magicByte) {
+                    return null;
+                }
+            }
+            final int version = reader.readInt();
+            if (version < 1 || version > VERSION || reader.readInt() != kind) {
+                return null;
+            }
+
+            final String[] strings = new String[reader.readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = reader.readUtf8(reader.readCount());
+            }
+            final Reader valueReader = new Reader(snapshot, strings);
+            valueReader.mPosition = reader.mPosition;
+            return valueReader;
+        }
+
+        private Reader(@NonNull byte[] bytes, @NonNull String[] strings) {
+            mBytes = bytes;
+            mStrings = strings;
+        }
+
+        /**
+         * @return true if the next value is an object, whose fields follow, or false if it is
+         * some other value, which is skipped
+         */
+        boolean beginObject() {
+            return expect(TYPE_OBJECT);
+        }
+
+        /**
+         * @return the name of the next field of the current object, whose value follows, or null
+         * if there are no more
+         */
+        @Nullable
+        String nextField() {
+            final int index = readInt();
+            if (index == END_OF_OBJECT) {
+                mField = null;
+            } else {
+                mField = readString(index - 1);
+            }
+            return mField;
+        }
+
+        /**
+         * @return the number of values in the array that follows, or -1 if the next value is
+         * not an array, in which case it is skipped
+         */
+        int beginArray() {
+            return expect(TYPE_ARRAY) ? readCount() : -1;
+        }
+
+        @Nullable
+        String readString() {
+            if (!expect(TYPE_STRING)) {
+                return null;
+            }
+            final String value = readString(readInt());
+            return mField != null ? StripeJsonUtils.intern(mField, value) : value;
+        }
+
+        @Nullable
+        Boolean readBoolean() {
+            final int type = readInt();
+            if (type == TYPE_TRUE || type == TYPE_FALSE) {
+                return type == TYPE_TRUE;
+            }
+            skip(type);
+            return null;
+        }
+
+        @Nullable
+        Long readLong() {
+            return expect(TYPE_INTEGER) ? readZigzag() : null;
+        }
+
+        @Nullable
+        Integer readInteger() {
+            final Long value = readLong();
+            if (value == null || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                return null;
+            }
+            return value.intValue();
+        }
+
+        /**
+         * @return the map that {@link Writer#writeValue(String, Object)} wrote, with nested
+         * objects as {@link Map}s and arrays as {@link List}s, or null if the next value is not
+         * an object
+         */
+        @Nullable
+        Map<String, Object> readMap() {
+            if (!beginObject()) {
+                return null;
+            }
+            final Map<String, Object> map = new HashMap<>();
+            String field;
+            while ((field = nextField()) != null) {
+                map.put(field, readValue());
+            }
+            return map;
+        }
+
+        /**
+         * @return the map that {@link Writer#writeValue(String, Object)} wrote, leaving out any
+         * values that are not strings, or null if the next value is not an object
+         */
+        @Nullable
+        Map<String, String> readStringMap() {
+            if (!beginObject()) {
+                return null;
+            }
+            final Map<String, String> map = new HashMap<>();
+            String field;
+            while ((field = nextField()) != null) {
+                final String value = readString();
+                if (value != null) {
+                    map.put(field, value);
+                }
+            }
+            return map;
+        }
+
+        void skipValue() {
+            skip(readInt());
+        }
+
+        /**
+         * @return {@code value} if the whole snapshot has been read, or null if it has trailing
+         * bytes
+         */
+        @Nullable
+        <T> T finish(@Nullable T value) {
+            return mPosition == mBytes.length ? value : null;
+        }
+
+        @Nullable
+        private Object readValue() {
+            final int type = readInt();
+            switch (type) {
+                case TYPE_NULL: {
+                    return null;
+                }
+                case TYPE_FALSE: {
+                    return false;
+                }
+                case TYPE_TRUE: {
+                    return true;
+                }
+                case TYPE_INTEGER: {
+                    final long value = readZigzag();
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                        return (int) value;
+                    }
+                    return value;
+                }
+                case TYPE_DOUBLE: {
+                    return readDouble();
+                }
+                case TYPE_STRING: {
+                    return readString(readInt());
+                }
+                case TYPE_OBJECT: {
+                    final Map<String, Object> map = new HashMap<>();
+                    String field;
+                    while ((field = nextField()) != null) {
+                        map.put(field, readValue());
+                    }
+                    return map;
+                }
+                case TYPE_ARRAY: {
+                    final int size = readCount();
+                    final List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                }
+                default: {
+                    throw new IllegalArgumentException("Unknown value type " + type);
+                }
+            }
+        }
+
+        /**
+         * @return true if the next value is of {@code type}, or false if it is not, in which
+         * case it is skipped
+         */
+        private boolean expect(int type) {
+            final int actualType = readInt();
+            if (actualType == type) {
+                return true;
+            }
+            skip(actualType);
+            return false;
+        }
+
+        /**
+         * Skip the rest of a value of {@code type}.
+         */
+        private void skip(int type) {
+            switch (type) {
+                case TYPE_NULL:
+                case TYPE_FALSE:
+                case TYPE_TRUE: {
+                    break;
+                }
+                case TYPE_INTEGER:
+                case TYPE_STRING: {
+                    readVarint();
+                    break;
+                }
+                case TYPE_DOUBLE: {
+                    readDouble();
+                    break;
+                }
+                case TYPE_OBJECT: {
+                    while (nextField() != null) {
+                        skipValue();
+                    }
+                    break;
+                }
+                case TYPE_ARRAY: {
+                    final int size = readCount();
+                    for (int i = 0; i < size; i++) {
+                        skipValue();
+                    }
+                    break;
+                }
+                default: {
+                    throw new IllegalArgumentException("Unknown value type " + type);
+                }
+            }
+        }
+
+        @NonNull
+        private String readString(int index) {
+            if (index >= mStrings.length) {
+                throw new IllegalArgumentException("String index out of range " + index);
+            }
+            return mStrings[index];
+        }
+
+        @NonNull
+        private String readUtf8(int length) {
+            require(length);
+            final String string = new String(mBytes, mPosition, length, UTF_8);
+            mPosition += length;
+            return string;
+        }
+
+        private double readDouble() {
+            require(8);
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (mBytes[mPosition++] & 0xff);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        private long readZigzag() {
+            final long zigzag = readVarint();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        /**
+         * @return a varint that counts something in the rest of the snapshot, each of which
+         * takes at least a byte, so that a corrupt count cannot allocate more than the snapshot
+         */
+        private int readCount() {
+            final long count = readVarint();
+            if (count > mBytes.length - mPosition) {
+                throw new IllegalArgumentException("Count out of range " + count);
+            }
+            return (int) count;
+        }
+
+        private int readInt() {
+            final long value = readVarint();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Value out of range " + value);
+            }
+            return (int) value;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private byte readByte() {
+            require(1);
+            return mBytes[mPosition++];
+        }
+
+        private void require(int length) {
+            if (length < 0 || length > mBytes.length - mPosition) {
+                throw new IllegalArgumentException("Snapshot is truncated");
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.stripe.android.model;
+
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for writing model fields to a {@link Parcel} and reading them back, for the fields
+ * that {@link Parcel} has no nullable or JSON-friendly form of.
+ */
+final class ParcelUtils {
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_JSON_NULL = 1;
+    private static final int TYPE_STRING = 2;
+    private static final int TYPE_INTEGER = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_DOUBLE = 5;
+    private static final int TYPE_BOOLEAN = 6;
+    private static final int TYPE_MAP = 7;
+    private static final int TYPE_LIST = 8;
+    private static final int TYPE_JSON_OBJECT = 9;
+    private static final int TYPE_JSON_ARRAY = 10;
+
+    private ParcelUtils() {
+    }
+
+    static void writeLong(@NonNull Parcel dest, @Nullable Long value) {
+        if (value == null) {
+            dest.writeByte((byte) (0x00));
+        } else {
+            dest.writeByte((byte) (0x01));
+            dest.writeLong(value);
+        }
+    }
+
+    @Nullable
+    static Long readLong(@NonNull Parcel in) {
+        return in.readByte() == 0x00 ? null : in.readLong();
+    }
+
+    static void writeInteger(@NonNull Parcel dest, @Nullable Integer value) {
+        if (value == null) {
+            dest.writeByte((byte) (0x00));
+        } else {
+            dest.writeByte((byte) (0x01));
+            dest.writeInt(value);
+        }
+    }
+
+    @Nullable
+    static Integer readInteger(@NonNull Parcel in) {
+        return in.readByte() == 0x00 ? null : in.readInt();
+    }
+
+    static void writeBoolean(@NonNull Parcel dest, @Nullable Boolean value) {
+        if (value == null) {
+            dest.writeByte((byte) (0x00));
+        } else {
+            dest.writeByte((byte) (value ? 0x02 : 0x01));
+        }
+    }
+
+    @Nullable
+    static Boolean readBoolean(@NonNull Parcel in) {
+        final byte value = in.readByte();
+        return value == 0x00 ? null : value == 0x02;
+    }
+
+    static void writeStringMap(@NonNull Parcel dest, @Nullable Map<String, String> map) {
+        dest.writeInt(map == null ? -1 : map.size());
+        if (map != null) {
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                dest.writeString(entry.getKey());
+                dest.writeString(entry.getValue());
+            }
+        }
+    }
+
+    @Nullable
+    static Map<String, String> readStringMap(@NonNull Parcel in) {
+        final int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        final Map<String, String> map = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            map.put(in.readString(), in.readString());
+        }
+        return map;
+    }
+
+    /**
+     * Write a map of JSON values, such as one built by
+     * {@link StripeJsonUtils#jsonObjectToMap(JSONObject)}. Nested maps, lists,
+     * {@link JSONObject}s and {@link JSONArray}s are written recursively and read back as the
+     * same types, and values of any other type are read back as their {@link String} form.
+     */
+    static void writeJsonMap(@NonNull Parcel dest, @Nullable Map<String, ?> map) {
+        dest.writeInt(map == null ? -1 : map.size());
+        if (map != null) {
+            for (Map.Entry<String, ?> entry : map.entrySet()) {
+                dest.writeString(entry.getKey());
+                writeJsonValue(dest, entry.getValue());
+            }
+        }
+    }
+
+    @Nullable
+    static Map<String, Object> readJsonMap(@NonNull Parcel in) {
+        final int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        final Map<String, Object> map = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            map.put(in.readString(), readJsonValue(in));
+        }
+        return map;
+    }
+
+    private static void writeJsonValue(@NonNull Parcel dest, @Nullable Object value) {
+        if (value == null) {
+            dest.writeInt(TYPE_NULL);
+        } else if (value == JSONObject.NULL) {
+            dest.writeInt(TYPE_JSON_NULL);
+        } else if (value instanceof String) {
+            dest.writeInt(TYPE_STRING);
+            dest.writeString((String) value);
+        } else if (value instanceof Integer) {
+            dest.writeInt(TYPE_INTEGER);
+            dest.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            dest.writeInt(TYPE_LONG);
+            dest.writeLong((Long) value);
+        } else if (value instanceof Number) {
+            dest.writeInt(TYPE_DOUBLE);
+            dest.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            dest.writeInt(TYPE_BOOLEAN);
+            dest.writeByte((byte) ((Boolean) value ? 0x01 : 0x00));
+        } else if (value instanceof Map<?, ?>) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            dest.writeInt(TYPE_MAP);
+            dest.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                dest.writeString(String.valueOf(entry.getKey()));
+                writeJsonValue(dest, entry.getValue());
+            }
+        } else if (value instanceof JSONObject) {
+            final JSONObject jsonObject = (JSONObject) value;
+            dest.writeInt(TYPE_JSON_OBJECT);
+            dest.writeInt(jsonObject.length());
+            final Iterator<String> keys = jsonObject.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                dest.writeString(key);
+                writeJsonValue(dest, jsonObject.opt(key));
+            }
+        } else if (value instanceof List<?>) {
+            final List<?> list = (List<?>) value;
+            dest.writeInt(TYPE_LIST);
+            dest.writeInt(list.size());
+            for (Object element : list) {
+                writeJsonValue(dest, element);
+            }
+        } else if (value instanceof JSONArray) {
+            final JSONArray jsonArray = (JSONArray) value;
+            dest.writeInt(TYPE_JSON_ARRAY);
+            dest.writeInt(jsonArray.length());
+            for (int i = 0; i < jsonArray.length(); i++) {
+                writeJsonValue(dest, jsonArray.opt(i));
+            }
+        } else {
+            dest.writeInt(TYPE_STRING);
+            dest.writeString(value.toString());
+        }
+    }
+
+    @Nullable
+    private static Object readJsonValue(@NonNull Parcel in) {
+        final int type = in.readInt();
+        switch (type) {
+            case TYPE_JSON_NULL: {
+                return JSONObject.NULL;
+            }
+            case TYPE_STRING: {
+                return in.readString();
+            }
+            case TYPE_INTEGER: {
+                return in.readInt();
+            }
+            case TYPE_LONG: {
+                return in.readLong();
+            }
+            case TYPE_DOUBLE: {
+                return in.readDouble();
+            }
+            case TYPE_BOOLEAN: {
+                return in.readByte() != 0x00;
+            }
+            case TYPE_MAP: {
+                final int size = in.readInt();
+                final Map<String, Object> map = new HashMap<>(size);
+                for (int i = 0; i < size; i++) {
+                    map.put(in.readString(), readJsonValue(in));
+                }
+                return map;
+            }
+            case TYPE_LIST: {
+                final int size = in.readInt();
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readJsonValue(in));
+                }
+                return list;
+            }
+            case TYPE_JSON_OBJECT: {
+                final int size = in.readInt();
+                final JSONObject jsonObject = new JSONObject();
+                for (int i = 0; i < size; i++) {
+                    final String key = in.readString();
+                    final Object value = readJsonValue(in);
+                    try {
+                        jsonObject.put(key, value);
+                    } catch (JSONException ignored) { }
+                }
+                return jsonObject;
+            }
+            case TYPE_JSON_ARRAY: {
+                final int size = in.readInt();
+                final JSONArray jsonArray = new JSONArray();
+                for (int i = 0; i < size; i++) {
+                    jsonArray.put(readJsonValue(in));
+                }
+                return jsonArray;
+            }
+            default: {
+                return null;
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.stripe.android.model;
 
 import android.net.Uri;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -39,7 +41,7 @@ import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
  * <li><a href="https://stripe.com/docs/api/payment_intents">PaymentIntents API</a></li>
  * </ul>
  */
-public class PaymentIntent extends StripeJsonModel {
+public class PaymentIntent extends StripeJsonModel implements Parcelable {
     private static final String VALUE_PAYMENT_INTENT = "payment_intent";
 
     static final String FIELD_ID = "id";
@@ -255,6 +257,26 @@ public class PaymentIntent extends StripeJsonModel {
                 NextActionType.fromCode((String) mNextAction.get(FIELD_NEXT_ACTION_TYPE)) : null;
     }
 
+    private PaymentIntent(@NonNull Parcel in) {
+        mId = in.readString();
+        mObjectType = in.readString();
+        mPaymentMethodTypes = in.createStringArrayList();
+        mAmount = ParcelUtils.readLong(in);
+        mCanceledAt = ParcelUtils.readLong(in);
+        mCaptureMethod = in.readString();
+        mClientSecret = in.readString();
+        mConfirmationMethod = in.readString();
+        mCreated = ParcelUtils.readLong(in);
+        mCurrency = in.readString();
+        mDescription = in.readString();
+        mLiveMode = ParcelUtils.readBoolean(in);
+        mNextAction = ParcelUtils.readJsonMap(in);
+        mNextActionType = NextActionType.fromCode(in.readString());
+        mReceiptEmail = in.readString();
+        mSource = in.readString();
+        mStatus = Status.fromCode(in.readString());
+    }
+
     @NonNull
     public static String parseIdFromClientSecret(@NonNull String clientSecret) {
         return clientSecret.split("_secret")[0];
@@ -408,6 +430,46 @@ public class PaymentIntent extends StripeJsonModel {
                 mReceiptEmail, mSource, mStatus, mPaymentMethodTypes, mNextAction, mNextActionType);
     }
 
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mId);
+        dest.writeString(mObjectType);
+        dest.writeStringList(mPaymentMethodTypes);
+        ParcelUtils.writeLong(dest, mAmount);
+        ParcelUtils.writeLong(dest, mCanceledAt);
+        dest.writeString(mCaptureMethod);
+        dest.writeString(mClientSecret);
+        dest.writeString(mConfirmationMethod);
+        ParcelUtils.writeLong(dest, mCreated);
+        dest.writeString(mCurrency);
+        dest.writeString(mDescription);
+        ParcelUtils.writeBoolean(dest, mLiveMode);
+        ParcelUtils.writeJsonMap(dest, mNextAction);
+        dest.writeString(mNextActionType != null ? mNextActionType.code : null);
+        dest.writeString(mReceiptEmail);
+        dest.writeString(mSource);
+        dest.writeString(mStatus != null ? mStatus.code : null);
+    }
+
+    public static final Parcelable.Creator<PaymentIntent> CREATOR =
+            new Parcelable.Creator<PaymentIntent>() {
+                @NonNull
+                @Override
+                public PaymentIntent createFromParcel(@NonNull Parcel in) {
+                    return new PaymentIntent(in);
+                }
+
+                @Override
+                public PaymentIntent[] newArray(int size) {
+                    return new PaymentIntent[size];
+                }
+            };
+
     /**
      * See https://stripe.com/docs/api/payment_intents/object#payment_intent_object-next_action-type
      */
@@ -176,6 +176,69 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
         return builder.build();
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ID, id);
+        writer.writeValue(FIELD_CREATED, created);
+        writer.writeValue(FIELD_CUSTOMER, customerId);
+        writer.writeValue(FIELD_LIVEMODE, liveMode);
+        writer.writeValue(FIELD_METADATA, metadata);
+        writer.writeValue(FIELD_TYPE, type);
+        writer.writeModel(FIELD_BILLING_DETAILS, billingDetails);
+        writer.writeModel(FIELD_CARD, card);
+        writer.writeModel(FIELD_CARD_PRESENT, cardPresent);
+        writer.writeModel(FIELD_IDEAL, ideal);
+    }
+
+    @Nullable
+    static PaymentMethod readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        final Builder builder = new Builder();
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ID:
+                    builder.setId(reader.readString());
+                    break;
+                case FIELD_CREATED:
+                    builder.setCreated(reader.readLong());
+                    break;
+                case FIELD_CUSTOMER:
+                    builder.setCustomerId(reader.readString());
+                    break;
+                case FIELD_LIVEMODE:
+                    builder.setLiveMode(Boolean.TRUE.equals(reader.readBoolean()));
+                    break;
+                case FIELD_METADATA:
+                    builder.setMetadata(reader.readStringMap());
+                    break;
+                case FIELD_TYPE:
+                    builder.setType(reader.readString());
+                    break;
+                case FIELD_BILLING_DETAILS:
+                    builder.setBillingDetails(BillingDetails.readSnapshot(reader));
+                    break;
+                case FIELD_CARD:
+                    builder.setCard(Card.readSnapshot(reader));
+                    break;
+                case FIELD_CARD_PRESENT:
+                    reader.skipValue();
+                    builder.setCardPresent(CardPresent.EMPTY);
+                    break;
+                case FIELD_IDEAL:
+                    builder.setIdeal(Ideal.readSnapshot(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof PaymentMethod && typedEquals((PaymentMethod) obj));
@@ -443,6 +506,44 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
                     .build();
         }
 
+        @Override
+        void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+            writer.writeModel(FIELD_ADDRESS, address);
+            writer.writeValue(FIELD_EMAIL, email);
+            writer.writeValue(FIELD_NAME, name);
+            writer.writeValue(FIELD_PHONE, phone);
+        }
+
+        @Nullable
+        static BillingDetails readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+            if (!reader.beginObject()) {
+                return null;
+            }
+
+            final Builder builder = new Builder();
+            String field;
+            while ((field = reader.nextField()) != null) {
+                switch (field) {
+                    case FIELD_ADDRESS:
+                        builder.setAddress(Address.readSnapshot(reader));
+                        break;
+                    case FIELD_EMAIL:
+                        builder.setEmail(reader.readString());
+                        break;
+                    case FIELD_NAME:
+                        builder.setName(reader.readString());
+                        break;
+                    case FIELD_PHONE:
+                        builder.setPhone(reader.readString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            return builder.build();
+        }
+
         @Override
         public int hashCode() {
             return ObjectUtils.hash(address, email, name, phone);
@@ -665,6 +766,69 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
                     .build();
         }
 
+        /**
+         * Writes the {@link Wallet} as the map of its JSON, which {@link WalletFactory} reads
+         * back through a {@link JSONObject}, as wallets have no snapshot form of their own.
+         */
+        @Override
+        void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+            writer.writeValue(FIELD_BRAND, brand);
+            writer.writeModel(FIELD_CHECKS, checks);
+            writer.writeValue(FIELD_COUNTRY, country);
+            writer.writeValue(FIELD_EXP_MONTH, expiryMonth);
+            writer.writeValue(FIELD_EXP_YEAR, expiryYear);
+            writer.writeValue(FIELD_FUNDING, funding);
+            writer.writeValue(FIELD_LAST4, last4);
+            writer.writeModel(FIELD_THREE_D_SECURE_USAGE, threeDSecureUsage);
+            writer.writeValue(FIELD_WALLET, wallet != null ? wallet.toMap() : null);
+        }
+
+        @Nullable
+        static Card readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+            if (!reader.beginObject()) {
+                return null;
+            }
+
+            final Builder builder = new Builder();
+            String field;
+            while ((field = reader.nextField()) != null) {
+                switch (field) {
+                    case FIELD_BRAND:
+                        builder.setBrand(reader.readString());
+                        break;
+                    case FIELD_CHECKS:
+                        builder.setChecks(Checks.readSnapshot(reader));
+                        break;
+                    case FIELD_COUNTRY:
+                        builder.setCountry(reader.readString());
+                        break;
+                    case FIELD_EXP_MONTH:
+                        builder.setExpiryMonth(reader.readInteger());
+                        break;
+                    case FIELD_EXP_YEAR:
+                        builder.setExpiryYear(reader.readInteger());
+                        break;
+                    case FIELD_FUNDING:
+                        builder.setFunding(reader.readString());
+                        break;
+                    case FIELD_LAST4:
+                        builder.setLast4(reader.readString());
+                        break;
+                    case FIELD_THREE_D_SECURE_USAGE:
+                        builder.setThreeDSecureUsage(ThreeDSecureUsage.readSnapshot(reader));
+                        break;
+                    case FIELD_WALLET:
+                        builder.setWallet(new WalletFactory()
+                                .create(StripeJsonUtils.mapToJsonObject(reader.readMap())));
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            return builder.build();
+        }
+
         @Override
         public boolean equals(Object obj) {
             return this == obj || (obj instanceof Card && typedEquals((Card) obj));
@@ -843,6 +1007,40 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
                         .build();
             }
 
+            @Override
+            void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+                writer.writeValue(FIELD_ADDRESS_LINE1_CHECK, addressLine1Check);
+                writer.writeValue(FIELD_ADDRESS_POSTAL_CODE_CHECK, addressPostalCodeCheck);
+                writer.writeValue(FIELD_CVC_CHECK, cvcCheck);
+            }
+
+            @Nullable
+            static Checks readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+                if (!reader.beginObject()) {
+                    return null;
+                }
+
+                final Builder builder = new Builder();
+                String field;
+                while ((field = reader.nextField()) != null) {
+                    switch (field) {
+                        case FIELD_ADDRESS_LINE1_CHECK:
+                            builder.setAddressLine1Check(reader.readString());
+                            break;
+                        case FIELD_ADDRESS_POSTAL_CODE_CHECK:
+                            builder.setAddressPostalCodeCheck(reader.readString());
+                            break;
+                        case FIELD_CVC_CHECK:
+                            builder.setCvcCheck(reader.readString());
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                return builder.build();
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return this == obj || (obj instanceof Checks && typedEquals((Checks) obj));
@@ -956,6 +1154,29 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
                         .build();
             }
 
+            @Override
+            void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+                writer.writeValue(FIELD_IS_SUPPORTED, isSupported);
+            }
+
+            @Nullable
+            static ThreeDSecureUsage readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+                if (!reader.beginObject()) {
+                    return null;
+                }
+
+                final Builder builder = new Builder();
+                String field;
+                while ((field = reader.nextField()) != null) {
+                    if (FIELD_IS_SUPPORTED.equals(field)) {
+                        builder.setSupported(Boolean.TRUE.equals(reader.readBoolean()));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                return builder.build();
+            }
+
             @Override
             public int hashCode() {
                 return ObjectUtils.hash(isSupported);
@@ -999,6 +1220,13 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
             super(in);
         }
 
+        /**
+         * Writes no fields, as a card present payment method has none in the API.
+         */
+        @Override
+        void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        }
+
         public static final Parcelable.Creator<CardPresent> CREATOR =
                 new Parcelable.Creator<CardPresent>() {
                     @Override
@@ -1111,6 +1339,36 @@ public class PaymentMethod extends StripeJsonModel implements Parcelable {
                     .build();
         }
 
+        @Override
+        void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+            writer.writeValue(FIELD_BANK, bank);
+            writer.writeValue(FIELD_BIC, bankIdentifierCode);
+        }
+
+        @Nullable
+        static Ideal readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+            if (!reader.beginObject()) {
+                return null;
+            }
+
+            final Builder builder = new Builder();
+            String field;
+            while ((field = reader.nextField()) != null) {
+                switch (field) {
+                    case FIELD_BANK:
+                        builder.setBank(reader.readString());
+                        break;
+                    case FIELD_BIC:
+                        builder.setBankIdentifierCode(reader.readString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            return builder.build();
+        }
+
         @Override
         public int hashCode() {
             return ObjectUtils.hash(bank, bankIdentifierCode);
@@ -119,6 +119,42 @@ public class ShippingInformation extends StripeJsonModel implements Parcelable {
         dest.writeString(mPhone);
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeModel(FIELD_ADDRESS, mAddress);
+        writer.writeValue(FIELD_NAME, mName);
+        writer.writeValue(FIELD_PHONE, mPhone);
+    }
+
+    @Nullable
+    static ShippingInformation readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        Address address = null;
+        String name = null;
+        String phone = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ADDRESS:
+                    address = Address.readSnapshot(reader);
+                    break;
+                case FIELD_NAME:
+                    name = reader.readString();
+                    break;
+                case FIELD_PHONE:
+                    phone = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return new ShippingInformation(address, name, phone);
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj
@@ -15,6 +15,8 @@ import java.util.Currency;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.stripe.android.model.StripeJsonUtils.optLong;
+import static com.stripe.android.model.StripeJsonUtils.optString;
 import static com.stripe.android.model.StripeJsonUtils.putLongIfNotNull;
 import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
 
@@ -141,6 +143,80 @@ public class ShippingMethod extends StripeJsonModel implements Parcelable {
         return map;
     }
 
+    /**
+     * @return the {@link ShippingMethod} that {@link #toJson()} wrote to {@code jsonObject}, or
+     * null if its label, identifier, amount or currency code is missing
+     */
+    @Nullable
+    public static ShippingMethod fromJson(@Nullable JSONObject jsonObject) {
+        if (jsonObject == null) {
+            return null;
+        }
+
+        final String label = optString(jsonObject, FIELD_LABEL);
+        final String identifier = optString(jsonObject, FIELD_IDENTIFIER);
+        final Long amount = optLong(jsonObject, FIELD_AMOUNT);
+        final String currencyCode = optString(jsonObject, FIELD_CURRENCY_CODE);
+        if (label == null || identifier == null || amount == null || currencyCode == null) {
+            return null;
+        }
+        return new ShippingMethod(label, identifier, optString(jsonObject, FIELD_DETAIL), amount,
+                currencyCode);
+    }
+
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_AMOUNT, mAmount);
+        writer.writeValue(FIELD_CURRENCY_CODE, mCurrencyCode);
+        writer.writeValue(FIELD_DETAIL, mDetail);
+        writer.writeValue(FIELD_IDENTIFIER, mIdentifier);
+        writer.writeValue(FIELD_LABEL, mLabel);
+    }
+
+    /**
+     * @return the {@link ShippingMethod} that {@link #writeSnapshot(ModelSnapshot.Writer)}
+     * wrote, or null if its label, identifier, amount or currency code is missing
+     */
+    @Nullable
+    static ShippingMethod readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        Long amount = null;
+        String currencyCode = null;
+        String detail = null;
+        String identifier = null;
+        String label = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_AMOUNT:
+                    amount = reader.readLong();
+                    break;
+                case FIELD_CURRENCY_CODE:
+                    currencyCode = reader.readString();
+                    break;
+                case FIELD_DETAIL:
+                    detail = reader.readString();
+                    break;
+                case FIELD_IDENTIFIER:
+                    identifier = reader.readString();
+                    break;
+                case FIELD_LABEL:
+                    label = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        if (label == null || identifier == null || amount == null || currencyCode == null) {
+            return null;
+        }
+        return new ShippingMethod(label, identifier, detail, amount, currencyCode);
+    }
+
     /************** Parcelable *********************/
     @Override
     public int describeContents() {
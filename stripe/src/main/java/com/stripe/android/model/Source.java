@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.Size;
@@ -29,7 +31,7 @@ import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
  * can be seen at <a href="https://stripe.com/docs/api/sources/object?lang=java">
  * https://stripe.com/docs/api/sources/object?lang=java</a>.
  */
-public class Source extends StripeJsonModel implements StripePaymentSource {
+public class Source extends StripeJsonModel implements StripePaymentSource, Parcelable {
 
     static final String VALUE_SOURCE = "source";
     private static final String VALUE_CARD = "card";
@@ -127,6 +129,11 @@ public class Source extends StripeJsonModel implements StripePaymentSource {
     private static final String FIELD_TYPE = "type";
     private static final String FIELD_USAGE = "usage";
 
+    // fields of a snapshot only, which keeps the raw type apart from the parsed one, and the
+    // type's data under a fixed name rather than the raw type as the JSON does
+    private static final String FIELD_TYPE_DATA = "type_data";
+    private static final String FIELD_TYPE_RAW = "type_raw";
+
     @Nullable private String mId;
     @Nullable private Long mAmount;
     @Nullable private String mClientSecret;
@@ -169,7 +176,7 @@ public class Source extends StripeJsonModel implements StripePaymentSource {
             @Nullable Map<String, Object> sourceTypeData,
             @Nullable StripeSourceTypeModel sourceTypeModel,
             @NonNull @SourceType String type,
-            @NonNull String rawType,
+            @Nullable String rawType,
             @Nullable @Usage String usage
     ) {
         mId = id;
@@ -192,6 +199,27 @@ public class Source extends StripeJsonModel implements StripePaymentSource {
         mUsage = usage;
     }
 
+    private Source(@NonNull Parcel in) {
+        mId = in.readString();
+        mAmount = ParcelUtils.readLong(in);
+        mClientSecret = in.readString();
+        mCodeVerification = in.readParcelable(SourceCodeVerification.class.getClassLoader());
+        mCreated = ParcelUtils.readLong(in);
+        mCurrency = in.readString();
+        mFlow = asSourceFlow(in.readString());
+        mLiveMode = ParcelUtils.readBoolean(in);
+        mMetaData = ParcelUtils.readStringMap(in);
+        mOwner = in.readParcelable(SourceOwner.class.getClassLoader());
+        mReceiver = in.readParcelable(SourceReceiver.class.getClassLoader());
+        mRedirect = in.readParcelable(SourceRedirect.class.getClassLoader());
+        mStatus = asSourceStatus(in.readString());
+        mSourceTypeData = ParcelUtils.readJsonMap(in);
+        mSourceTypeModel = in.readParcelable(StripeSourceTypeModel.class.getClassLoader());
+        mType = asSourceType(in.readString());
+        mTypeRaw = in.readString();
+        mUsage = asUsage(in.readString());
+    }
+
     @Nullable
     @Override
     public String getId() {
@@ -619,6 +647,143 @@ public class Source extends StripeJsonModel implements StripePaymentSource {
         return null;
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ID, mId);
+        writer.writeValue(FIELD_AMOUNT, mAmount);
+        writer.writeValue(FIELD_CLIENT_SECRET, mClientSecret);
+        writer.writeModel(FIELD_CODE_VERIFICATION, mCodeVerification);
+        writer.writeValue(FIELD_CREATED, mCreated);
+        writer.writeValue(FIELD_CURRENCY, mCurrency);
+        writer.writeValue(FIELD_FLOW, mFlow);
+        writer.writeValue(FIELD_LIVEMODE, mLiveMode);
+        writer.writeValue(FIELD_METADATA, mMetaData);
+        writer.writeModel(FIELD_OWNER, mOwner);
+        writer.writeModel(FIELD_RECEIVER, mReceiver);
+        writer.writeModel(FIELD_REDIRECT, mRedirect);
+        writer.writeValue(FIELD_STATUS, mStatus);
+        writer.writeValue(FIELD_TYPE_DATA, mSourceTypeData);
+        if (mSourceTypeModel instanceof SourceCardData) {
+            writer.writeModel(CARD, mSourceTypeModel);
+        } else if (mSourceTypeModel instanceof SourceSepaDebitData) {
+            writer.writeModel(SEPA_DEBIT, mSourceTypeModel);
+        }
+        writer.writeValue(FIELD_TYPE, mType);
+        writer.writeValue(FIELD_TYPE_RAW, mTypeRaw);
+        writer.writeValue(FIELD_USAGE, mUsage);
+    }
+
+    @Nullable
+    static Source readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        String id = null;
+        Long amount = null;
+        String clientSecret = null;
+        SourceCodeVerification codeVerification = null;
+        Long created = null;
+        String currency = null;
+        String flow = null;
+        Boolean liveMode = null;
+        Map<String, String> metadata = null;
+        SourceOwner owner = null;
+        SourceReceiver receiver = null;
+        SourceRedirect redirect = null;
+        String status = null;
+        Map<String, Object> sourceTypeData = null;
+        StripeSourceTypeModel sourceTypeModel = null;
+        String type = null;
+        String typeRaw = null;
+        String usage = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ID:
+                    id = reader.readString();
+                    break;
+                case FIELD_AMOUNT:
+                    amount = reader.readLong();
+                    break;
+                case FIELD_CLIENT_SECRET:
+                    clientSecret = reader.readString();
+                    break;
+                case FIELD_CODE_VERIFICATION:
+                    codeVerification = SourceCodeVerification.readSnapshot(reader);
+                    break;
+                case FIELD_CREATED:
+                    created = reader.readLong();
+                    break;
+                case FIELD_CURRENCY:
+                    currency = reader.readString();
+                    break;
+                case FIELD_FLOW:
+                    flow = reader.readString();
+                    break;
+                case FIELD_LIVEMODE:
+                    liveMode = reader.readBoolean();
+                    break;
+                case FIELD_METADATA:
+                    metadata = reader.readStringMap();
+                    break;
+                case FIELD_OWNER:
+                    owner = SourceOwner.readSnapshot(reader);
+                    break;
+                case FIELD_RECEIVER:
+                    receiver = SourceReceiver.readSnapshot(reader);
+                    break;
+                case FIELD_REDIRECT:
+                    redirect = SourceRedirect.readSnapshot(reader);
+                    break;
+                case FIELD_STATUS:
+                    status = reader.readString();
+                    break;
+                case FIELD_TYPE_DATA:
+                    sourceTypeData = reader.readMap();
+                    break;
+                case CARD:
+                    sourceTypeModel = SourceCardData.readSnapshot(reader);
+                    break;
+                case SEPA_DEBIT:
+                    sourceTypeModel = SourceSepaDebitData.readSnapshot(reader);
+                    break;
+                case FIELD_TYPE:
+                    type = reader.readString();
+                    break;
+                case FIELD_TYPE_RAW:
+                    typeRaw = reader.readString();
+                    break;
+                case FIELD_USAGE:
+                    usage = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+
+        return new Source(
+                id,
+                amount,
+                clientSecret,
+                codeVerification,
+                created,
+                currency,
+                asSourceFlow(flow),
+                liveMode,
+                metadata,
+                owner,
+                receiver,
+                redirect,
+                asSourceStatus(status),
+                sourceTypeData,
+                sourceTypeModel,
+                asSourceType(type),
+                typeRaw,
+                asUsage(usage));
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof Source && typedEquals((Source) obj));
@@ -651,4 +816,45 @@ public class Source extends StripeJsonModel implements StripePaymentSource {
                 mTypeRaw, mFlow, mLiveMode, mMetaData, mOwner, mReceiver, mRedirect, mStatus,
                 mSourceTypeData, mSourceTypeModel, mType, mUsage);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mId);
+        ParcelUtils.writeLong(dest, mAmount);
+        dest.writeString(mClientSecret);
+        dest.writeParcelable(mCodeVerification, flags);
+        ParcelUtils.writeLong(dest, mCreated);
+        dest.writeString(mCurrency);
+        dest.writeString(mFlow);
+        ParcelUtils.writeBoolean(dest, mLiveMode);
+        ParcelUtils.writeStringMap(dest, mMetaData);
+        dest.writeParcelable(mOwner, flags);
+        dest.writeParcelable(mReceiver, flags);
+        dest.writeParcelable(mRedirect, flags);
+        dest.writeString(mStatus);
+        ParcelUtils.writeJsonMap(dest, mSourceTypeData);
+        dest.writeParcelable(mSourceTypeModel, flags);
+        dest.writeString(mType);
+        dest.writeString(mTypeRaw);
+        dest.writeString(mUsage);
+    }
+
+    public static final Parcelable.Creator<Source> CREATOR =
+            new Parcelable.Creator<Source>() {
+                @NonNull
+                @Override
+                public Source createFromParcel(@NonNull Parcel in) {
+                    return new Source(in);
+                }
+
+                @Override
+                public Source[] newArray(int size) {
+                    return new Source[size];
+                }
+            };
 }
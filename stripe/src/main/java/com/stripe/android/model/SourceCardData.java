@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
@@ -102,6 +104,22 @@ public class SourceCardData extends StripeSourceTypeModel {
         mTokenizationMethod = builder.mTokenizationMethod;
     }
 
+    private SourceCardData(@NonNull Parcel in) {
+        super(in);
+        mAddressLine1Check = in.readString();
+        mAddressZipCheck = in.readString();
+        mBrand = Card.asCardBrand(in.readString());
+        mCountry = in.readString();
+        mCvcCheck = in.readString();
+        mDynamicLast4 = in.readString();
+        mExpiryMonth = ParcelUtils.readInteger(in);
+        mExpiryYear = ParcelUtils.readInteger(in);
+        mFunding = Card.asFundingType(in.readString());
+        mLast4 = in.readString();
+        mThreeDSecureStatus = asThreeDSecureStatus(in.readString());
+        mTokenizationMethod = in.readString();
+    }
+
     @Nullable
     public String getAddressLine1Check() {
         return mAddressLine1Check;
@@ -262,6 +280,83 @@ public class SourceCardData extends StripeSourceTypeModel {
         }
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ADDITIONAL_FIELDS, getAdditionalFields());
+        writer.writeValue(FIELD_ADDRESS_LINE1_CHECK, mAddressLine1Check);
+        writer.writeValue(FIELD_ADDRESS_ZIP_CHECK, mAddressZipCheck);
+        writer.writeValue(FIELD_BRAND, mBrand);
+        writer.writeValue(FIELD_COUNTRY, mCountry);
+        writer.writeValue(FIELD_CVC_CHECK, mCvcCheck);
+        writer.writeValue(FIELD_DYNAMIC_LAST4, mDynamicLast4);
+        writer.writeValue(FIELD_EXP_MONTH, mExpiryMonth);
+        writer.writeValue(FIELD_EXP_YEAR, mExpiryYear);
+        writer.writeValue(FIELD_FUNDING, mFunding);
+        writer.writeValue(FIELD_LAST4, mLast4);
+        writer.writeValue(FIELD_THREE_D_SECURE, mThreeDSecureStatus);
+        writer.writeValue(FIELD_TOKENIZATION_METHOD, mTokenizationMethod);
+    }
+
+    @Nullable
+    static SourceCardData readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        final Builder cardData = new Builder();
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ADDITIONAL_FIELDS:
+                    final Map<String, Object> additionalFields = reader.readMap();
+                    if (additionalFields != null) {
+                        cardData.setAdditionalFields(additionalFields);
+                    }
+                    break;
+                case FIELD_ADDRESS_LINE1_CHECK:
+                    cardData.setAddressLine1Check(reader.readString());
+                    break;
+                case FIELD_ADDRESS_ZIP_CHECK:
+                    cardData.setAddressZipCheck(reader.readString());
+                    break;
+                case FIELD_BRAND:
+                    cardData.setBrand(Card.asCardBrand(reader.readString()));
+                    break;
+                case FIELD_COUNTRY:
+                    cardData.setCountry(reader.readString());
+                    break;
+                case FIELD_CVC_CHECK:
+                    cardData.setCvcCheck(reader.readString());
+                    break;
+                case FIELD_DYNAMIC_LAST4:
+                    cardData.setDynamicLast4(reader.readString());
+                    break;
+                case FIELD_EXP_MONTH:
+                    cardData.setExpiryMonth(reader.readInteger());
+                    break;
+                case FIELD_EXP_YEAR:
+                    cardData.setExpiryYear(reader.readInteger());
+                    break;
+                case FIELD_FUNDING:
+                    cardData.setFunding(Card.asFundingType(reader.readString()));
+                    break;
+                case FIELD_LAST4:
+                    cardData.setLast4(reader.readString());
+                    break;
+                case FIELD_THREE_D_SECURE:
+                    cardData.setThreeDSecureStatus(asThreeDSecureStatus(reader.readString()));
+                    break;
+                case FIELD_TOKENIZATION_METHOD:
+                    cardData.setTokenizationMethod(reader.readString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return cardData.build();
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof SourceCardData && typedEquals((SourceCardData) obj));
@@ -290,6 +385,37 @@ public class SourceCardData extends StripeSourceTypeModel {
                 mTokenizationMethod);
     }
 
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        super.writeToParcel(dest, flags);
+        dest.writeString(mAddressLine1Check);
+        dest.writeString(mAddressZipCheck);
+        dest.writeString(mBrand);
+        dest.writeString(mCountry);
+        dest.writeString(mCvcCheck);
+        dest.writeString(mDynamicLast4);
+        ParcelUtils.writeInteger(dest, mExpiryMonth);
+        ParcelUtils.writeInteger(dest, mExpiryYear);
+        dest.writeString(mFunding);
+        dest.writeString(mLast4);
+        dest.writeString(mThreeDSecureStatus);
+        dest.writeString(mTokenizationMethod);
+    }
+
+    public static final Parcelable.Creator<SourceCardData> CREATOR =
+            new Parcelable.Creator<SourceCardData>() {
+                @NonNull
+                @Override
+                public SourceCardData createFromParcel(@NonNull Parcel in) {
+                    return new SourceCardData(in);
+                }
+
+                @Override
+                public SourceCardData[] newArray(int size) {
+                    return new SourceCardData[size];
+                }
+            };
+
     private static final class Builder extends BaseBuilder {
         private String mAddressLine1Check;
         private String mAddressZipCheck;
@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
@@ -21,7 +23,7 @@ import static com.stripe.android.model.StripeJsonUtils.optString;
  * https://stripe.com/docs/api/sources/object#source_object-code_verification
  * object in the source api, <em>not</em> source code verification
  */
-public class SourceCodeVerification extends StripeJsonModel {
+public class SourceCodeVerification extends StripeJsonModel implements Parcelable {
 
     // Note: these are the same as the values for the @Redirect.Status StringDef.
     // They don't have to stay the same forever, so they are redefined here.
@@ -48,6 +50,11 @@ public class SourceCodeVerification extends StripeJsonModel {
         mStatus = status;
     }
 
+    private SourceCodeVerification(@NonNull Parcel in) {
+        mAttemptsRemaining = in.readInt();
+        mStatus = asStatus(in.readString());
+    }
+
     public int getAttemptsRemaining() {
         return mAttemptsRemaining;
     }
@@ -116,6 +123,39 @@ public class SourceCodeVerification extends StripeJsonModel {
         return null;
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ATTEMPTS_REMAINING, mAttemptsRemaining);
+        writer.writeValue(FIELD_STATUS, mStatus);
+    }
+
+    @Nullable
+    static SourceCodeVerification readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        Integer attemptsRemaining = null;
+        String status = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ATTEMPTS_REMAINING:
+                    attemptsRemaining = reader.readInteger();
+                    break;
+                case FIELD_STATUS:
+                    status = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return new SourceCodeVerification(
+                attemptsRemaining != null ? attemptsRemaining : INVALID_ATTEMPTS_REMAINING,
+                asStatus(status));
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof SourceCodeVerification
@@ -131,4 +171,29 @@ public class SourceCodeVerification extends StripeJsonModel {
     public int hashCode() {
         return ObjectUtils.hash(mAttemptsRemaining, mStatus);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeInt(mAttemptsRemaining);
+        dest.writeString(mStatus);
+    }
+
+    public static final Parcelable.Creator<SourceCodeVerification> CREATOR =
+            new Parcelable.Creator<SourceCodeVerification>() {
+                @NonNull
+                @Override
+                public SourceCodeVerification createFromParcel(@NonNull Parcel in) {
+                    return new SourceCodeVerification(in);
+                }
+
+                @Override
+                public SourceCodeVerification[] newArray(int size) {
+                    return new SourceCodeVerification[size];
+                }
+            };
 }
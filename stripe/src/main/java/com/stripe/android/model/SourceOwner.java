@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -20,7 +22,7 @@ import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
  * Model for a <a href="https://stripe.com/docs/api#source_object-owner">owner</a> object
  * in the Source api.
  */
-public class SourceOwner extends StripeJsonModel {
+public class SourceOwner extends StripeJsonModel implements Parcelable {
 
     private static final String VERIFIED = "verified_";
     private static final String FIELD_ADDRESS = "address";
@@ -60,6 +62,17 @@ public class SourceOwner extends StripeJsonModel {
         mVerifiedPhone = verifiedPhone;
     }
 
+    private SourceOwner(@NonNull Parcel in) {
+        mAddress = in.readParcelable(Address.class.getClassLoader());
+        mEmail = in.readString();
+        mName = in.readString();
+        mPhone = in.readString();
+        mVerifiedAddress = in.readParcelable(Address.class.getClassLoader());
+        mVerifiedEmail = in.readString();
+        mVerifiedName = in.readString();
+        mVerifiedPhone = in.readString();
+    }
+
     @Nullable
     public Address getAddress() {
         return mAddress;
@@ -228,6 +241,68 @@ public class SourceOwner extends StripeJsonModel {
                 verifiedPhone);
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeModel(FIELD_ADDRESS, mAddress);
+        writer.writeValue(FIELD_EMAIL, mEmail);
+        writer.writeValue(FIELD_NAME, mName);
+        writer.writeValue(FIELD_PHONE, mPhone);
+        writer.writeModel(FIELD_VERIFIED_ADDRESS, mVerifiedAddress);
+        writer.writeValue(FIELD_VERIFIED_EMAIL, mVerifiedEmail);
+        writer.writeValue(FIELD_VERIFIED_NAME, mVerifiedName);
+        writer.writeValue(FIELD_VERIFIED_PHONE, mVerifiedPhone);
+    }
+
+    @Nullable
+    static SourceOwner readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        Address address = null;
+        String email = null;
+        String name = null;
+        String phone = null;
+        Address verifiedAddress = null;
+        String verifiedEmail = null;
+        String verifiedName = null;
+        String verifiedPhone = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ADDRESS:
+                    address = Address.readSnapshot(reader);
+                    break;
+                case FIELD_EMAIL:
+                    email = reader.readString();
+                    break;
+                case FIELD_NAME:
+                    name = reader.readString();
+                    break;
+                case FIELD_PHONE:
+                    phone = reader.readString();
+                    break;
+                case FIELD_VERIFIED_ADDRESS:
+                    verifiedAddress = Address.readSnapshot(reader);
+                    break;
+                case FIELD_VERIFIED_EMAIL:
+                    verifiedEmail = reader.readString();
+                    break;
+                case FIELD_VERIFIED_NAME:
+                    verifiedName = reader.readString();
+                    break;
+                case FIELD_VERIFIED_PHONE:
+                    verifiedPhone = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return new SourceOwner(address, email, name, phone, verifiedAddress, verifiedEmail,
+                verifiedName, verifiedPhone);
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj || (obj instanceof SourceOwner && typedEquals((SourceOwner) obj));
@@ -249,4 +324,35 @@ public class SourceOwner extends StripeJsonModel {
         return ObjectUtils.hash(mAddress, mEmail, mName, mPhone, mVerifiedAddress, mVerifiedEmail,
                 mVerifiedName, mVerifiedPhone);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeParcelable(mAddress, flags);
+        dest.writeString(mEmail);
+        dest.writeString(mName);
+        dest.writeString(mPhone);
+        dest.writeParcelable(mVerifiedAddress, flags);
+        dest.writeString(mVerifiedEmail);
+        dest.writeString(mVerifiedName);
+        dest.writeString(mVerifiedPhone);
+    }
+
+    public static final Parcelable.Creator<SourceOwner> CREATOR =
+            new Parcelable.Creator<SourceOwner>() {
+                @NonNull
+                @Override
+                public SourceOwner createFromParcel(@NonNull Parcel in) {
+                    return new SourceOwner(in);
+                }
+
+                @Override
+                public SourceOwner[] newArray(int size) {
+                    return new SourceOwner[size];
+                }
+            };
 }
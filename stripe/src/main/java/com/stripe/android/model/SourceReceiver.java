@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -16,7 +18,7 @@ import java.util.Map;
  * Model for a <a href="https://stripe.com/docs/api#source_object-receiver">receiver</a> object in
  * the source api. Present if the {@link Source} is a receiver.
  */
-public class SourceReceiver extends StripeJsonModel {
+public class SourceReceiver extends StripeJsonModel implements Parcelable {
 
     private static final String FIELD_ADDRESS = "address";
     private static final String FIELD_AMOUNT_CHARGED = "amount_charged";
@@ -39,6 +41,13 @@ public class SourceReceiver extends StripeJsonModel {
         mAmountReturned = amountReturned;
     }
 
+    private SourceReceiver(@NonNull Parcel in) {
+        mAddress = in.readString();
+        mAmountCharged = in.readLong();
+        mAmountReceived = in.readLong();
+        mAmountReturned = in.readLong();
+    }
+
     @Nullable
     public String getAddress() {
         return mAddress;
@@ -123,6 +132,51 @@ public class SourceReceiver extends StripeJsonModel {
                 jsonObject.optLong(FIELD_AMOUNT_RETURNED));
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ADDRESS, mAddress);
+        writer.writeValue(FIELD_AMOUNT_CHARGED, mAmountCharged);
+        writer.writeValue(FIELD_AMOUNT_RECEIVED, mAmountReceived);
+        writer.writeValue(FIELD_AMOUNT_RETURNED, mAmountReturned);
+    }
+
+    @Nullable
+    static SourceReceiver readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        String address = null;
+        long amountCharged = 0;
+        long amountReceived = 0;
+        long amountReturned = 0;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ADDRESS:
+                    address = reader.readString();
+                    break;
+                case FIELD_AMOUNT_CHARGED:
+                    amountCharged = valueOrZero(reader.readLong());
+                    break;
+                case FIELD_AMOUNT_RECEIVED:
+                    amountReceived = valueOrZero(reader.readLong());
+                    break;
+                case FIELD_AMOUNT_RETURNED:
+                    amountReturned = valueOrZero(reader.readLong());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return new SourceReceiver(address, amountCharged, amountReceived, amountReturned);
+    }
+
+    private static long valueOrZero(@Nullable Long value) {
+        return value != null ? value : 0;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj || (obj instanceof SourceReceiver && typedEquals((SourceReceiver) obj));
@@ -139,4 +193,31 @@ public class SourceReceiver extends StripeJsonModel {
     public int hashCode() {
         return ObjectUtils.hash(mAddress, mAmountCharged, mAmountReceived, mAmountReturned);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mAddress);
+        dest.writeLong(mAmountCharged);
+        dest.writeLong(mAmountReceived);
+        dest.writeLong(mAmountReturned);
+    }
+
+    public static final Parcelable.Creator<SourceReceiver> CREATOR =
+            new Parcelable.Creator<SourceReceiver>() {
+                @NonNull
+                @Override
+                public SourceReceiver createFromParcel(@NonNull Parcel in) {
+                    return new SourceReceiver(in);
+                }
+
+                @Override
+                public SourceReceiver[] newArray(int size) {
+                    return new SourceReceiver[size];
+                }
+            };
 }
@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
@@ -24,7 +26,7 @@ import static com.stripe.android.model.StripeJsonUtils.putStringIfNotNull;
  * Model for a <a href="https://stripe.com/docs/api/sources/object#source_object-redirect">
  *     redirect</a> object in the source api.
  */
-public class SourceRedirect extends StripeJsonModel {
+public class SourceRedirect extends StripeJsonModel implements Parcelable {
 
     @Retention(RetentionPolicy.SOURCE)
     @StringDef({
@@ -54,6 +56,12 @@ public class SourceRedirect extends StripeJsonModel {
         mUrl = url;
     }
 
+    private SourceRedirect(@NonNull Parcel in) {
+        mReturnUrl = in.readString();
+        mStatus = asStatus(in.readString());
+        mUrl = in.readString();
+    }
+
     @Nullable
     public String getReturnUrl() {
         return mReturnUrl;
@@ -141,6 +149,42 @@ public class SourceRedirect extends StripeJsonModel {
         return null;
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_RETURN_URL, mReturnUrl);
+        writer.writeValue(FIELD_STATUS, mStatus);
+        writer.writeValue(FIELD_URL, mUrl);
+    }
+
+    @Nullable
+    static SourceRedirect readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        String returnUrl = null;
+        String status = null;
+        String url = null;
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_RETURN_URL:
+                    returnUrl = reader.readString();
+                    break;
+                case FIELD_STATUS:
+                    status = reader.readString();
+                    break;
+                case FIELD_URL:
+                    url = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return new SourceRedirect(returnUrl, asStatus(status), url);
+    }
+
     @Override
     public boolean equals(@Nullable Object obj) {
         return this == obj || (obj instanceof SourceRedirect && typedEquals((SourceRedirect) obj));
@@ -156,4 +200,30 @@ public class SourceRedirect extends StripeJsonModel {
     public int hashCode() {
         return ObjectUtils.hash(mReturnUrl, mStatus, mUrl);
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mReturnUrl);
+        dest.writeString(mStatus);
+        dest.writeString(mUrl);
+    }
+
+    public static final Parcelable.Creator<SourceRedirect> CREATOR =
+            new Parcelable.Creator<SourceRedirect>() {
+                @NonNull
+                @Override
+                public SourceRedirect createFromParcel(@NonNull Parcel in) {
+                    return new SourceRedirect(in);
+                }
+
+                @Override
+                public SourceRedirect[] newArray(int size) {
+                    return new SourceRedirect[size];
+                }
+            };
 }
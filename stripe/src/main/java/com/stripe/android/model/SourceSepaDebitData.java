@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -61,6 +63,17 @@ public class SourceSepaDebitData extends StripeSourceTypeModel {
         mMandateUrl = builder.mMandateUrl;
     }
 
+    private SourceSepaDebitData(@NonNull Parcel in) {
+        super(in);
+        mBankCode = in.readString();
+        mBranchCode = in.readString();
+        mCountry = in.readString();
+        mFingerPrint = in.readString();
+        mLast4 = in.readString();
+        mMandateReference = in.readString();
+        mMandateUrl = in.readString();
+    }
+
     @Nullable
     public static SourceSepaDebitData fromJson(JSONObject jsonObject) {
         if (jsonObject == null) {
@@ -158,6 +171,63 @@ public class SourceSepaDebitData extends StripeSourceTypeModel {
         }
     }
 
+    @Override
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        writer.writeValue(FIELD_ADDITIONAL_FIELDS, getAdditionalFields());
+        writer.writeValue(FIELD_BANK_CODE, mBankCode);
+        writer.writeValue(FIELD_BRANCH_CODE, mBranchCode);
+        writer.writeValue(FIELD_COUNTRY, mCountry);
+        writer.writeValue(FIELD_FINGERPRINT, mFingerPrint);
+        writer.writeValue(FIELD_LAST4, mLast4);
+        writer.writeValue(FIELD_MANDATE_REFERENCE, mMandateReference);
+        writer.writeValue(FIELD_MANDATE_URL, mMandateUrl);
+    }
+
+    @Nullable
+    static SourceSepaDebitData readSnapshot(@NonNull ModelSnapshot.Reader reader) {
+        if (!reader.beginObject()) {
+            return null;
+        }
+
+        final Builder sepaData = new Builder();
+        String field;
+        while ((field = reader.nextField()) != null) {
+            switch (field) {
+                case FIELD_ADDITIONAL_FIELDS:
+                    final Map<String, Object> additionalFields = reader.readMap();
+                    if (additionalFields != null) {
+                        sepaData.setAdditionalFields(additionalFields);
+                    }
+                    break;
+                case FIELD_BANK_CODE:
+                    sepaData.setBankCode(reader.readString());
+                    break;
+                case FIELD_BRANCH_CODE:
+                    sepaData.setBranchCode(reader.readString());
+                    break;
+                case FIELD_COUNTRY:
+                    sepaData.setCountry(reader.readString());
+                    break;
+                case FIELD_FINGERPRINT:
+                    sepaData.setFingerPrint(reader.readString());
+                    break;
+                case FIELD_LAST4:
+                    sepaData.setLast4(reader.readString());
+                    break;
+                case FIELD_MANDATE_REFERENCE:
+                    sepaData.setMandateReference(reader.readString());
+                    break;
+                case FIELD_MANDATE_URL:
+                    sepaData.setMandateUrl(reader.readString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        return sepaData.build();
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj
@@ -181,6 +251,32 @@ public class SourceSepaDebitData extends StripeSourceTypeModel {
                 mLast4, mMandateReference, mMandateUrl);
     }
 
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        super.writeToParcel(dest, flags);
+        dest.writeString(mBankCode);
+        dest.writeString(mBranchCode);
+        dest.writeString(mCountry);
+        dest.writeString(mFingerPrint);
+        dest.writeString(mLast4);
+        dest.writeString(mMandateReference);
+        dest.writeString(mMandateUrl);
+    }
+
+    public static final Parcelable.Creator<SourceSepaDebitData> CREATOR =
+            new Parcelable.Creator<SourceSepaDebitData>() {
+                @NonNull
+                @Override
+                public SourceSepaDebitData createFromParcel(@NonNull Parcel in) {
+                    return new SourceSepaDebitData(in);
+                }
+
+                @Override
+                public SourceSepaDebitData[] newArray(int size) {
+                    return new SourceSepaDebitData[size];
+                }
+            };
+
     public static final class Builder extends BaseBuilder {
         private String mBankCode;
         private String mBranchCode;
@@ -0,0 +1,56 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounded pool of canonical instances of strings that repeat across many models, such as card
+ * brands, countries and currencies, so that the models decoded from a large list share one
+ * instance of each value rather than each holding its own copy.
+ *
+ * Values longer than {@link #MAX_LENGTH} are never pooled, and once the pool holds its maximum
+ * number of values any new value is returned as it is, so that an unexpected spread of values
+ * cannot grow the pool without limit.
+ */
+final class StringInterner {
+    static final int DEFAULT_MAX_SIZE = 512;
+    static final int MAX_LENGTH = 32;
+
+    @NonNull private final Map<String, String> mStrings = new HashMap<>();
+    private final int mMaxSize;
+
+    StringInterner(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the pooled instance equal to {@code value}, pooling {@code value} if there is none
+     * and the pool has room
+     */
+    @Nullable
+    String intern(@Nullable String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+
+        synchronized (mStrings) {
+            final String pooled = mStrings.get(value);
+            if (pooled != null) {
+                return pooled;
+            }
+            if (mStrings.size() < mMaxSize) {
+                mStrings.put(value, value);
+            }
+            return value;
+        }
+    }
+
+    int size() {
+        synchronized (mStrings) {
+            return mStrings.size();
+        }
+    }
+}
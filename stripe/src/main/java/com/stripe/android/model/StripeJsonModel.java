@@ -23,6 +23,15 @@ public abstract class StripeJsonModel {
     @NonNull
     public abstract JSONObject toJson();
 
+    /**
+     * Write the fields of this model to a {@link ModelSnapshot}, for the models that can be
+     * part of one, which read them back in a static {@code readSnapshot(Reader)}.
+     */
+    void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+        throw new UnsupportedOperationException(
+                getClass().getSimpleName() + " cannot be written to a snapshot");
+    }
+
     static void putStripeJsonModelMapIfNotNull(
             @NonNull Map<String, Object> upperLevelMap,
             @NonNull @Size(min = 1) String key,
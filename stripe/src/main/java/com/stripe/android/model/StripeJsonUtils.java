@@ -3,6 +3,7 @@ package com.stripe.android.model;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.Size;
+import android.support.annotation.VisibleForTesting;
 
 import com.stripe.android.StripeTextUtils;
 
@@ -11,10 +12,14 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A set of JSON parsing utility functions.
@@ -24,6 +29,51 @@ public class StripeJsonUtils {
     private static final String EMPTY = "";
     private static final String NULL = "null";
 
+    /**
+     * The fields that hold one of a small set of values, e.g. a card brand or a country, whose
+     * values {@link #optString(JSONObject, String)} returns from a {@link StringInterner} so that
+     * many models share one instance of each.
+     */
+    private static final Set<String> INTERNED_FIELDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(
+                    "address_country",
+                    "address_line1_check",
+                    "address_postal_code_check",
+                    "address_zip_check",
+                    "brand",
+                    "country",
+                    "currency",
+                    "cvc_check",
+                    "flow",
+                    "funding",
+                    "object",
+                    "status",
+                    "tokenization_method",
+                    "type",
+                    "usage"
+            )));
+
+    @NonNull private static volatile StringInterner sStringInterner =
+            new StringInterner(StringInterner.DEFAULT_MAX_SIZE);
+
+    /**
+     * Replace the pool of {@link #INTERNED_FIELDS} values, e.g. with one of size 0 to measure
+     * decoding without it.
+     */
+    @VisibleForTesting
+    static void setStringInterner(@NonNull StringInterner stringInterner) {
+        sStringInterner = stringInterner;
+    }
+
+    /**
+     * @return {@code value} from the pool of {@link #INTERNED_FIELDS} values if
+     * {@code fieldName} is one of them, or else {@code value} itself
+     */
+    @Nullable
+    static String intern(@NonNull String fieldName, @Nullable String value) {
+        return INTERNED_FIELDS.contains(fieldName) ? sStringInterner.intern(value) : value;
+    }
+
     /**
      * Calls through to {@link JSONObject#getString(String)} while safely
      * converting the raw string "null" and the empty string to {@code null}.
@@ -107,7 +157,7 @@ public class StripeJsonUtils {
     public static String optString(
             @NonNull JSONObject jsonObject,
             @NonNull @Size(min = 1) String fieldName) {
-        return nullIfNullOrEmpty(jsonObject.optString(fieldName));
+        return intern(fieldName, nullIfNullOrEmpty(jsonObject.optString(fieldName)));
     }
 
     /**
@@ -125,7 +175,7 @@ public class StripeJsonUtils {
             @NonNull @Size(min = 1) String fieldName) {
         String value = nullIfNullOrEmpty(jsonObject.optString(fieldName));
         if (value != null && value.length() == 2) {
-            return value;
+            return sStringInterner.intern(value);
         }
         return null;
     }
@@ -145,7 +195,7 @@ public class StripeJsonUtils {
             @NonNull @Size(min = 1) String fieldName) {
         String value = nullIfNullOrEmpty(jsonObject.optString(fieldName));
         if (value != null && value.length() == 3) {
-            return value;
+            return sStringInterner.intern(value);
         }
         return null;
     }
@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.CallSuper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -15,15 +17,26 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
-public abstract class StripeSourceTypeModel extends StripeJsonModel {
+public abstract class StripeSourceTypeModel extends StripeJsonModel implements Parcelable {
     @NonNull private final Map<String, Object> mAdditionalFields;
     private static final String NULL = "null";
 
+    /**
+     * The field of a {@link ModelSnapshot} that holds the {@link #getAdditionalFields()}.
+     */
+    static final String FIELD_ADDITIONAL_FIELDS = "additional_fields";
+
     StripeSourceTypeModel(@NonNull BaseBuilder builder) {
         mAdditionalFields = builder.mAdditionalFields != null ?
                 builder.mAdditionalFields : new HashMap<String, Object>();
     }
 
+    StripeSourceTypeModel(@NonNull Parcel in) {
+        final Map<String, Object> additionalFields = ParcelUtils.readJsonMap(in);
+        mAdditionalFields = additionalFields != null ?
+                additionalFields : new HashMap<String, Object>();
+    }
+
     @NonNull
     public Map<String, Object> getAdditionalFields() {
         return mAdditionalFields;
@@ -137,6 +150,17 @@ public abstract class StripeSourceTypeModel extends StripeJsonModel {
         return ObjectUtils.hash(mAdditionalFields);
     }
 
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @CallSuper
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        ParcelUtils.writeJsonMap(dest, mAdditionalFields);
+    }
+
     abstract static class BaseBuilder {
         @Nullable private Map<String, Object> mAdditionalFields;
 
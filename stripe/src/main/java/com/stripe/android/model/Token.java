@@ -1,5 +1,7 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
@@ -19,7 +21,7 @@ import java.util.Date;
  * account details or personally identifiable information (PII), directly from your customers in a
  * secure manner. A Token representing this information is returned to you to use.
  */
-public class Token implements StripePaymentSource {
+public class Token implements StripePaymentSource, Parcelable {
 
     @Retention(RetentionPolicy.SOURCE)
     @StringDef({TYPE_CARD, TYPE_BANK_ACCOUNT, TYPE_PII, TYPE_ACCOUNT, TYPE_CVC_UPDATE})
@@ -106,6 +108,16 @@ public class Token implements StripePaymentSource {
         mLivemode = livemode;
     }
 
+    private Token(@NonNull Parcel in) {
+        mId = in.readString();
+        mType = in.readString();
+        mCreated = new Date(in.readLong());
+        mLivemode = in.readByte() != 0x00;
+        mUsed = in.readByte() != 0x00;
+        mBankAccount = in.readParcelable(BankAccount.class.getClassLoader());
+        mCard = in.readParcelable(Card.class.getClassLoader());
+    }
+
     /***
      * @return the {@link Date} this token was created
      */
@@ -267,4 +279,34 @@ public class Token implements StripePaymentSource {
 
         return null;
     }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeString(mId);
+        dest.writeString(mType);
+        dest.writeLong(mCreated.getTime());
+        dest.writeByte((byte) (mLivemode ? 0x01 : 0x00));
+        dest.writeByte((byte) (mUsed ? 0x01 : 0x00));
+        dest.writeParcelable(mBankAccount, flags);
+        dest.writeParcelable(mCard, flags);
+    }
+
+    public static final Parcelable.Creator<Token> CREATOR =
+            new Parcelable.Creator<Token>() {
+                @NonNull
+                @Override
+                public Token createFromParcel(@NonNull Parcel in) {
+                    return new Token(in);
+                }
+
+                @Override
+                public Token[] newArray(int size) {
+                    return new Token[size];
+                }
+            };
 }
@@ -15,6 +15,7 @@ import android.view.inputmethod.InputMethodManager;
 import android.widget.TextView;
 
 import com.stripe.android.ApiResultCallback;
+import com.stripe.android.ApiTask;
 import com.stripe.android.CustomerSession;
 import com.stripe.android.PaymentConfiguration;
 import com.stripe.android.R;
@@ -46,6 +47,7 @@ public class AddPaymentMethodActivity extends StripeActivity {
 
     @Nullable private CardMultilineWidget mCardMultilineWidget;
     @Nullable private Stripe mStripe;
+    @Nullable private ApiTask mCreatePaymentMethodTask;
 
     private boolean mStartedFromPaymentSession;
     private boolean mUpdatesCustomer;
@@ -92,6 +94,15 @@ public class AddPaymentMethodActivity extends StripeActivity {
         setTitle(R.string.title_add_a_card);
     }
 
+    @Override
+    protected void onDestroy() {
+        // the new payment method is only returned to this activity
+        if (mCreatePaymentMethodTask != null) {
+            mCreatePaymentMethodTask.cancel();
+        }
+        super.onDestroy();
+    }
+
     private void initEnterListeners(@NonNull View cardMultilineWidget) {
         final TextView.OnEditorActionListener listener = new OnEditorActionListenerImpl(this,
                 (InputMethodManager) getSystemService(Activity.INPUT_METHOD_SERVICE));
@@ -136,7 +147,7 @@ public class AddPaymentMethodActivity extends StripeActivity {
                 PaymentMethodCreateParams.create(card, billingDetails);
 
         setCommunicatingProgress(true);
-        stripe.createPaymentMethod(paymentMethodCreateParams,
+        mCreatePaymentMethodTask = stripe.createPaymentMethod(paymentMethodCreateParams,
                 new PaymentMethodCallbackImpl(this, mUpdatesCustomer));
     }
 
@@ -156,8 +167,7 @@ public class AddPaymentMethodActivity extends StripeActivity {
 
     private void finishWithPaymentMethod(@NonNull PaymentMethod paymentMethod) {
         setCommunicatingProgress(false);
-        final Intent intent = new Intent().putExtra(EXTRA_NEW_PAYMENT_METHOD,
-                paymentMethod.toJson().toString());
+        final Intent intent = new Intent().putExtra(EXTRA_NEW_PAYMENT_METHOD, paymentMethod);
         setResult(RESULT_OK, intent);
         finish();
     }
@@ -822,6 +822,15 @@ public class CardInputWidget extends LinearLayout {
         }
     }
 
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // a card is about to be tokenized, so open the connection to the API ahead of time
+        if (visibility == View.VISIBLE && isShown() && !isInEditMode()) {
+            ViewUtils.prewarmConnectionIfEnabled();
+        }
+    }
+
     /**
      * Determines whether or not the icon should show the card brand instead of the
      * CVC helper icon.
@@ -216,6 +216,15 @@ public class CardMultilineWidget extends LinearLayout {
         }
     }
 
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // a card is about to be tokenized, so open the connection to the API ahead of time
+        if (visibility == View.VISIBLE && isShown() && !isInEditMode()) {
+            ViewUtils.prewarmConnectionIfEnabled();
+        }
+    }
+
     /**
      * Set an optional CVC field label to override defaults. Set to `null` to use defaults.
      */
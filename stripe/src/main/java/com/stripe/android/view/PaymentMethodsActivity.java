@@ -64,6 +64,8 @@ public class PaymentMethodsActivity extends AppCompatActivity {
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // the customer's payment methods are fetched as soon as the screen is shown
+        ViewUtils.prewarmConnectionIfEnabled();
         setContentView(R.layout.activity_payment_methods);
 
         mProgressBar = findViewById(R.id.payment_methods_progress_bar);
@@ -121,7 +123,7 @@ public class PaymentMethodsActivity extends AppCompatActivity {
 
             if (data.hasExtra(EXTRA_NEW_PAYMENT_METHOD)) {
                 final PaymentMethod paymentMethod =
-                        PaymentMethod.fromString(data.getStringExtra(EXTRA_NEW_PAYMENT_METHOD));
+                        data.getParcelableExtra(EXTRA_NEW_PAYMENT_METHOD);
                 getCustomerPaymentMethods(paymentMethod != null ? paymentMethod.id : null);
             } else {
                 getCustomerPaymentMethods(null);
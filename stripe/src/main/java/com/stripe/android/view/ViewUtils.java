@@ -15,6 +15,7 @@ import android.support.v4.content.ContextCompat;
 import android.support.v4.graphics.drawable.DrawableCompat;
 import android.util.TypedValue;
 
+import com.stripe.android.Stripe;
 import com.stripe.android.model.Card;
 
 import static com.stripe.android.model.Card.CVC_LENGTH_AMERICAN_EXPRESS;
@@ -25,6 +26,16 @@ import static com.stripe.android.model.Card.CVC_LENGTH_COMMON;
  */
 class ViewUtils {
 
+    /**
+     * Open a connection to the Stripe API ahead of a request from a form that is about to be
+     * shown, if the host enabled it with {@link Stripe#setConnectionPrewarmingEnabled(boolean)}.
+     */
+    static void prewarmConnectionIfEnabled() {
+        if (Stripe.isConnectionPrewarmingEnabled()) {
+            Stripe.prewarmConnection();
+        }
+    }
+
     @NonNull
     static TypedValue getThemeAccentColor(@NonNull Context context) {
         @IdRes final int colorAttr;
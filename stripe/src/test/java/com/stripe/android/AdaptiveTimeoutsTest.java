@@ -0,0 +1,135 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveTimeoutsTest {
+    @NonNull private final FakeClock mClock = new FakeClock();
+    @NonNull private final ApiMetrics mApiMetrics = new ApiMetrics(mClock);
+    @NonNull private final AdaptiveTimeouts mAdaptiveTimeouts =
+            new AdaptiveTimeouts(mApiMetrics);
+
+    @Test
+    public void withoutMetrics_usesDefaults() {
+        final AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(null);
+        assertEquals(AdaptiveTimeouts.DEFAULT_CONNECT_TIMEOUT_MS,
+                adaptiveTimeouts.getConnectTimeoutMs());
+        assertEquals(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT_MS,
+                adaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+        assertEquals(AdaptiveTimeouts.NO_HEDGE,
+                adaptiveTimeouts.getHedgeDelayMs(createSourceRequest()));
+    }
+
+    @Test
+    public void withTooFewSamples_usesDefaults() {
+        recordSources(AdaptiveTimeouts.MIN_SAMPLES - 1, 1000);
+        assertEquals(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT_MS,
+                mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+        assertEquals(AdaptiveTimeouts.NO_HEDGE,
+                mAdaptiveTimeouts.getHedgeDelayMs(createSourceRequest()));
+    }
+
+    @Test
+    public void withEnoughSamples_derivesTimeoutsFromPercentiles() {
+        recordSources(AdaptiveTimeouts.MIN_SAMPLES, 5000);
+
+        // 4 * p99, where p99 is rounded up to the end of its histogram bucket
+        final int readTimeoutMs = mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest());
+        assertTrue(readTimeoutMs >= 20000 && readTimeoutMs <= 21250);
+        final long hedgeDelayMs = mAdaptiveTimeouts.getHedgeDelayMs(createSourceRequest());
+        assertTrue(hedgeDelayMs >= 5000 && hedgeDelayMs <= 5312);
+
+        // other endpoints are unaffected
+        assertEquals(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT_MS,
+                mAdaptiveTimeouts.getReadTimeoutMs(createTokenRequest()));
+    }
+
+    @Test
+    public void withEnoughSamples_keepsDefaultsForWrites() {
+        recordSources(AdaptiveTimeouts.MIN_SAMPLES, 100);
+        assertEquals(10000, mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+
+        final StripeRequest createSourceRequest = PooledHttpTransportTest.createRequest(
+                StripeRequest.Method.POST, StripeApiHandler.getSourcesUrl(), "type=card");
+        assertEquals(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT_MS,
+                mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest));
+        assertEquals(AdaptiveTimeouts.NO_HEDGE,
+                mAdaptiveTimeouts.getHedgeDelayMs(createSourceRequest));
+    }
+
+    @Test
+    public void readTimeout_isClamped() {
+        recordSources(AdaptiveTimeouts.MIN_SAMPLES, 100);
+        assertEquals(10000, mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+
+        recordTokens(AdaptiveTimeouts.MIN_SAMPLES, 60000);
+        assertEquals(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT_MS,
+                mAdaptiveTimeouts.getReadTimeoutMs(createTokenRequest()));
+    }
+
+    @Test
+    public void estimate_isRefreshedAfterEnoughNewSamples() {
+        recordSources(AdaptiveTimeouts.MIN_SAMPLES, 100);
+        assertEquals(10000, mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+
+        // a burst of slow responses makes p99 slow, but the estimate is only refreshed every
+        // 16 samples
+        recordSources(15, 10000);
+        assertEquals(10000, mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+        recordSources(1, 10000);
+        final int readTimeoutMs = mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest());
+        assertTrue(readTimeoutMs >= 40000 && readTimeoutMs <= 42500);
+    }
+
+    @Test
+    public void estimate_isKeptAfterMetricsAreReset() {
+        recordSources(AdaptiveTimeouts.MIN_SAMPLES, 100);
+        assertEquals(10000, mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+
+        mApiMetrics.snapshot(true);
+        assertEquals(10000, mAdaptiveTimeouts.getReadTimeoutMs(createSourceRequest()));
+    }
+
+    private void recordSources(int count, long latencyMs) {
+        record(createSourceRequest(), count, latencyMs);
+    }
+
+    private void recordTokens(int count, long latencyMs) {
+        record(createTokenRequest(), count, latencyMs);
+    }
+
+    private void record(@NonNull StripeRequest request, int count, long latencyMs) {
+        for (int i = 0; i < count; i++) {
+            final long startNanos = mApiMetrics.nanoTime();
+            mClock.mNanos += TimeUnit.MILLISECONDS.toNanos(latencyMs);
+            mApiMetrics.record(request, startNanos, false, new StripeResponse(200, null, null));
+        }
+    }
+
+    @NonNull
+    private static StripeRequest createSourceRequest() {
+        return PooledHttpTransportTest.createRequest(StripeRequest.Method.GET,
+                StripeApiHandler.getRetrieveSourceApiUrl("src_123"), null);
+    }
+
+    @NonNull
+    private static StripeRequest createTokenRequest() {
+        return PooledHttpTransportTest.createRequest(StripeRequest.Method.GET,
+                StripeApiHandler.getRetrieveTokenApiUrl("tok_123"), null);
+    }
+
+    private static final class FakeClock implements Clock {
+        private long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsDispatcherTest {
+    private static final int CAPACITY = 5;
+    private static final int BATCH_SIZE = 2;
+    private static final long FLUSH_DELAY_MS = 500;
+
+    @Rule public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private FakeTransport mTransport;
+    private QueueScheduledExecutor mExecutor;
+    private CircuitBreaker mCircuitBreaker;
+
+    @Before
+    public void setup() {
+        mTransport = new FakeTransport();
+        mExecutor = new QueueScheduledExecutor();
+        mCircuitBreaker = new CircuitBreaker();
+    }
+
+    @After
+    public void teardown() {
+        AnalyticsDispatcher.setDefaultDropPolicy(AnalyticsDropPolicy.DROP_OLDEST);
+    }
+
+    @Test
+    public void enqueue_doesNotSendOnCallingThread() {
+        final AnalyticsDispatcher dispatcher = createDispatcher(
+                AnalyticsDropPolicy.DROP_OLDEST);
+        assertTrue(dispatcher.enqueue(createRequest("1")));
+
+        assertEquals(0, mTransport.mUrls.size());
+        assertEquals(1, dispatcher.getQueueSize());
+    }
+
+    @Test
+    public void enqueue_schedulesOneDelayedFlushPerBatch() {
+        final AnalyticsDispatcher dispatcher = createDispatcher(
+                AnalyticsDropPolicy.DROP_OLDEST);
+        dispatcher.enqueue(createRequest("1"));
+        dispatcher.enqueue(createRequest("2"));
+
+        assertEquals(1, mExecutor.mTasks.size());
+        assertEquals(FLUSH_DELAY_MS, (long) mExecutor.mDelaysMs.get(0));
+    }
+
+    @Test
+    public void flush_sendsInOrderAndReschedulesUntilQueueIsEmpty() {
+        final AnalyticsDispatcher dispatcher = createDispatcher(
+                AnalyticsDropPolicy.DROP_OLDEST);
+        dispatcher.enqueue(createRequest("1"));
+        dispatcher.enqueue(createRequest("2"));
+        dispatcher.enqueue(createRequest("3"));
+
+        mExecutor.runNext();
+        assertEquals(BATCH_SIZE, mTransport.mUrls.size());
+        assertEquals(1, mExecutor.mTasks.size());
+
+        mExecutor.runNext();
+        assertEquals(3, mTransport.mUrls.size());
+        assertEquals(0, mExecutor.mTasks.size());
+        assertEquals(0, dispatcher.getQueueSize());
+        assertEquals(createUrl("1"), mTransport.mUrls.get(0));
+        assertEquals(createUrl("3"), mTransport.mUrls.get(2));
+
+        // the next request starts a new batch
+        dispatcher.enqueue(createRequest("4"));
+        assertEquals(1, mExecutor.mTasks.size());
+    }
+
+    @Test
+    public void flush_whenRequestIsRejected_continuesWithBatch() {
+        final AnalyticsDispatcher dispatcher = createDispatcher(
+                AnalyticsDropPolicy.DROP_OLDEST);
+        mTransport.mShouldReject = true;
+        dispatcher.enqueue(createRequest("1"));
+        dispatcher.enqueue(createRequest("2"));
+
+        mExecutor.runNext();
+        assertEquals(2, mTransport.mUrls.size());
+        assertEquals(0, dispatcher.getQueueSize());
+    }
+
+    @Test
+    public void enqueue_whenFullWithDropOldest_discardsOldestRequest() {
+        final AnalyticsDispatcher dispatcher = createDispatcher(
+                AnalyticsDropPolicy.DROP_OLDEST);
+        for (int i = 0; i < CAPACITY + 1; i++) {
+            assertTrue(dispatcher.enqueue(createRequest(String.valueOf(i))));
+        }
+        assertEquals(CAPACITY, dispatcher.getQueueSize());
+        assertEquals(1, dispatcher.getDroppedCount());
+
+        mExecutor.runNext();
+        assertEquals(createUrl("1"), mTransport.mUrls.get(0));
+    }
+
+    @Test
+    public void enqueue_whenFullWithDropNewest_rejectsNewRequest() {
+        final AnalyticsDispatcher dispatcher = createDispatcher(
+                AnalyticsDropPolicy.DROP_NEWEST);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(dispatcher.enqueue(createRequest(String.valueOf(i))));
+        }
+        assertFalse(dispatcher.enqueue(createRequest("new")));
+        assertEquals(CAPACITY, dispatcher.getQueueSize());
+        assertEquals(1, dispatcher.getDroppedCount());
+
+        mExecutor.runNext();
+        assertEquals(createUrl("0"), mTransport.mUrls.get(0));
+    }
+
+    @Test
+    public void enqueue_withoutOwnPolicy_followsDefaultDropPolicy() {
+        final AnalyticsDispatcher dispatcher = createDispatcher((AnalyticsDropPolicy) null);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(dispatcher.enqueue(createRequest(String.valueOf(i))));
+        }
+        assertTrue(dispatcher.enqueue(createRequest("new")));
+
+        AnalyticsDispatcher.setDefaultDropPolicy(AnalyticsDropPolicy.DROP_NEWEST);
+        assertFalse(dispatcher.enqueue(createRequest("newest")));
+        assertEquals(2, dispatcher.getDroppedCount());
+
+        mExecutor.runNext();
+        assertEquals(createUrl("1"), mTransport.mUrls.get(0));
+    }
+
+    @Test
+    public void flush_whenOffline_storesRemainingRequestsOnDisk() throws IOException {
+        final SegmentedFileQueue diskQueue = createDiskQueue();
+        final AnalyticsDispatcher dispatcher = createDispatcher(diskQueue);
+        mExecutor.runNext();
+
+        mTransport.mShouldFail = true;
+        dispatcher.enqueue(createRequest("1"));
+        dispatcher.enqueue(createRequest("2"));
+        mExecutor.runNext();
+
+        // the second request is not attempted once the first fails
+        assertEquals(1, mTransport.mUrls.size());
+        final SegmentedFileQueue.Segment segment = diskQueue.claimOldest();
+        assertNotNull(segment);
+        assertEquals(2, segment.getRecords().size());
+    }
+
+    @Test
+    public void flush_whenBackOnline_replaysStoredRequestsInBatches() throws IOException {
+        final SegmentedFileQueue diskQueue = createDiskQueue();
+        final AnalyticsDispatcher dispatcher = createDispatcher(diskQueue);
+        mExecutor.runNext();
+
+        mTransport.mShouldFail = true;
+        dispatcher.enqueue(createRequest("1"));
+        dispatcher.enqueue(createRequest("2"));
+        mExecutor.runNext();
+        dispatcher.enqueue(createRequest("3"));
+        mExecutor.runNext();
+        mTransport.mUrls.clear();
+
+        mTransport.mShouldFail = false;
+        dispatcher.enqueue(createRequest("4"));
+        while (!mExecutor.mTasks.isEmpty()) {
+            mExecutor.runNext();
+        }
+
+        assertEquals(Arrays.asList(createUrl("4"), createUrl("1"), createUrl("2"),
+                createUrl("3")), mTransport.mUrls);
+        assertTrue(diskQueue.isEmpty());
+    }
+
+    @Test
+    public void flush_whenCircuitIsOpen_storesRequestsWithoutSending() throws IOException {
+        final SegmentedFileQueue diskQueue = createDiskQueue();
+        final AnalyticsDispatcher dispatcher = createDispatcher(diskQueue);
+        mExecutor.runNext();
+
+        mTransport.mShouldFail = true;
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            dispatcher.enqueue(createRequest(String.valueOf(i)));
+            mExecutor.runNext();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getState("q.stripe.com"));
+
+        mTransport.mUrls.clear();
+        dispatcher.enqueue(createRequest("3"));
+        dispatcher.enqueue(createRequest("4"));
+        mExecutor.runNext();
+
+        assertEquals(0, mTransport.mUrls.size());
+        int storedCount = 0;
+        SegmentedFileQueue.Segment segment;
+        while ((segment = diskQueue.claimOldest()) != null) {
+            storedCount += segment.getRecords().size();
+            diskQueue.complete(segment);
+        }
+        assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD + 2, storedCount);
+    }
+
+    @Test
+    public void create_withStoredRequests_replaysThemFromPreviousSession()
+            throws IOException, InvalidRequestException {
+        final SegmentedFileQueue diskQueue = createDiskQueue();
+        diskQueue.append(StoredRequest.create(createRequest("1")).toBytes());
+
+        createDispatcher(diskQueue);
+        assertEquals(1, mExecutor.mTasks.size());
+        mExecutor.runNext();
+
+        assertEquals(Arrays.asList(createUrl("1")), mTransport.mUrls);
+        assertTrue(diskQueue.isEmpty());
+    }
+
+    @NonNull
+    private SegmentedFileQueue createDiskQueue() throws IOException {
+        return new SegmentedFileQueue(mTemporaryFolder.newFolder(), 1024, 4096);
+    }
+
+    @NonNull
+    private AnalyticsDispatcher createDispatcher(@NonNull SegmentedFileQueue diskQueue) {
+        return new AnalyticsDispatcher(new RequestExecutor(mTransport), mExecutor, diskQueue,
+                AnalyticsDropPolicy.DROP_OLDEST, mCircuitBreaker, CAPACITY,
+                BATCH_SIZE, FLUSH_DELAY_MS);
+    }
+
+    @NonNull
+    private AnalyticsDispatcher createDispatcher(@Nullable AnalyticsDropPolicy policy) {
+        return new AnalyticsDispatcher(new RequestExecutor(mTransport), mExecutor, null, policy,
+                mCircuitBreaker, CAPACITY, BATCH_SIZE, FLUSH_DELAY_MS);
+    }
+
+    @NonNull
+    private static StripeRequest createRequest(@NonNull String id) {
+        return PooledHttpTransportTest.createRequest(StripeRequest.Method.GET, createUrl(id),
+                null);
+    }
+
+    @NonNull
+    private static String createUrl(@NonNull String id) {
+        return "https://q.stripe.com/?event=" + id;
+    }
+
+    private static final class FakeTransport implements HttpTransport {
+        @NonNull private final List<String> mUrls = new ArrayList<>();
+        private boolean mShouldFail;
+        private boolean mShouldReject;
+
+        @NonNull
+        @Override
+        public StripeResponse execute(@NonNull StripeRequest request,
+                                      @NonNull RequestEvents events)
+                throws IOException, InvalidRequestException {
+            mUrls.add(request.getUrl());
+            if (mShouldFail) {
+                throw new IOException("failed");
+            }
+            if (mShouldReject) {
+                throw new InvalidRequestException("rejected", null, null, 400, null, null,
+                        null, null);
+            }
+            return new StripeResponse(200, null, null);
+        }
+    }
+
+    /**
+     * Holds scheduled tasks until the test runs them.
+     */
+    private static final class QueueScheduledExecutor extends ScheduledThreadPoolExecutor {
+        @NonNull private final List<Runnable> mTasks = new ArrayList<>();
+        @NonNull private final List<Long> mDelaysMs = new ArrayList<>();
+
+        private QueueScheduledExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(@NonNull Runnable command, long delay,
+                                           @NonNull TimeUnit unit) {
+            mTasks.add(command);
+            mDelaysMs.add(unit.toMillis(delay));
+            return null;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mTasks.add(command);
+            mDelaysMs.add(0L);
+        }
+
+        private void runNext() {
+            mDelaysMs.remove(0);
+            mTasks.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+
+public class ApiMetricsTest {
+    @NonNull private final FakeClock mClock = new FakeClock();
+    @NonNull private final ApiMetrics mApiMetrics = new ApiMetrics(mClock);
+
+    @Test
+    public void getEndpointIndex_matchesFirstPathSegment() {
+        assertEndpoint("tokens", StripeApiHandler.getTokensUrl());
+        assertEndpoint("sources", StripeApiHandler.getRetrieveSourceApiUrl("src_123"));
+        assertEndpoint("payment_methods", StripeApiHandler.getPaymentMethodsUrl());
+        assertEndpoint("payment_intents",
+                StripeApiHandler.getConfirmPaymentIntentUrl("pi_123"));
+        assertEndpoint("customers", StripeApiHandler.getAddCustomerSourceUrl("cus_123"));
+        assertEndpoint("issuing", StripeApiHandler.getIssuingCardPinUrl("ic_123"));
+        assertEndpoint("3ds2", "https://api.stripe.com/v1/3ds2/authenticate");
+        assertEndpoint("tokens", "https://api.stripe.com/v1/tokens?card=1");
+
+        assertEndpoint(ApiMetrics.ENDPOINT_OTHER, "https://api.stripe.com/v1/tokens_v2");
+        assertEndpoint(ApiMetrics.ENDPOINT_OTHER, "https://api.stripe.com/v1/charges");
+        assertEndpoint(ApiMetrics.ENDPOINT_OTHER, "https://m.stripe.com/4");
+    }
+
+    @Test
+    public void record_countsOutcomesAndLatency() {
+        record(StripeApiHandler.getTokensUrl(), 100, false, new StripeResponse(200, null, null));
+        record(StripeApiHandler.getTokensUrl(), 200, false, new StripeResponse(402, null, null));
+        record(StripeApiHandler.getTokensUrl(), 300, true, new StripeResponse(503, null, null));
+        record(StripeApiHandler.getTokensUrl(), 400, true, null);
+        record(StripeApiHandler.getSourcesUrl(), 500, false, new StripeResponse(200, null, null));
+
+        final ApiMetricsSnapshot snapshot = mApiMetrics.snapshot(false);
+        final ApiMetricsSnapshot.Endpoint tokens =
+                Objects.requireNonNull(snapshot.getEndpoint("tokens"));
+        assertEquals(4, tokens.getRequestCount());
+        assertEquals(1, tokens.getSuccessCount());
+        assertEquals(1, tokens.getClientErrorCount());
+        assertEquals(1, tokens.getServerErrorCount());
+        assertEquals(1, tokens.getConnectionFailureCount());
+        assertEquals(2, tokens.getRetryCount());
+        assertEquals(250, tokens.getMeanLatencyNanos());
+        assertEquals(400, tokens.getMaxLatencyNanos());
+
+        final ApiMetricsSnapshot.Endpoint sources =
+                Objects.requireNonNull(snapshot.getEndpoint("sources"));
+        assertEquals(1, sources.getRequestCount());
+        assertEquals(500, sources.getMaxLatencyNanos());
+        assertEquals(8, snapshot.getEndpoints().size());
+    }
+
+    @Test
+    public void snapshot_withReset_startsNewInterval() {
+        mClock.mNanos = 1000;
+        record(StripeApiHandler.getTokensUrl(), 100, false, new StripeResponse(200, null, null));
+
+        final ApiMetricsSnapshot first = mApiMetrics.snapshot(true);
+        assertEquals(1100, first.getIntervalNanos());
+        assertEquals(1, Objects.requireNonNull(first.getEndpoint("tokens")).getRequestCount());
+
+        record(StripeApiHandler.getTokensUrl(), 50, false, new StripeResponse(200, null, null));
+        final ApiMetricsSnapshot second = mApiMetrics.snapshot(false);
+        assertEquals(50, second.getIntervalNanos());
+        final ApiMetricsSnapshot.Endpoint tokens =
+                Objects.requireNonNull(second.getEndpoint("tokens"));
+        assertEquals(1, tokens.getRequestCount());
+        assertEquals(50, tokens.getMaxLatencyNanos());
+    }
+
+    @Test
+    public void recordTlsHandshake_countsResumedHandshakes() {
+        mApiMetrics.recordTlsHandshake(false);
+        mApiMetrics.recordTlsHandshake(true);
+        mApiMetrics.recordTlsHandshake(true);
+        mApiMetrics.recordTlsHandshake(true);
+
+        final ApiMetricsSnapshot first = mApiMetrics.snapshot(true);
+        assertEquals(4, first.getTlsHandshakeCount());
+        assertEquals(3, first.getResumedTlsHandshakeCount());
+        assertEquals(0.75, first.getTlsResumptionRate(), 0);
+
+        final ApiMetricsSnapshot second = mApiMetrics.snapshot(false);
+        assertEquals(0, second.getTlsHandshakeCount());
+        assertEquals(0, second.getTlsResumptionRate(), 0);
+    }
+
+    private void record(@NonNull String url, long latencyNanos, boolean isRetry,
+                        @Nullable StripeResponse response) {
+        final long startNanos = mApiMetrics.nanoTime();
+        mClock.mNanos += latencyNanos;
+        mApiMetrics.record(PooledHttpTransportTest.createRequest(StripeRequest.Method.GET, url,
+                null), startNanos, isRetry, response);
+    }
+
+    private static void assertEndpoint(@NonNull String endpoint, @NonNull String url) {
+        assertEquals(endpoint, ApiMetrics.getEndpointName(ApiMetrics.getEndpointIndex(url)));
+    }
+
+    private static final class FakeClock implements Clock {
+        private long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+}
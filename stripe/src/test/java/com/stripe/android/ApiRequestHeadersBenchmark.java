@@ -0,0 +1,55 @@
+package com.stripe.android;
+
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+/**
+ * Compares the headers of a request with new {@link ApiRequest.Options}, as
+ * {@link StripeApiHandler} creates for every call, with building every header per request as
+ * {@link ApiRequest} used to, and writes the throughput and allocation of each to a
+ * {@link BenchmarkReports} file. Only runs with {@code -Pbenchmark}; that both give the same
+ * headers is tested by {@link ApiRequestTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ApiRequestHeadersBenchmark {
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile Map<String, String> mSink;
+
+    @Test
+    public void getHeaders() throws Exception {
+        final LoadDriver.Report previousReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = ApiRequestTest.createPreviousHeaders(ApiRequest.Options.create(
+                                ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_123"));
+                    }
+                })
+                .run();
+        final LoadDriver.Report sharedReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = ApiRequest.createGet(StripeApiHandler.getSourcesUrl(),
+                                ApiRequest.Options.create(
+                                        ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_123"))
+                                .getHeaders();
+                    }
+                })
+                .run();
+
+        BenchmarkReports.write("ApiRequestHeadersBenchmark_getHeaders",
+                "each op creates new options",
+                "headers built per request: " + previousReport,
+                "headers shared by equal options: " + sharedReport);
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.Test;
 import org.junit.function.ThrowingRunnable;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThrows;
 
 public class ApiRequestOptionsTest {
@@ -16,6 +18,15 @@ public class ApiRequestOptionsTest {
         assertEquals("account", opts.stripeAccount);
     }
 
+    @Test
+    public void testCreate_withoutCompression_doesNotCompressRequest() {
+        assertFalse(ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY)
+                .compressRequest);
+        assertNotEquals(
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, null, true),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, null, false));
+    }
+
     @Test
     public void testCreate_withSecretKey_throwsException() {
         assertThrows(IllegalArgumentException.class,
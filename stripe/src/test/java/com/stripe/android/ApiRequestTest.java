@@ -1,6 +1,7 @@
 package com.stripe.android;
 
 import android.os.Build;
+import android.support.annotation.NonNull;
 
 import androidx.test.core.app.ApplicationProvider;
 
@@ -10,9 +11,11 @@ import com.stripe.android.model.CardFixtures;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.AbstractMap;
 import java.util.HashMap;
@@ -23,7 +26,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
@@ -88,6 +94,44 @@ public class ApiRequestTest {
         assertEquals("UTF-8", headerMap.get("Accept-Charset"));
     }
 
+    @Test
+    public void getHeaders_withSameOptions_returnsSameUnmodifiableMap() {
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_123");
+        final Map<String, String> headers =
+                ApiRequest.createGet(StripeApiHandler.getSourcesUrl(), options).getHeaders();
+        assertSame(headers,
+                ApiRequest.createGet(StripeApiHandler.getTokensUrl(), options).getHeaders());
+
+        assertThrows(UnsupportedOperationException.class, new ThrowingRunnable() {
+            @Override
+            public void run() {
+                headers.put("Authorization", "Bearer pk_test_other");
+            }
+        });
+    }
+
+    @Test
+    public void getHeaders_matchesPreviousHeaders() {
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_123");
+        assertEquals(createPreviousHeaders(options),
+                ApiRequest.createGet(StripeApiHandler.getSourcesUrl(), options).getHeaders());
+    }
+
+    @Test
+    public void getHeaders_withEqualOptions_sharesHeaders() {
+        final Map<String, String> headers = ApiRequest.Options
+                .create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_123").getHeaders();
+
+        assertSame(headers, ApiRequest.Options
+                .create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_123").getHeaders());
+        assertNotSame(headers, ApiRequest.Options
+                .create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, "acct_456").getHeaders());
+        assertNotSame(headers,
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY).getHeaders());
+    }
+
     @Test
     public void createQuery_withCardData_createsProperQueryString()
             throws UnsupportedEncodingException, InvalidRequestException {
@@ -132,6 +176,54 @@ public class ApiRequestTest {
         assertEquals(16, output.length);
     }
 
+    @Test
+    public void getOutputBytes_withCompressRequest_gzipsBody()
+            throws IOException, InvalidRequestException {
+        final Map<String, String> params = new HashMap<>();
+        params.put("customer", "cus_123");
+
+        final ApiRequest request = ApiRequest.createPost(StripeApiHandler.getPaymentMethodsUrl(),
+                params,
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, null, true));
+        assertEquals("gzip", request.getHeaders().get("Content-Encoding"));
+        assertEquals("customer=cus_123",
+                new String(GzipUtils.decompress(request.getOutputBytes()), "UTF-8"));
+    }
+
+    @Test
+    public void getHeaders_withCompressRequestOnGet_doesNotSetContentEncoding() {
+        final Map<String, String> headers = ApiRequest.createGet(
+                StripeApiHandler.getPaymentMethodsUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, null, true))
+                .getHeaders();
+        assertNull(headers.get("Content-Encoding"));
+    }
+
+    @Test
+    public void getHeaders_onPost_addsIdempotencyKeyThatIsStableForRequest() {
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY);
+        final ApiRequest request =
+                ApiRequest.createPost(StripeApiHandler.getSourcesUrl(), options);
+        final String idempotencyKey = request.getHeaders().get("Idempotency-Key");
+        assertNotNull(idempotencyKey);
+        assertEquals(idempotencyKey, request.getHeaders().get("Idempotency-Key"));
+        assertNotEquals(idempotencyKey,
+                ApiRequest.createPost(StripeApiHandler.getSourcesUrl(), options)
+                        .getHeaders().get("Idempotency-Key"));
+
+        final Map<String, String> expectedHeaders = new HashMap<>(options.getHeaders());
+        expectedHeaders.put("Idempotency-Key", idempotencyKey);
+        assertEquals(expectedHeaders, request.getHeaders());
+    }
+
+    @Test
+    public void getHeaders_onGet_doesNotAddIdempotencyKey() {
+        assertFalse(ApiRequest.createGet(StripeApiHandler.getSourcesUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY))
+                .getHeaders().containsKey("Idempotency-Key"));
+    }
+
     @Test
     public void testEquals() {
         final Map<String, String> params = new HashMap<>();
@@ -155,4 +247,36 @@ public class ApiRequestTest {
                                 "acct"))
         );
     }
+
+    /**
+     * The headers as {@link ApiRequest#getHeaders()} built them for every request before they
+     * were precomputed.
+     */
+    @NonNull
+    static Map<String, String> createPreviousHeaders(
+            @NonNull ApiRequest.Options options) {
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Accept-Charset", "UTF-8");
+        headers.put("Accept", "application/json");
+        headers.put("User-Agent",
+                String.format(Locale.ROOT, "Stripe/v1 AndroidBindings/%s",
+                        BuildConfig.VERSION_NAME));
+
+        final AbstractMap<String, String> propertyMap = new HashMap<>();
+        propertyMap.put("java.version", System.getProperty("java.version"));
+        propertyMap.put("os.name", "android");
+        propertyMap.put("os.version", String.valueOf(Build.VERSION.SDK_INT));
+        propertyMap.put("bindings.version", BuildConfig.VERSION_NAME);
+        propertyMap.put("lang", "Java");
+        propertyMap.put("publisher", "Stripe");
+
+        headers.put("X-Stripe-Client-User-Agent", new JSONObject(propertyMap).toString());
+        headers.put("Stripe-Version", ApiVersion.getDefault().getCode());
+        headers.put("Authorization", String.format(Locale.ENGLISH,
+                "Bearer %s", options.apiKey));
+        if (options.stripeAccount != null) {
+            headers.put("Stripe-Account", options.stripeAccount);
+        }
+        return headers;
+    }
 }
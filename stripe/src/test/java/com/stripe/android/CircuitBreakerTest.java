@@ -0,0 +1,110 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private static final String HOST = "q.stripe.com";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long COOL_DOWN_MS = 1000;
+    private static final long MAX_COOL_DOWN_MS = 3000;
+
+    @NonNull private final FakeClock mClock = new FakeClock();
+    @NonNull private final CircuitBreaker mCircuitBreaker =
+            new CircuitBreaker(mClock, FAILURE_THRESHOLD, COOL_DOWN_MS, MAX_COOL_DOWN_MS);
+
+    @Test
+    public void afterFailureThreshold_opensCircuit() {
+        fail(FAILURE_THRESHOLD - 1);
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getState(HOST));
+        assertTrue(mCircuitBreaker.allowRequest(HOST));
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getState(HOST));
+        assertFalse(mCircuitBreaker.allowRequest(HOST));
+
+        // other hosts are unaffected
+        assertTrue(mCircuitBreaker.allowRequest("m.stripe.com"));
+    }
+
+    @Test
+    public void success_resetsFailureCount() {
+        fail(FAILURE_THRESHOLD - 1);
+        mCircuitBreaker.onSuccess(HOST);
+        fail(FAILURE_THRESHOLD - 1);
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getState(HOST));
+    }
+
+    @Test
+    public void afterCoolDown_allowsSingleProbe() {
+        fail(FAILURE_THRESHOLD);
+        advance(COOL_DOWN_MS - 1);
+        assertFalse(mCircuitBreaker.allowRequest(HOST));
+
+        advance(1);
+        assertTrue(mCircuitBreaker.allowRequest(HOST));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mCircuitBreaker.getState(HOST));
+        assertFalse(mCircuitBreaker.allowRequest(HOST));
+
+        mCircuitBreaker.onSuccess(HOST);
+        assertEquals(CircuitBreaker.State.CLOSED, mCircuitBreaker.getState(HOST));
+        assertTrue(mCircuitBreaker.allowRequest(HOST));
+    }
+
+    @Test
+    public void failedProbe_reopensWithLongerCoolDown() {
+        fail(FAILURE_THRESHOLD);
+        advance(COOL_DOWN_MS);
+        assertTrue(mCircuitBreaker.allowRequest(HOST));
+        mCircuitBreaker.onFailure(HOST);
+        assertEquals(CircuitBreaker.State.OPEN, mCircuitBreaker.getState(HOST));
+
+        advance(COOL_DOWN_MS);
+        assertFalse(mCircuitBreaker.allowRequest(HOST));
+        advance(COOL_DOWN_MS);
+        assertTrue(mCircuitBreaker.allowRequest(HOST));
+
+        // the cool-down doubles up to the maximum
+        mCircuitBreaker.onFailure(HOST);
+        advance(MAX_COOL_DOWN_MS - 1);
+        assertFalse(mCircuitBreaker.allowRequest(HOST));
+        advance(1);
+        assertTrue(mCircuitBreaker.allowRequest(HOST));
+    }
+
+    @Test
+    public void getHost_extractsHost() {
+        assertEquals("q.stripe.com", CircuitBreaker.getHost("https://q.stripe.com?event=1"));
+        assertEquals("m.stripe.com", CircuitBreaker.getHost("https://m.stripe.com/4"));
+        assertEquals("127.0.0.1", CircuitBreaker.getHost("http://127.0.0.1:8080/v1/tokens"));
+        assertNull(CircuitBreaker.getHost("q.stripe.com"));
+    }
+
+    private void fail(int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(mCircuitBreaker.allowRequest(HOST));
+            mCircuitBreaker.onFailure(HOST);
+        }
+    }
+
+    private void advance(long ms) {
+        mClock.mNanos += TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    private static final class FakeClock implements Clock {
+        private long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.testharness.TestHttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionPoolTest {
+    private TestHttpServer mServer;
+    private HttpConnection.Address mAddress;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new TestHttpServer();
+        mAddress = HttpConnection.Address.create(new URL(mServer.getUrl("/")));
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Test
+    public void acquire_withNoIdleConnections_returnsNull() {
+        assertNull(new ConnectionPool().acquire(mAddress));
+    }
+
+    @Test
+    public void release_thenAcquire_returnsSameConnection() throws IOException {
+        final ConnectionPool connectionPool = new ConnectionPool();
+        final HttpConnection connection = openConnection();
+        connectionPool.release(connection);
+
+        assertEquals(1, connectionPool.getIdleConnectionCount());
+        assertSame(connection, connectionPool.acquire(mAddress));
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void acquire_afterKeepAliveDuration_evictsConnection() throws IOException {
+        final ConnectionPool connectionPool = new ConnectionPool(5, 0);
+        final HttpConnection connection = openConnection();
+        connectionPool.release(connection);
+
+        assertNull(connectionPool.acquire(mAddress));
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+        assertFalse(connection.isReusable());
+    }
+
+    @Test
+    public void hasIdleConnection_reflectsIdleConnections() throws IOException {
+        final ConnectionPool connectionPool = new ConnectionPool();
+        assertFalse(connectionPool.hasIdleConnection(mAddress));
+
+        final HttpConnection connection = openConnection();
+        connectionPool.release(connection);
+        assertTrue(connectionPool.hasIdleConnection(mAddress));
+
+        connectionPool.acquire(mAddress);
+        assertFalse(connectionPool.hasIdleConnection(mAddress));
+        connection.close();
+    }
+
+    @Test
+    public void release_beyondMaxIdleConnections_closesLeastRecentlyUsed() throws IOException {
+        final ConnectionPool connectionPool = new ConnectionPool(1, 60_000);
+        final HttpConnection first = openConnection();
+        final HttpConnection second = openConnection();
+        connectionPool.release(first);
+        connectionPool.release(second);
+
+        assertEquals(1, connectionPool.getIdleConnectionCount());
+        assertFalse(first.isReusable());
+        assertTrue(second.isReusable());
+    }
+
+    @Test
+    public void release_withClosedConnection_doesNotPool() throws IOException {
+        final ConnectionPool connectionPool = new ConnectionPool();
+        final HttpConnection connection = openConnection();
+        connection.close();
+        connectionPool.release(connection);
+
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void evictAll_closesIdleConnections() throws IOException {
+        final ConnectionPool connectionPool = new ConnectionPool();
+        final HttpConnection connection = openConnection();
+        connectionPool.release(connection);
+        connectionPool.evictAll();
+
+        assertEquals(0, connectionPool.getIdleConnectionCount());
+        assertFalse(connection.isReusable());
+    }
+
+    @NonNull
+    private HttpConnection openConnection() throws IOException {
+        final HostnameVerifier hostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        return HttpConnection.open(mAddress, 1000, 1000, DnsResolver.SYSTEM,
+                new StripeSSLSocketFactory(), hostnameVerifier, RequestEvents.NONE);
+    }
+}
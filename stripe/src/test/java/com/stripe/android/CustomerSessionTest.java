@@ -47,7 +47,6 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static com.stripe.android.PaymentSession.PAYMENT_SESSION_CONFIG;
@@ -174,7 +173,7 @@ public class CustomerSessionTest extends BaseViewTest<PaymentFlowActivity> {
 
     @Mock private BroadcastReceiver mBroadcastReceiver;
     @Mock private StripeApiHandler mApiHandler;
-    @Mock private ThreadPoolExecutor mThreadPoolExecutor;
+    @Mock private StripeExecutor mStripeExecutor;
 
     @Captor private ArgumentCaptor<List<String>> mListArgumentCaptor;
     @Captor private ArgumentCaptor<Source> mSourceArgumentCaptor;
@@ -283,10 +282,11 @@ public class CustomerSessionTest extends BaseViewTest<PaymentFlowActivity> {
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) {
-                invocation.<Runnable>getArgument(0).run();
+                invocation.<Runnable>getArgument(2).run();
                 return null;
             }
-        }).when(mThreadPoolExecutor).execute(any(Runnable.class));
+        }).when(mStripeExecutor).execute(any(StripeExecutor.Priority.class), any(),
+                any(Runnable.class));
     }
 
     @Test(expected = IllegalStateException.class)
@@ -1119,6 +1119,6 @@ public class CustomerSessionTest extends BaseViewTest<PaymentFlowActivity> {
     @NonNull
     private CustomerSession createCustomerSession(@Nullable Calendar calendar) {
         return new CustomerSession(ApplicationProvider.getApplicationContext(),
-                mEphemeralKeyProvider, calendar, mThreadPoolExecutor, mApiHandler);
+                mEphemeralKeyProvider, calendar, mStripeExecutor, mApiHandler);
     }
 }
@@ -0,0 +1,222 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DnsCacheTest {
+    private static final String HOST = "api.stripe.com";
+    private static final long TTL_MS = 1000;
+    private static final long NEGATIVE_TTL_MS = 100;
+    private static final long STALE_TTL_MS = 5000;
+
+    private FakeResolver mResolver;
+    private FakeClock mClock;
+    private QueueExecutor mRefreshExecutor;
+    private DnsCache mDnsCache;
+
+    @Before
+    public void setup() throws UnknownHostException {
+        mResolver = new FakeResolver();
+        mResolver.mAddresses = new InetAddress[] {
+                InetAddress.getByAddress(HOST, new byte[] {10, 0, 0, 1})
+        };
+        mClock = new FakeClock();
+        mRefreshExecutor = new QueueExecutor();
+        mDnsCache = new DnsCache(mResolver, mRefreshExecutor, mClock,
+                TTL_MS, NEGATIVE_TTL_MS, STALE_TTL_MS);
+    }
+
+    @Test
+    public void lookup_withinTtl_resolvesOnce() throws UnknownHostException {
+        final InetAddress[] first = mDnsCache.lookup(HOST);
+        mClock.advance(TTL_MS - 1);
+        final InetAddress[] second = mDnsCache.lookup(HOST);
+
+        assertArrayEquals(first, second);
+        assertEquals(1, mResolver.mLookupCount);
+    }
+
+    @Test
+    public void lookup_isCaseInsensitive() throws UnknownHostException {
+        mDnsCache.lookup(HOST);
+        mDnsCache.lookup("API.stripe.com");
+        assertEquals(1, mResolver.mLookupCount);
+    }
+
+    @Test
+    public void lookup_afterTtl_servesStaleAddressesAndRefreshesInBackground()
+            throws UnknownHostException {
+        final InetAddress[] first = mDnsCache.lookup(HOST);
+        mClock.advance(TTL_MS);
+
+        final InetAddress[] refreshed = new InetAddress[] {
+                InetAddress.getByAddress(HOST, new byte[] {10, 0, 0, 2})
+        };
+        mResolver.mAddresses = refreshed;
+
+        // stale addresses are returned without waiting for a lookup
+        assertArrayEquals(first, mDnsCache.lookup(HOST));
+        assertArrayEquals(first, mDnsCache.lookup(HOST));
+        assertEquals(1, mResolver.mLookupCount);
+        // only a single refresh is scheduled
+        assertEquals(1, mRefreshExecutor.mTasks.size());
+
+        mRefreshExecutor.runAll();
+        assertEquals(2, mResolver.mLookupCount);
+        assertArrayEquals(refreshed, mDnsCache.lookup(HOST));
+    }
+
+    @Test
+    public void lookup_whenRefreshFails_keepsServingStaleAddresses() throws UnknownHostException {
+        final InetAddress[] first = mDnsCache.lookup(HOST);
+        mClock.advance(TTL_MS);
+        mResolver.mAddresses = null;
+
+        assertArrayEquals(first, mDnsCache.lookup(HOST));
+        mRefreshExecutor.runAll();
+        assertArrayEquals(first, mDnsCache.lookup(HOST));
+        // the failed refresh is retried on the next lookup
+        assertEquals(2, mRefreshExecutor.mTasks.size());
+    }
+
+    @Test
+    public void lookup_afterStaleTtl_resolvesSynchronously() throws UnknownHostException {
+        mDnsCache.lookup(HOST);
+        mClock.advance(TTL_MS + STALE_TTL_MS);
+        mDnsCache.lookup(HOST);
+
+        assertEquals(2, mResolver.mLookupCount);
+        assertEquals(0, mRefreshExecutor.mTasks.size());
+    }
+
+    @Test
+    public void lookup_withUnknownHost_cachesFailureForNegativeTtl()
+            throws UnknownHostException {
+        mResolver.mAddresses = null;
+        final ThrowingRunnable lookup = new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                mDnsCache.lookup(HOST);
+            }
+        };
+
+        assertThrows(UnknownHostException.class, lookup);
+        assertThrows(UnknownHostException.class, lookup);
+        assertEquals(1, mResolver.mLookupCount);
+
+        mClock.advance(NEGATIVE_TTL_MS);
+        mResolver.mAddresses = new InetAddress[] {
+                InetAddress.getByAddress(HOST, new byte[] {10, 0, 0, 3})
+        };
+        assertEquals(1, mDnsCache.lookup(HOST).length);
+        assertEquals(2, mResolver.mLookupCount);
+    }
+
+    @Test
+    public void clear_removesCachedLookups() throws UnknownHostException {
+        mDnsCache.lookup(HOST);
+        mDnsCache.clear();
+        mDnsCache.lookup(HOST);
+        assertEquals(2, mResolver.mLookupCount);
+    }
+
+    @Test
+    public void setTtls_changesHowLongLookupsAreCached() throws UnknownHostException {
+        mDnsCache.lookup(HOST);
+        mDnsCache.setTtls(3 * TTL_MS, NEGATIVE_TTL_MS);
+        mDnsCache.lookup(HOST);
+        mClock.advance(2 * TTL_MS);
+        mDnsCache.lookup(HOST);
+
+        // the change removed the first lookup, and the second one is still fresh
+        assertEquals(2, mResolver.mLookupCount);
+        assertEquals(0, mRefreshExecutor.mTasks.size());
+    }
+
+    @Test
+    public void setTtls_withNegativeTtl_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, new ThrowingRunnable() {
+            @Override
+            public void run() {
+                mDnsCache.setTtls(TTL_MS, -1);
+            }
+        });
+    }
+
+    @Test
+    public void setResolver_resolvesWithNewResolverAndDropsOldResults()
+            throws UnknownHostException {
+        mDnsCache.lookup(HOST);
+        mClock.advance(TTL_MS);
+        // schedules a refresh on the old resolver
+        mDnsCache.lookup(HOST);
+
+        final FakeResolver resolver = new FakeResolver();
+        resolver.mAddresses = new InetAddress[] {
+                InetAddress.getByAddress(HOST, new byte[] {10, 0, 0, 4})
+        };
+        mDnsCache.setResolver(resolver);
+        mRefreshExecutor.runAll();
+
+        assertArrayEquals(resolver.mAddresses, mDnsCache.lookup(HOST));
+        assertArrayEquals(resolver.mAddresses, mDnsCache.lookup(HOST));
+        assertEquals(1, resolver.mLookupCount);
+    }
+
+    private static final class FakeResolver implements DnsResolver {
+        private InetAddress[] mAddresses;
+        private int mLookupCount;
+
+        @NonNull
+        @Override
+        public InetAddress[] lookup(@NonNull String host) throws UnknownHostException {
+            mLookupCount++;
+            if (mAddresses == null) {
+                throw new UnknownHostException(host);
+            }
+            return mAddresses;
+        }
+    }
+
+    private static final class FakeClock implements Clock {
+        private long mNanoTime = 1000;
+
+        @Override
+        public long nanoTime() {
+            return mNanoTime;
+        }
+
+        private void advance(long millis) {
+            mNanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    private static final class QueueExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mTasks.add(command);
+        }
+
+        private void runAll() {
+            for (Runnable task : mTasks) {
+                task.run();
+            }
+        }
+    }
+}
@@ -3,6 +3,10 @@ package com.stripe.android;
 import androidx.test.core.app.ApplicationProvider;
 
 import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.testharness.JsonTestUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -13,7 +17,6 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 public class FingerprintRequestTest {
@@ -33,12 +36,14 @@ public class FingerprintRequestTest {
     }
 
     @Test
-    public void getOutputBytes() throws UnsupportedEncodingException, InvalidRequestException {
-        final TelemetryClientUtil telemetryClientUtil =
-                new TelemetryClientUtil(ApplicationProvider.getApplicationContext());
-        final byte[] output = new FingerprintRequest(telemetryClientUtil.createTelemetryMap(),
-                "guid")
+    public void getOutputBytes_matchesTelemetryMapAsJsonObject()
+            throws UnsupportedEncodingException, InvalidRequestException, JSONException {
+        final Map<String, Object> telemetryMap =
+                new TelemetryClientUtil(ApplicationProvider.getApplicationContext())
+                        .createTelemetryMap();
+        final byte[] output = new FingerprintRequest(telemetryMap, "guid")
                 .getOutputBytes();
-        assertTrue(output.length > 0);
+        JsonTestUtils.assertJsonEquals(new JSONObject(telemetryMap),
+                new JSONObject(new String(output, "UTF-8")));
     }
 }
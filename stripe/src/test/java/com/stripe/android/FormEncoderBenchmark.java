@@ -0,0 +1,64 @@
+package com.stripe.android;
+
+import com.stripe.android.model.CardFixtures;
+import com.stripe.android.model.PaymentIntentParams;
+import com.stripe.android.model.SourceParams;
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares {@link FormEncoder} with the encoding that {@link StripeRequest} used before it, for
+ * the params of creating a Source, confirming a PaymentIntent and creating a PaymentMethod, and
+ * writes the throughput and allocation of each to a {@link BenchmarkReports} file. Only runs
+ * with {@code -Pbenchmark}; that both encode the same bytes is tested by
+ * {@link FormEncoderTest}.
+ */
+public class FormEncoderBenchmark {
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile byte[] mSink;
+
+    @Test
+    public void encode() throws Exception {
+        final List<Map<String, Object>> payloads = Arrays.asList(
+                SourceParams.createCardParams(CardFixtures.CARD).toParamMap(),
+                PaymentIntentParams.createConfirmPaymentIntentWithPaymentMethodCreateParams(
+                        FormEncoderTest.createPaymentMethodCreateParams(), "pi_123_secret_456",
+                        "stripe://payment_intent_return").toParamMap(),
+                FormEncoderTest.createPaymentMethodCreateParams().toParamMap());
+
+        final LoadDriver.Report previousReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        for (Map<String, Object> payload : payloads) {
+                            mSink = FormEncoderTest.PreviousEncoder.encode(payload);
+                        }
+                    }
+                })
+                .run();
+        final LoadDriver.Report encoderReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        for (Map<String, Object> payload : payloads) {
+                            mSink = FormEncoder.encode(payload);
+                        }
+                    }
+                })
+                .run();
+
+        BenchmarkReports.write("FormEncoderBenchmark_encode",
+                "each op encodes " + payloads.size() + " params payloads",
+                "previous encoding: " + previousReport,
+                "FormEncoder: " + encoderReport);
+    }
+}
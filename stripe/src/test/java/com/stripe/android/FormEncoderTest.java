@@ -0,0 +1,243 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.model.Address;
+import com.stripe.android.model.CardFixtures;
+import com.stripe.android.model.PaymentIntentParams;
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodCreateParams;
+import com.stripe.android.model.SourceParams;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class FormEncoderTest {
+
+    @Test
+    public void encode_withSourceParams_matchesPreviousEncoding() throws Exception {
+        final Map<String, String> metadata = new HashMap<>();
+        metadata.put("order_id", "ord #123 & more");
+        metadata.put("note", "café ☕");
+        assertMatchesPreviousEncoding(SourceParams.createCardParams(CardFixtures.CARD)
+                .setMetaData(metadata)
+                .toParamMap());
+        assertMatchesPreviousEncoding(SourceParams.createP24Params(1000, "eur",
+                "Jenny Rosen", "jenny.rosen@example.com", "stripe://return?a=1&b=2")
+                .toParamMap());
+        assertMatchesPreviousEncoding(SourceParams.createSepaDebitParams("Jenny Rosen",
+                "DE89370400440532013000", "1234 Main St.", "Berlin", "10115", "DE")
+                .toParamMap());
+    }
+
+    @Test
+    public void encode_withPaymentIntentParams_matchesPreviousEncoding() throws Exception {
+        assertMatchesPreviousEncoding(PaymentIntentParams
+                .createConfirmPaymentIntentWithPaymentMethodCreateParams(
+                        createPaymentMethodCreateParams(), "pi_123_secret_456",
+                        "stripe://payment_intent_return", true)
+                .toParamMap());
+        assertMatchesPreviousEncoding(PaymentIntentParams
+                .createConfirmPaymentIntentWithSourceDataParams(
+                        SourceParams.createCardParams(CardFixtures.MINIMUM_CARD),
+                        "pi_123_secret_456", "stripe://payment_intent_return")
+                .toParamMap());
+    }
+
+    @Test
+    public void encode_withPaymentMethodCreateParams_matchesPreviousEncoding() throws Exception {
+        assertMatchesPreviousEncoding(createPaymentMethodCreateParams().toParamMap());
+    }
+
+    @Test
+    public void encode_withNestedListsAndSpecialValues_matchesPreviousEncoding()
+            throws Exception {
+        final Map<String, Object> item = new LinkedHashMap<>();
+        item.put("type", "sku");
+        item.put("amount", 1099);
+        item.put("description", null);
+
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("items", Arrays.asList(item, item));
+        params.put("tags", Arrays.asList("a b", "c+d", Collections.emptyList()));
+        params.put("empty", Collections.emptyList());
+        params.put("expand", null);
+        params.put("unicode", "é中💳");
+        params.put("lone_surrogates", "a\ud83db\udcb3\ud83d");
+        params.put("ascii", "azAZ09.-*_~!'()/?:@ ,;=&%\t");
+        params.put("nested", Collections.singletonMap("key with spaces", true));
+        params.put("", Collections.singletonMap("child", "value"));
+        assertMatchesPreviousEncoding(params);
+    }
+
+    @Test
+    public void encode_withNullOrEmptyParams_returnsEmptyArray() throws Exception {
+        assertEquals(0, FormEncoder.encode(null).length);
+        assertEquals(0, FormEncoder.encode(new HashMap<String, Object>()).length);
+    }
+
+    @Test
+    public void encode_withEmptyStringValue_throwsWithUnencodedKey() {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("owner", Collections.singletonMap("name", Arrays.asList("")));
+
+        final InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                new ThrowingRunnable() {
+                    @Override
+                    public void run() throws Throwable {
+                        FormEncoder.encode(params);
+                    }
+                });
+        assertEquals("owner[name][]", exception.getParam());
+    }
+
+    @Test
+    public void encode_afterFailure_startsFromEmptyBuffer() throws Exception {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("name", "");
+        try {
+            FormEncoder.encode(params);
+        } catch (InvalidRequestException expected) {
+        }
+
+        assertArrayEquals("id=1".getBytes(StripeRequest.CHARSET),
+                FormEncoder.encode(Collections.singletonMap("id", "1")));
+    }
+
+    private static void assertMatchesPreviousEncoding(@NonNull Map<String, ?> params)
+            throws InvalidRequestException, UnsupportedEncodingException {
+        final byte[] expected = PreviousEncoder.encode(params);
+        final byte[] actual = FormEncoder.encode(params);
+        assertEquals(new String(expected, StripeRequest.CHARSET),
+                new String(actual, StripeRequest.CHARSET));
+        assertArrayEquals(expected, actual);
+    }
+
+    @NonNull
+    static PaymentMethodCreateParams createPaymentMethodCreateParams() {
+        return PaymentMethodCreateParams.create(
+                new PaymentMethodCreateParams.Card.Builder()
+                        .setNumber("4242424242424242")
+                        .setExpiryMonth(8)
+                        .setExpiryYear(2022)
+                        .setCvc("123")
+                        .build(),
+                new PaymentMethod.BillingDetails.Builder()
+                        .setAddress(new Address.Builder()
+                                .setLine1("510 Townsend St")
+                                .setCity("San Francisco")
+                                .setState("CA")
+                                .setPostalCode("94103")
+                                .setCountry("US")
+                                .build())
+                        .setEmail("patrick+test@example.com")
+                        .setName("Patrick Müller")
+                        .setPhone("(123) 456-7890")
+                        .build());
+    }
+
+    /**
+     * The encoding that {@link StripeRequest} used before {@link FormEncoder}, kept to check
+     * that the output hasn't changed.
+     */
+    static final class PreviousEncoder {
+        @NonNull
+        static byte[] encode(@Nullable Map<String, ?> params)
+                throws InvalidRequestException, UnsupportedEncodingException {
+            final StringBuilder queryStringBuffer = new StringBuilder();
+            for (String[] flatParam : flattenParamsMap(params, null)) {
+                if (queryStringBuffer.length() > 0) {
+                    queryStringBuffer.append("&");
+                }
+                queryStringBuffer.append(String.format(Locale.ROOT, "%s=%s",
+                        urlEncode(flatParam[0]), urlEncode(flatParam[1])));
+            }
+            return queryStringBuffer.toString().getBytes(StripeRequest.CHARSET);
+        }
+
+        @NonNull
+        private static List<String[]> flattenParamsList(@NonNull List<?> params,
+                                                        @NonNull String keyPrefix)
+                throws InvalidRequestException {
+            final List<String[]> flatParams = new LinkedList<>();
+            if (params.isEmpty()) {
+                flatParams.add(new String[] {keyPrefix, ""});
+            } else {
+                final String newPrefix = String.format(Locale.ROOT, "%s[]", keyPrefix);
+                for (Object param : params) {
+                    flatParams.addAll(flattenParamsValue(param, newPrefix));
+                }
+            }
+            return flatParams;
+        }
+
+        @NonNull
+        private static List<String[]> flattenParamsMap(@Nullable Map<String, ?> params,
+                                                       @Nullable String keyPrefix)
+                throws InvalidRequestException {
+            final List<String[]> flatParams = new LinkedList<>();
+            if (params == null) {
+                return flatParams;
+            }
+
+            for (Map.Entry<String, ?> entry : params.entrySet()) {
+                final String key = entry.getKey();
+                final String newPrefix;
+                if (keyPrefix != null) {
+                    newPrefix = String.format(Locale.ROOT, "%s[%s]", keyPrefix, key);
+                } else {
+                    newPrefix = key;
+                }
+                flatParams.addAll(flattenParamsValue(entry.getValue(), newPrefix));
+            }
+            return flatParams;
+        }
+
+        @NonNull
+        @SuppressWarnings("unchecked")
+        private static List<String[]> flattenParamsValue(@Nullable Object value,
+                                                         @NonNull String keyPrefix)
+                throws InvalidRequestException {
+            final List<String[]> flatParams;
+            if (value instanceof Map<?, ?>) {
+                flatParams = flattenParamsMap((Map<String, Object>) value, keyPrefix);
+            } else if (value instanceof List<?>) {
+                flatParams = flattenParamsList((List<?>) value, keyPrefix);
+            } else if ("".equals(value)) {
+                throw new InvalidRequestException("empty string", keyPrefix, null, 0, null,
+                        null, null, null);
+            } else if (value == null) {
+                flatParams = new ArrayList<>();
+                flatParams.add(new String[] {keyPrefix, ""});
+            } else {
+                flatParams = new ArrayList<>();
+                flatParams.add(new String[] {keyPrefix, value.toString()});
+            }
+            return flatParams;
+        }
+
+        @Nullable
+        private static String urlEncode(@Nullable String str)
+                throws UnsupportedEncodingException {
+            return str == null ? null : URLEncoder.encode(str, StripeRequest.CHARSET);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.stripe.android;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GzipUtilsTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void compress_thenDecompress_returnsOriginalBytes() throws IOException {
+        final byte[] bytes = "{\"id\": \"pm_123\", \"object\": \"payment_method\"}"
+                .getBytes(UTF_8);
+        assertArrayEquals(bytes, GzipUtils.decompress(GzipUtils.compress(bytes)));
+        assertArrayEquals(new byte[0], GzipUtils.decompress(GzipUtils.compress(new byte[0])));
+    }
+
+    @Test(expected = IOException.class)
+    public void decompress_withInvalidData_throwsIOException() throws IOException {
+        GzipUtils.decompress("not gzip".getBytes(UTF_8));
+    }
+
+    @Test
+    public void isGzipped_matchesContentEncodingHeader() {
+        assertTrue(GzipUtils.isGzipped(createHeaders("Content-Encoding", "gzip")));
+        assertTrue(GzipUtils.isGzipped(createHeaders("content-encoding", "GZIP")));
+        assertFalse(GzipUtils.isGzipped(createHeaders("Content-Encoding", "identity")));
+        assertFalse(GzipUtils.isGzipped(createHeaders("Content-Type", "gzip")));
+        assertFalse(GzipUtils.isGzipped(null));
+    }
+
+    @Test
+    public void isGzipped_withNullStatusLineKey_ignoresIt() {
+        // HttpURLConnection reports the status line under a null key
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put(null, Collections.singletonList("HTTP/1.1 200 OK"));
+        headers.put("Content-Encoding", Arrays.asList("gzip"));
+        assertTrue(GzipUtils.isGzipped(headers));
+    }
+
+    private static Map<String, List<String>> createHeaders(String name, String value) {
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put(name, Collections.singletonList(value));
+        return headers;
+    }
+}
@@ -13,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -73,7 +74,7 @@ public class IssuingCardPinServiceTest {
                         StripeRequest.Method.GET,
                         "https://api.stripe.com/v1/issuing/cards/ic_abcdef/pin?verification%5Bid%5D=iv_abcd&verification%5Bone_time_code%5D=123-456",
                         ApiRequest.Options.create("ek_test_123")
-                ))))
+                )), any(RequestEvents.class)))
                 .thenReturn(response);
 
         mMockRetrievalListener =
@@ -102,7 +103,7 @@ public class IssuingCardPinServiceTest {
                         StripeRequest.Method.POST,
                         "https://api.stripe.com/v1/issuing/cards/ic_abcdef/pin",
                         ApiRequest.Options.create("ek_test_123")
-                ))))
+                )), any(RequestEvents.class)))
                 .thenReturn(response);
 
         mMockUpdateListener =
@@ -133,7 +134,7 @@ public class IssuingCardPinServiceTest {
                         StripeRequest.Method.GET,
                         "https://api.stripe.com/v1/issuing/cards/ic_abcdef/pin?verification%5Bid%5D=iv_abcd&verification%5Bone_time_code%5D=123-456",
                         ApiRequest.Options.create("ek_test_123")
-                ))))
+                )), any(RequestEvents.class)))
                 .thenReturn(response);
 
         mMockRetrievalListener =
@@ -0,0 +1,116 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodTest;
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Compares {@link StreamingJsonWriter} with building a {@link JSONObject} tree, turning it into
+ * a {@link String} and encoding that, for the fingerprint telemetry payload and a large
+ * {@link PaymentMethod}, and writes the throughput and allocation of each to a
+ * {@link BenchmarkReports} file. Only runs with {@code -Pbenchmark}; that both paths write the
+ * same JSON is tested by {@link StreamingJsonWriterTest} and {@link FingerprintRequestTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class JsonSerializationBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile byte[] mSink;
+
+    @Test
+    public void telemetryMap() throws Exception {
+        final Map<String, Object> telemetryMap =
+                new TelemetryClientUtil(ApplicationProvider.getApplicationContext())
+                        .createTelemetryMap();
+        compare("telemetryMap",
+                new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = toBytesViaTree(telemetryMap);
+                    }
+                },
+                new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = StreamingJsonWriter.toBytes(telemetryMap);
+                    }
+                });
+    }
+
+    @Test
+    public void largePaymentMethod() throws Exception {
+        final PaymentMethod paymentMethod = createLargePaymentMethod();
+        compare("largePaymentMethod",
+                new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = paymentMethod.toJson().toString().getBytes(UTF_8);
+                    }
+                },
+                new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = StreamingJsonWriter.toBytes(paymentMethod);
+                    }
+                });
+    }
+
+    private void compare(@NonNull String name,
+                         @NonNull LoadDriver.Operation viaTree,
+                         @NonNull LoadDriver.Operation streaming)
+            throws InterruptedException, IOException {
+        final LoadDriver.Report treeReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, viaTree)
+                .run();
+        final LoadDriver.Report streamingReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, streaming)
+                .run();
+        assertNotNull(mSink);
+        BenchmarkReports.write("JsonSerializationBenchmark_" + name,
+                "via JSONObject tree: " + treeReport,
+                "via StreamingJsonWriter: " + streamingReport);
+    }
+
+    /**
+     * The tree-building path that {@link FingerprintRequest} used before
+     * {@link StreamingJsonWriter}.
+     */
+    @NonNull
+    private static byte[] toBytesViaTree(@NonNull Map<String, Object> map) {
+        return new JSONObject(map).toString().getBytes(UTF_8);
+    }
+
+    @NonNull
+    private static PaymentMethod createLargePaymentMethod() throws JSONException {
+        final JSONObject jsonObject = new JSONObject(PaymentMethodTest.RAW_CARD_JSON);
+        final JSONObject metadata = new JSONObject();
+        for (int i = 0; i < 50; i++) {
+            metadata.put(String.format(Locale.ROOT, "key_%02d", i),
+                    String.format(Locale.ROOT, "a metadata value with some length, number %d", i));
+        }
+        jsonObject.put("metadata", metadata);
+        return Objects.requireNonNull(PaymentMethod.fromJson(jsonObject));
+    }
+}
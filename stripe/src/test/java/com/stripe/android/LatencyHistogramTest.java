@@ -0,0 +1,123 @@
+package com.stripe.android;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void getBucketIndex_coversEveryValueWithoutGaps() {
+        assertEquals(0, LatencyHistogram.getBucketIndex(0));
+        assertEquals(31, LatencyHistogram.getBucketIndex(31));
+        assertEquals(32, LatencyHistogram.getBucketIndex(32));
+        assertEquals(32, LatencyHistogram.getBucketIndex(33));
+        assertEquals(48, LatencyHistogram.getBucketIndex(64));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1,
+                LatencyHistogram.getBucketIndex(LatencyHistogram.MAX_VALUE_NANOS));
+
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            final long upperBound = LatencyHistogram.getBucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.getBucketIndex(upperBound));
+            assertEquals(i + 1, LatencyHistogram.getBucketIndex(upperBound + 1));
+        }
+    }
+
+    @Test
+    public void getBucketUpperBound_isWithinSixPercentOfValue() {
+        for (long value = 1; value < LatencyHistogram.MAX_VALUE_NANOS; value = value * 3 + 1) {
+            final long upperBound =
+                    LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucketIndex(value));
+            assertTrue(upperBound >= value);
+            assertTrue(upperBound - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void snapshot_returnsPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        assertEquals(100, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), snapshot.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50500), snapshot.getMeanNanos());
+        assertWithinSixPercent(TimeUnit.MILLISECONDS.toNanos(50),
+                snapshot.getValueAtPercentile(50));
+        assertWithinSixPercent(TimeUnit.MILLISECONDS.toNanos(99),
+                snapshot.getValueAtPercentile(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), snapshot.getValueAtPercentile(100));
+        assertWithinSixPercent(TimeUnit.MILLISECONDS.toNanos(1),
+                snapshot.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void snapshot_withReset_clearsHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.record(2000);
+
+        assertEquals(2, histogram.snapshot(false).getCount());
+        assertEquals(2, histogram.snapshot(true).getCount());
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMaxNanos());
+        assertEquals(0, snapshot.getMeanNanos());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void record_withOutOfRangeValues_clampsThem() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot(false);
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE_NANOS, snapshot.getMaxNanos());
+    }
+
+    @Test
+    public void record_fromManyThreads_countsEveryValue() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final long value = (i + 1) * 1000L;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.record(value);
+                    }
+                }
+            }));
+        }
+
+        long resetCount = 0;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int i = 0; i < 10; i++) {
+            resetCount += histogram.snapshot(true).getCount();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, resetCount + histogram.snapshot(false).getCount());
+    }
+
+    private static void assertWithinSixPercent(long expected, long actual) {
+        assertTrue(actual >= expected);
+        assertTrue(actual - expected <= expected / 16);
+    }
+}
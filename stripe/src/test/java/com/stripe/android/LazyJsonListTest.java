@@ -0,0 +1,165 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.model.PaymentMethod;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class LazyJsonListTest {
+    private static final int LIST_SIZE = 100;
+    private static final int THREAD_COUNT = 8;
+
+    private static final StreamingJsonParser.ElementParser<String> ID_PARSER =
+            new StreamingJsonParser.ElementParser<String>() {
+                @Override
+                public String parse(@NonNull JSONObject jsonObject) {
+                    return jsonObject.optString("id", null);
+                }
+            };
+
+    @Test
+    public void parse_createsSameModelsAsEagerParsing() throws JSONException {
+        // longer than a read, so that elements span several reads
+        final String listJson = StreamingJsonParserTest.createListJson(LIST_SIZE);
+        final JSONArray data = new JSONObject(listJson).getJSONArray("data");
+        final List<PaymentMethod> expected = new ArrayList<>();
+        for (int i = 0; i < data.length(); i++) {
+            expected.add(PaymentMethod.fromJson(data.getJSONObject(i)));
+        }
+
+        final LazyJsonList<PaymentMethod> paymentMethods = LazyJsonList.parse(
+                new StringReader(listJson), StreamingJsonParserTest.PAYMENT_METHOD_PARSER);
+
+        assertEquals(LIST_SIZE, paymentMethods.size());
+        assertEquals(LIST_SIZE, paymentMethods.getEncodedCount());
+        assertEquals(expected, paymentMethods);
+        assertEquals(0, paymentMethods.getEncodedCount());
+    }
+
+    @Test
+    public void parse_keepsOnlyObjectsOfDataArray() throws JSONException {
+        final List<String> ids = LazyJsonList.parse(new StringReader("{" +
+                "\"object\": \"list\"," +
+                "\"other\": [{\"id\": \"other\"}]," +
+                "\"data\": [1, \"{\", null, [{\"id\": \"nested\"}]," +
+                "{\"id\": \"a \\\"}]\", \"data\": [{\"id\": \"inner\"}]}," +
+                "{\"id\": \"b\"}]," +
+                "\"url\": \"/v1/payment_methods\"" +
+                "}"), ID_PARSER);
+
+        assertEquals(Arrays.asList("a \"}]", "b"), ids);
+    }
+
+    @Test
+    public void parse_keepsWhitespaceOfStringsOnly() throws JSONException {
+        final List<String> ids = LazyJsonList.parse(new StringReader(
+                "{\n  \"data\": [\n    {\n      \"id\": \" a\\t b \"\n    }\n  ]\n}\n"),
+                ID_PARSER);
+
+        assertEquals(Arrays.asList(" a\t b "), ids);
+    }
+
+    @Test
+    public void parse_withoutDataArray_returnsEmptyList() throws JSONException {
+        assertEquals(0, LazyJsonList.parse(new StringReader("{\"data\": {\"id\": \"a\"}}"),
+                ID_PARSER).size());
+    }
+
+    @Test
+    public void parse_withMalformedList_throwsJSONException() {
+        final String[] malformedLists = {
+                "", "[{\"id\": \"a\"}]", "{\"data\": [{\"id\": \"a\"}]", "{}}", "{} {}",
+                "{\"data\": [{\"id\": \"a}]}",
+        };
+        for (String malformedList : malformedLists) {
+            try {
+                LazyJsonList.parse(new StringReader(malformedList), ID_PARSER);
+                fail("Expected a JSONException for " + malformedList);
+            } catch (JSONException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void get_withMalformedElement_returnsNull() throws JSONException {
+        final List<String> ids = LazyJsonList.parse(
+                new StringReader("{\"data\": [{\"id\": }, {\"id\": \"b\"}]}"), ID_PARSER);
+
+        assertEquals(2, ids.size());
+        assertNull(ids.get(0));
+        assertEquals("b", ids.get(1));
+    }
+
+    @Test
+    public void get_decodesEachElementOnce() throws Exception {
+        final AtomicInteger decodeCount = new AtomicInteger();
+        final StreamingJsonParser.ElementParser<Object> countingParser =
+                new StreamingJsonParser.ElementParser<Object>() {
+                    @Override
+                    public Object parse(@NonNull JSONObject jsonObject) {
+                        decodeCount.incrementAndGet();
+                        return new Object();
+                    }
+                };
+        final LazyJsonList<Object> elements = LazyJsonList.parse(
+                new StringReader(StreamingJsonParserTest.createListJson(LIST_SIZE)),
+                countingParser);
+        assertEquals(0, decodeCount.get());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            final List<Future<Object>> firstElements = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                firstElements.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return elements.get(0);
+                    }
+                }));
+            }
+            for (Future<Object> firstElement : firstElements) {
+                assertSame(elements.get(0), firstElement.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, decodeCount.get());
+        assertEquals(LIST_SIZE - 1, elements.getEncodedCount());
+    }
+
+    @Test
+    public void modifyingList_keepsElementsThatWereNotReadEncoded() throws JSONException {
+        final LazyJsonList<String> ids = LazyJsonList.parse(new StringReader(
+                "{\"data\": [{\"id\": \"a\"}, {\"id\": \"b\"}, {\"id\": \"c\"}]}"), ID_PARSER);
+
+        assertEquals("a", ids.remove(0));
+        ids.add(0, "z");
+        assertEquals("c", ids.set(2, "y"));
+
+        assertEquals(1, ids.getEncodedCount());
+        assertEquals(Arrays.asList("z", "b", "y"), ids);
+    }
+}
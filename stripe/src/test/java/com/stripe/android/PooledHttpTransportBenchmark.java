@@ -0,0 +1,103 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+import com.stripe.android.testharness.StripeApiStandIn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import javax.net.ssl.HttpsURLConnection;
+
+/**
+ * Compares the latency of back-to-back calls, as in confirming a PaymentIntent, retrieving it
+ * and then authenticating with 3DS2, through {@link PooledHttpTransport} with
+ * {@link RequestExecutor.UrlConnectionTransport}, which opens a new connection for every call,
+ * against a {@link StripeApiStandIn}, and writes the latency, allocation and connections opened
+ * of each to a {@link BenchmarkReports} file. The stand-in serves plain HTTP on the loopback
+ * interface, so the difference leaves out the TLS handshake that every new connection to
+ * {@code api.stripe.com} also pays. {@link java.net.HttpURLConnection#disconnect()} closes the
+ * socket on Android but keeps it alive on the JVM, so the stand-in closes the connection after
+ * every response while it serves {@link RequestExecutor.UrlConnectionTransport}.
+ *
+ * Only runs with {@code -Pbenchmark}; that back-to-back calls reuse a connection is tested by
+ * {@link PooledHttpTransportTest}.
+ */
+public class PooledHttpTransportBenchmark {
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile StripeResponse mSink;
+
+    private StripeApiStandIn mStandIn;
+    private PooledHttpTransport mPooledTransport;
+
+    @Before
+    public void setup() throws IOException {
+        mStandIn = new StripeApiStandIn(new Random(0));
+        mStandIn.getServer().setRecordRequests(false);
+        mPooledTransport = new PooledHttpTransport(new ConnectionPool(), DnsResolver.SYSTEM,
+                StripeSSLSocketFactory.getInstance(),
+                HttpsURLConnection.getDefaultHostnameVerifier(),
+                new RequestExecutor.UrlConnectionTransport(), new AdaptiveTimeouts(null));
+    }
+
+    @After
+    public void tearDown() {
+        mPooledTransport.evictAll();
+        mStandIn.close();
+    }
+
+    @Test
+    public void backToBackCalls() throws Exception {
+        final int urlConnectionCount = mStandIn.getServer().getConnectionCount();
+        mStandIn.getServer().setCloseAfterResponse(true);
+        final LoadDriver.Report urlConnectionReport =
+                runPaymentChain(new RequestExecutor.UrlConnectionTransport());
+        mStandIn.getServer().setCloseAfterResponse(false);
+        final int pooledConnectionCount = mStandIn.getServer().getConnectionCount();
+        final LoadDriver.Report pooledReport = runPaymentChain(mPooledTransport);
+        final int endConnectionCount = mStandIn.getServer().getConnectionCount();
+
+        BenchmarkReports.write("PooledHttpTransportBenchmark_backToBackCalls",
+                "each op confirms a PaymentIntent, retrieves it and authenticates with 3DS2",
+                "connections opened include those of the warm-up",
+                "HttpURLConnection per call: " + urlConnectionReport + ", " +
+                        (pooledConnectionCount - urlConnectionCount) + " connections opened",
+                "PooledHttpTransport: " + pooledReport + ", " +
+                        (endConnectionCount - pooledConnectionCount) + " connections opened");
+    }
+
+    @NonNull
+    private LoadDriver.Report runPaymentChain(@NonNull final HttpTransport transport)
+            throws InterruptedException {
+        final String baseUrl = mStandIn.getBaseUrl();
+        return new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        transport.execute(PooledHttpTransportTest.createRequest(
+                                StripeRequest.Method.POST,
+                                baseUrl + "/v1/payment_intents/pi_standin/confirm",
+                                "client_secret=pi_standin_secret_standin"),
+                                RequestEvents.NONE);
+                        transport.execute(PooledHttpTransportTest.createRequest(
+                                StripeRequest.Method.GET,
+                                baseUrl + "/v1/payment_intents/pi_standin", null),
+                                RequestEvents.NONE);
+                        mSink = transport.execute(PooledHttpTransportTest.createRequest(
+                                StripeRequest.Method.POST, baseUrl + "/v1/3ds2/authenticate",
+                                "source=src_standin"),
+                                RequestEvents.NONE);
+                    }
+                })
+                .run();
+    }
+}
@@ -0,0 +1,372 @@
+package com.stripe.android;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.testharness.TestHttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PooledHttpTransportTest {
+    private static final int REQUEST_COUNT = 5;
+
+    private TestHttpServer mServer;
+    private ConnectionPool mConnectionPool;
+    private PooledHttpTransport mTransport;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new TestHttpServer();
+        mConnectionPool = new ConnectionPool();
+        mTransport = new PooledHttpTransport(mConnectionPool, DnsResolver.SYSTEM,
+                new StripeSSLSocketFactory(),
+                new HostnameVerifier() {
+                    @Override
+                    public boolean verify(String hostname, SSLSession session) {
+                        return false;
+                    }
+                },
+                new RequestExecutor.UrlConnectionTransport(), new AdaptiveTimeouts(null));
+    }
+
+    @After
+    public void tearDown() {
+        mTransport.evictAll();
+        mServer.close();
+        PooledHttpTransport.setAutoPrewarmEnabled(false);
+    }
+
+    @Test
+    public void execute_withBackToBackRequests_reusesSingleConnection()
+            throws IOException, InvalidRequestException {
+        mServer.setResponse(200, "{\"id\": \"tok_123\"}");
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            final StripeResponse response = mTransport.execute(
+                    createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                    RequestEvents.NONE);
+            assertEquals(200, response.getResponseCode());
+            assertEquals("{\"id\": \"tok_123\"}", response.getResponseBody());
+            assertEquals("req_" + (i + 1), response.getRequestId());
+        }
+
+        assertEquals(1, mServer.getConnectionCount());
+        assertEquals(1, mConnectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void execute_withPost_writesHeadersAndBody()
+            throws IOException, InvalidRequestException {
+        mTransport.execute(createRequest(StripeRequest.Method.POST,
+                mServer.getUrl("/v1/sources"), "type=card"), RequestEvents.NONE);
+
+        final List<TestHttpServer.RecordedRequest> requests = mServer.getRequests();
+        assertEquals(1, requests.size());
+        final TestHttpServer.RecordedRequest request = requests.get(0);
+        assertEquals("POST /v1/sources HTTP/1.1", request.requestLine);
+        assertEquals("type=card", request.getBodyAsString());
+        assertEquals("9", request.headers.get("Content-Length"));
+        assertEquals("application/x-www-form-urlencoded; charset=UTF-8",
+                request.headers.get("Content-Type"));
+        assertEquals("Bearer key", request.headers.get("Authorization"));
+    }
+
+    @Test
+    public void execute_withErrorResponse_returnsErrorBody()
+            throws IOException, InvalidRequestException {
+        mServer.setResponse(402, "{\"error\": {}}");
+        final StripeResponse response = mTransport.execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                    RequestEvents.NONE);
+        assertEquals(402, response.getResponseCode());
+        assertEquals("{\"error\": {}}", response.getResponseBody());
+    }
+
+    @Test
+    public void execute_withEmptyResponseBody_returnsNullBody()
+            throws IOException, InvalidRequestException {
+        mServer.setResponse(200, "");
+        assertNull(mTransport.execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                    RequestEvents.NONE)
+                .getResponseBody());
+    }
+
+    @Test
+    public void execute_acceptsGzipEncoding() throws IOException, InvalidRequestException {
+        mTransport.execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                    RequestEvents.NONE);
+        assertEquals("gzip", mServer.getRequests().get(0).headers.get("Accept-Encoding"));
+    }
+
+    @Test
+    public void execute_withGzippedResponse_decodesBody()
+            throws IOException, InvalidRequestException {
+        final String body = createLargeBody();
+        mServer.setResponse(200, body);
+        mServer.setGzipResponses(true);
+        for (int i = 0; i < 2; i++) {
+            final StripeResponse response = mTransport.execute(createRequest(
+                    StripeRequest.Method.GET, mServer.getUrl("/v1/payment_methods"), null),
+                    RequestEvents.NONE);
+            assertEquals(body, response.getResponseBody());
+            assertEquals(body.length(), response.getBodyLength());
+            assertTrue(response.getWireBodyLength() < response.getBodyLength());
+        }
+
+        // the connection stays usable after a compressed response
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void execute_withProxyTransportAndGzippedResponse_decodesBody()
+            throws IOException, InvalidRequestException {
+        final String body = createLargeBody();
+        mServer.setResponse(200, body);
+        mServer.setGzipResponses(true);
+        final StripeResponse response = new RequestExecutor.UrlConnectionTransport().execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                    RequestEvents.NONE);
+
+        assertEquals(body, response.getResponseBody());
+        assertTrue(response.getWireBodyLength() < response.getBodyLength());
+        assertEquals("gzip", mServer.getRequests().get(0).headers.get("Accept-Encoding"));
+    }
+
+    @Test
+    public void execute_whenServerClosesConnection_opensNewConnection()
+            throws IOException, InvalidRequestException {
+        mServer.setCloseAfterResponse(true);
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            mTransport.execute(
+                    createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                    RequestEvents.NONE);
+        }
+
+        assertEquals(REQUEST_COUNT, mServer.getConnectionCount());
+        assertEquals(0, mConnectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void execute_whenPooledConnectionWasDropped_retriesGetOnNewConnection()
+            throws IOException, InvalidRequestException, InterruptedException {
+        dropPooledConnection();
+
+        final StripeResponse response = mTransport.execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                RequestEvents.NONE);
+        assertEquals(200, response.getResponseCode());
+        assertEquals(2, mServer.getConnectionCount());
+        assertEquals(2, mServer.getRequests().size());
+    }
+
+    @Test
+    public void execute_whenPooledConnectionWasDropped_retriesPostWithIdempotencyKey()
+            throws IOException, InvalidRequestException, InterruptedException {
+        dropPooledConnection();
+
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(ApiRequest.HEADER_IDEMPOTENCY_KEY, "key_123");
+        final StripeResponse response = mTransport.execute(createRequest(
+                StripeRequest.Method.POST, mServer.getUrl("/v1/tokens"), "a=b", headers),
+                RequestEvents.NONE);
+        assertEquals(200, response.getResponseCode());
+        assertEquals(2, mServer.getConnectionCount());
+        assertEquals("key_123",
+                mServer.getRequests().get(1).headers.get(ApiRequest.HEADER_IDEMPOTENCY_KEY));
+    }
+
+    @Test
+    public void execute_whenPooledConnectionWasDropped_doesNotReplayPostWithoutIdempotencyKey()
+            throws InvalidRequestException, InterruptedException, IOException {
+        dropPooledConnection();
+
+        try {
+            mTransport.execute(
+                    createRequest(StripeRequest.Method.POST, mServer.getUrl("/v1/tokens"), "a=b"),
+                    RequestEvents.NONE);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // the caller decides whether the request can be sent again
+        }
+        assertEquals(1, mServer.getConnectionCount());
+        assertEquals(0, mConnectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void execute_whenExchangeThrowsRuntimeException_closesConnection()
+            throws IOException, InvalidRequestException, InterruptedException {
+        final StripeRequest request = new StripeRequest(StripeRequest.Method.GET,
+                mServer.getUrl("/v1/tokens"), null, ApiRequest.MIME_TYPE) {
+            @NonNull
+            @Override
+            Map<String, String> getHeaders() {
+                // fails while the request is being written
+                return new HashMap<String, String>() {
+                    @NonNull
+                    @Override
+                    public Set<Entry<String, String>> entrySet() {
+                        throw new IllegalStateException("header failure");
+                    }
+                };
+            }
+
+            @NonNull
+            @Override
+            byte[] getOutputBytes() {
+                return new byte[0];
+            }
+        };
+
+        try {
+            mTransport.execute(request, RequestEvents.NONE);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // thrown while writing the headers
+        }
+        assertEquals(0, mConnectionPool.getIdleConnectionCount());
+        awaitOpenConnectionCount(0);
+    }
+
+    @Test
+    public void execute_whenCanceled_closesConnectionAndThrows()
+            throws IOException, InvalidRequestException {
+        mServer.setResponseDelayMs(TimeUnit.SECONDS.toMillis(10));
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        final StripeRequest request =
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null);
+        final Timer timer = new Timer();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cancellationSignal.cancel();
+            }
+        }, 100);
+
+        final long startNanos = System.nanoTime();
+        try {
+            mTransport.execute(request, RequestEvents.create(request, 0, cancellationSignal));
+            fail("Expected an InterruptedIOException");
+        } catch (InterruptedIOException e) {
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            timer.cancel();
+        }
+        assertEquals(0, mConnectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void prewarm_thenExecute_reusesPrewarmedConnection()
+            throws IOException, InvalidRequestException {
+        assertTrue(mTransport.prewarm(mServer.getUrl("/")));
+        assertEquals(1, mConnectionPool.getIdleConnectionCount());
+
+        final StripeResponse response = mTransport.execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                RequestEvents.NONE);
+        assertEquals(200, response.getResponseCode());
+        assertEquals(1, mServer.getConnectionCount());
+        assertEquals(1, mConnectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void prewarm_withIdleConnection_doesNothing() throws IOException {
+        assertTrue(mTransport.prewarm(mServer.getUrl("/")));
+        assertFalse(mTransport.prewarm(mServer.getUrl("/")));
+        assertEquals(1, mConnectionPool.getIdleConnectionCount());
+    }
+
+    @Test
+    public void autoPrewarm_isDisabledUntilEnabled() {
+        assertFalse(PooledHttpTransport.isAutoPrewarmEnabled());
+        assertFalse(Stripe.isConnectionPrewarmingEnabled());
+        Stripe.setConnectionPrewarmingEnabled(true);
+        assertTrue(PooledHttpTransport.isAutoPrewarmEnabled());
+        assertTrue(Stripe.isConnectionPrewarmingEnabled());
+    }
+
+    /**
+     * Send a request, so that its connection is pooled, then have the server close it.
+     */
+    private void dropPooledConnection()
+            throws IOException, InvalidRequestException, InterruptedException {
+        mTransport.execute(
+                createRequest(StripeRequest.Method.GET, mServer.getUrl("/v1/tokens"), null),
+                RequestEvents.NONE);
+        assertEquals(1, mConnectionPool.getIdleConnectionCount());
+        mServer.dropConnections();
+        // give the client side a moment to observe the FIN
+        Thread.sleep(50);
+    }
+
+    private void awaitOpenConnectionCount(int count) throws InterruptedException {
+        final long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mServer.getOpenConnectionCount() != count && System.nanoTime() < deadlineNanos) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, mServer.getOpenConnectionCount());
+    }
+
+    @NonNull
+    private static String createLargeBody() {
+        final StringBuilder body = new StringBuilder("{\"object\": \"list\", \"data\": [");
+        for (int i = 0; i < 50; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"id\": \"pm_").append(i)
+                    .append("\", \"object\": \"payment_method\", \"type\": \"card\"}");
+        }
+        return body.append("]}").toString();
+    }
+
+    @NonNull
+    static StripeRequest createRequest(@NonNull StripeRequest.Method method,
+                                       @NonNull String url,
+                                       @Nullable final String body) {
+        return createRequest(method, url, body, new HashMap<String, String>());
+    }
+
+    @NonNull
+    private static StripeRequest createRequest(@NonNull StripeRequest.Method method,
+                                               @NonNull String url,
+                                               @Nullable final String body,
+                                               @NonNull final Map<String, String> headers) {
+        return new StripeRequest(method, url, null, ApiRequest.MIME_TYPE) {
+            @NonNull
+            @Override
+            Map<String, String> getHeaders() {
+                final Map<String, String> allHeaders = new HashMap<>(headers);
+                allHeaders.put("Authorization", "Bearer key");
+                return allHeaders;
+            }
+
+            @NonNull
+            @Override
+            byte[] getOutputBytes() throws UnsupportedEncodingException {
+                return body == null ? new byte[0] : body.getBytes(CHARSET);
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.exception.RateLimitException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+    private static final int BURST = 3;
+    private static final double PERMITS_PER_SECOND = 2;
+    private static final long MAX_WAIT_MS = 2000;
+
+    @NonNull private final FakeClock mClock = new FakeClock();
+    @NonNull private final ApiMetrics mApiMetrics = new ApiMetrics(mClock);
+    @NonNull private final RecordingSleeper mSleeper = new RecordingSleeper();
+    @NonNull private final RateLimiter mRateLimiter = new RateLimiter(mClock, mSleeper,
+            mApiMetrics, BURST, PERMITS_PER_SECOND, MAX_WAIT_MS);
+
+    @Test
+    public void acquire_withinBurst_doesNotWait() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+        assertEquals(0, mSleeper.mDelaysMs.size());
+        assertEquals(0, mApiMetrics.snapshot(false).getRateLimitedCount());
+    }
+
+    @Test
+    public void acquire_beyondBurst_waitsForRefill() throws Exception {
+        for (int i = 0; i < BURST + 2; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+
+        // the waits are queued behind each other: 0.5s, then 1s
+        assertEquals(2, mSleeper.mDelaysMs.size());
+        assertEquals(500, (long) mSleeper.mDelaysMs.get(0));
+        assertEquals(1000, (long) mSleeper.mDelaysMs.get(1));
+
+        final ApiMetricsSnapshot snapshot = mApiMetrics.snapshot(false);
+        assertEquals(2, snapshot.getRateLimitedCount());
+        assertEquals(0, snapshot.getRateLimitQueueDepth());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxRateLimitWaitNanos());
+    }
+
+    @Test
+    public void acquire_afterQuietPeriod_refillsBucket() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+        mClock.mNanos += TimeUnit.SECONDS.toNanos(2);
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+        assertEquals(0, mSleeper.mDelaysMs.size());
+    }
+
+    @Test
+    public void acquire_limitsKeysSeparately() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+            mRateLimiter.acquire(createGet("key_2"));
+        }
+        assertEquals(0, mSleeper.mDelaysMs.size());
+    }
+
+    @Test
+    public void acquire_limitsEndpointsSeparately() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+            mRateLimiter.acquire(ApiRequest.createGet(
+                    StripeApiHandler.getRetrieveCustomerUrl("cus_1"),
+                    ApiRequest.Options.create("pk_test_key_1")));
+        }
+        assertEquals(0, mSleeper.mDelaysMs.size());
+    }
+
+    @Test
+    public void acquire_limitsWritesWithTheirOwnBudget() throws Exception {
+        mRateLimiter.setWriteLimits(1, 1);
+        mRateLimiter.acquire(createPost("key_1"));
+        mRateLimiter.acquire(createPost("key_1"));
+        assertEquals(1, mSleeper.mDelaysMs.size());
+        assertEquals(1000, (long) mSleeper.mDelaysMs.get(0));
+
+        // and writes take no tokens from reads
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+        assertEquals(1, mSleeper.mDelaysMs.size());
+    }
+
+    @Test
+    public void isRerunOfDeferredTask_untilFirstRequestOfRerun_returnsTrue() throws Exception {
+        RateLimiter.setCanDefer(true, false);
+        try {
+            assertFalse(RateLimiter.isRerunOfDeferredTask());
+        } finally {
+            RateLimiter.setCanDefer(false);
+        }
+
+        RateLimiter.setCanDefer(true, true);
+        try {
+            assertTrue(RateLimiter.isRerunOfDeferredTask());
+            mRateLimiter.acquire(createGet("key_1"));
+            assertFalse(RateLimiter.isRerunOfDeferredTask());
+        } finally {
+            RateLimiter.setCanDefer(false);
+        }
+    }
+
+    @Test
+    public void acquire_whenDeferrable_throwsInsteadOfWaitingAndKeepsToken() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+
+        RateLimiter.setCanDefer(true);
+        try {
+            mRateLimiter.acquire(createGet("key_1"));
+            fail("Expected a DeferredException");
+        } catch (RateLimiter.DeferredException e) {
+            assertEquals(500, e.getDelayMs());
+        } finally {
+            RateLimiter.setCanDefer(false);
+        }
+        assertEquals(0, mSleeper.mDelaysMs.size());
+
+        // the deferred request took no token, so the next one only waits for the first refill
+        mRateLimiter.acquire(createGet("key_1"));
+        assertEquals(500, (long) mSleeper.mDelaysMs.get(0));
+    }
+
+    @Test
+    public void acquire_afterFirstRequestOfTask_waitsInsteadOfDeferring() throws Exception {
+        for (int i = 0; i < BURST - 1; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+
+        RateLimiter.setCanDefer(true);
+        try {
+            // the first request of the task takes the last token, so the second has to wait
+            mRateLimiter.acquire(createGet("key_1"));
+            mRateLimiter.acquire(createGet("key_1"));
+        } finally {
+            RateLimiter.setCanDefer(false);
+        }
+        assertEquals(500, (long) mSleeper.mDelaysMs.get(0));
+    }
+
+    @Test
+    public void acquire_whenWaitWouldBeTooLong_throwsRateLimitException() throws Exception {
+        // 3 from the burst, then 4 more within the 2s maximum wait
+        for (int i = 0; i < BURST + 4; i++) {
+            mRateLimiter.acquire(createGet("key_1"));
+        }
+
+        try {
+            mRateLimiter.acquire(createGet("key_1"));
+            fail("Expected a RateLimitException");
+        } catch (RateLimitException expected) {
+            assertEquals(1, mApiMetrics.snapshot(false).getRateLimitRejectedCount());
+        }
+    }
+
+    @Test
+    public void setLimits_appliesToExistingBuckets() throws Exception {
+        mRateLimiter.setLimits(1, 1);
+        mRateLimiter.acquire(createGet("key_1"));
+        mRateLimiter.acquire(createGet("key_1"));
+        assertEquals(1000, (long) mSleeper.mDelaysMs.get(0));
+    }
+
+    @NonNull
+    private static ApiRequest createGet(@NonNull String apiKey) {
+        return ApiRequest.createGet(StripeApiHandler.getPaymentMethodsUrl(),
+                ApiRequest.Options.create("pk_test_" + apiKey));
+    }
+
+    @NonNull
+    private static ApiRequest createPost(@NonNull String apiKey) {
+        return ApiRequest.createPost(StripeApiHandler.getPaymentMethodsUrl(),
+                ApiRequest.Options.create("pk_test_" + apiKey));
+    }
+
+    private static final class FakeClock implements Clock {
+        private long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+
+    /**
+     * Records each wait without sleeping. The clock is left alone, so that waits queue up as
+     * if the requests had arrived at the same time.
+     */
+    private static final class RecordingSleeper implements RetryPolicy.Sleeper {
+        @NonNull private final List<Long> mDelaysMs = new ArrayList<>();
+
+        @Override
+        public void sleep(long delayMs) {
+            mDelaysMs.add(delayMs);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.testharness.TestHttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSession;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestEventsTest {
+    private static final String RESPONSE_BODY = "{\"id\": \"tok_123\"}";
+
+    private TestHttpServer mServer;
+    private PooledHttpTransport mTransport;
+    private RequestExecutor mRequestExecutor;
+    private RecordingListener mListener;
+    private FakeClock mClock;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new TestHttpServer();
+        mServer.setResponse(200, RESPONSE_BODY);
+        mTransport = new PooledHttpTransport(new ConnectionPool(), DnsResolver.SYSTEM,
+                new StripeSSLSocketFactory(),
+                new HostnameVerifier() {
+                    @Override
+                    public boolean verify(String hostname, SSLSession session) {
+                        return false;
+                    }
+                },
+                new RequestExecutor.UrlConnectionTransport(), new AdaptiveTimeouts(null));
+        mRequestExecutor = new RequestExecutor(mTransport);
+        mListener = new RecordingListener();
+        mClock = new FakeClock();
+    }
+
+    @After
+    public void tearDown() {
+        mTransport.evictAll();
+        mServer.close();
+        RequestEvents.setListener(null);
+    }
+
+    @Test
+    public void execute_onNewConnection_reportsEveryPhaseInOrder()
+            throws APIConnectionException, InvalidRequestException {
+        mRequestExecutor.execute(createGet(), createEvents());
+
+        assertEquals(Arrays.asList("callStart", "dnsStart", "dnsEnd", "connectStart",
+                "connectEnd", "connectionAcquired false", "requestStart", "requestEnd",
+                "responseStart", "responseEnd 200 req_1", "callEnd"), mListener.mEvents);
+        assertTimestampsIncrease();
+        assertEquals(RESPONSE_BODY.length(), mListener.mResponseBodyBytes);
+        assertTrue(mListener.mRequestBytes > 0);
+    }
+
+    @Test
+    public void execute_onPooledConnection_skipsDnsAndConnect()
+            throws APIConnectionException, InvalidRequestException {
+        mRequestExecutor.execute(createGet(), RequestEvents.NONE);
+        mRequestExecutor.execute(createGet(), createEvents());
+
+        assertEquals(Arrays.asList("callStart", "connectionAcquired true", "requestStart",
+                "requestEnd", "responseStart", "responseEnd 200 req_2", "callEnd"),
+                mListener.mEvents);
+        assertTimestampsIncrease();
+    }
+
+    @Test
+    public void execute_withGzipResponse_reportsDecoding()
+            throws APIConnectionException, InvalidRequestException {
+        mServer.setGzipResponses(true);
+        mRequestExecutor.execute(createGet(), createEvents());
+
+        final int responseEnd = mListener.mEvents.indexOf("responseEnd 200 req_1");
+        assertEquals(Arrays.asList("decodeStart", "decodeEnd", "callEnd"),
+                mListener.mEvents.subList(responseEnd + 1, mListener.mEvents.size()));
+        assertEquals(RESPONSE_BODY.length(), mListener.mDecodedBodyBytes);
+        assertTrue(mListener.mResponseBodyBytes != RESPONSE_BODY.length());
+    }
+
+    @Test
+    public void execute_whenConnectionFails_reportsCallFailed() {
+        // nothing listens on port 1, and it is outside the ephemeral range, so the connection
+        // is refused
+        try {
+            mRequestExecutor.execute(PooledHttpTransportTest.createRequest(
+                    StripeRequest.Method.GET, "http://127.0.0.1:1/v1/tokens", null),
+                    createEvents());
+            fail("Expected an exception");
+        } catch (APIConnectionException | InvalidRequestException e) {
+            assertEquals("callFailed", mListener.mEvents.get(mListener.mEvents.size() - 1));
+            assertNotNull(mListener.mException);
+        }
+    }
+
+    @Test
+    public void getResponseJson_reportsParsingAfterCallEnd()
+            throws APIConnectionException, InvalidRequestException {
+        final StripeResponse response = mRequestExecutor.execute(createGet(), createEvents());
+        final JSONObject responseJson = response.getResponseJson();
+
+        assertNotNull(responseJson);
+        assertEquals(Arrays.asList("callEnd", "parseStart", "parseEnd"),
+                mListener.mEvents.subList(mListener.mEvents.size() - 3,
+                        mListener.mEvents.size()));
+    }
+
+    @Test
+    public void execute_whenListenerThrows_dropsFailureAndCompletesCall()
+            throws APIConnectionException, InvalidRequestException {
+        final RequestEventListener listener = new ThrowingListener();
+        final RequestEvents events = new RequestEvents(listener,
+                new RequestEventListener.Call(1, "GET", mServer.getUrl("/v1/tokens"), 0),
+                mClock);
+
+        final StripeResponse response = mRequestExecutor.execute(createGet(), events);
+        assertEquals(200, response.getResponseCode());
+        assertEquals(RESPONSE_BODY, response.getResponseBody());
+        events.callFailed(new IOException());
+
+        // the connection finished its exchange, so it was pooled and is reused
+        mRequestExecutor.execute(createGet(), RequestEvents.NONE);
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void create_withoutListener_returnsNone() {
+        assertSame(RequestEvents.NONE, RequestEvents.create(createGet(), 0));
+
+        RequestEvents.setListener(mListener);
+        final RequestEvents events = RequestEvents.create(createGet(), 2);
+        events.callStart();
+
+        final RequestEventListener.Call call = mListener.mCall;
+        assertNotNull(call);
+        assertEquals("GET", call.getMethod());
+        assertEquals(mServer.getUrl("/v1/tokens"), call.getUrl());
+        assertEquals(2, call.getRetryCount());
+    }
+
+    @Test
+    public void withoutCall_doesNotReadClock() {
+        final RequestEvents events = new RequestEvents(mListener, null, mClock);
+        events.callStart();
+        events.responseEnd(200, 10, "req_1");
+        events.callEnd();
+
+        assertEquals(0, mClock.mReadCount);
+        assertTrue(mListener.mEvents.isEmpty());
+    }
+
+    private void assertTimestampsIncrease() {
+        for (int i = 1; i < mListener.mTimestamps.size(); i++) {
+            assertTrue(mListener.mTimestamps.get(i) > mListener.mTimestamps.get(i - 1));
+        }
+    }
+
+    @NonNull
+    private RequestEvents createEvents() {
+        return new RequestEvents(mListener,
+                new RequestEventListener.Call(1, "GET", mServer.getUrl("/v1/tokens"), 0),
+                mClock);
+    }
+
+    @NonNull
+    private StripeRequest createGet() {
+        return PooledHttpTransportTest.createRequest(StripeRequest.Method.GET,
+                mServer.getUrl("/v1/tokens"), null);
+    }
+
+    /**
+     * A {@link Clock} that moves forward by one nanosecond each time it is read, so that the
+     * order of events is visible in their timestamps.
+     */
+    private static final class FakeClock implements Clock {
+        private long mReadCount;
+
+        @Override
+        public long nanoTime() {
+            return ++mReadCount;
+        }
+    }
+
+    private static final class ThrowingListener extends RequestEventListener {
+        @Override
+        public void callStart(@NonNull Call call, long timestampNanos) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, long timestampNanos) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, long timestampNanos) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void connectionAcquired(@NonNull Call call, long timestampNanos,
+                                       boolean isReused) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void requestStart(@NonNull Call call, long timestampNanos) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void responseStart(@NonNull Call call, long timestampNanos) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void responseEnd(@NonNull Call call, long timestampNanos, int responseCode,
+                                long responseBodyBytes, @Nullable String requestId) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void callEnd(@NonNull Call call, long timestampNanos) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, long timestampNanos,
+                               @NonNull Exception exception) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static final class RecordingListener extends RequestEventListener {
+        @NonNull private final List<String> mEvents = new ArrayList<>();
+        @NonNull private final List<Long> mTimestamps = new ArrayList<>();
+        @Nullable private Call mCall;
+        @Nullable private Exception mException;
+        private long mRequestBytes;
+        private long mResponseBodyBytes;
+        private long mDecodedBodyBytes;
+
+        @Override
+        public void callStart(@NonNull Call call, long timestampNanos) {
+            mCall = call;
+            record("callStart", timestampNanos);
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, long timestampNanos) {
+            record("dnsStart", timestampNanos);
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, long timestampNanos) {
+            record("dnsEnd", timestampNanos);
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, long timestampNanos) {
+            record("connectStart", timestampNanos);
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call, long timestampNanos) {
+            record("secureConnectStart", timestampNanos);
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, long timestampNanos) {
+            record("secureConnectEnd", timestampNanos);
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, long timestampNanos) {
+            record("connectEnd", timestampNanos);
+        }
+
+        @Override
+        public void connectionAcquired(@NonNull Call call, long timestampNanos,
+                                       boolean isReused) {
+            record("connectionAcquired " + isReused, timestampNanos);
+        }
+
+        @Override
+        public void requestStart(@NonNull Call call, long timestampNanos) {
+            record("requestStart", timestampNanos);
+        }
+
+        @Override
+        public void requestEnd(@NonNull Call call, long timestampNanos, long requestBytes) {
+            mRequestBytes = requestBytes;
+            record("requestEnd", timestampNanos);
+        }
+
+        @Override
+        public void responseStart(@NonNull Call call, long timestampNanos) {
+            record("responseStart", timestampNanos);
+        }
+
+        @Override
+        public void responseEnd(@NonNull Call call, long timestampNanos, int responseCode,
+                                long responseBodyBytes, @Nullable String requestId) {
+            mResponseBodyBytes = responseBodyBytes;
+            record("responseEnd " + responseCode + " " + requestId, timestampNanos);
+        }
+
+        @Override
+        public void decodeStart(@NonNull Call call, long timestampNanos) {
+            record("decodeStart", timestampNanos);
+        }
+
+        @Override
+        public void decodeEnd(@NonNull Call call, long timestampNanos, long decodedBodyBytes) {
+            mDecodedBodyBytes = decodedBodyBytes;
+            record("decodeEnd", timestampNanos);
+        }
+
+        @Override
+        public void callEnd(@NonNull Call call, long timestampNanos) {
+            record("callEnd", timestampNanos);
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, long timestampNanos,
+                               @NonNull Exception exception) {
+            mException = exception;
+            record("callFailed", timestampNanos);
+        }
+
+        @Override
+        public void parseStart(@NonNull Call call, long timestampNanos) {
+            record("parseStart", timestampNanos);
+        }
+
+        @Override
+        public void parseEnd(@NonNull Call call, long timestampNanos) {
+            record("parseEnd", timestampNanos);
+        }
+
+        private void record(@NonNull String event, long timestampNanos) {
+            mEvents.add(event);
+            mTimestamps.add(timestampNanos);
+        }
+    }
+}
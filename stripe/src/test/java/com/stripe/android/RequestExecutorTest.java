@@ -35,7 +35,7 @@ public class RequestExecutorTest {
         };
 
         final RequestExecutor.ConnectionFactory connectionFactory =
-                new RequestExecutor.ConnectionFactory();
+                new RequestExecutor.ConnectionFactory(new AdaptiveTimeouts(null));
         assertThrows(InvalidRequestException.class,
                 new ThrowingRunnable() {
                     @Override
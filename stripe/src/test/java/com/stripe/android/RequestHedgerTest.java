@@ -0,0 +1,236 @@
+package com.stripe.android;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestHedgerTest {
+    private static final long HEDGE_DELAY_MS = 50;
+
+    @NonNull private final ExecutorService mExecutorService = Executors.newCachedThreadPool();
+    @NonNull private final RequestHedger mRequestHedger = new RequestHedger(mExecutorService);
+
+    @After
+    public void after() {
+        mExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void isEnabled_defaultsToFalse() {
+        assertFalse(mRequestHedger.isEnabled());
+        mRequestHedger.setEnabled(true);
+        assertTrue(mRequestHedger.isEnabled());
+    }
+
+    @Test
+    public void execute_whenFirstAttemptIsFast_doesNotHedge() throws Exception {
+        final StripeResponse response = new StripeResponse(200, "{}", null);
+        final ScriptedAttempt attempt = new ScriptedAttempt(new Step(response, 0));
+
+        assertSame(response, mRequestHedger.execute(HEDGE_DELAY_MS, attempt));
+        assertEquals(1, attempt.getStartedCount());
+    }
+
+    @Test
+    public void execute_whenFirstAttemptIsSlow_returnsHedgeAndCancelsFirstAttempt()
+            throws Exception {
+        final StripeResponse hedgeResponse = new StripeResponse(200, "{}", null);
+        final ScriptedAttempt attempt = new ScriptedAttempt(
+                new Step(new StripeResponse(200, "{}", null), TimeUnit.SECONDS.toMillis(10)),
+                new Step(hedgeResponse, 0));
+
+        final long startNanos = System.nanoTime();
+        assertSame(hedgeResponse, mRequestHedger.execute(HEDGE_DELAY_MS, attempt));
+        assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, attempt.getStartedCount());
+        assertTrue(attempt.mCancellationSignals.get(0).isCanceled());
+    }
+
+    @Test
+    public void execute_whenFirstAttemptFailsFast_throwsWithoutHedging() throws Exception {
+        final APIConnectionException exception = new APIConnectionException("reset", null);
+        final ScriptedAttempt attempt = new ScriptedAttempt(new Step(exception, 0));
+
+        try {
+            mRequestHedger.execute(HEDGE_DELAY_MS, attempt);
+            fail("Expected an APIConnectionException");
+        } catch (APIConnectionException e) {
+            assertSame(exception, e);
+        }
+        assertEquals(1, attempt.getStartedCount());
+    }
+
+    @Test
+    public void execute_whenHedgeFails_waitsForFirstAttempt() throws Exception {
+        final StripeResponse response = new StripeResponse(200, "{}", null);
+        final ScriptedAttempt attempt = new ScriptedAttempt(
+                new Step(response, 4 * HEDGE_DELAY_MS),
+                new Step(new APIConnectionException("reset", null), 0));
+
+        assertSame(response, mRequestHedger.execute(HEDGE_DELAY_MS, attempt));
+        assertEquals(2, attempt.getStartedCount());
+    }
+
+    @Test
+    public void execute_whenNoThreadIsFree_runsFirstAttemptWithoutHedging() throws Exception {
+        final ExecutorService executorService = RequestHedger.createExecutorService();
+        final CountDownLatch releaseLatch = occupyThreads(executorService,
+                RequestHedger.MAX_THREADS);
+        try {
+            final StripeResponse response = new StripeResponse(200, "{}", null);
+            final ScriptedAttempt attempt =
+                    new ScriptedAttempt(new Step(response, 4 * HEDGE_DELAY_MS));
+
+            assertSame(response,
+                    new RequestHedger(executorService).execute(HEDGE_DELAY_MS, attempt));
+            assertEquals(1, attempt.getStartedCount());
+        } finally {
+            releaseLatch.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void execute_whenNoThreadIsFreeForHedge_waitsForFirstAttempt() throws Exception {
+        final ExecutorService executorService = RequestHedger.createExecutorService();
+        final CountDownLatch releaseLatch = occupyThreads(executorService,
+                RequestHedger.MAX_THREADS - 1);
+        try {
+            final StripeResponse response = new StripeResponse(200, "{}", null);
+            final ScriptedAttempt attempt =
+                    new ScriptedAttempt(new Step(response, 4 * HEDGE_DELAY_MS));
+
+            assertSame(response,
+                    new RequestHedger(executorService).execute(HEDGE_DELAY_MS, attempt));
+            assertEquals(1, attempt.getStartedCount());
+        } finally {
+            releaseLatch.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void execute_whenBothAttemptsFail_throwsFirstFailure() throws Exception {
+        final APIConnectionException hedgeException = new APIConnectionException("hedge", null);
+        final ScriptedAttempt attempt = new ScriptedAttempt(
+                new Step(new APIConnectionException("first", null), 4 * HEDGE_DELAY_MS),
+                new Step(hedgeException, 0));
+
+        try {
+            mRequestHedger.execute(HEDGE_DELAY_MS, attempt);
+            fail("Expected an APIConnectionException");
+        } catch (APIConnectionException e) {
+            assertSame(hedgeException, e);
+        }
+    }
+
+    /**
+     * Keep {@code count} threads of {@code executorService} busy until the returned latch is
+     * released.
+     */
+    @NonNull
+    private static CountDownLatch occupyThreads(@NonNull ExecutorService executorService,
+                                                int count) {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        for (int i = 0; i < count; i++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        releaseLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        return releaseLatch;
+    }
+
+    private static final class Step {
+        @Nullable private final StripeResponse mResponse;
+        @Nullable private final APIConnectionException mException;
+        private final long mDelayMs;
+
+        private Step(@NonNull StripeResponse response, long delayMs) {
+            mResponse = response;
+            mException = null;
+            mDelayMs = delayMs;
+        }
+
+        private Step(@NonNull APIConnectionException exception, long delayMs) {
+            mResponse = null;
+            mException = exception;
+            mDelayMs = delayMs;
+        }
+    }
+
+    /**
+     * Runs the steps in order, one per attempt. A step waits for its delay, or until its attempt
+     * is cancelled, before it returns its response or throws its exception.
+     */
+    private static final class ScriptedAttempt implements RequestHedger.Attempt {
+        @NonNull private final Step[] mSteps;
+        @NonNull private final List<CancellationSignal> mCancellationSignals =
+                Collections.synchronizedList(new ArrayList<CancellationSignal>());
+
+        private ScriptedAttempt(@NonNull Step... steps) {
+            mSteps = steps;
+        }
+
+        @NonNull
+        @Override
+        public StripeResponse execute(@NonNull CancellationSignal cancellationSignal)
+                throws InvalidRequestException, APIConnectionException {
+            final Step step;
+            synchronized (mCancellationSignals) {
+                step = mSteps[mCancellationSignals.size()];
+                mCancellationSignals.add(cancellationSignal);
+            }
+
+            final CountDownLatch canceledLatch = new CountDownLatch(1);
+            cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    canceledLatch.countDown();
+                }
+            });
+            try {
+                if (canceledLatch.await(step.mDelayMs, TimeUnit.MILLISECONDS)) {
+                    throw new APIConnectionException("Canceled", null);
+                }
+            } catch (InterruptedException e) {
+                throw new APIConnectionException("Interrupted", e);
+            }
+
+            if (step.mException != null) {
+                throw step.mException;
+            }
+            return step.mResponse;
+        }
+
+        private int getStartedCount() {
+            return mCancellationSignals.size();
+        }
+    }
+}
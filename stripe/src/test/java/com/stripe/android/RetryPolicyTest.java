@@ -0,0 +1,209 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    private static final int MAX_RETRIES = 3;
+    private static final long INITIAL_DELAY_MS = 100;
+    private static final long MAX_DELAY_MS = 1000;
+    private static final long MAX_TOTAL_DELAY_MS = 1500;
+
+    @NonNull private final RecordingSleeper mSleeper = new RecordingSleeper();
+
+    @Test
+    public void canRetry_withGet_returnsTrue() {
+        assertTrue(createRetryPolicy().canRetry(ApiRequest.createGet(
+                StripeApiHandler.getSourcesUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY))));
+    }
+
+    @Test
+    public void canRetry_withApiPost_returnsTrueBecauseOfIdempotencyKey() {
+        assertTrue(createRetryPolicy().canRetry(ApiRequest.createPost(
+                StripeApiHandler.getTokensUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY))));
+    }
+
+    @Test
+    public void canRetry_withPostWithoutIdempotencyKey_returnsFalse() {
+        assertFalse(createRetryPolicy().canRetry(
+                new FingerprintRequest(new HashMap<String, Object>(), "guid")));
+    }
+
+    @Test
+    public void getRetryDelayMs_backsOffExponentiallyWithJitter() {
+        final RetryPolicy retryPolicy = createRetryPolicy(new FixedRandom(1.0));
+        assertEquals(100, retryPolicy.getRetryDelayMs(0, 0, null));
+        assertEquals(200, retryPolicy.getRetryDelayMs(1, 0, null));
+        assertEquals(400, retryPolicy.getRetryDelayMs(2, 0, null));
+
+        final RetryPolicy noJitterPolicy = createRetryPolicy(new FixedRandom(0.0));
+        assertEquals(50, noJitterPolicy.getRetryDelayMs(0, 0, null));
+        assertEquals(100, noJitterPolicy.getRetryDelayMs(1, 0, null));
+        assertEquals(200, noJitterPolicy.getRetryDelayMs(2, 0, null));
+    }
+
+    @Test
+    public void getRetryDelayMs_isCappedAtMaxDelay() {
+        final RetryPolicy retryPolicy = new RetryPolicy(40, INITIAL_DELAY_MS, MAX_DELAY_MS,
+                Long.MAX_VALUE, new FixedRandom(1.0), mSleeper);
+        assertEquals(MAX_DELAY_MS, retryPolicy.getRetryDelayMs(10, 0, null));
+        assertEquals(MAX_DELAY_MS, retryPolicy.getRetryDelayMs(39, 0, null));
+    }
+
+    @Test
+    public void getRetryDelayMs_afterMaxRetries_returnsNoRetry() {
+        assertEquals(RetryPolicy.NO_RETRY,
+                createRetryPolicy().getRetryDelayMs(MAX_RETRIES, 0, null));
+    }
+
+    @Test
+    public void getRetryDelayMs_whenBudgetIsSpent_returnsNoRetry() {
+        final RetryPolicy retryPolicy = createRetryPolicy(new FixedRandom(1.0));
+        assertEquals(400, retryPolicy.getRetryDelayMs(2, 1100, null));
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.getRetryDelayMs(2, 1101, null));
+    }
+
+    @Test
+    public void getRetryDelayMs_withRetryableResponses_returnsDelay() {
+        final RetryPolicy retryPolicy = createRetryPolicy();
+        for (int responseCode : Arrays.asList(409, 429, 500, 503)) {
+            assertTrue(retryPolicy.getRetryDelayMs(0, 0,
+                    new StripeResponse(responseCode, null, null)) > 0);
+        }
+    }
+
+    @Test
+    public void getRetryDelayMs_withClientErrors_returnsNoRetry() {
+        final RetryPolicy retryPolicy = createRetryPolicy();
+        for (int responseCode : Arrays.asList(200, 400, 401, 402, 404)) {
+            assertEquals(RetryPolicy.NO_RETRY, retryPolicy.getRetryDelayMs(0, 0,
+                    new StripeResponse(responseCode, null, null)));
+        }
+    }
+
+    @Test
+    public void getRetryDelayMs_respectsShouldRetryHeader() {
+        final RetryPolicy retryPolicy = createRetryPolicy();
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.getRetryDelayMs(0, 0,
+                new StripeResponse(500, null, createHeaders("Stripe-Should-Retry", "false"))));
+        assertTrue(retryPolicy.getRetryDelayMs(0, 0,
+                new StripeResponse(400, null, createHeaders("stripe-should-retry", "true"))) > 0);
+    }
+
+    @Test
+    public void getRetryDelayMs_waitsAtLeastRetryAfter() {
+        final RetryPolicy retryPolicy = createRetryPolicy(new FixedRandom(0.0));
+        assertEquals(800, retryPolicy.getRetryDelayMs(0, 0,
+                new StripeResponse(429, null, createHeaders("Retry-After", "0.8"))));
+        assertEquals(50, retryPolicy.getRetryDelayMs(0, 0,
+                new StripeResponse(429, null, createHeaders("Retry-After", "0"))));
+    }
+
+    @Test
+    public void getRetryDelayMs_whenRetryAfterIsTooLong_returnsNoRetry() {
+        assertEquals(RetryPolicy.NO_RETRY, createRetryPolicy().getRetryDelayMs(0, 0,
+                new StripeResponse(429, null, createHeaders("Retry-After", "2"))));
+    }
+
+    @Test
+    public void getRetryAfterMs_parsesSecondsAndHttpDates() {
+        assertEquals(0, RetryPolicy.getRetryAfterMs(null));
+        assertEquals(3000, RetryPolicy.getRetryAfterMs(createHeaders("Retry-After", "3")));
+        assertEquals(0, RetryPolicy.getRetryAfterMs(createHeaders("Retry-After", "soon")));
+
+        final SimpleDateFormat dateFormat =
+                new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        final long retryAfterMs = RetryPolicy.getRetryAfterMs(createHeaders("Retry-After",
+                dateFormat.format(new Date(System.currentTimeMillis() + 60000))));
+        assertTrue(retryAfterMs > 50000 && retryAfterMs <= 60000);
+        assertEquals(0, RetryPolicy.getRetryAfterMs(createHeaders("Retry-After",
+                dateFormat.format(new Date(System.currentTimeMillis() - 60000)))));
+    }
+
+    @Test
+    public void sleep_waitsForDelay() {
+        assertTrue(createRetryPolicy().sleep(250));
+        assertEquals(Collections.singletonList(250L), mSleeper.mDelaysMs);
+    }
+
+    @Test
+    public void sleep_whenInterrupted_returnsFalseAndKeepsInterruptedStatus() {
+        mSleeper.mShouldInterrupt = true;
+        try {
+            assertFalse(createRetryPolicy().sleep(250));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @NonNull
+    private RetryPolicy createRetryPolicy() {
+        return createRetryPolicy(new Random());
+    }
+
+    @NonNull
+    private RetryPolicy createRetryPolicy(@NonNull Random random) {
+        return new RetryPolicy(MAX_RETRIES, INITIAL_DELAY_MS, MAX_DELAY_MS, MAX_TOTAL_DELAY_MS,
+                random, mSleeper);
+    }
+
+    @NonNull
+    private static Map<String, List<String>> createHeaders(@NonNull String name,
+                                                           @Nullable String value) {
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put(name, Collections.singletonList(value));
+        return headers;
+    }
+
+    /**
+     * A {@link Random} whose {@link #nextDouble()} always returns the same value, from 0.0 for
+     * the shortest delay to 1.0 for the longest.
+     */
+    private static final class FixedRandom extends Random {
+        private final double mValue;
+
+        private FixedRandom(double value) {
+            mValue = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return mValue;
+        }
+    }
+
+    static final class RecordingSleeper implements RetryPolicy.Sleeper {
+        @NonNull final List<Long> mDelaysMs = new ArrayList<>();
+        boolean mShouldInterrupt;
+
+        @Override
+        public void sleep(long delayMs) throws InterruptedException {
+            mDelaysMs.add(delayMs);
+            if (mShouldInterrupt) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
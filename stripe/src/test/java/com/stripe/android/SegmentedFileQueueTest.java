@@ -0,0 +1,215 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedFileQueueTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // header (4) + three records of "record_N" (8 + 8 bytes each)
+    private static final int SEGMENT_BYTES = 52;
+    private static final long MAX_BYTES = 3 * SEGMENT_BYTES;
+
+    @Rule public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        mDirectory = mTemporaryFolder.newFolder("queue");
+    }
+
+    @Test
+    public void append_thenClaim_returnsRecordsInOrder() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        queue.append(record(1));
+        queue.append(record(2));
+
+        final SegmentedFileQueue.Segment segment = queue.claimOldest();
+        assertNotNull(segment);
+        assertEquals(Arrays.asList("record_1", "record_2"), toStrings(segment));
+        queue.complete(segment);
+
+        assertNull(queue.claimOldest());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void append_whenSegmentIsFull_startsNewSegment() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        for (int i = 1; i <= 4; i++) {
+            queue.append(record(i));
+        }
+        assertEquals(2, queue.getSegmentCount());
+
+        final SegmentedFileQueue.Segment segment = queue.claimOldest();
+        assertNotNull(segment);
+        assertEquals(Arrays.asList("record_1", "record_2", "record_3"), toStrings(segment));
+    }
+
+    @Test
+    public void append_whenRecordIsLargerThanSegment_returnsFalse() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        assertFalse(queue.append(new byte[SEGMENT_BYTES]));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void append_whenOverByteCap_evictsOldestSegments() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        for (int i = 1; i <= 10; i++) {
+            queue.append(record(i));
+        }
+
+        assertTrue(queue.getSizeBytes() <= MAX_BYTES);
+        assertEquals(1, queue.getEvictedSegmentCount());
+
+        final SegmentedFileQueue.Segment segment = queue.claimOldest();
+        assertNotNull(segment);
+        assertEquals("record_4", toStrings(segment).get(0));
+    }
+
+    @Test
+    public void claimOldest_ofActiveSegment_sendsLaterRecordsToNewSegment() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        queue.append(record(1));
+        final SegmentedFileQueue.Segment segment = queue.claimOldest();
+        assertNotNull(segment);
+
+        queue.append(record(2));
+        queue.complete(segment);
+
+        final SegmentedFileQueue.Segment next = queue.claimOldest();
+        assertNotNull(next);
+        assertEquals(Arrays.asList("record_2"), toStrings(next));
+    }
+
+    @Test
+    public void restore_makesSegmentClaimableAgain() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        queue.append(record(1));
+        final SegmentedFileQueue.Segment segment = queue.claimOldest();
+        assertNotNull(segment);
+        assertNull(queue.claimOldest());
+
+        queue.restore(segment);
+        final SegmentedFileQueue.Segment restored = queue.claimOldest();
+        assertNotNull(restored);
+        assertEquals(Arrays.asList("record_1"), toStrings(restored));
+    }
+
+    @Test
+    public void open_afterRestart_recoversSegmentsAndClaims() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        for (int i = 1; i <= 4; i++) {
+            queue.append(record(i));
+        }
+        // the process dies while the first segment is being sent
+        assertNotNull(queue.claimOldest());
+
+        final SegmentedFileQueue reopened = createQueue();
+        assertEquals(2, reopened.getSegmentCount());
+        assertEquals(Arrays.asList("record_1", "record_2", "record_3"),
+                toStrings(reopened.claimOldest()));
+        assertEquals(Arrays.asList("record_4"), toStrings(reopened.claimOldest()));
+    }
+
+    @Test
+    public void open_withTruncatedRecord_keepsCompleteRecords() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        queue.append(record(1));
+        queue.append(record(2));
+
+        // simulate a crash halfway through writing the second record
+        final File segmentFile = getOnlyFile();
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        final SegmentedFileQueue reopened = createQueue();
+        assertFalse(reopened.isEmpty());
+        assertEquals(20, segmentFile.length());
+        reopened.append(record(3));
+        assertEquals(Arrays.asList("record_1"), toStrings(reopened.claimOldest()));
+        assertEquals(Arrays.asList("record_3"), toStrings(reopened.claimOldest()));
+    }
+
+    @Test
+    public void open_withCorruptRecord_dropsItAndEverythingAfter() throws IOException {
+        final SegmentedFileQueue queue = createQueue();
+        queue.append(record(1));
+        queue.append(record(2));
+        queue.append(record(3));
+
+        // flip a byte in the payload of the second record
+        try (RandomAccessFile file = new RandomAccessFile(getOnlyFile(), "rw")) {
+            file.seek(4 + 16 + 8);
+            file.write('X');
+        }
+
+        assertEquals(Arrays.asList("record_1"), toStrings(createQueue().claimOldest()));
+    }
+
+    @Test
+    public void open_ignoresFilesThatAreNotSegments() throws IOException {
+        try (FileOutputStream output =
+                     new FileOutputStream(new File(mDirectory, "0000000000000000.seg"))) {
+            output.write("garbage".getBytes(UTF_8));
+        }
+        try (FileOutputStream output = new FileOutputStream(new File(mDirectory, "other"))) {
+            output.write(1);
+        }
+
+        final SegmentedFileQueue queue = createQueue();
+        assertTrue(queue.isEmpty());
+        queue.append(record(1));
+        assertEquals(Arrays.asList("record_1"), toStrings(queue.claimOldest()));
+    }
+
+    @NonNull
+    private SegmentedFileQueue createQueue() {
+        return new SegmentedFileQueue(mDirectory, SEGMENT_BYTES, MAX_BYTES);
+    }
+
+    @NonNull
+    private File getOnlyFile() {
+        final File[] files = mDirectory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    @NonNull
+    private static byte[] record(int index) {
+        return ("record_" + index).getBytes(UTF_8);
+    }
+
+    @NonNull
+    private static List<String> toStrings(SegmentedFileQueue.Segment segment) {
+        assertNotNull(segment);
+        final List<String> strings = new ArrayList<>();
+        for (byte[] record : segment.getRecords()) {
+            strings.add(new String(record, UTF_8));
+        }
+        return strings;
+    }
+}
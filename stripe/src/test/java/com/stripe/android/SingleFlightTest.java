@@ -0,0 +1,267 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.StripeException;
+import com.stripe.android.model.SourceParams;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+    private static final int CALLER_COUNT = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @NonNull private final SingleFlight mSingleFlight = new SingleFlight();
+    @NonNull private final ExecutorService mExecutorService =
+            Executors.newFixedThreadPool(CALLER_COUNT);
+
+    @After
+    public void after() {
+        mExecutorService.shutdownNow();
+    }
+
+    @Test
+    public void execute_withIdenticalConcurrentCalls_callsWireOnce() throws Exception {
+        final BlockingCall call = new BlockingCall();
+        final List<Future<Object>> futures = executeConcurrently(createKey("src_1"), call,
+                CALLER_COUNT);
+
+        awaitWaiters(createKey("src_1"), CALLER_COUNT - 1);
+        call.release();
+
+        final Object result = futures.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        for (Future<Object> future : futures) {
+            assertSame(result, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(1, call.getWireCallCount());
+        assertEquals(-1, mSingleFlight.getWaiterCount(createKey("src_1")));
+    }
+
+    @Test
+    public void execute_withDifferentKeys_callsWireForEachKey() throws Exception {
+        final BlockingCall call = new BlockingCall();
+        final List<Future<Object>> firstFutures = executeConcurrently(createKey("src_1"), call, 2);
+        final List<Future<Object>> secondFutures =
+                executeConcurrently(createKey("src_2"), call, 2);
+
+        awaitWaiters(createKey("src_1"), 1);
+        awaitWaiters(createKey("src_2"), 1);
+        call.release();
+
+        assertSame(firstFutures.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                firstFutures.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(secondFutures.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                secondFutures.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(2, call.getWireCallCount());
+    }
+
+    @Test
+    public void execute_afterCallCompletes_callsWireAgain() throws Exception {
+        final CountingCall call = new CountingCall();
+        final Object first = mSingleFlight.execute(createKey("src_1"), call);
+        final Object second = mSingleFlight.execute(createKey("src_1"), call);
+
+        assertEquals(2, call.getWireCallCount());
+        assertTrue(first != second);
+    }
+
+    @Test
+    public void execute_whenCallFails_sharesExceptionWithWaiters() throws Exception {
+        final APIConnectionException exception = new APIConnectionException("timeout", null);
+        final BlockingCall call = new BlockingCall(exception);
+        final List<Future<Object>> futures = executeConcurrently(createKey("src_1"), call,
+                CALLER_COUNT);
+
+        awaitWaiters(createKey("src_1"), CALLER_COUNT - 1);
+        call.release();
+
+        for (Future<Object> future : futures) {
+            try {
+                future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                fail("Expected an exception");
+            } catch (ExecutionException e) {
+                assertSame(exception, e.getCause());
+            }
+        }
+        assertEquals(1, call.getWireCallCount());
+
+        // a failed call isn't remembered
+        assertEquals(-1, mSingleFlight.getWaiterCount(createKey("src_1")));
+    }
+
+    @Test
+    public void execute_whenCallIsDeferred_waitersMakeTheCallThemselves() throws Exception {
+        final ApiRequest key = createKey("src_1");
+        // the only token is taken, so a deferrable request is deferred
+        final RateLimiter rateLimiter = new RateLimiter(Clock.SYSTEM,
+                new RetryPolicy.ThreadSleeper(), new ApiMetrics(Clock.SYSTEM), 1, 1, 10000);
+        rateLimiter.acquire(key);
+
+        final BlockingCall firstCall = new BlockingCall();
+        final CountingCall laterCall = new CountingCall();
+        final SingleFlight.Call<Object> call = new SingleFlight.Call<Object>() {
+            private final AtomicInteger mCallCount = new AtomicInteger();
+
+            @NonNull
+            @Override
+            public Object call() throws StripeException {
+                if (mCallCount.getAndIncrement() > 0) {
+                    return laterCall.call();
+                }
+                firstCall.call();
+                RateLimiter.setCanDefer(true);
+                rateLimiter.acquire(key);
+                throw new AssertionError("Expected the request to be deferred");
+            }
+        };
+        final List<Future<Object>> futures = executeConcurrently(key, call, CALLER_COUNT);
+
+        awaitWaiters(key, CALLER_COUNT - 1);
+        firstCall.release();
+
+        int deferredCount = 0;
+        for (Future<Object> future : futures) {
+            try {
+                future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RateLimiter.DeferredException);
+                deferredCount++;
+            }
+        }
+        // only the caller that ran the first call was deferred
+        assertEquals(1, deferredCount);
+        assertTrue(laterCall.getWireCallCount() >= 1);
+    }
+
+    @Test
+    public void execute_whenWaiterIsInterrupted_throwsApiConnectionException()
+            throws Exception {
+        final BlockingCall call = new BlockingCall();
+        final Future<Object> leader = executeConcurrently(createKey("src_1"), call, 1).get(0);
+        awaitWaiters(createKey("src_1"), 0);
+
+        final AtomicReference<Exception> waiterException = new AtomicReference<>();
+        final Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mSingleFlight.execute(createKey("src_1"), call);
+                } catch (StripeException e) {
+                    waiterException.set(e);
+                }
+            }
+        });
+        waiter.start();
+        awaitWaiters(createKey("src_1"), 1);
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        assertTrue(waiterException.get() instanceof APIConnectionException);
+        call.release();
+        leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(1, call.getWireCallCount());
+    }
+
+    @NonNull
+    private List<Future<Object>> executeConcurrently(@NonNull final Object key,
+                                                     @NonNull final SingleFlight.Call<Object> call,
+                                                     int callerCount) {
+        final List<Future<Object>> futures = new ArrayList<>(callerCount);
+        for (int i = 0; i < callerCount; i++) {
+            futures.add(mExecutorService.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return mSingleFlight.execute(key, call);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    private void awaitWaiters(@NonNull Object key, int waiterCount) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (mSingleFlight.getWaiterCount(key) < waiterCount) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for " + waiterCount + " waiters");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @NonNull
+    private static ApiRequest createKey(@NonNull String sourceId) {
+        return ApiRequest.createGet(StripeApiHandler.getRetrieveSourceApiUrl(sourceId),
+                SourceParams.createRetrieveSourceParams("client_secret"),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+    }
+
+    private static class CountingCall implements SingleFlight.Call<Object> {
+        @NonNull private final AtomicInteger mWireCallCount = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public Object call() throws StripeException {
+            mWireCallCount.incrementAndGet();
+            return new Object();
+        }
+
+        int getWireCallCount() {
+            return mWireCallCount.get();
+        }
+    }
+
+    private static final class BlockingCall extends CountingCall {
+        @NonNull private final CountDownLatch mLatch = new CountDownLatch(1);
+        @Nullable private final StripeException mException;
+
+        private BlockingCall() {
+            this(null);
+        }
+
+        private BlockingCall(@Nullable StripeException exception) {
+            mException = exception;
+        }
+
+        @NonNull
+        @Override
+        public Object call() throws StripeException {
+            final Object result = super.call();
+            boolean isReleased = false;
+            while (!isReleased) {
+                try {
+                    isReleased = mLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                    // keep the call on the wire until the test releases it
+                }
+            }
+            if (mException != null) {
+                throw mException;
+            }
+            return result;
+        }
+
+        void release() {
+            mLatch.countDown();
+        }
+    }
+}
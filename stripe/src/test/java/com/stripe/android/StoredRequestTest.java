@@ -0,0 +1,82 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class StoredRequestTest {
+
+    @Test
+    public void fromBytes_withGetRequest_restoresUrlWithQuery()
+            throws IOException, InvalidRequestException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("event", "stripe_android.token_creation");
+        final FakeRequest request = new FakeRequest(StripeRequest.Method.GET,
+                "https://q.stripe.com", params);
+
+        final StoredRequest stored = StoredRequest.fromBytes(
+                StoredRequest.create(request).toBytes());
+        assertNotNull(stored);
+        assertEquals(StripeRequest.Method.GET, stored.method);
+        assertEquals("https://q.stripe.com?event=stripe_android.token_creation",
+                stored.getUrl());
+        assertEquals(request.getHeaders(), stored.getHeaders());
+        assertEquals(0, stored.getOutputBytes().length);
+    }
+
+    @Test
+    public void fromBytes_withPostRequest_restoresBodyAndContentType()
+            throws IOException, InvalidRequestException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("a", "1");
+        final FakeRequest request = new FakeRequest(StripeRequest.Method.POST,
+                "https://m.stripe.com/4", params);
+
+        final StoredRequest stored = StoredRequest.fromBytes(
+                StoredRequest.create(request).toBytes());
+        assertNotNull(stored);
+        assertEquals("https://m.stripe.com/4", stored.getUrl());
+        assertEquals(request.getContentType(), stored.getContentType());
+        assertArrayEquals(request.getOutputBytes(), stored.getOutputBytes());
+    }
+
+    @Test
+    public void fromBytes_withInvalidBytes_returnsNull() {
+        assertNull(StoredRequest.fromBytes(new byte[] {0, 0, 0, 1, 0, 0}));
+        assertNull(StoredRequest.fromBytes(new byte[0]));
+    }
+
+    private static final class FakeRequest extends StripeRequest {
+        FakeRequest(@NonNull Method method, @NonNull String url,
+                    @Nullable Map<String, ?> params) {
+            super(method, url, params, ApiRequest.MIME_TYPE);
+        }
+
+        @NonNull
+        @Override
+        Map<String, String> getHeaders() {
+            final Map<String, String> headers = new HashMap<>();
+            headers.put("Authorization", "Bearer pk_test_123");
+            return headers;
+        }
+
+        @NonNull
+        @Override
+        byte[] getOutputBytes() throws UnsupportedEncodingException, InvalidRequestException {
+            return createQuery().getBytes(CHARSET);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares decoding a large list response through the old path (decode the body to a
+ * {@link String}, build a {@link JSONObject} for the whole list, then create the models) with
+ * {@link StreamingJsonParser}, and decoding every element up front with deferring each one to
+ * its first read in a {@link LazyJsonList}, and writes the throughput and allocation of each, and
+ * the heap that the lists retain, to a {@link BenchmarkReports} file. Only runs with
+ * {@code -Pbenchmark}; that the paths create the same models is tested by
+ * {@link StreamingJsonParserTest} and {@link LazyJsonListTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StreamingJsonParserBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int LIST_SIZE = 200;
+    private static final int LAZY_LIST_SIZE = 100;
+    private static final int HEAP_SAMPLES = 20;
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile List<PaymentMethod> mSink;
+
+    @Test
+    public void parseList() throws Exception {
+        final byte[] body = StreamingJsonParserTest.createListJson(LIST_SIZE).getBytes(UTF_8);
+        final LoadDriver.Report stringReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws JSONException {
+                        mSink = parseListFromString(body);
+                    }
+                })
+                .run();
+        final LoadDriver.Report streamingReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws JSONException {
+                        final Reader reader = Objects.requireNonNull(
+                                StripeResponse.fromBytes(200, body, null).getResponseReader());
+                        mSink = StreamingJsonParser.parseList(reader,
+                                StreamingJsonParserTest.PAYMENT_METHOD_PARSER);
+                    }
+                })
+                .run();
+
+        BenchmarkReports.write("StreamingJsonParserBenchmark_parseList",
+                "list of " + LIST_SIZE + " payment methods, " + body.length + " bytes",
+                "via String and JSONObject: " + stringReport,
+                "via StreamingJsonParser: " + streamingReport);
+    }
+
+    @Test
+    public void parseListLazily() throws Exception {
+        final byte[] body = StreamingJsonParserTest.createListJson(LAZY_LIST_SIZE).getBytes(UTF_8);
+        final Callable<List<PaymentMethod>> parseEagerly = new Callable<List<PaymentMethod>>() {
+            @Override
+            public List<PaymentMethod> call() throws JSONException {
+                return StreamingJsonParser.parseList(createReader(body),
+                        StreamingJsonParserTest.PAYMENT_METHOD_PARSER);
+            }
+        };
+        final Callable<List<PaymentMethod>> parseLazily = new Callable<List<PaymentMethod>>() {
+            @Override
+            public List<PaymentMethod> call() throws JSONException {
+                return LazyJsonList.parse(createReader(body),
+                        StreamingJsonParserTest.PAYMENT_METHOD_PARSER);
+            }
+        };
+        final Callable<List<PaymentMethod>> parseLazilyAndReadAll =
+                new Callable<List<PaymentMethod>>() {
+                    @Override
+                    public List<PaymentMethod> call() throws Exception {
+                        final List<PaymentMethod> paymentMethods = parseLazily.call();
+                        for (int i = 0; i < paymentMethods.size(); i++) {
+                            paymentMethods.get(i);
+                        }
+                        return paymentMethods;
+                    }
+                };
+
+        BenchmarkReports.write("StreamingJsonParserBenchmark_parseListLazily",
+                "list of " + LAZY_LIST_SIZE + " payment methods, " + body.length + " bytes",
+                "eagerly: " + report(parseEagerly),
+                "lazily, no element read: " + report(parseLazily),
+                "lazily, every element read: " + report(parseLazilyAndReadAll));
+    }
+
+    @NonNull
+    private String report(@NonNull final Callable<List<PaymentMethod>> parse) throws Exception {
+        final LoadDriver.Report report = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        mSink = parse.call();
+                    }
+                })
+                .run();
+        return report + ", retained " + measureRetainedBytes(parse) + " bytes per list";
+    }
+
+    /**
+     * @return the heap that stays reachable from a result of {@code parse}, averaged over
+     * several results that are alive at the same time
+     */
+    private static long measureRetainedBytes(@NonNull Callable<List<PaymentMethod>> parse)
+            throws Exception {
+        final Object[] results = new Object[HEAP_SAMPLES];
+        final long before = usedHeapBytes();
+        for (int i = 0; i < HEAP_SAMPLES; i++) {
+            results[i] = parse.call();
+        }
+        final long after = usedHeapBytes();
+        Objects.requireNonNull(results[HEAP_SAMPLES - 1]);
+        return (after - before) / HEAP_SAMPLES;
+    }
+
+    private static long usedHeapBytes() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @NonNull
+    private static Reader createReader(@NonNull byte[] body) {
+        return Objects.requireNonNull(StripeResponse.fromBytes(200, body, null)
+                .getResponseReader());
+    }
+
+    /**
+     * The path that {@link StripeApiHandler} used before {@link StreamingJsonParser}.
+     */
+    @NonNull
+    private static List<PaymentMethod> parseListFromString(@NonNull byte[] body)
+            throws JSONException {
+        final JSONArray data = new JSONObject(new String(body, UTF_8)).optJSONArray("data");
+        final List<PaymentMethod> paymentMethods = new ArrayList<>();
+        for (int i = 0; i < data.length(); i++) {
+            paymentMethods.add(PaymentMethod.fromJson(data.optJSONObject(i)));
+        }
+        return paymentMethods;
+    }
+}
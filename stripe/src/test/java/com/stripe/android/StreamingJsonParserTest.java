@@ -0,0 +1,120 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodTest;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class StreamingJsonParserTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final StreamingJsonParser.ElementParser<PaymentMethod> PAYMENT_METHOD_PARSER =
+            new StreamingJsonParser.ElementParser<PaymentMethod>() {
+                @Override
+                public PaymentMethod parse(@NonNull JSONObject jsonObject) {
+                    return PaymentMethod.fromJson(jsonObject);
+                }
+            };
+
+    @Test
+    public void parseObject_createsSameModelAsStringParsing() throws JSONException {
+        final PaymentMethod expected = PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON);
+        final PaymentMethod actual = PaymentMethod.fromJson(StreamingJsonParser.parseObject(
+                new StringReader(PaymentMethodTest.RAW_CARD_JSON)));
+
+        assertNotNull(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void parseObject_convertsValuesLikeJsonTokener() throws JSONException {
+        final JSONObject jsonObject = StreamingJsonParser.parseObject(new StringReader(
+                "{\"int\": 8, \"long\": 1550757934255, \"double\": 1.5, \"string\": \"a\\u00e9\","
+                        + "\"bool\": true, \"null\": null, \"array\": [1, {\"key\": \"value\"}]}"));
+
+        assertEquals(8, jsonObject.get("int"));
+        assertEquals(1550757934255L, jsonObject.get("long"));
+        assertEquals(1.5, jsonObject.get("double"));
+        assertEquals("aé", jsonObject.get("string"));
+        assertEquals(true, jsonObject.get("bool"));
+        assertTrue(jsonObject.isNull("null"));
+
+        final JSONArray array = jsonObject.getJSONArray("array");
+        assertEquals(1, array.get(0));
+        assertEquals("value", array.getJSONObject(1).getString("key"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void parseObject_withMalformedJson_throwsJsonException() throws JSONException {
+        StreamingJsonParser.parseObject(new StringReader("{\"id\": "));
+    }
+
+    @Test(expected = JSONException.class)
+    public void parseObject_withTopLevelArray_throwsJsonException() throws JSONException {
+        StreamingJsonParser.parseObject(new StringReader("[]"));
+    }
+
+    @Test
+    public void parseList_parsesEachElementOfData() throws JSONException {
+        final List<PaymentMethod> paymentMethods = StreamingJsonParser.parseList(
+                new StringReader(createListJson(3)), PAYMENT_METHOD_PARSER);
+
+        final PaymentMethod expected = PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON);
+        assertEquals(Collections.nCopies(3, expected), paymentMethods);
+    }
+
+    @Test
+    public void parseList_withoutData_returnsEmptyList() throws JSONException {
+        assertTrue(StreamingJsonParser.parseList(
+                new StringReader("{\"object\": \"list\", \"has_more\": false}"),
+                PAYMENT_METHOD_PARSER).isEmpty());
+    }
+
+    @Test
+    public void getResponseJson_fromBytes_parsesBodyWithoutDecodingString() {
+        final StripeResponse response = StripeResponse.fromBytes(200,
+                PaymentMethodTest.RAW_CARD_JSON.getBytes(UTF_8), null);
+
+        assertEquals(PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON),
+                PaymentMethod.fromJson(response.getResponseJson()));
+        assertEquals(PaymentMethodTest.RAW_CARD_JSON, response.getResponseBody());
+    }
+
+    @Test
+    public void getResponseJson_withInvalidBody_returnsNull() {
+        assertNull(StripeResponse.fromBytes(200, "not json".getBytes(UTF_8), null)
+                .getResponseJson());
+        assertNull(StripeResponse.fromBytes(204, new byte[0], null).getResponseJson());
+    }
+
+    @NonNull
+    static String createListJson(int size) {
+        final StringBuilder json = new StringBuilder("{\"object\": \"list\", \"data\": [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(PaymentMethodTest.RAW_CARD_JSON);
+        }
+        return json.append("], \"has_more\": false, \"url\": \"/v1/payment_methods\"}")
+                .toString();
+    }
+}
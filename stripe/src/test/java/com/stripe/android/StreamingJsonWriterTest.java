@@ -0,0 +1,141 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodTest;
+import com.stripe.android.testharness.JsonTestUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingJsonWriterTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void toBytes_withNestedMapsAndLists_writesSameJsonAsTree() throws JSONException {
+        final String string = "quote \" backslash \\ newline \n tab \t control \u0001 " +
+                "separator \u2028 unicode \u00e9\u4e2d\ud83d\ude00";
+
+        final Map<String, Object> innerMap = new HashMap<>();
+        innerMap.put("innermost_key", 1000);
+        innerMap.put("long_key", 1558469721000L);
+        innerMap.put("double_key", 1.5);
+
+        final List<Object> items = new ArrayList<>();
+        items.add(innerMap);
+        items.add("a string item");
+        items.add(256);
+        items.add(Arrays.asList(1, 2, "C", 4));
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("string_key", string);
+        map.put("bool_key", false);
+        map.put("map_key", innerMap);
+        map.put("list_key", items);
+
+        final JSONObject expectedInnerObject = new JSONObject()
+                .put("innermost_key", 1000)
+                .put("long_key", 1558469721000L)
+                .put("double_key", 1.5);
+        final JSONObject expectedObject = new JSONObject()
+                .put("string_key", string)
+                .put("bool_key", false)
+                .put("map_key", expectedInnerObject)
+                .put("list_key", new JSONArray()
+                        .put(expectedInnerObject)
+                        .put("a string item")
+                        .put(256)
+                        .put(new JSONArray().put(1).put(2).put("C").put(4)));
+
+        JsonTestUtils.assertJsonEquals(expectedObject, parse(map));
+    }
+
+    @Test
+    public void toBytes_skipsNullAndNonFiniteValues() throws JSONException {
+        final Map<String, Object> map = new HashMap<>();
+        map.put("null_key", null);
+        map.put("nan_key", Double.NaN);
+        map.put("infinite_key", Float.POSITIVE_INFINITY);
+        map.put("list_key", Arrays.asList("a", null, Double.NaN));
+
+        final JSONObject jsonObject = parse(map);
+        assertEquals(1, jsonObject.length());
+        assertFalse(jsonObject.has("null_key"));
+        assertFalse(jsonObject.has("nan_key"));
+        assertFalse(jsonObject.has("infinite_key"));
+        assertEquals("a", jsonObject.getJSONArray("list_key").getString(0));
+        assertTrue(jsonObject.getJSONArray("list_key").isNull(1));
+        assertTrue(jsonObject.getJSONArray("list_key").isNull(2));
+    }
+
+    @Test
+    public void toBytes_skipsEntriesOfMapsWithNonStringKeys() throws JSONException {
+        final Map<Object, Object> nonStringKeys = new HashMap<>();
+        nonStringKeys.put(1, "one");
+        nonStringKeys.put("two", 2);
+        final Map<String, Object> map = new HashMap<>();
+        map.put("map_key", nonStringKeys);
+
+        final JSONObject innerObject = parse(map).getJSONObject("map_key");
+        assertEquals(1, innerObject.length());
+        assertEquals(2, innerObject.getInt("two"));
+    }
+
+    @Test
+    public void toBytes_withModel_matchesToJson() throws JSONException {
+        final PaymentMethod paymentMethod =
+                PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON);
+        final String json = new String(StreamingJsonWriter.toBytes(paymentMethod), UTF_8);
+
+        JsonTestUtils.assertJsonEquals(paymentMethod.toJson(), new JSONObject(json));
+        assertEquals(paymentMethod, PaymentMethod.fromString(json));
+    }
+
+    @Test
+    public void toBytes_withLargeModel_matchesToJson() throws JSONException {
+        final JSONObject jsonObject = new JSONObject(PaymentMethodTest.RAW_CARD_JSON);
+        final JSONObject metadata = new JSONObject();
+        for (int i = 0; i < 50; i++) {
+            metadata.put(String.format(Locale.ROOT, "key_%02d", i),
+                    String.format(Locale.ROOT, "a metadata value with some length, number %d", i));
+        }
+        jsonObject.put("metadata", metadata);
+        final PaymentMethod paymentMethod = PaymentMethod.fromJson(jsonObject);
+        assertNotNull(paymentMethod);
+
+        JsonTestUtils.assertJsonEquals(paymentMethod.toJson(),
+                new JSONObject(new String(StreamingJsonWriter.toBytes(paymentMethod), UTF_8)));
+    }
+
+    @Test
+    public void toBytes_withModelInMap_writesModelJson() throws JSONException {
+        final PaymentMethod paymentMethod =
+                PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON);
+        final Map<String, Object> map = new HashMap<>();
+        map.put("payment_method", paymentMethod);
+
+        JsonTestUtils.assertJsonEquals(paymentMethod.toJson(),
+                parse(map).getJSONObject("payment_method"));
+    }
+
+    @NonNull
+    private static JSONObject parse(@NonNull Map<String, ?> map) throws JSONException {
+        return new JSONObject(new String(StreamingJsonWriter.toBytes(map), UTF_8));
+    }
+}
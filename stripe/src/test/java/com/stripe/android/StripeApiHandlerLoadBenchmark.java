@@ -0,0 +1,215 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.model.Card;
+import com.stripe.android.model.PaymentIntentParams;
+import com.stripe.android.model.PaymentMethodCreateParams;
+import com.stripe.android.model.Token;
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+import com.stripe.android.testharness.StripeApiStandIn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Sends a mix of API calls through the whole networking stack, from {@link StripeApiHandler}
+ * down to pooled sockets, to a {@link StripeApiStandIn} from many threads. Fails if the
+ * throughput or the p99 latency of the calls misses its budget, and writes their throughput,
+ * latency and allocation to a {@link BenchmarkReports} file.
+ *
+ * Only runs with {@code -Pbenchmark}. The load and the budgets can be changed with the
+ * {@code stripe.loadtest.threads}, {@code stripe.loadtest.durationMs},
+ * {@code stripe.loadtest.minOpsPerSecond} and {@code stripe.loadtest.maxP99Ms} system
+ * properties.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StripeApiHandlerLoadBenchmark {
+    private static final int THREAD_COUNT = Integer.getInteger("stripe.loadtest.threads", 16);
+    private static final long WARM_UP_MS = 1000;
+    private static final long DURATION_MS = Long.getLong("stripe.loadtest.durationMs", 3000);
+
+    // loose enough for a shared CI machine; the stand-in responds without delay
+    private static final int MIN_OPS_PER_SECOND =
+            Integer.getInteger("stripe.loadtest.minOpsPerSecond", 100);
+    private static final long MAX_P99_MS = Long.getLong("stripe.loadtest.maxP99Ms", 500);
+
+    private static final Card CARD = Card.create("4242424242424242", 1, 2050, "123");
+
+    @NonNull private final AtomicInteger mIdCounter = new AtomicInteger();
+
+    private StripeApiStandIn mStandIn;
+    private StripeApiHandler mApiHandler;
+    private StripeNetworkUtils mNetworkUtils;
+
+    @Before
+    public void setup() throws IOException {
+        mStandIn = new StripeApiStandIn(new Random(0));
+        mStandIn.getServer().setRecordRequests(false);
+
+        final ApiMetrics apiMetrics = new ApiMetrics(Clock.SYSTEM);
+        final PooledHttpTransport transport = new PooledHttpTransport(new ConnectionPool(),
+                DnsResolver.SYSTEM, StripeSSLSocketFactory.getInstance(),
+                HttpsURLConnection.getDefaultHostnameVerifier(),
+                new RequestExecutor.UrlConnectionTransport(), new AdaptiveTimeouts(null));
+        mApiHandler = new StripeApiHandler(ApplicationProvider.getApplicationContext(),
+                new RequestExecutor(new StandInTransport(transport, mStandIn.getBaseUrl())),
+                mock(AnalyticsDispatcher.class), new SingleFlight(),
+                RetryPolicy.createDefault(), apiMetrics, new AdaptiveTimeouts(null),
+                RequestHedger.getInstance(),
+                // the stand-in has no rate limits
+                new RateLimiter(Clock.SYSTEM, new RetryPolicy.ThreadSleeper(), apiMetrics,
+                        1_000_000, 1_000_000, 0),
+                false);
+        mNetworkUtils = new StripeNetworkUtils(ApplicationProvider.getApplicationContext());
+    }
+
+    @After
+    public void tearDown() {
+        mStandIn.close();
+    }
+
+    @Test
+    public void mixedApiCalls_meetThroughputAndLatencyBudgets() throws Exception {
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        final LoadDriver.Report report = new LoadDriver(THREAD_COUNT, WARM_UP_MS, DURATION_MS)
+                .add(3, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        assertNotNull(mApiHandler.createToken(mNetworkUtils.hashMapFromCard(CARD),
+                                options, Token.TYPE_CARD));
+                    }
+                })
+                .add(3, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        assertNotNull(mApiHandler.createPaymentMethod(
+                                PaymentMethodCreateParams.create(
+                                        CARD.toPaymentMethodParamsCard(), null),
+                                options));
+                    }
+                })
+                .add(2, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        // distinct ids, so that concurrent calls are not coalesced
+                        assertNotNull(mApiHandler.retrieveSource("src_" + nextId(),
+                                "src_client_secret_standin", options));
+                    }
+                })
+                .add(2, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        assertNotNull(mApiHandler.retrievePaymentIntent(
+                                PaymentIntentParams.createRetrievePaymentIntentParams(
+                                        "pi_" + nextId() + "_secret_standin"),
+                                options));
+                    }
+                })
+                .add(2, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        assertEquals(2, mApiHandler.getPaymentMethods("cus_" + nextId(),
+                                "card", ApiKeyFixtures.FAKE_PUBLISHABLE_KEY,
+                                Collections.<String>emptyList(),
+                                ApiKeyFixtures.FAKE_EPHEMERAL_KEY).size());
+                    }
+                })
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        assertNotNull(mApiHandler.retrieveCustomer("cus_" + nextId(),
+                                ApiKeyFixtures.FAKE_EPHEMERAL_KEY));
+                    }
+                })
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        assertTrue(mApiHandler.complete3ds2Auth("src_" + nextId(),
+                                ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+                    }
+                })
+                .run();
+
+        BenchmarkReports.write("StripeApiHandlerLoadBenchmark",
+                THREAD_COUNT + " threads: " + report);
+        assertEquals(String.valueOf(report.getFirstError()), 0, report.getErrorCount());
+        assertTrue(report.toString(), report.getThroughput() >= MIN_OPS_PER_SECOND);
+        assertTrue(report.toString(),
+                report.getLatencyNanos(99) <= TimeUnit.MILLISECONDS.toNanos(MAX_P99_MS));
+    }
+
+    private int nextId() {
+        return mIdCounter.incrementAndGet();
+    }
+
+    /**
+     * Sends requests for {@code https://api.stripe.com} to the stand-in instead.
+     */
+    private static final class StandInTransport implements HttpTransport {
+        @NonNull private final HttpTransport mTransport;
+        @NonNull private final String mBaseUrl;
+
+        private StandInTransport(@NonNull HttpTransport transport, @NonNull String baseUrl) {
+            mTransport = transport;
+            mBaseUrl = baseUrl;
+        }
+
+        @NonNull
+        @Override
+        public StripeResponse execute(@NonNull final StripeRequest request,
+                                      @NonNull RequestEvents events)
+                throws IOException, InvalidRequestException {
+            final String url = request.getBaseUrl();
+            if (!url.startsWith(ApiRequest.API_HOST)) {
+                return mTransport.execute(request, events);
+            }
+
+            return mTransport.execute(new StripeRequest(request.method,
+                    mBaseUrl + url.substring(ApiRequest.API_HOST.length()), request.params,
+                    ApiRequest.MIME_TYPE) {
+                @NonNull
+                @Override
+                Map<String, String> getHeaders() {
+                    return request.getHeaders();
+                }
+
+                @NonNull
+                @Override
+                byte[] getOutputBytes()
+                        throws UnsupportedEncodingException, InvalidRequestException {
+                    return request.getOutputBytes();
+                }
+
+                @NonNull
+                @Override
+                String getContentType() {
+                    return request.getContentType();
+                }
+            }, events);
+        }
+    }
+}
@@ -22,8 +22,11 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.function.ThrowingRunnable;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 
 import java.io.UnsupportedEncodingException;
@@ -33,14 +36,30 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -58,6 +77,7 @@ public class StripeApiHandlerTest {
             new StripeApiHandler(ApplicationProvider.getApplicationContext());
 
     @Mock private RequestExecutor mRequestExecutor;
+    @NonNull private final ApiMetrics mApiMetrics = new ApiMetrics(Clock.SYSTEM);
 
     @Before
     public void before() {
@@ -346,6 +366,47 @@ public class StripeApiHandlerTest {
         verifyNoMoreInteractions(mRequestExecutor);
     }
 
+    @Test
+    public void create_withSecondHandler_sharesOpenCircuitBreakerOfFirst() {
+        final StripeApiHandler firstApiHandler = new StripeApiHandler(
+                ApplicationProvider.getApplicationContext(), mRequestExecutor, true);
+        final StripeApiHandler secondApiHandler = new StripeApiHandler(
+                ApplicationProvider.getApplicationContext(), mRequestExecutor, true);
+
+        final CircuitBreaker firstCircuitBreaker =
+                firstApiHandler.getAnalyticsDispatcher().getCircuitBreaker();
+        final CircuitBreaker secondCircuitBreaker =
+                secondApiHandler.getAnalyticsDispatcher().getCircuitBreaker();
+        final String host = "q.stripe.com";
+        try {
+            for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+                firstCircuitBreaker.onFailure(host);
+            }
+
+            assertEquals(CircuitBreaker.State.OPEN, secondCircuitBreaker.getState(host));
+            assertFalse(secondCircuitBreaker.allowRequest(host));
+        } finally {
+            // the breaker is shared by the whole process
+            firstCircuitBreaker.onSuccess(host);
+        }
+    }
+
+    @Test
+    public void logApiCall_whenShouldLogRequestIsTrue_queuesRequestWithoutExecutingIt() {
+        final AnalyticsDispatcher analyticsDispatcher = mock(AnalyticsDispatcher.class);
+        when(analyticsDispatcher.enqueue(any(StripeRequest.class))).thenReturn(true);
+        final StripeApiHandler apiHandler = new StripeApiHandler(
+                ApplicationProvider.getApplicationContext(),
+                mRequestExecutor,
+                analyticsDispatcher,
+                true
+        );
+        assertTrue(apiHandler.logApiCall(new HashMap<String, Object>(),
+                ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY));
+        verify(analyticsDispatcher).enqueue(any(StripeRequest.class));
+        verifyNoMoreInteractions(mRequestExecutor);
+    }
+
     @Test
     public void getPaymentMethods_whenPopulated_returnsExpectedList()
             throws StripeException, UnsupportedEncodingException {
@@ -499,7 +560,7 @@ public class StripeApiHandlerTest {
                         StripeRequest.Method.GET,
                         url,
                         options,
-                        queryParams))))
+                        queryParams)), any(RequestEvents.class)))
                 .thenReturn(stripeResponse);
         final StripeApiHandler apiHandler = new StripeApiHandler(
                 ApplicationProvider.getApplicationContext(),
@@ -546,7 +607,7 @@ public class StripeApiHandlerTest {
                         StripeRequest.Method.GET,
                         url,
                         options,
-                        queryParams))))
+                        queryParams)), any(RequestEvents.class)))
                 .thenReturn(stripeResponse);
         final StripeApiHandler apiHandler = new StripeApiHandler(
                 ApplicationProvider.getApplicationContext(),
@@ -559,4 +620,139 @@ public class StripeApiHandlerTest {
                         ApiKeyFixtures.FAKE_EPHEMERAL_KEY);
         assertTrue(paymentMethods.isEmpty());
     }
+
+    @Test
+    public void retrieveSource_withIdenticalConcurrentRequests_callsWireOnce()
+            throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final AtomicInteger wireCallCount = new AtomicInteger();
+        when(mRequestExecutor.execute(any(StripeRequest.class), any(RequestEvents.class)))
+                .thenAnswer(new Answer<StripeResponse>() {
+                    @Override
+                    public StripeResponse answer(InvocationOnMock invocation)
+                            throws InterruptedException {
+                        wireCallCount.incrementAndGet();
+                        releaseLatch.await();
+                        return new StripeResponse(200,
+                                "{\"id\": \"src_123\", \"object\": \"source\"}", null);
+                    }
+                });
+
+        // two handlers, as if two screens each created their own Stripe instance
+        final SingleFlight singleFlight = new SingleFlight();
+        final StripeApiHandler firstApiHandler = new StripeApiHandler(
+                ApplicationProvider.getApplicationContext(), mRequestExecutor,
+                mock(AnalyticsDispatcher.class), singleFlight, RetryPolicy.createDefault(),
+                new ApiMetrics(Clock.SYSTEM),
+                new AdaptiveTimeouts(null), RequestHedger.getInstance(),
+                RateLimiter.getInstance(), false);
+        final StripeApiHandler secondApiHandler = new StripeApiHandler(
+                ApplicationProvider.getApplicationContext(), mRequestExecutor,
+                mock(AnalyticsDispatcher.class), singleFlight, RetryPolicy.createDefault(),
+                new ApiMetrics(Clock.SYSTEM),
+                new AdaptiveTimeouts(null), RequestHedger.getInstance(),
+                RateLimiter.getInstance(), false);
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Source>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final StripeApiHandler apiHandler = i % 2 == 0 ?
+                        firstApiHandler : secondApiHandler;
+                futures.add(executorService.submit(new Callable<Source>() {
+                    @Override
+                    public Source call() throws StripeException {
+                        return apiHandler.retrieveSource("src_123", "src_123_secret_456",
+                                options);
+                    }
+                }));
+            }
+
+            final ApiRequest request = ApiRequest.createGet(
+                    StripeApiHandler.getRetrieveSourceApiUrl("src_123"),
+                    SourceParams.createRetrieveSourceParams("src_123_secret_456"),
+                    options);
+            while (singleFlight.getWaiterCount(request) < 3) {
+                Thread.sleep(1);
+            }
+            releaseLatch.countDown();
+
+            final Source source = futures.get(0).get(10, TimeUnit.SECONDS);
+            assertNotNull(source);
+            assertEquals("src_123", source.getId());
+            for (Future<Source> future : futures.subList(1, futures.size())) {
+                // each caller parses the shared response into its own Source
+                final Source otherSource = future.get(10, TimeUnit.SECONDS);
+                assertEquals(source, otherSource);
+                assertNotSame(source, otherSource);
+            }
+            assertEquals(1, wireCallCount.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void createSource_afterRateLimit_retriesWithSameIdempotencyKey() throws Exception {
+        when(mRequestExecutor.execute(any(StripeRequest.class), any(RequestEvents.class)))
+                .thenReturn(new StripeResponse(429, "{\"error\": {}}", null))
+                .thenReturn(new StripeResponse(200,
+                        "{\"id\": \"src_123\", \"object\": \"source\"}", null));
+        final RetryPolicyTest.RecordingSleeper sleeper = new RetryPolicyTest.RecordingSleeper();
+
+        final Source source = createRetryingApiHandler(sleeper).createSource(
+                SourceParams.createCardParams(CARD),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+        assertNotNull(source);
+        assertEquals("src_123", source.getId());
+
+        final ArgumentCaptor<StripeRequest> requestCaptor =
+                ArgumentCaptor.forClass(StripeRequest.class);
+        verify(mRequestExecutor, times(2)).execute(requestCaptor.capture(),
+                any(RequestEvents.class));
+        final List<StripeRequest> requests = requestCaptor.getAllValues();
+        final String idempotencyKey = requests.get(0).getHeaders().get("Idempotency-Key");
+        assertNotNull(idempotencyKey);
+        assertEquals(idempotencyKey, requests.get(1).getHeaders().get("Idempotency-Key"));
+        assertEquals(1, sleeper.mDelaysMs.size());
+    }
+
+    @Test
+    public void retrieveSource_afterConnectionFailures_retriesUntilBudgetIsSpent()
+            throws Exception {
+        final APIConnectionException connectionException =
+                new APIConnectionException("socket reset", null);
+        when(mRequestExecutor.execute(any(StripeRequest.class), any(RequestEvents.class)))
+                .thenThrow(connectionException);
+        final RetryPolicyTest.RecordingSleeper sleeper = new RetryPolicyTest.RecordingSleeper();
+
+        try {
+            createRetryingApiHandler(sleeper).retrieveSource("src_123", "src_123_secret_456",
+                    ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+            fail("Expected an APIConnectionException");
+        } catch (APIConnectionException e) {
+            assertSame(connectionException, e);
+        }
+        verify(mRequestExecutor, times(3))
+                .execute(any(StripeRequest.class), any(RequestEvents.class));
+        assertEquals(2, sleeper.mDelaysMs.size());
+
+        final ApiMetricsSnapshot.Endpoint metrics =
+                Objects.requireNonNull(mApiMetrics.snapshot(false).getEndpoint("sources"));
+        assertEquals(3, metrics.getRequestCount());
+        assertEquals(3, metrics.getConnectionFailureCount());
+        assertEquals(2, metrics.getRetryCount());
+    }
+
+    @NonNull
+    private StripeApiHandler createRetryingApiHandler(
+            @NonNull RetryPolicyTest.RecordingSleeper sleeper) {
+        return new StripeApiHandler(ApplicationProvider.getApplicationContext(),
+                mRequestExecutor, mock(AnalyticsDispatcher.class), new SingleFlight(),
+                new RetryPolicy(2, 100, 1000, 5000, new Random(), sleeper), mApiMetrics,
+                new AdaptiveTimeouts(null), RequestHedger.getInstance(),
+                RateLimiter.getInstance(), false);
+    }
 }
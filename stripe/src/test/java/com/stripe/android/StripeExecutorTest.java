@@ -0,0 +1,312 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.StripeException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StripeExecutorTest {
+    private static final Object TAG = new Object();
+
+    private StripeExecutor mStripeExecutor;
+    private CountDownLatch mBlockingLatch;
+
+    @Before
+    public void setup() {
+        // deliver callbacks on the worker thread so that tests don't need a Looper
+        mStripeExecutor = new StripeExecutor(1, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                runnable.run();
+            }
+        });
+        mBlockingLatch = new CountDownLatch(1);
+    }
+
+    @After
+    public void teardown() {
+        mBlockingLatch.countDown();
+    }
+
+    @Test
+    public void submit_runsHigherPriorityTasksFirst() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        blockPool(StripeExecutor.Priority.BACKGROUND);
+
+        mStripeExecutor.submit(StripeExecutor.Priority.BACKGROUND, null,
+                record(order, "background"), null);
+        mStripeExecutor.submit(StripeExecutor.Priority.CUSTOMER, null,
+                record(order, "customer_1"), null);
+        final StripeExecutor.Task<String> customer = mStripeExecutor.submit(
+                StripeExecutor.Priority.CUSTOMER, null, record(order, "customer_2"), null);
+        final StripeExecutor.Task<String> background = mStripeExecutor.submit(
+                StripeExecutor.Priority.BACKGROUND, null, record(order, "background_2"), null);
+
+        mBlockingLatch.countDown();
+        customer.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("customer_1", "customer_2", "background", "background_2"),
+                order);
+    }
+
+    @Test
+    public void submit_whenCustomerWorkFillsPool_stillRunsPaymentTasks() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        blockPool(StripeExecutor.Priority.CUSTOMER);
+
+        final StripeExecutor.Task<String> payment = mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, null, record(order, "payment"), null);
+
+        assertEquals("payment", payment.get(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("payment"), order);
+    }
+
+    @Test
+    public void submit_deliversResultToCallback() throws Exception {
+        final RecordingCallback<String> callback = new RecordingCallback<>();
+        mStripeExecutor.submit(StripeExecutor.Priority.PAYMENT, null,
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return "result";
+                    }
+                }, callback);
+
+        assertTrue(callback.mLatch.await(5, TimeUnit.SECONDS));
+        assertEquals("result", callback.mResult);
+        assertNull(callback.mError);
+    }
+
+    @Test
+    public void submit_whenCallableThrows_deliversErrorToCallback() throws Exception {
+        final RecordingCallback<String> callback = new RecordingCallback<>();
+        mStripeExecutor.submit(StripeExecutor.Priority.PAYMENT, null,
+                new Callable<String>() {
+                    @Override
+                    public String call() throws APIConnectionException {
+                        throw new APIConnectionException("offline", null);
+                    }
+                }, callback);
+
+        assertTrue(callback.mLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(callback.mError instanceof APIConnectionException);
+    }
+
+    @Test
+    public void submit_whenResultIsNull_deliversError() throws Exception {
+        final RecordingCallback<String> callback = new RecordingCallback<>();
+        mStripeExecutor.submit(StripeExecutor.Priority.PAYMENT, null,
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return null;
+                    }
+                }, callback);
+
+        assertTrue(callback.mLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(callback.mError instanceof RuntimeException);
+    }
+
+    @Test
+    public void submit_withExecutor_runsOnThatExecutor() throws Exception {
+        final List<Runnable> executed = new ArrayList<>();
+        final RecordingCallback<String> callback = new RecordingCallback<>();
+        mStripeExecutor.submit(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                executed.add(runnable);
+                runnable.run();
+            }
+        }, null, new Callable<String>() {
+            @Override
+            public String call() {
+                return "result";
+            }
+        }, callback);
+
+        assertEquals(1, executed.size());
+        assertEquals("result", callback.mResult);
+    }
+
+    @Test
+    public void cancelAll_preventsQueuedTasksFromRunningAndSkipsCallbacks() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final RecordingCallback<String> callback = new RecordingCallback<>();
+        final StripeExecutor.Task<Void> blocker = blockPool(StripeExecutor.Priority.PAYMENT);
+        final StripeExecutor.Task<String> cancelled = mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, TAG, record(order, "cancelled"), callback);
+        final StripeExecutor.Task<String> other = mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, null, record(order, "other"), null);
+
+        mStripeExecutor.cancelAll(TAG);
+        mBlockingLatch.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        other.get(5, TimeUnit.SECONDS);
+
+        assertTrue(cancelled.isCancelled());
+        assertEquals(Collections.singletonList("other"), order);
+        assertEquals(1, callback.mLatch.getCount());
+    }
+
+    @Test
+    public void cancel_preventsQueuedTaskFromRunningAndSkipsCallback() throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final RecordingCallback<String> callback = new RecordingCallback<>();
+        final StripeExecutor.Task<Void> blocker = blockPool(StripeExecutor.Priority.PAYMENT);
+        final ApiTask cancelled = mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, null, record(order, "cancelled"), callback);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        mBlockingLatch.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+
+        assertTrue(cancelled.isCancelled());
+        assertTrue(cancelled.isDone());
+        assertTrue(order.isEmpty());
+        assertEquals(1, callback.mLatch.getCount());
+    }
+
+    @Test
+    public void submit_whenFirstRequestIsRateLimited_defersTaskWithoutHoldingThread()
+            throws Exception {
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final List<Long> sleepsMs = Collections.synchronizedList(new ArrayList<Long>());
+        // one token, refilled after 50ms
+        final RateLimiter rateLimiter = new RateLimiter(Clock.SYSTEM,
+                new RetryPolicy.Sleeper() {
+                    @Override
+                    public void sleep(long delayMs) {
+                        sleepsMs.add(delayMs);
+                    }
+                }, new ApiMetrics(Clock.SYSTEM), 1, 20, 2000);
+        final ApiRequest request = ApiRequest.createGet(StripeApiHandler.getPaymentMethodsUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+        final Callable<String> rateLimited = new Callable<String>() {
+            @Override
+            public String call() throws StripeException {
+                order.add("rate_limited started");
+                rateLimiter.acquire(request);
+                return "rate_limited";
+            }
+        };
+
+        mStripeExecutor.submit(StripeExecutor.Priority.PAYMENT, null, rateLimited, null)
+                .get(5, TimeUnit.SECONDS);
+        final StripeExecutor.Task<String> deferred = mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, null, rateLimited, null);
+        final StripeExecutor.Task<String> other = mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, null, record(order, "other"), null);
+
+        assertEquals("rate_limited", deferred.get(5, TimeUnit.SECONDS));
+        other.get(5, TimeUnit.SECONDS);
+
+        // the deferred task gave up the only thread, so the task submitted after it ran first
+        assertEquals(Arrays.asList("rate_limited started", "rate_limited started", "other",
+                "rate_limited started"), order);
+        assertTrue(sleepsMs.isEmpty());
+    }
+
+    @Test
+    public void submit_whenTaskIsDeferred_marksItsRerunUntilFirstRequest() throws Exception {
+        final List<String> logged = Collections.synchronizedList(new ArrayList<String>());
+        final RateLimiter rateLimiter = new RateLimiter(Clock.SYSTEM,
+                new RetryPolicy.Sleeper() {
+                    @Override
+                    public void sleep(long delayMs) {
+                    }
+                }, new ApiMetrics(Clock.SYSTEM), 1, 20, 2000);
+        final ApiRequest request = ApiRequest.createGet(StripeApiHandler.getPaymentMethodsUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+        final Callable<String> rateLimited = new Callable<String>() {
+            @Override
+            public String call() throws StripeException {
+                // as StripeApiHandler logs its analytics events
+                if (!RateLimiter.isRerunOfDeferredTask()) {
+                    logged.add("before request");
+                }
+                rateLimiter.acquire(request);
+                if (!RateLimiter.isRerunOfDeferredTask()) {
+                    logged.add("after request");
+                }
+                return "rate_limited";
+            }
+        };
+
+        mStripeExecutor.submit(StripeExecutor.Priority.PAYMENT, null, rateLimited, null)
+                .get(5, TimeUnit.SECONDS);
+        logged.clear();
+        assertEquals("rate_limited", mStripeExecutor.submit(
+                StripeExecutor.Priority.PAYMENT, null, rateLimited, null)
+                .get(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("before request", "after request"), logged);
+    }
+
+    @NonNull
+    private StripeExecutor.Task<Void> blockPool(@NonNull StripeExecutor.Priority priority)
+            throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final StripeExecutor.Task<Void> task = mStripeExecutor.submit(
+                priority, null, new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        started.countDown();
+                        mBlockingLatch.await();
+                        return null;
+                    }
+                }, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return task;
+    }
+
+    @NonNull
+    private static Callable<String> record(@NonNull final List<String> order,
+                                           @NonNull final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    private static final class RecordingCallback<ResultType>
+            implements ApiResultCallback<ResultType> {
+        @NonNull private final CountDownLatch mLatch = new CountDownLatch(1);
+        private volatile ResultType mResult;
+        private volatile Exception mError;
+
+        @Override
+        public void onSuccess(@NonNull ResultType result) {
+            mResult = result;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onError(@NonNull Exception e) {
+            mError = e;
+            mLatch.countDown();
+        }
+    }
+}
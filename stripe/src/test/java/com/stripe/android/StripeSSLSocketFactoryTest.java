@@ -0,0 +1,98 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StripeSSLSocketFactoryTest {
+    @NonNull private final ApiMetrics mApiMetrics = new ApiMetrics(Clock.SYSTEM);
+
+    @Test
+    public void withSslContext_configuresClientSessionCache() throws Exception {
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+        final StripeSSLSocketFactory factory =
+                new StripeSSLSocketFactory(sslContext, mApiMetrics);
+
+        final SSLSessionContext sessionContext = factory.getSessionContext();
+        assertNotNull(sessionContext);
+        assertEquals(StripeSSLSocketFactory.SESSION_CACHE_SIZE,
+                sessionContext.getSessionCacheSize());
+        assertEquals(StripeSSLSocketFactory.SESSION_TIMEOUT_SECONDS,
+                sessionContext.getSessionTimeout());
+    }
+
+    @Test
+    public void withoutSslContext_usesDefaultSessionCache() {
+        assertNull(new StripeSSLSocketFactory(null, mApiMetrics).getSessionContext());
+    }
+
+    @Test
+    public void fixupSocket_enablesTls12() throws Exception {
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+        final StripeSSLSocketFactory factory =
+                new StripeSSLSocketFactory(sslContext, mApiMetrics);
+
+        final String[] protocols = fixupSocketWithProtocols(factory, sslContext, "TLSv1");
+        final List<String> protocolList = Arrays.asList(protocols);
+        assertTrue(protocolList.contains("TLSv1"));
+        assertTrue(protocolList.contains("TLSv1.2"));
+
+        // a second socket with the same protocols gets the same result
+        assertArrayEquals(protocols, fixupSocketWithProtocols(factory, sslContext, "TLSv1"));
+    }
+
+    @Test
+    public void resumptionListener_recordsWhetherSessionPredatesSocket() {
+        final StripeSSLSocketFactory.ResumptionListener listener =
+                new StripeSSLSocketFactory.ResumptionListener(1000, mApiMetrics);
+        listener.handshakeCompleted(createEvent(999));
+        listener.handshakeCompleted(createEvent(1000));
+        listener.handshakeCompleted(createEvent(1001));
+
+        final ApiMetricsSnapshot snapshot = mApiMetrics.snapshot(false);
+        assertEquals(3, snapshot.getTlsHandshakeCount());
+        assertEquals(1, snapshot.getResumedTlsHandshakeCount());
+    }
+
+    @NonNull
+    private static String[] fixupSocketWithProtocols(@NonNull StripeSSLSocketFactory factory,
+                                                     @NonNull SSLContext sslContext,
+                                                     @NonNull String... protocols)
+            throws IOException {
+        final SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket();
+        try {
+            socket.setEnabledProtocols(protocols);
+            factory.fixupSocket(socket);
+            return socket.getEnabledProtocols();
+        } finally {
+            socket.close();
+        }
+    }
+
+    @NonNull
+    private static HandshakeCompletedEvent createEvent(long sessionCreationTime) {
+        final SSLSession session = mock(SSLSession.class);
+        when(session.getCreationTime()).thenReturn(sessionCreationTime);
+        return new HandshakeCompletedEvent(mock(SSLSocket.class), session);
+    }
+}
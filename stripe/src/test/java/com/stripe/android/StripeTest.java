@@ -41,6 +41,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
 
 /**
  * Test class for {@link Stripe}.
@@ -157,12 +158,13 @@ public class StripeTest {
         final Stripe stripe = createNonLoggingStripe(
                 new Stripe.TokenCreator() {
                     @Override
-                    public void create(@NonNull Map<String, Object> tokenParams,
-                                       @NonNull ApiRequest.Options requestOptions,
-                                       @NonNull @Token.TokenType String tokenType,
-                                       @Nullable Executor executor,
-                                       @NonNull TokenCallback callback) {
+                    public ApiTask create(@NonNull Map<String, Object> tokenParams,
+                                          @NonNull ApiRequest.Options requestOptions,
+                                          @NonNull @Token.TokenType String tokenType,
+                                          @Nullable Executor executor,
+                                          @NonNull TokenCallback callback) {
                         tokenCreatorCalled[0] = true;
+                        return mock(ApiTask.class);
                     }
                 });
         stripe.createToken(DEFAULT_CARD, DEFAULT_TOKEN_CALLBACK);
@@ -179,14 +181,15 @@ public class StripeTest {
         final Stripe stripe = createNonLoggingStripe(
                 new Stripe.TokenCreator() {
                     @Override
-                    public void create(@NonNull Map<String, Object> tokenParams,
-                                       @NonNull ApiRequest.Options requestOptions,
-                                       @NonNull @Token.TokenType String tokenType,
-                                       @Nullable Executor executor,
-                                       @NonNull TokenCallback callback) {
+                    public ApiTask create(@NonNull Map<String, Object> tokenParams,
+                                          @NonNull ApiRequest.Options requestOptions,
+                                          @NonNull @Token.TokenType String tokenType,
+                                          @Nullable Executor executor,
+                                          @NonNull TokenCallback callback) {
                         assertEquals(expectedExecutor, executor);
                         assertEquals(NON_LOGGING_PK, requestOptions.apiKey);
                         assertEquals(DEFAULT_TOKEN_CALLBACK, callback);
+                        return mock(ApiTask.class);
                     }
                 });
         stripe.createToken(DEFAULT_CARD, expectedExecutor, DEFAULT_TOKEN_CALLBACK);
@@ -197,14 +200,15 @@ public class StripeTest {
         final Stripe stripe = createNonLoggingStripe(
                 new Stripe.TokenCreator() {
                     @Override
-                    public void create(@NonNull Map<String, Object> tokenParams,
-                                       @NonNull ApiRequest.Options requestOptions,
-                                       @NonNull @Token.TokenType String tokenType,
-                                       @Nullable Executor executor,
-                                       @NonNull TokenCallback callback) {
+                    public ApiTask create(@NonNull Map<String, Object> tokenParams,
+                                          @NonNull ApiRequest.Options requestOptions,
+                                          @NonNull @Token.TokenType String tokenType,
+                                          @Nullable Executor executor,
+                                          @NonNull TokenCallback callback) {
                         assertEquals(NON_LOGGING_PK, requestOptions.apiKey);
                         assertNull(executor);
                         assertEquals(DEFAULT_TOKEN_CALLBACK, callback);
+                        return mock(ApiTask.class);
                     }
                 });
         stripe.createToken(DEFAULT_CARD, DEFAULT_TOKEN_CALLBACK);
@@ -0,0 +1,76 @@
+package com.stripe.android;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+/**
+ * Compares building the fingerprint payload for every request, as {@link StripeApiHandler} used
+ * to, with the payload that {@link TelemetryClientUtil} keeps until the device configuration
+ * changes, and writes the throughput and allocation of each to a {@link BenchmarkReports} file.
+ * Only runs with {@code -Pbenchmark}; that the kept payload is rebuilt when it should be is
+ * tested by {@link TelemetryClientUtilTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TelemetryClientUtilBenchmark {
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile Map<String, Object> mSink;
+    private volatile boolean mShouldSendSink;
+
+    @Test
+    public void getTelemetryMap() throws Exception {
+        final TelemetryClientUtil telemetryClientUtil =
+                new TelemetryClientUtil(ApplicationProvider.getApplicationContext());
+        final LoadDriver.Report perRequestReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        final Map<String, Object> telemetryMap =
+                                telemetryClientUtil.createTelemetryMap();
+                        StripeNetworkUtils.removeNullAndEmptyParams(telemetryMap);
+                        mSink = telemetryMap;
+                    }
+                })
+                .run();
+        final LoadDriver.Report keptReport = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mSink = telemetryClientUtil.getTelemetryMap();
+                    }
+                })
+                .run();
+
+        BenchmarkReports.write("TelemetryClientUtilBenchmark_getTelemetryMap",
+                "payload built per request: " + perRequestReport,
+                "payload kept until the configuration changes: " + keptReport);
+    }
+
+    @Test
+    public void shouldSendFingerprint() throws Exception {
+        final TelemetryClientUtil telemetryClientUtil =
+                new TelemetryClientUtil(ApplicationProvider.getApplicationContext());
+        telemetryClientUtil.onFingerprintQueued();
+        final LoadDriver.Report report = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        mShouldSendSink = telemetryClientUtil.shouldSendFingerprint();
+                    }
+                })
+                .run();
+
+        BenchmarkReports.write("TelemetryClientUtilBenchmark_shouldSendFingerprint",
+                "check within the interval, which skips the fingerprint: " + report);
+    }
+}
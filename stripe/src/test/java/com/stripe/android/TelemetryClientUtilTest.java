@@ -0,0 +1,150 @@
+package com.stripe.android;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class TelemetryClientUtilTest {
+    private static final long INTERVAL_MS = TimeUnit.MINUTES.toMillis(30);
+
+    @Mock private UidProvider mUidProvider;
+
+    private FakeClock mClock;
+    private Locale mDefaultLocale;
+    private TelemetryClientUtil mTelemetryClientUtil;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        when(mUidProvider.get()).thenReturn("android_id");
+        mDefaultLocale = Locale.getDefault();
+        mClock = new FakeClock();
+        mTelemetryClientUtil = new TelemetryClientUtil(ApplicationProvider.getApplicationContext(),
+                mUidProvider, mClock, INTERVAL_MS);
+    }
+
+    @After
+    public void teardown() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void getTelemetryMap_whenCalledRepeatedly_buildsPayloadOnce() {
+        final TelemetryClientUtil telemetryClientUtil = spy(mTelemetryClientUtil);
+        final Map<String, Object> first = telemetryClientUtil.getTelemetryMap();
+        for (int i = 0; i < 100; i++) {
+            assertSame(first, telemetryClientUtil.getTelemetryMap());
+        }
+        verify(telemetryClientUtil, times(1)).createTelemetryMap();
+    }
+
+    @Test
+    public void getTelemetryMap_whenLocaleChanges_rebuildsPayload() {
+        Locale.setDefault(Locale.US);
+        final Map<String, Object> first = mTelemetryClientUtil.getTelemetryMap();
+        Locale.setDefault(Locale.FRANCE);
+        final Map<String, Object> second = mTelemetryClientUtil.getTelemetryMap();
+
+        assertNotSame(first, second);
+        assertEquals("fr_FR", ((Map<?, ?>) ((Map<?, ?>) second.get("a")).get("c")).get("v"));
+    }
+
+    @Test
+    public void getTelemetryMap_cannotBeModified() {
+        final Map<String, Object> telemetryMap = mTelemetryClientUtil.getTelemetryMap();
+        assertThrows(UnsupportedOperationException.class, new ThrowingRunnable() {
+            @Override
+            public void run() {
+                telemetryMap.put("key", "value");
+            }
+        });
+    }
+
+    @Test
+    public void getHashedId_hashesOnce() {
+        final String hashedId = mTelemetryClientUtil.getHashedId();
+        assertEquals(hashedId, mTelemetryClientUtil.getHashedId());
+        verify(mUidProvider, times(1)).get();
+    }
+
+    @Test
+    public void shouldSendFingerprint_isLimitedToOncePerInterval() {
+        assertTrue(mTelemetryClientUtil.shouldSendFingerprint());
+        mTelemetryClientUtil.onFingerprintQueued();
+        mClock.advance(INTERVAL_MS - 1);
+        assertFalse(mTelemetryClientUtil.shouldSendFingerprint());
+        mClock.advance(1);
+        assertTrue(mTelemetryClientUtil.shouldSendFingerprint());
+    }
+
+    @Test
+    public void shouldSendFingerprint_whenPayloadChanges_returnsTrue() {
+        Locale.setDefault(Locale.US);
+        assertTrue(mTelemetryClientUtil.shouldSendFingerprint());
+        mTelemetryClientUtil.onFingerprintQueued();
+        Locale.setDefault(Locale.FRANCE);
+        assertTrue(mTelemetryClientUtil.shouldSendFingerprint());
+        mTelemetryClientUtil.onFingerprintQueued();
+        assertFalse(mTelemetryClientUtil.shouldSendFingerprint());
+    }
+
+    @Test
+    public void shouldSendFingerprint_untilFingerprintIsQueued_returnsTrue() {
+        assertTrue(mTelemetryClientUtil.shouldSendFingerprint());
+        assertTrue(mTelemetryClientUtil.shouldSendFingerprint());
+    }
+
+    @Test
+    public void shouldSendFingerprint_withoutOwnInterval_followsDefaultInterval() {
+        final TelemetryClientUtil telemetryClientUtil = new TelemetryClientUtil(
+                ApplicationProvider.getApplicationContext(), mUidProvider, mClock,
+                TelemetryClientUtil.FOLLOW_DEFAULT_INTERVAL);
+        try {
+            TelemetryClientUtil.setDefaultFingerprintIntervalMs(1000);
+            telemetryClientUtil.onFingerprintQueued();
+            mClock.advance(999);
+            assertFalse(telemetryClientUtil.shouldSendFingerprint());
+            mClock.advance(1);
+            assertTrue(telemetryClientUtil.shouldSendFingerprint());
+        } finally {
+            TelemetryClientUtil.setDefaultFingerprintIntervalMs(
+                    TelemetryClientUtil.DEFAULT_FINGERPRINT_INTERVAL_MS);
+        }
+    }
+
+    private static final class FakeClock implements Clock {
+        private long mNanoTime = 1000;
+
+        @Override
+        public long nanoTime() {
+            return mNanoTime;
+        }
+
+        private void advance(long millis) {
+            mNanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
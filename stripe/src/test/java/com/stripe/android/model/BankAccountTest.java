@@ -1,12 +1,20 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 /**
  * Test class for {@link BankAccount}.
  */
+@RunWith(RobolectricTestRunner.class)
 public class BankAccountTest {
 
     private static final String RAW_BANK_ACCOUNT = "{\n" +
@@ -37,4 +45,28 @@ public class BankAccountTest {
         final BankAccount actualAccount = BankAccount.fromString(RAW_BANK_ACCOUNT);
         assertEquals(expectedAccount, actualAccount);
     }
+
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        final BankAccount bankAccount = BankAccount.fromString(RAW_BANK_ACCOUNT);
+        assertNotNull(bankAccount);
+        assertEquals(bankAccount, parcelAndUnparcel(bankAccount));
+    }
+
+    @Test
+    public void testParcelable_leavesOutAccountNumber() {
+        final BankAccount bankAccount =
+                new BankAccount("000123456789", "US", "usd", "110000000");
+        final BankAccount parcelBankAccount = parcelAndUnparcel(bankAccount);
+        assertNull(parcelBankAccount.getAccountNumber());
+        assertEquals(bankAccount.getRoutingNumber(), parcelBankAccount.getRoutingNumber());
+    }
+
+    @NonNull
+    private static BankAccount parcelAndUnparcel(@NonNull BankAccount bankAccount) {
+        final Parcel parcel = Parcel.obtain();
+        bankAccount.writeToParcel(parcel, bankAccount.describeContents());
+        parcel.setDataPosition(0);
+        return BankAccount.CREATOR.createFromParcel(parcel);
+    }
 }
@@ -1,5 +1,6 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
 import android.support.annotation.NonNull;
 
 import com.stripe.android.testharness.JsonTestUtils;
@@ -8,6 +9,8 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
 
 import java.util.Calendar;
 import java.util.HashMap;
@@ -19,12 +22,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
  * Test class for {@link Card}.
  */
+@RunWith(RobolectricTestRunner.class)
 public class CardTest {
     private static final int YEAR_IN_FUTURE = 2100;
 
@@ -116,6 +121,13 @@ public class CardTest {
         assertEquals(Card.MASTERCARD, asCardBrand("Mastercard"));
     }
 
+    @Test
+    public void asCardBrandAndFundingType_whenCaseDiffers_returnConstants() {
+        assertSame(Card.VISA, asCardBrand("VISA"));
+        assertSame(Card.UNIONPAY, asCardBrand("UNIONPAY"));
+        assertSame(Card.FUNDING_PREPAID, asFundingType("Prepaid"));
+    }
+
     @Test
     public void asCardBrand_whenVisa_returnsVisa() {
         assertEquals(Card.VISA, asCardBrand("visa"));
@@ -720,5 +732,31 @@ public class CardTest {
                 .metadata(metadata)
                 .build();
     }
-}
 
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        final Card card = Card.fromString(JSON_CARD_USD);
+        assertNotNull(card);
+        card.addLoggingToken("CardInputView");
+        assertEquals(card, parcelAndUnparcel(card));
+    }
+
+    @Test
+    public void testParcelable_leavesOutNumberAndCvc() {
+        final Card card = Card.create("4242-4242-4242-4242", 12, YEAR_IN_FUTURE, "123");
+        final Card parcelCard = parcelAndUnparcel(card);
+        assertNull(parcelCard.getNumber());
+        assertNull(parcelCard.getCVC());
+        assertEquals("4242", parcelCard.getLast4());
+        assertEquals(Card.VISA, parcelCard.getBrand());
+        assertEquals(Integer.valueOf(12), parcelCard.getExpMonth());
+    }
+
+    @NonNull
+    private static Card parcelAndUnparcel(@NonNull Card card) {
+        final Parcel parcel = Parcel.obtain();
+        card.writeToParcel(parcel, card.describeContents());
+        parcel.setDataPosition(0);
+        return Card.CREATOR.createFromParcel(parcel);
+    }
+}
@@ -1,10 +1,14 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+
 import com.stripe.android.testharness.JsonTestUtils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
 
 import static com.stripe.android.model.CardTest.JSON_CARD_USD;
 import static com.stripe.android.model.SourceTest.EXAMPLE_ALIPAY_SOURCE;
@@ -17,6 +21,7 @@ import static org.junit.Assert.fail;
 /**
  * Test class for {@link CustomerSource} model class.
  */
+@RunWith(RobolectricTestRunner.class)
 public class CustomerSourceTest {
 
     static final String JSON_APPLE_PAY_CARD = "{\n" +
@@ -111,4 +116,18 @@ public class CustomerSourceTest {
         assertNotNull(alipaySource);
         assertEquals(Source.ALIPAY, alipaySource.getSourceType());
     }
+
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        for (String json : new String[] { JSON_CARD_USD, EXAMPLE_JSON_SOURCE_WITHOUT_NULLS }) {
+            final CustomerSource customerSource = CustomerSource.fromString(json);
+            assertNotNull(customerSource);
+
+            final Parcel parcel = Parcel.obtain();
+            customerSource.writeToParcel(parcel, customerSource.describeContents());
+            parcel.setDataPosition(0);
+
+            assertEquals(customerSource, CustomerSource.CREATOR.createFromParcel(parcel));
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
 import android.support.annotation.NonNull;
 
 import com.stripe.android.testharness.JsonTestUtils;
@@ -8,6 +9,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
 
 import static com.stripe.android.model.CardTest.JSON_CARD_USD;
 import static com.stripe.android.model.CustomerSourceTest.JSON_APPLE_PAY_CARD;
@@ -23,6 +26,7 @@ import static org.junit.Assert.fail;
 /**
  * Test class for {@link Customer} model object.
  */
+@RunWith(RobolectricTestRunner.class)
 public class CustomerTest {
 
     private static final String NON_CUSTOMER_OBJECT =
@@ -142,4 +146,35 @@ public class CustomerTest {
             return null;
         }
     }
+
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        final Customer customer = Customer.fromString(createTestCustomerObjectWithApplePaySource());
+        assertNotNull(customer);
+
+        final Parcel parcel = Parcel.obtain();
+        customer.writeToParcel(parcel, customer.describeContents());
+        parcel.setDataPosition(0);
+
+        final Customer parcelCustomer = Customer.CREATOR.createFromParcel(parcel);
+        assertEquals(customer, parcelCustomer);
+        assertEquals(2, parcelCustomer.getSources().size());
+    }
+
+    @Test
+    public void testParcelable_whenMarshalled_shouldBeEqualAfterUnmarshall() {
+        final Customer customer = Customer.fromString(createTestCustomerObjectWithApplePaySource());
+        assertNotNull(customer);
+
+        final Parcel parcel = Parcel.obtain();
+        customer.writeToParcel(parcel, customer.describeContents());
+        final byte[] bytes = parcel.marshall();
+        parcel.recycle();
+
+        final Parcel restoredParcel = Parcel.obtain();
+        restoredParcel.unmarshall(bytes, 0, bytes.length);
+        restoredParcel.setDataPosition(0);
+        assertEquals(customer, Customer.CREATOR.createFromParcel(restoredParcel));
+        restoredParcel.recycle();
+    }
 }
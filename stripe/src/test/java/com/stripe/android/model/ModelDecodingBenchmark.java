@@ -0,0 +1,356 @@
+package com.stripe.android.model;
+
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+
+import com.stripe.android.testharness.BenchmarkReports;
+import com.stripe.android.testharness.LoadDriver;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures the parse time and retained heap of decoding a 100-entry list of models, and of
+ * restoring it from a {@link Parcel} or a {@link ModelSnapshot} rather than from its JSON.
+ *
+ * The decoded models are compared with retaining only the {@link JSONObject} trees, which is what
+ * deferring the decoding of each entry would keep alive. Tokenizing the response dominates both,
+ * so deferring saves little time while the retained {@link JSONObject}s take more heap than the
+ * decoded models; the API responses are therefore decoded eagerly.
+ *
+ * Saving and restoring a model through its {@link Parcel} form skips tokenizing and re-validating
+ * the JSON, which is what the SDK's own intents and saved state rely on. A {@link ModelSnapshot}
+ * still decodes through {@code fromJson()}, but skips tokenizing the text and writes each
+ * repeated key and value once, so it is the form to keep on disk between launches.
+ *
+ * The wallet benchmarks decode a {@link #WALLET_SIZE}-entry {@link Customer} and
+ * {@link PaymentMethod} list with and without the {@link StringInterner} that
+ * {@link StripeJsonUtils} shares brand, country, currency and similar values through.
+ *
+ * Each benchmark writes its results to a {@link BenchmarkReports} file, and only runs with
+ * {@code -Pbenchmark}; that the models decode and round-trip correctly is tested by their own
+ * test classes.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ModelDecodingBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int LIST_SIZE = 100;
+    private static final int WALLET_SIZE = 500;
+    private static final int HEAP_SAMPLES = 20;
+    private static final long WARM_UP_MS = 300;
+    private static final long DURATION_MS = 700;
+
+    // keeps the benchmarked results reachable, so that they are not optimized away
+    private volatile Object mSink;
+
+    @NonNull private final List<String> mReportLines = new ArrayList<>();
+
+    @Test
+    public void paymentMethodList() throws Exception {
+        final String listJson = createListJson(PaymentMethodTest.RAW_CARD_JSON);
+        final Callable<Object> decodeModels = new Callable<Object>() {
+            @Override
+            public Object call() throws JSONException {
+                return parsePaymentMethods(listJson);
+            }
+        };
+        final Callable<Object> retainTrees = new Callable<Object>() {
+            @Override
+            public Object call() throws JSONException {
+                return parseTrees(listJson);
+            }
+        };
+
+        report("PaymentMethod list, decoded", decodeModels);
+        report("PaymentMethod list, JSON trees only", retainTrees);
+        writeReport("paymentMethodList");
+    }
+
+    @Test
+    public void customerSourceList() throws Exception {
+        final String customerJson = createCustomerJson();
+        report("Customer sources, decoded", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return Customer.fromString(customerJson);
+            }
+        });
+        report("Customer sources, JSON trees only", new Callable<Object>() {
+            @Override
+            public Object call() throws JSONException {
+                return new JSONObject(customerJson);
+            }
+        });
+        writeReport("customerSourceList");
+    }
+
+    @Test
+    public void customerParcelVersusJson() throws Exception {
+        final Customer customer = Objects.requireNonNull(Customer.fromString(createCustomerJson()));
+        final byte[] parcelBytes = marshall(customer);
+        mReportLines.add(String.format(Locale.ROOT, "Customer sources, %d chars of JSON, "
+                + "%d bytes of Parcel", customer.toJson().toString().length(), parcelBytes.length));
+
+        report("Customer sources, JSON round trip", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return Customer.fromString(customer.toJson().toString());
+            }
+        });
+        report("Customer sources, Parcel round trip", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return unmarshallCustomer(marshall(customer));
+            }
+        });
+        writeReport("customerParcelVersusJson");
+    }
+
+    @Test
+    public void customerSnapshotVersusJson() throws Exception {
+        final Customer customer = Objects.requireNonNull(Customer.fromString(createCustomerJson()));
+        final byte[] jsonBytes = customer.toJson().toString().getBytes(UTF_8);
+        final byte[] snapshot = ModelSnapshot.encode(customer);
+        mReportLines.add(String.format(Locale.ROOT, "Customer sources, %d bytes of JSON, "
+                + "%d bytes of snapshot", jsonBytes.length, snapshot.length));
+
+        report("Customer sources, JSON encode", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return customer.toJson().toString().getBytes(UTF_8);
+            }
+        });
+        report("Customer sources, snapshot encode", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return ModelSnapshot.encode(customer);
+            }
+        });
+        report("Customer sources, JSON decode", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return Customer.fromString(new String(jsonBytes, UTF_8));
+            }
+        });
+        report("Customer sources, snapshot decode", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return ModelSnapshot.decodeCustomer(snapshot);
+            }
+        });
+        writeReport("customerSnapshotVersusJson");
+    }
+
+    @Test
+    public void paymentMethodListSnapshotVersusJson() throws Exception {
+        final List<PaymentMethod> paymentMethods =
+                parsePaymentMethods(createListJson(PaymentMethodTest.RAW_CARD_JSON));
+        final String listJson = createListJson(paymentMethods);
+        final byte[] snapshot = ModelSnapshot.encodePaymentMethods(paymentMethods);
+        mReportLines.add(String.format(Locale.ROOT, "PaymentMethod list, %d bytes of JSON, "
+                + "%d bytes of snapshot", listJson.getBytes(UTF_8).length, snapshot.length));
+
+        report("PaymentMethod list, JSON decode", new Callable<Object>() {
+            @Override
+            public Object call() throws JSONException {
+                return parsePaymentMethods(listJson);
+            }
+        });
+        report("PaymentMethod list, snapshot decode", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return ModelSnapshot.decodePaymentMethods(snapshot);
+            }
+        });
+        writeReport("paymentMethodListSnapshotVersusJson");
+    }
+
+    @Test
+    public void largeWalletStringInterning() throws Exception {
+        final String customerJson = createCustomerJson(WALLET_SIZE);
+        final String paymentMethodsJson =
+                createListJson(PaymentMethodTest.RAW_CARD_JSON, WALLET_SIZE);
+        final Callable<Object> decodeCustomer = new Callable<Object>() {
+            @Override
+            public Object call() {
+                return Customer.fromString(customerJson);
+            }
+        };
+        final Callable<Object> decodePaymentMethods = new Callable<Object>() {
+            @Override
+            public Object call() throws JSONException {
+                return parsePaymentMethods(paymentMethodsJson);
+            }
+        };
+
+        try {
+            StripeJsonUtils.setStringInterner(new StringInterner(0));
+            report("Customer wallet, not interned", decodeCustomer);
+            report("PaymentMethod wallet, not interned", decodePaymentMethods);
+        } finally {
+            StripeJsonUtils.setStringInterner(
+                    new StringInterner(StringInterner.DEFAULT_MAX_SIZE));
+        }
+        report("Customer wallet, interned", decodeCustomer);
+        report("PaymentMethod wallet, interned", decodePaymentMethods);
+        writeReport("largeWalletStringInterning");
+    }
+
+    @NonNull
+    private static byte[] marshall(@NonNull Customer customer) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            customer.writeToParcel(parcel, customer.describeContents());
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @NonNull
+    private static Customer unmarshallCustomer(@NonNull byte[] bytes) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return Customer.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private void report(@NonNull String name, @NonNull final Callable<Object> parse)
+            throws Exception {
+        final LoadDriver.Report report = new LoadDriver(1, WARM_UP_MS, DURATION_MS)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        mSink = parse.call();
+                    }
+                })
+                .run();
+        assertEquals(0, report.getErrorCount());
+        mReportLines.add(String.format(Locale.ROOT, "%s: %s, retained %d bytes per list",
+                name, report, measureRetainedBytes(parse)));
+    }
+
+    private void writeReport(@NonNull String name) throws IOException {
+        BenchmarkReports.write("ModelDecodingBenchmark_" + name,
+                mReportLines.toArray(new String[0]));
+    }
+
+    /**
+     * @return the heap that stays reachable from a result of {@code parse}, averaged over
+     * several results that are alive at the same time
+     */
+    private static long measureRetainedBytes(@NonNull Callable<Object> parse) throws Exception {
+        final Object[] results = new Object[HEAP_SAMPLES];
+        final long before = usedHeapBytes();
+        for (int i = 0; i < HEAP_SAMPLES; i++) {
+            results[i] = parse.call();
+        }
+        final long after = usedHeapBytes();
+        assertNotNull(results[HEAP_SAMPLES - 1]);
+        return (after - before) / HEAP_SAMPLES;
+    }
+
+    private static long usedHeapBytes() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @NonNull
+    private static List<PaymentMethod> parsePaymentMethods(@NonNull String listJson)
+            throws JSONException {
+        final JSONArray data = new JSONObject(listJson).getJSONArray("data");
+        final List<PaymentMethod> paymentMethods = new ArrayList<>(data.length());
+        for (int i = 0; i < data.length(); i++) {
+            paymentMethods.add(PaymentMethod.fromJson(data.getJSONObject(i)));
+        }
+        return paymentMethods;
+    }
+
+    @NonNull
+    private static List<JSONObject> parseTrees(@NonNull String listJson) throws JSONException {
+        final JSONArray data = new JSONObject(listJson).getJSONArray("data");
+        final List<JSONObject> trees = new ArrayList<>(data.length());
+        for (int i = 0; i < data.length(); i++) {
+            trees.add(data.getJSONObject(i));
+        }
+        return trees;
+    }
+
+    @NonNull
+    private static String createCustomerJson() throws JSONException {
+        return createCustomerJson(LIST_SIZE);
+    }
+
+    @NonNull
+    private static String createCustomerJson(int sourceCount) throws JSONException {
+        // Customer leaves out apple_pay sources, so make the example source a plain card
+        final JSONObject source = new JSONObject(SourceTest.EXAMPLE_JSON_SOURCE_WITHOUT_NULLS);
+        source.getJSONObject(Source.CARD).remove("tokenization_method");
+
+        final JSONObject customer = new JSONObject()
+                .put("id", "cus_AQsHpvKfKwJDrF")
+                .put("object", "customer")
+                .put("sources", new JSONObject(createListJson(source.toString(), sourceCount)));
+        return customer.toString();
+    }
+
+    @NonNull
+    private static String createListJson(@NonNull List<? extends StripeJsonModel> models)
+            throws JSONException {
+        final JSONArray data = new JSONArray();
+        for (StripeJsonModel model : models) {
+            data.put(model.toJson());
+        }
+        return new JSONObject()
+                .put("object", "list")
+                .put("data", data)
+                .put("has_more", false)
+                .toString();
+    }
+
+    @NonNull
+    private static String createListJson(@NonNull String elementJson) throws JSONException {
+        return createListJson(elementJson, LIST_SIZE);
+    }
+
+    /**
+     * @return a list response of {@code size} copies of {@code elementJson}, each with its own id
+     */
+    @NonNull
+    private static String createListJson(@NonNull String elementJson, int size)
+            throws JSONException {
+        final JSONArray data = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            final JSONObject element = new JSONObject(elementJson);
+            element.put("id", element.getString("id") + i);
+            data.put(element);
+        }
+        return new JSONObject()
+                .put("object", "list")
+                .put("data", data)
+                .put("has_more", false)
+                .toString();
+    }
+}
@@ -0,0 +1,298 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.model.wallets.WalletFactory;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.stripe.android.model.CardTest.JSON_CARD_USD;
+import static com.stripe.android.model.SourceTest.EXAMPLE_ALIPAY_SOURCE;
+import static com.stripe.android.model.SourceTest.EXAMPLE_JSON_SOURCE_WITHOUT_NULLS;
+import static com.stripe.android.testharness.JsonTestUtils.assertJsonEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link ModelSnapshot}.
+ */
+public class ModelSnapshotTest {
+
+    private static final String RAW_SHIPPING_ADDRESS_JSON = "{" +
+            "\"address\": {" +
+            "\"city\": \"San Francisco\"," +
+            "\"country\": \"US\"," +
+            "\"line1\": \"123 Market St\"," +
+            "\"postal_code\": \"94107\"," +
+            "\"state\": \"CA\"" +
+            "}," +
+            "\"name\": \"Jenny Rosen\"," +
+            "\"phone\": \"(555) 555-5555\"" +
+            "}";
+
+    @Test
+    public void customer_roundTrips() throws JSONException {
+        final Customer customer = createCustomer();
+        assertEquals(3, customer.getSources().size());
+
+        final Customer snapshotCustomer =
+                ModelSnapshot.decodeCustomer(ModelSnapshot.encode(customer));
+        assertEquals(customer, snapshotCustomer);
+        assertNotNull(snapshotCustomer);
+        assertJsonEquals(customer.toJson(), snapshotCustomer.toJson());
+    }
+
+    @Test
+    public void paymentMethodList_roundTrips() {
+        final PaymentMethod paymentMethod =
+                PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON);
+        assertNotNull(paymentMethod);
+        final List<PaymentMethod> paymentMethods = Arrays.asList(paymentMethod, paymentMethod);
+
+        assertEquals(paymentMethods,
+                ModelSnapshot.decodePaymentMethods(
+                        ModelSnapshot.encodePaymentMethods(paymentMethods)));
+    }
+
+    @Test
+    public void paymentMethodWithWallet_roundTrips() throws JSONException {
+        final JSONObject walletJson = new JSONObject()
+                .put("type", "visa_checkout")
+                .put("dynamic_last4", "1234")
+                .put("visa_checkout", new JSONObject()
+                        .put("billing_address", new JSONObject()
+                                .put("city", "San Francisco")
+                                .put("country", "US"))
+                        .put("email", "me@example.com")
+                        .put("name", "John Doe"));
+        final PaymentMethod paymentMethod = new PaymentMethod.Builder()
+                .setId("pm_123")
+                .setType(PaymentMethod.Type.Card.code)
+                .setCard(new PaymentMethod.Card.Builder()
+                        .setBrand(PaymentMethod.Card.Brand.VISA)
+                        .setLast4("4242")
+                        .setWallet(new WalletFactory().create(walletJson))
+                        .build())
+                .build();
+        assertNotNull(paymentMethod.card);
+        assertNotNull(paymentMethod.card.wallet);
+        final List<PaymentMethod> paymentMethods = Collections.singletonList(paymentMethod);
+
+        assertEquals(paymentMethods,
+                ModelSnapshot.decodePaymentMethods(
+                        ModelSnapshot.encodePaymentMethods(paymentMethods)));
+    }
+
+    @Test
+    public void shippingMethods_roundTrip() {
+        final ShippingMethod shippingMethod =
+                new ShippingMethod("FedEx", "fedex", "Arrives tomorrow", 599, "USD");
+        final List<ShippingMethod> shippingMethods = Arrays.asList(
+                shippingMethod,
+                new ShippingMethod("UPS Ground", "ups-ground", 0, "USD"));
+
+        assertEquals(shippingMethod,
+                ModelSnapshot.decodeShippingMethod(ModelSnapshot.encode(shippingMethod)));
+        assertEquals(shippingMethods,
+                ModelSnapshot.decodeShippingMethods(
+                        ModelSnapshot.encodeShippingMethods(shippingMethods)));
+    }
+
+    @Test
+    public void writeValue_roundTripsEveryValueType() throws JSONException {
+        final Map<String, Object> nestedMap = new HashMap<>();
+        nestedMap.put("exp_month", 12);
+        final Map<String, Object> map = new HashMap<>();
+        map.put("string", "Z\u00fcrich \u20ac \ud83d\udcb3");
+        map.put("empty_string", "");
+        map.put("zero", 0);
+        map.put("negative", -42);
+        map.put("int_max", Integer.MAX_VALUE);
+        map.put("long", 1550757934255L);
+        map.put("long_min", Long.MIN_VALUE);
+        map.put("double", -12.5);
+        map.put("true", true);
+        map.put("false", false);
+        map.put("map", nestedMap);
+        map.put("list", Arrays.asList("visa", 3, null));
+        final JSONObject jsonObject = new JSONObject()
+                .put("exp_month", 12)
+                .put("null", JSONObject.NULL);
+
+        final ModelSnapshot.Writer writer = new ModelSnapshot.Writer();
+        writer.writeValue("map", map);
+        writer.writeValue("json_object", jsonObject);
+        final ModelSnapshot.Reader reader = ModelSnapshot.Reader.open(
+                writer.toSnapshot(ModelSnapshot.KIND_CUSTOMER), ModelSnapshot.KIND_CUSTOMER);
+        assertNotNull(reader);
+
+        assertEquals("map", reader.nextField());
+        assertEquals(map, reader.readMap());
+        assertEquals("json_object", reader.nextField());
+        assertEquals(nestedMap, reader.finish(reader.readMap()));
+    }
+
+    @Test
+    public void read_whenValueIsOfOtherType_readsNull() {
+        final ModelSnapshot.Writer writer = new ModelSnapshot.Writer();
+        writer.writeObject(new ExtendedModel(null) {
+            @Override
+            void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+                writer.writeValue("label", "FedEx");
+                writer.writeValue("identifier", "fedex");
+                writer.writeValue("amount", "599");
+                writer.writeValue("currency_code", "USD");
+            }
+        });
+
+        assertNull(ModelSnapshot.decodeShippingMethod(
+                writer.toSnapshot(ModelSnapshot.KIND_SHIPPING_METHOD)));
+    }
+
+    @Test
+    public void encode_writesRepeatedStringsOnce() {
+        final PaymentMethod paymentMethod =
+                PaymentMethod.fromString(PaymentMethodTest.RAW_CARD_JSON);
+        assertNotNull(paymentMethod);
+        final byte[] snapshot = ModelSnapshot.encodePaymentMethods(
+                Arrays.asList(paymentMethod, paymentMethod, paymentMethod));
+
+        assertEquals(1, countOccurrences(snapshot, "billing_details"));
+        assertEquals(1, countOccurrences(snapshot, "visa"));
+    }
+
+    @Test
+    public void decode_ignoresFieldsAddedInLaterVersions() throws JSONException {
+        final Customer customer = createCustomer();
+        final ModelSnapshot.Writer writer = new ModelSnapshot.Writer();
+        writer.writeObject(new ExtendedModel(customer) {
+            @Override
+            void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+                super.writeSnapshot(writer);
+                writer.writeValue("invoice_prefix", "7E5B6E6");
+                writer.writeValue("preferred_locales", Collections.singletonList("en"));
+                writer.writeModel("tax_address", customer.getShippingInformation());
+            }
+        });
+
+        assertEquals(customer, ModelSnapshot.decodeCustomer(
+                writer.toSnapshot(ModelSnapshot.KIND_CUSTOMER)));
+    }
+
+    @Test
+    public void decode_whenSnapshotIsTruncated_returnsNull() throws JSONException {
+        final byte[] snapshot = ModelSnapshot.encode(createCustomer());
+        for (int length = 0; length < snapshot.length; length++) {
+            assertNull(ModelSnapshot.decodeCustomer(Arrays.copyOf(snapshot, length)));
+        }
+    }
+
+    @Test
+    public void decode_whenSnapshotHasTrailingBytes_returnsNull() throws JSONException {
+        final byte[] snapshot = ModelSnapshot.encode(createCustomer());
+        assertNull(ModelSnapshot.decodeCustomer(Arrays.copyOf(snapshot, snapshot.length + 1)));
+    }
+
+    @Test
+    public void decode_whenNotASnapshot_returnsNull() {
+        final byte[] json = PaymentMethodTest.RAW_CARD_JSON.getBytes(Charset.forName("UTF-8"));
+        assertNull(ModelSnapshot.decodePaymentMethods(json));
+    }
+
+    @Test
+    public void decode_whenVersionIsLater_returnsNull() throws JSONException {
+        final byte[] snapshot = ModelSnapshot.encode(createCustomer());
+        // the version follows the 4-byte magic
+        snapshot[4] = (byte) (ModelSnapshot.VERSION + 1);
+        assertNull(ModelSnapshot.decodeCustomer(snapshot));
+    }
+
+    @Test
+    public void decode_whenSnapshotHoldsOtherModel_returnsNull() {
+        final byte[] snapshot = ModelSnapshot.encode(
+                new ShippingMethod("FedEx", "fedex", "Arrives tomorrow", 599, "USD"));
+        assertNull(ModelSnapshot.decodeCustomer(snapshot));
+        assertNull(ModelSnapshot.decodePaymentMethods(snapshot));
+    }
+
+    @NonNull
+    private static Customer createCustomer() throws JSONException {
+        // Customer leaves out apple_pay sources, so make the example source a plain card
+        final JSONObject cardSource = new JSONObject(EXAMPLE_JSON_SOURCE_WITHOUT_NULLS);
+        cardSource.getJSONObject(Source.CARD).remove("tokenization_method");
+
+        final JSONObject sources = new JSONObject()
+                .put("object", "list")
+                .put("data", new JSONArray()
+                        .put(cardSource)
+                        .put(new JSONObject(EXAMPLE_ALIPAY_SOURCE))
+                        .put(new JSONObject(JSON_CARD_USD)))
+                .put("has_more", false)
+                .put("total_count", 3)
+                .put("url", "/v1/customers/cus_AQsHpvKfKwJDrF/sources");
+        final JSONObject customerJson = new JSONObject()
+                .put("id", "cus_AQsHpvKfKwJDrF")
+                .put("object", "customer")
+                .put("default_source", "abc123")
+                .put("shipping", new JSONObject(RAW_SHIPPING_ADDRESS_JSON))
+                .put("sources", sources);
+
+        final Customer customer = Customer.fromJson(customerJson);
+        assertNotNull(customer);
+        return customer;
+    }
+
+    /**
+     * A model that writes the fields of {@code model} to a snapshot, to which subclasses add
+     * others.
+     */
+    private static class ExtendedModel extends StripeJsonModel {
+        @Nullable private final StripeJsonModel mModel;
+
+        private ExtendedModel(@Nullable StripeJsonModel model) {
+            mModel = model;
+        }
+
+        @NonNull
+        @Override
+        public Map<String, Object> toMap() {
+            return new HashMap<>();
+        }
+
+        @NonNull
+        @Override
+        public JSONObject toJson() {
+            return new JSONObject();
+        }
+
+        @Override
+        void writeSnapshot(@NonNull ModelSnapshot.Writer writer) {
+            if (mModel != null) {
+                mModel.writeSnapshot(writer);
+            }
+        }
+    }
+
+    private static int countOccurrences(@NonNull byte[] bytes, @NonNull String string) {
+        final byte[] target = string.getBytes(Charset.forName("UTF-8"));
+        int count = 0;
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + target.length), target)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,122 @@
+package com.stripe.android.model;
+
+import android.os.Parcel;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link ParcelUtils}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ParcelUtilsTest {
+
+    private Parcel mParcel;
+
+    @Before
+    public void setup() {
+        mParcel = Parcel.obtain();
+    }
+
+    @After
+    public void tearDown() {
+        mParcel.recycle();
+    }
+
+    @Test
+    public void writeNullableValues_readsBackSameValues() {
+        ParcelUtils.writeLong(mParcel, null);
+        ParcelUtils.writeLong(mParcel, 1503443217L);
+        ParcelUtils.writeInteger(mParcel, null);
+        ParcelUtils.writeInteger(mParcel, 12);
+        ParcelUtils.writeBoolean(mParcel, null);
+        ParcelUtils.writeBoolean(mParcel, true);
+        ParcelUtils.writeBoolean(mParcel, false);
+        mParcel.setDataPosition(0);
+
+        assertNull(ParcelUtils.readLong(mParcel));
+        assertEquals(Long.valueOf(1503443217L), ParcelUtils.readLong(mParcel));
+        assertNull(ParcelUtils.readInteger(mParcel));
+        assertEquals(Integer.valueOf(12), ParcelUtils.readInteger(mParcel));
+        assertNull(ParcelUtils.readBoolean(mParcel));
+        assertEquals(Boolean.TRUE, ParcelUtils.readBoolean(mParcel));
+        assertEquals(Boolean.FALSE, ParcelUtils.readBoolean(mParcel));
+    }
+
+    @Test
+    public void writeStringMap_readsBackSameMap() {
+        final Map<String, String> map = new HashMap<>();
+        map.put("order_id", "6735");
+        map.put("note", null);
+
+        ParcelUtils.writeStringMap(mParcel, null);
+        ParcelUtils.writeStringMap(mParcel, map);
+        mParcel.setDataPosition(0);
+
+        assertNull(ParcelUtils.readStringMap(mParcel));
+        assertEquals(map, ParcelUtils.readStringMap(mParcel));
+    }
+
+    @Test
+    public void writeJsonMap_readsBackSameTypes() throws JSONException {
+        final Map<String, Object> nested = new HashMap<>();
+        nested.put("url", "https://hooks.stripe.com/redirect");
+        final List<Object> list = Arrays.<Object>asList("card", 3, null);
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("string", "value");
+        map.put("int", 1000);
+        map.put("long", 1503443217000L);
+        map.put("double", 1.5);
+        map.put("boolean", true);
+        map.put("null", null);
+        map.put("json_null", JSONObject.NULL);
+        map.put("map", nested);
+        map.put("list", list);
+        map.put("json_object", new JSONObject("{\"exp_month\": 12}"));
+        map.put("json_array", new JSONArray("[\"visa\"]"));
+
+        ParcelUtils.writeJsonMap(mParcel, null);
+        ParcelUtils.writeJsonMap(mParcel, map);
+        mParcel.setDataPosition(0);
+
+        assertNull(ParcelUtils.readJsonMap(mParcel));
+        final Map<String, Object> parcelMap = ParcelUtils.readJsonMap(mParcel);
+        assertEquals(map.size(), parcelMap.size());
+        assertEquals("value", parcelMap.get("string"));
+        assertEquals(1000, parcelMap.get("int"));
+        assertEquals(1503443217000L, parcelMap.get("long"));
+        assertEquals(1.5, parcelMap.get("double"));
+        assertEquals(true, parcelMap.get("boolean"));
+        assertTrue(parcelMap.containsKey("null"));
+        assertNull(parcelMap.get("null"));
+        assertSame(JSONObject.NULL, parcelMap.get("json_null"));
+        assertEquals(nested, parcelMap.get("map"));
+        assertEquals(list, parcelMap.get("list"));
+
+        final Object jsonObject = parcelMap.get("json_object");
+        assertTrue(jsonObject instanceof JSONObject);
+        assertEquals(12, ((JSONObject) jsonObject).getInt("exp_month"));
+        final Object jsonArray = parcelMap.get("json_array");
+        assertTrue(jsonArray instanceof JSONArray);
+        assertEquals("visa", ((JSONArray) jsonArray).getString(0));
+        assertFalse(parcelMap.get("map") instanceof JSONObject);
+    }
+}
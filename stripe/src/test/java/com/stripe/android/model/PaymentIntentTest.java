@@ -1,6 +1,8 @@
 package com.stripe.android.model;
 
 import android.net.Uri;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -274,4 +276,33 @@ public class PaymentIntentTest {
                 PaymentIntentFixtures.PI_REQUIRES_REDIRECT.getNextActionType());
         assertNull(PaymentIntentFixtures.PI_REQUIRES_REDIRECT.getStripeSdkData());
     }
+
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        final PaymentIntent paymentIntent =
+                PaymentIntent.fromString(PAYMENT_INTENT_WITH_PAYMENT_METHODS_JSON);
+        assertNotNull(paymentIntent);
+        assertEquals(paymentIntent, parcelAndUnparcel(paymentIntent));
+    }
+
+    @Test
+    public void testParcelable_withNextAction_shouldBeEqualAfterParcel() {
+        final PaymentIntent paymentIntent =
+                parcelAndUnparcel(PaymentIntentFixtures.PI_REQUIRES_3DS2);
+        assertEquals(PaymentIntentFixtures.PI_REQUIRES_3DS2, paymentIntent);
+        final PaymentIntent.SdkData sdkData = paymentIntent.getStripeSdkData();
+        assertNotNull(sdkData);
+        assertTrue(sdkData.is3ds2());
+
+        assertEquals(PaymentIntentFixtures.PI_REQUIRES_REDIRECT.getRedirectUrl(),
+                parcelAndUnparcel(PaymentIntentFixtures.PI_REQUIRES_REDIRECT).getRedirectUrl());
+    }
+
+    @NonNull
+    private static PaymentIntent parcelAndUnparcel(@NonNull PaymentIntent paymentIntent) {
+        final Parcel parcel = Parcel.obtain();
+        paymentIntent.writeToParcel(parcel, paymentIntent.describeContents());
+        parcel.setDataPosition(0);
+        return PaymentIntent.CREATOR.createFromParcel(parcel);
+    }
 }
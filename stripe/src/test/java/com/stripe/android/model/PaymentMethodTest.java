@@ -173,6 +173,17 @@ public class PaymentMethodTest {
         assertEquals(CARD_PAYMENT_METHOD, PaymentMethod.fromString(RAW_CARD_JSON));
     }
 
+    @Test
+    public void fromString_withoutStringInterning_returnsEqualPaymentMethod() {
+        try {
+            StripeJsonUtils.setStringInterner(new StringInterner(0));
+            assertEquals(CARD_PAYMENT_METHOD, PaymentMethod.fromString(RAW_CARD_JSON));
+        } finally {
+            StripeJsonUtils.setStringInterner(
+                    new StringInterner(StringInterner.DEFAULT_MAX_SIZE));
+        }
+    }
+
     @Test
     public void billingDetailsToMap_removesNullValues() {
         final Map<String, Object> billingDetails =
@@ -12,6 +12,7 @@ import java.util.Map;
 import static com.stripe.android.testharness.JsonTestUtils.assertJsonEquals;
 import static com.stripe.android.testharness.JsonTestUtils.assertMapEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 /**
@@ -47,6 +48,21 @@ public class ShippingMethodTest {
         }
     }
 
+    @Test
+    public void fromJson_toJson_createsSameObject() throws JSONException {
+        assertEquals(SHIPPING_METHOD,
+                ShippingMethod.fromJson(new JSONObject(EXAMPLE_JSON_SHIPPING_ADDRESS)));
+        assertEquals(SHIPPING_METHOD, ShippingMethod.fromJson(SHIPPING_METHOD.toJson()));
+    }
+
+    @Test
+    public void fromJson_whenRequiredFieldIsMissing_returnsNull() throws JSONException {
+        final JSONObject jsonObject = new JSONObject(EXAMPLE_JSON_SHIPPING_ADDRESS);
+        jsonObject.remove("identifier");
+        assertNull(ShippingMethod.fromJson(jsonObject));
+        assertNull(ShippingMethod.fromJson(null));
+    }
+
     @Test
     public void testMapCreation() {
         assertMapEquals(SHIPPING_METHOD.toMap(), EXAMPLE_MAP_SHIPPING_ADDRESS);
@@ -1,9 +1,14 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,6 +30,7 @@ import static org.junit.Assert.fail;
 /**
  * Test class for {@link Source} model.
  */
+@RunWith(RobolectricTestRunner.class)
 public class SourceTest {
 
     static final String EXAMPLE_ALIPAY_SOURCE = "{\n" +
@@ -258,4 +264,33 @@ public class SourceTest {
         final SourceCardData sourceCardData = (SourceCardData) source.getSourceTypeModel();
         assertEquals(Card.VISA, sourceCardData.getBrand());
     }
+
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        assertEquals(mSource, parcelAndUnparcel(mSource));
+        final String[] sourceJsons = { EXAMPLE_ALIPAY_SOURCE, EXAMPLE_JSON_SOURCE_CUSTOM_TYPE };
+        for (String json : sourceJsons) {
+            final Source source = Source.fromString(json);
+            assertNotNull(source);
+            assertEquals(source, parcelAndUnparcel(source));
+        }
+    }
+
+    @Test
+    public void testParcelable_withCardJson_keepsAdditionalFields() {
+        // the additional fields hold JSONObjects, which only compare equal by identity
+        final Source source = Source.fromString(CREATED_CARD_JSON);
+        assertNotNull(source);
+        final Source parcelSource = parcelAndUnparcel(source);
+        assertEquals(source.getId(), parcelSource.getId());
+        assertJsonEquals(source.toJson(), parcelSource.toJson());
+    }
+
+    @NonNull
+    private static Source parcelAndUnparcel(@NonNull Source source) {
+        final Parcel parcel = Parcel.obtain();
+        source.writeToParcel(parcel, source.describeContents());
+        parcel.setDataPosition(0);
+        return Source.CREATOR.createFromParcel(parcel);
+    }
 }
@@ -0,0 +1,57 @@
+package com.stripe.android.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for {@link StringInterner}.
+ */
+public class StringInternerTest {
+
+    @Test
+    public void intern_returnsFirstInstanceOfEqualValues() {
+        final StringInterner stringInterner = new StringInterner(10);
+        final String first = new String("visa");
+        final String second = new String("visa");
+
+        assertSame(first, stringInterner.intern(first));
+        assertSame(first, stringInterner.intern(second));
+        assertEquals(1, stringInterner.size());
+    }
+
+    @Test
+    public void intern_whenNull_returnsNull() {
+        assertNull(new StringInterner(10).intern(null));
+    }
+
+    @Test
+    public void intern_whenFull_returnsNewValuesAsTheyAre() {
+        final StringInterner stringInterner = new StringInterner(2);
+        stringInterner.intern("US");
+        final String pooled = stringInterner.intern(new String("GB"));
+
+        final String unpooled = new String("FR");
+        assertSame(unpooled, stringInterner.intern(unpooled));
+        assertNotSame(unpooled, stringInterner.intern(new String("FR")));
+        assertSame(pooled, stringInterner.intern(new String("GB")));
+        assertEquals(2, stringInterner.size());
+    }
+
+    @Test
+    public void intern_whenLongerThanMaxLength_doesNotPool() {
+        final StringInterner stringInterner = new StringInterner(10);
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i <= StringInterner.MAX_LENGTH; i++) {
+            builder.append('a');
+        }
+        final String longValue = builder.toString();
+
+        assertSame(longValue, stringInterner.intern(longValue));
+        assertNotSame(longValue, stringInterner.intern(new String(longValue)));
+        assertEquals(0, stringInterner.size());
+    }
+}
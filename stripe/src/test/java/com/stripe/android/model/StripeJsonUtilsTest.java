@@ -14,7 +14,9 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 /**
@@ -151,6 +153,34 @@ public class StripeJsonUtilsTest {
         }
     }
 
+    @Test
+    public void optString_forInternedField_returnsSameInstanceAcrossObjects()
+            throws JSONException {
+        final String json = "{\"brand\": \"visa\", \"last4\": \"4242\"}";
+        final JSONObject first = new JSONObject(json);
+        final JSONObject second = new JSONObject(json);
+
+        assertSame(StripeJsonUtils.optString(first, "brand"),
+                StripeJsonUtils.optString(second, "brand"));
+        assertEquals(StripeJsonUtils.optString(first, "last4"),
+                StripeJsonUtils.optString(second, "last4"));
+        assertNotSame(StripeJsonUtils.optString(first, "last4"),
+                StripeJsonUtils.optString(second, "last4"));
+    }
+
+    @Test
+    public void optCountryCodeAndOptCurrency_returnSameInstanceAcrossObjects()
+            throws JSONException {
+        final String json = "{\"address_country\": \"US\", \"currency\": \"usd\"}";
+        final JSONObject first = new JSONObject(json);
+        final JSONObject second = new JSONObject(json);
+
+        assertSame(StripeJsonUtils.optCountryCode(first, "address_country"),
+                StripeJsonUtils.optCountryCode(second, "address_country"));
+        assertSame(StripeJsonUtils.optCurrency(first, "currency"),
+                StripeJsonUtils.optCurrency(second, "currency"));
+    }
+
     @Test
     public void jsonObjectToMap_forNull_returnsNull() {
         assertNull(StripeJsonUtils.jsonObjectToMap(null));
@@ -1,6 +1,10 @@
 package com.stripe.android.model;
 
+import android.os.Parcel;
+
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -12,6 +16,7 @@ import static org.junit.Assert.assertNull;
 /**
  * Test class for {@link Token}.
  */
+@RunWith(RobolectricTestRunner.class)
 public class TokenTest {
     private static final Card CARD = new Card.Builder(null, 8, 2017, null)
             .id("card_189fi32eZvKYlo2CHK8NPRME")
@@ -185,4 +190,18 @@ public class TokenTest {
         Token token = Token.fromString(RAW_BANK_TOKEN_NO_TYPE);
         assertNull(token);
     }
+
+    @Test
+    public void testParcelable_shouldBeEqualAfterParcel() {
+        for (String json : new String[] { RAW_TOKEN, RAW_BANK_TOKEN }) {
+            final Token token = Token.fromString(json);
+            assertNotNull(token);
+
+            final Parcel parcel = Parcel.obtain();
+            token.writeToParcel(parcel, token.describeContents());
+            parcel.setDataPosition(0);
+
+            assertEquals(token, Token.CREATOR.createFromParcel(parcel));
+        }
+    }
 }
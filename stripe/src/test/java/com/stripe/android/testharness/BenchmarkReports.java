@@ -0,0 +1,50 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the results of a benchmark to a file, so that CI can keep them as a build artifact
+ * instead of searching the test output for them.
+ *
+ * Files are written to the directory in the {@code stripe.benchmark.reportDir} system property,
+ * which Gradle sets to {@code build/reports/benchmarks}.
+ */
+public final class BenchmarkReports {
+    private static final String REPORT_DIR_PROPERTY = "stripe.benchmark.reportDir";
+    private static final String DEFAULT_REPORT_DIR = "build/reports/benchmarks";
+
+    private BenchmarkReports() {
+    }
+
+    /**
+     * Write {@code lines} to {@code <name>.txt}, replacing the report of a previous run.
+     *
+     * @return the written file
+     */
+    @NonNull
+    public static File write(@NonNull String name, @NonNull String... lines)
+            throws IOException {
+        final File directory = new File(
+                System.getProperty(REPORT_DIR_PROPERTY, DEFAULT_REPORT_DIR));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        final File file = new File(directory, name + ".txt");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                Charset.forName("UTF-8"))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,319 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a weighted mix of {@link Operation}s from many threads at once for a fixed duration, and
+ * reports their throughput, latency percentiles, failures and the memory that the calling
+ * threads allocated per operation.
+ */
+public class LoadDriver {
+    @NonNull private final List<Operation> mOperations = new ArrayList<>();
+    @NonNull private final List<Integer> mWeights = new ArrayList<>();
+    private final int mThreadCount;
+    private final long mDurationMs;
+    private final long mWarmUpMs;
+
+    /**
+     * @param threadCount the number of threads that run operations at once
+     * @param warmUpMs how long to run operations before measuring, so that connections are
+     *                 pooled and code is compiled
+     * @param durationMs how long to measure for
+     */
+    public LoadDriver(int threadCount, long warmUpMs, long durationMs) {
+        mThreadCount = threadCount;
+        mWarmUpMs = warmUpMs;
+        mDurationMs = durationMs;
+    }
+
+    /**
+     * @param weight how often to run {@code operation} relative to the other operations
+     */
+    @NonNull
+    public LoadDriver add(int weight, @NonNull Operation operation) {
+        mOperations.add(operation);
+        mWeights.add(weight);
+        return this;
+    }
+
+    @NonNull
+    public Report run() throws InterruptedException {
+        if (mOperations.isEmpty()) {
+            throw new IllegalStateException("No operations to run");
+        }
+
+        final long startNanos = System.nanoTime();
+        final long measureStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(mWarmUpMs);
+        final long endNanos = measureStartNanos + TimeUnit.MILLISECONDS.toNanos(mDurationMs);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Worker> workers = new ArrayList<>(mThreadCount);
+        final List<Thread> threads = new ArrayList<>(mThreadCount);
+        for (int i = 0; i < mThreadCount; i++) {
+            final Worker worker = new Worker(i, startLatch, measureStartNanos, endNanos);
+            final Thread thread = new Thread(worker, "LoadDriver-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(worker);
+            threads.add(thread);
+        }
+
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return createReport(workers, endNanos - measureStartNanos);
+    }
+
+    @NonNull
+    private Operation pickOperation(@NonNull Random random, int totalWeight) {
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < mOperations.size(); i++) {
+            value -= mWeights.get(i);
+            if (value < 0) {
+                return mOperations.get(i);
+            }
+        }
+        return mOperations.get(mOperations.size() - 1);
+    }
+
+    private int getTotalWeight() {
+        int totalWeight = 0;
+        for (int weight : mWeights) {
+            totalWeight += weight;
+        }
+        return totalWeight;
+    }
+
+    @NonNull
+    private static Report createReport(@NonNull List<Worker> workers, long durationNanos) {
+        int count = 0;
+        int errorCount = 0;
+        long allocatedBytes = 0;
+        Throwable firstError = null;
+        for (Worker worker : workers) {
+            if (firstError == null) {
+                firstError = worker.mFirstError;
+            }
+            count += worker.mCount;
+            errorCount += worker.mErrorCount;
+            allocatedBytes = allocatedBytes < 0 || worker.mAllocatedBytes < 0 ?
+                    -1 : allocatedBytes + worker.mAllocatedBytes;
+        }
+
+        final long[] latencies = new long[count];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.mLatencies, 0, latencies, offset, worker.mCount);
+            offset += worker.mCount;
+        }
+        Arrays.sort(latencies);
+        return new Report(latencies, errorCount, durationNanos, allocatedBytes, firstError);
+    }
+
+    /**
+     * A unit of work, e.g. a single API call. An operation is treated as failed if it throws an
+     * exception or fails an assertion.
+     */
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    private final class Worker implements Runnable {
+        @NonNull private final Random mRandom;
+        @NonNull private final CountDownLatch mStartLatch;
+        private final long mMeasureStartNanos;
+        private final long mEndNanos;
+
+        // sized up front, and grown by doubling, so that recording allocates as little as
+        // possible while allocation is measured
+        @NonNull private long[] mLatencies = new long[4096];
+        private int mCount;
+        private int mErrorCount;
+        private long mAllocatedBytes = -1;
+        @Nullable private Throwable mFirstError;
+
+        private Worker(int index,
+                       @NonNull CountDownLatch startLatch,
+                       long measureStartNanos,
+                       long endNanos) {
+            mRandom = new Random(index);
+            mStartLatch = startLatch;
+            mMeasureStartNanos = measureStartNanos;
+            mEndNanos = endNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mStartLatch.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            final int totalWeight = getTotalWeight();
+            boolean measuring = false;
+            long startAllocatedBytes = -1;
+            while (true) {
+                final long startNanos = System.nanoTime();
+                if (startNanos >= mEndNanos) {
+                    break;
+                }
+                if (!measuring && startNanos >= mMeasureStartNanos) {
+                    measuring = true;
+                    startAllocatedBytes = getAllocatedBytes();
+                }
+
+                boolean failed = false;
+                try {
+                    pickOperation(mRandom, totalWeight).run();
+                } catch (Exception | AssertionError e) {
+                    failed = true;
+                    if (measuring && mFirstError == null) {
+                        mFirstError = e;
+                    }
+                }
+
+                if (measuring) {
+                    record(System.nanoTime() - startNanos, failed);
+                }
+            }
+
+            final long endAllocatedBytes = getAllocatedBytes();
+            if (startAllocatedBytes >= 0 && endAllocatedBytes >= 0) {
+                mAllocatedBytes = endAllocatedBytes - startAllocatedBytes;
+            }
+        }
+
+        private void record(long latencyNanos, boolean failed) {
+            if (mCount == mLatencies.length) {
+                mLatencies = Arrays.copyOf(mLatencies, mLatencies.length * 2);
+            }
+            mLatencies[mCount++] = latencyNanos;
+            if (failed) {
+                mErrorCount++;
+            }
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the JVM cannot tell
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        final com.sun.management.ThreadMXBean allocationMXBean =
+                (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationMXBean.isThreadAllocatedMemorySupported() ||
+                !allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * The results of a {@link LoadDriver} run, over the measured operations only.
+     */
+    public static final class Report {
+        @NonNull private final long[] mSortedLatencies;
+        private final int mErrorCount;
+        private final long mDurationNanos;
+        private final long mAllocatedBytes;
+        @Nullable private final Throwable mFirstError;
+
+        private Report(@NonNull long[] sortedLatencies,
+                       int errorCount,
+                       long durationNanos,
+                       long allocatedBytes,
+                       @Nullable Throwable firstError) {
+            mSortedLatencies = sortedLatencies;
+            mErrorCount = errorCount;
+            mDurationNanos = durationNanos;
+            mAllocatedBytes = allocatedBytes;
+            mFirstError = firstError;
+        }
+
+        public int getCount() {
+            return mSortedLatencies.length;
+        }
+
+        public int getErrorCount() {
+            return mErrorCount;
+        }
+
+        /**
+         * @return an error thrown by a failed operation, if any failed
+         */
+        @Nullable
+        public Throwable getFirstError() {
+            return mFirstError;
+        }
+
+        /**
+         * @return the operations completed per second
+         */
+        public double getThroughput() {
+            return getCount() * (double) TimeUnit.SECONDS.toNanos(1) / mDurationNanos;
+        }
+
+        /**
+         * @param percentile e.g. 99.9
+         * @return the latency that {@code percentile} percent of operations took at most, in
+         * nanoseconds
+         */
+        public long getLatencyNanos(double percentile) {
+            if (mSortedLatencies.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile / 100 * mSortedLatencies.length) - 1;
+            return mSortedLatencies[Math.max(0, Math.min(index, mSortedLatencies.length - 1))];
+        }
+
+        /**
+         * @return the bytes allocated by the calling threads per operation, or -1 if the JVM
+         * cannot tell
+         */
+        public long getAllocatedBytesPerOperation() {
+            return mAllocatedBytes < 0 || getCount() == 0 ? -1 : mAllocatedBytes / getCount();
+        }
+
+        /**
+         * @return the bytes allocated by the calling threads per second, or -1 if the JVM cannot
+         * tell
+         */
+        public double getAllocationRate() {
+            return mAllocatedBytes < 0 ?
+                    -1 : mAllocatedBytes * (double) TimeUnit.SECONDS.toNanos(1) / mDurationNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d ops, %d errors, %.1f ops/s, " +
+                            "latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms, " +
+                            "allocated %d B/op, %.1f MB/s",
+                    getCount(), mErrorCount, getThroughput(),
+                    toMillis(getLatencyNanos(50)), toMillis(getLatencyNanos(99)),
+                    toMillis(getLatencyNanos(99.9)), toMillis(getLatencyNanos(100)),
+                    getAllocatedBytesPerOperation(), getAllocationRate() / (1024 * 1024));
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.stripe.android.testharness;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LoadDriverTest {
+    @Test
+    public void run_reportsCountsAndPercentiles() throws InterruptedException {
+        final AtomicInteger firstCount = new AtomicInteger();
+        final AtomicInteger secondCount = new AtomicInteger();
+        final LoadDriver.Report report = new LoadDriver(4, 50, 200)
+                .add(3, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws InterruptedException {
+                        firstCount.incrementAndGet();
+                        Thread.sleep(1);
+                    }
+                })
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() throws InterruptedException {
+                        secondCount.incrementAndGet();
+                        Thread.sleep(1);
+                    }
+                })
+                .run();
+
+        assertTrue(report.getCount() > 0);
+        assertEquals(0, report.getErrorCount());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(firstCount.get() > secondCount.get());
+        assertTrue(report.getLatencyNanos(50) <= report.getLatencyNanos(99.9));
+        assertTrue(report.getLatencyNanos(99.9) <= report.getLatencyNanos(100));
+    }
+
+    @Test
+    public void run_countsFailedOperations() throws InterruptedException {
+        final LoadDriver.Report report = new LoadDriver(2, 0, 100)
+                .add(1, new LoadDriver.Operation() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException("failed");
+                    }
+                })
+                .run();
+
+        assertEquals(report.getCount(), report.getErrorCount());
+        assertNotNull(report.getFirstError());
+    }
+}
@@ -0,0 +1,287 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * A local stand-in for the Stripe API, served by a {@link TestHttpServer}. Answers requests to
+ * the tokens, sources, payment_methods, payment_intents, customers and 3ds2 endpoints with
+ * canned responses that the SDK's models can parse, after a configurable latency, and fails a
+ * configurable share of them.
+ *
+ * The SDK sends requests to {@code https://api.stripe.com}; tests point it at
+ * {@link #getBaseUrl()} instead.
+ */
+public class StripeApiStandIn implements TestHttpServer.Dispatcher, Closeable {
+    private static final String CARD = "{" +
+            "\"id\": \"card_standin\"," +
+            "\"object\": \"card\"," +
+            "\"address_zip_check\": \"pass\"," +
+            "\"brand\": \"Visa\"," +
+            "\"country\": \"US\"," +
+            "\"customer\": \"cus_standin\"," +
+            "\"cvc_check\": \"pass\"," +
+            "\"exp_month\": 8," +
+            "\"exp_year\": 2030," +
+            "\"funding\": \"credit\"," +
+            "\"last4\": \"4242\"," +
+            "\"metadata\": {}" +
+            "}";
+
+    @NonNull static final String TOKEN = "{" +
+            "\"id\": \"tok_standin\"," +
+            "\"object\": \"token\"," +
+            "\"card\": " + CARD + "," +
+            "\"client_ip\": null," +
+            "\"created\": 1462905355," +
+            "\"livemode\": false," +
+            "\"type\": \"card\"," +
+            "\"used\": false" +
+            "}";
+
+    @NonNull static final String SOURCE = "{" +
+            "\"id\": \"src_standin\"," +
+            "\"object\": \"source\"," +
+            "\"amount\": 1000," +
+            "\"client_secret\": \"src_client_secret_standin\"," +
+            "\"created\": 1488499654," +
+            "\"currency\": \"usd\"," +
+            "\"flow\": \"none\"," +
+            "\"livemode\": false," +
+            "\"metadata\": {}," +
+            "\"owner\": {\"email\": \"jenny.rosen@example.com\", \"name\": \"Jenny Rosen\"}," +
+            "\"status\": \"chargeable\"," +
+            "\"type\": \"card\"," +
+            "\"usage\": \"reusable\"," +
+            "\"card\": {" +
+            "\"brand\": \"Visa\"," +
+            "\"country\": \"US\"," +
+            "\"exp_month\": 12," +
+            "\"exp_year\": 2050," +
+            "\"funding\": \"credit\"," +
+            "\"last4\": \"4242\"," +
+            "\"three_d_secure\": \"optional\"" +
+            "}" +
+            "}";
+
+    @NonNull static final String PAYMENT_METHOD = "{" +
+            "\"id\": \"pm_standin\"," +
+            "\"object\": \"payment_method\"," +
+            "\"created\": 1550757934," +
+            "\"customer\": \"cus_standin\"," +
+            "\"livemode\": false," +
+            "\"metadata\": {}," +
+            "\"type\": \"card\"," +
+            "\"billing_details\": {" +
+            "\"address\": {" +
+            "\"city\": \"San Francisco\"," +
+            "\"country\": \"US\"," +
+            "\"line1\": \"510 Townsend St\"," +
+            "\"postal_code\": \"94103\"," +
+            "\"state\": \"CA\"" +
+            "}," +
+            "\"email\": \"jenny.rosen@example.com\"," +
+            "\"name\": \"Jenny Rosen\"," +
+            "\"phone\": null" +
+            "}," +
+            "\"card\": {" +
+            "\"brand\": \"visa\"," +
+            "\"checks\": {\"address_line1_check\": null, \"cvc_check\": \"pass\"}," +
+            "\"country\": \"US\"," +
+            "\"exp_month\": 8," +
+            "\"exp_year\": 2030," +
+            "\"funding\": \"credit\"," +
+            "\"last4\": \"4242\"," +
+            "\"three_d_secure_usage\": {\"supported\": true}" +
+            "}" +
+            "}";
+
+    @NonNull static final String PAYMENT_METHODS = "{" +
+            "\"object\": \"list\"," +
+            "\"data\": [" + PAYMENT_METHOD + ", " + PAYMENT_METHOD + "]," +
+            "\"has_more\": false," +
+            "\"url\": \"/v1/payment_methods\"" +
+            "}";
+
+    @NonNull static final String PAYMENT_INTENT = "{" +
+            "\"id\": \"pi_standin\"," +
+            "\"object\": \"payment_intent\"," +
+            "\"amount\": 1000," +
+            "\"canceled_at\": null," +
+            "\"capture_method\": \"automatic\"," +
+            "\"client_secret\": \"pi_standin_secret_standin\"," +
+            "\"confirmation_method\": \"automatic\"," +
+            "\"created\": 1558469721," +
+            "\"currency\": \"usd\"," +
+            "\"description\": null," +
+            "\"last_payment_error\": null," +
+            "\"livemode\": false," +
+            "\"next_action\": null," +
+            "\"payment_method\": \"pm_standin\"," +
+            "\"payment_method_types\": [\"card\"]," +
+            "\"receipt_email\": null," +
+            "\"source\": null," +
+            "\"status\": \"succeeded\"" +
+            "}";
+
+    @NonNull static final String CUSTOMER = "{" +
+            "\"id\": \"cus_standin\"," +
+            "\"object\": \"customer\"," +
+            "\"default_source\": \"card_standin\"," +
+            "\"shipping\": null," +
+            "\"sources\": {" +
+            "\"object\": \"list\"," +
+            "\"data\": [" + CARD + "]," +
+            "\"has_more\": false," +
+            "\"total_count\": 1," +
+            "\"url\": \"/v1/customers/cus_standin/sources\"" +
+            "}" +
+            "}";
+
+    @NonNull static final String THREE_DS2_AUTH_RESULT = "{" +
+            "\"id\": \"threeds2_standin\"," +
+            "\"object\": \"three_d_secure_2\"," +
+            "\"ares\": {" +
+            "\"acsChallengeMandated\": \"N\"," +
+            "\"acsTransID\": \"dd23c757-211a-4c1b-add5-06a1450a642e\"," +
+            "\"messageType\": \"ARes\"," +
+            "\"messageVersion\": \"2.1.0\"," +
+            "\"threeDSServerTransID\": \"e8ea0b74-0c8f-4a7f-9a0d-0cd5f3fd9b7a\"," +
+            "\"transStatus\": \"Y\"" +
+            "}," +
+            "\"created\": 1558541285," +
+            "\"error\": null," +
+            "\"livemode\": false," +
+            "\"source\": \"src_standin\"," +
+            "\"state\": \"succeeded\"" +
+            "}";
+
+    private static final String NOT_FOUND = "{\"error\": {" +
+            "\"type\": \"invalid_request_error\"," +
+            "\"message\": \"Unrecognized request URL.\"" +
+            "}}";
+
+    private static final String RATE_LIMITED = "{\"error\": {" +
+            "\"type\": \"rate_limit_error\"," +
+            "\"message\": \"Too many requests hit the API too quickly.\"" +
+            "}}";
+
+    private static final String SERVER_ERROR = "{\"error\": {" +
+            "\"type\": \"api_error\"," +
+            "\"message\": \"Something went wrong on Stripe's end.\"" +
+            "}}";
+
+    @NonNull private final TestHttpServer mServer;
+    @NonNull private final Random mRandom;
+
+    private volatile long mLatencyMs;
+    private volatile long mLatencyJitterMs;
+    private volatile double mErrorRate;
+    private volatile int mErrorCode = 500;
+
+    public StripeApiStandIn() throws IOException {
+        this(new Random());
+    }
+
+    /**
+     * @param random decides the latency of each response and which ones fail, e.g. with a fixed
+     *               seed so that a run can be repeated
+     */
+    public StripeApiStandIn(@NonNull Random random) throws IOException {
+        mRandom = random;
+        mServer = new TestHttpServer();
+        mServer.setDispatcher(this);
+    }
+
+    /**
+     * @return the URL to use instead of {@code https://api.stripe.com}
+     */
+    @NonNull
+    public String getBaseUrl() {
+        return mServer.getUrl("");
+    }
+
+    @NonNull
+    public TestHttpServer getServer() {
+        return mServer;
+    }
+
+    /**
+     * Delay every response by {@code latencyMs}, plus a random extra of up to
+     * {@code jitterMs}.
+     */
+    public void setLatency(long latencyMs, long jitterMs) {
+        mLatencyMs = latencyMs;
+        mLatencyJitterMs = jitterMs;
+    }
+
+    /**
+     * @param errorRate the share of requests, from 0 to 1, that fail
+     * @param errorCode the status code of failed requests, e.g. 429 or 500
+     */
+    public void setErrors(double errorRate, int errorCode) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("errorRate must be between 0 and 1");
+        }
+        mErrorRate = errorRate;
+        mErrorCode = errorCode;
+    }
+
+    @NonNull
+    @Override
+    public TestHttpServer.Response dispatch(@NonNull TestHttpServer.RecordedRequest request)
+            throws InterruptedException {
+        final long jitterMs = mLatencyJitterMs;
+        final long delayMs = mLatencyMs +
+                (jitterMs > 0 ? (long) (mRandom.nextDouble() * jitterMs) : 0);
+        if (delayMs > 0) {
+            Thread.sleep(delayMs);
+        }
+
+        final double errorRate = mErrorRate;
+        if (errorRate > 0 && mRandom.nextDouble() < errorRate) {
+            final int errorCode = mErrorCode;
+            return new TestHttpServer.Response(errorCode,
+                    errorCode == 429 ? RATE_LIMITED : SERVER_ERROR);
+        }
+
+        final String body = route(request.getMethod(), request.getPath());
+        return body != null ?
+                new TestHttpServer.Response(200, body) :
+                new TestHttpServer.Response(404, NOT_FOUND);
+    }
+
+    @Override
+    public void close() {
+        mServer.close();
+    }
+
+    @Nullable
+    private static String route(@NonNull String method, @NonNull String path) {
+        if (path.startsWith("/v1/tokens")) {
+            return TOKEN;
+        } else if (path.startsWith("/v1/sources")) {
+            return SOURCE;
+        } else if (path.equals("/v1/payment_methods") && "GET".equals(method)) {
+            return PAYMENT_METHODS;
+        } else if (path.startsWith("/v1/payment_methods")) {
+            return PAYMENT_METHOD;
+        } else if (path.startsWith("/v1/payment_intents")) {
+            return PAYMENT_INTENT;
+        } else if (path.startsWith("/v1/customers/") && path.contains("/sources")) {
+            return CARD;
+        } else if (path.startsWith("/v1/customers")) {
+            return CUSTOMER;
+        } else if (path.equals("/v1/3ds2/authenticate")) {
+            return THREE_DS2_AUTH_RESULT;
+        } else if (path.equals("/v1/3ds2/challenge_complete")) {
+            return "{}";
+        } else {
+            return null;
+        }
+    }
+}
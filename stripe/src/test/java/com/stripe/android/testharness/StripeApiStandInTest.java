@@ -0,0 +1,107 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.model.Customer;
+import com.stripe.android.model.PaymentIntent;
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.Source;
+import com.stripe.android.model.Stripe3ds2AuthResult;
+import com.stripe.android.model.Token;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StripeApiStandInTest {
+    private StripeApiStandIn mStandIn;
+
+    @Before
+    public void setup() throws IOException {
+        mStandIn = new StripeApiStandIn(new Random(0));
+    }
+
+    @After
+    public void tearDown() {
+        mStandIn.close();
+    }
+
+    @Test
+    public void cannedResponses_areParsedByModels() throws Exception {
+        assertNotNull(Token.fromString(get("POST", "/v1/tokens")));
+        assertNotNull(Source.fromString(get("GET", "/v1/sources/src_123")));
+        assertNotNull(PaymentMethod.fromString(get("POST", "/v1/payment_methods")));
+        assertEquals(2, new JSONObject(get("GET", "/v1/payment_methods"))
+                .getJSONArray("data").length());
+        assertNotNull(PaymentIntent.fromString(get("GET", "/v1/payment_intents/pi_123")));
+        assertNotNull(Customer.fromString(get("GET", "/v1/customers/cus_123")));
+        assertNotNull(Source.fromString(get("POST", "/v1/customers/cus_123/sources")));
+        assertNotNull(Stripe3ds2AuthResult.fromJson(
+                new JSONObject(get("POST", "/v1/3ds2/authenticate"))));
+        assertEquals("{}", get("POST", "/v1/3ds2/challenge_complete"));
+    }
+
+    @Test
+    public void unknownPath_returnsNotFound() throws IOException {
+        assertEquals(404, open("GET", "/v1/charges").getResponseCode());
+    }
+
+    @Test
+    public void setErrors_failsThatShareOfRequests() throws IOException {
+        mStandIn.setErrors(1, 429);
+        assertEquals(429, open("POST", "/v1/tokens").getResponseCode());
+
+        mStandIn.setErrors(0, 500);
+        assertEquals(200, open("POST", "/v1/tokens").getResponseCode());
+    }
+
+    @Test
+    public void setLatency_delaysResponses() throws IOException {
+        mStandIn.setLatency(100, 0);
+        final long startNanos = System.nanoTime();
+        assertEquals(200, open("GET", "/v1/sources/src_123").getResponseCode());
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @NonNull
+    private String get(@NonNull String method, @NonNull String path) throws IOException {
+        final HttpURLConnection connection = open(method, path);
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream input = connection.getInputStream()) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+            return new String(output.toByteArray(), Charset.forName("UTF-8"));
+        }
+    }
+
+    @NonNull
+    private HttpURLConnection open(@NonNull String method, @NonNull String path)
+            throws IOException {
+        final HttpURLConnection connection =
+                (HttpURLConnection) new URL(mStandIn.getBaseUrl() + path).openConnection();
+        connection.setRequestMethod(method);
+        if ("POST".equals(method)) {
+            connection.setDoOutput(true);
+            connection.getOutputStream().close();
+        }
+        return connection;
+    }
+}
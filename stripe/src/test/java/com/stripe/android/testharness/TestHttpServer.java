@@ -0,0 +1,357 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A minimal HTTP/1.1 server bound to the loopback interface that answers every request with a
+ * canned response, or with the response chosen by its {@link Dispatcher}. Used to exercise the
+ * networking stack over real sockets.
+ */
+public class TestHttpServer implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    @NonNull private final ServerSocket mServerSocket;
+    @NonNull private final List<Socket> mSockets =
+            Collections.synchronizedList(new ArrayList<Socket>());
+    @NonNull private final List<RecordedRequest> mRequests =
+            Collections.synchronizedList(new ArrayList<RecordedRequest>());
+    @NonNull private final AtomicInteger mConnectionCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    private volatile int mResponseCode = 200;
+    @NonNull private volatile String mResponseBody = "{}";
+    private volatile boolean mCloseAfterResponse;
+    private volatile boolean mGzipResponses;
+    private volatile long mResponseDelayMs;
+    private volatile boolean mRecordRequests = true;
+    @Nullable private volatile Dispatcher mDispatcher;
+
+    public TestHttpServer() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        final Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "TestHttpServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    @NonNull
+    public String getUrl(@NonNull String path) {
+        return String.format(Locale.ROOT, "http://127.0.0.1:%d%s",
+                mServerSocket.getLocalPort(), path);
+    }
+
+    public void setResponse(int responseCode, @NonNull String responseBody) {
+        mResponseCode = responseCode;
+        mResponseBody = responseBody;
+    }
+
+    /**
+     * @param closeAfterResponse if true, respond with "Connection: close" and close the socket
+     *                           after every response
+     */
+    public void setCloseAfterResponse(boolean closeAfterResponse) {
+        mCloseAfterResponse = closeAfterResponse;
+    }
+
+    /**
+     * @param gzipResponses if true, send response bodies gzip-encoded with
+     *                      "Content-Encoding: gzip"
+     */
+    public void setGzipResponses(boolean gzipResponses) {
+        mGzipResponses = gzipResponses;
+    }
+
+    /**
+     * @param responseDelayMs how long to wait after reading each request before responding
+     */
+    public void setResponseDelayMs(long responseDelayMs) {
+        mResponseDelayMs = responseDelayMs;
+    }
+
+    /**
+     * @param dispatcher chooses the response to each request, instead of the response set with
+     *                   {@link #setResponse(int, String)}, or null to go back to that response
+     */
+    public void setDispatcher(@Nullable Dispatcher dispatcher) {
+        mDispatcher = dispatcher;
+    }
+
+    /**
+     * @param recordRequests if false, requests are not kept for {@link #getRequests()}, e.g.
+     *                       when a load test sends more of them than fit in memory
+     */
+    public void setRecordRequests(boolean recordRequests) {
+        mRecordRequests = recordRequests;
+    }
+
+    /**
+     * @return the number of requests received so far
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return the number of TCP connections accepted so far
+     */
+    public int getConnectionCount() {
+        return mConnectionCount.get();
+    }
+
+    /**
+     * @return the number of accepted connections that neither side has closed yet
+     */
+    public int getOpenConnectionCount() {
+        return mSockets.size();
+    }
+
+    @NonNull
+    public List<RecordedRequest> getRequests() {
+        synchronized (mRequests) {
+            return new ArrayList<>(mRequests);
+        }
+    }
+
+    /**
+     * Close every accepted connection without responding, as a server does with idle
+     * keep-alive connections.
+     */
+    public void dropConnections() {
+        synchronized (mSockets) {
+            for (Socket socket : mSockets) {
+                closeQuietly(socket);
+            }
+            mSockets.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(mServerSocket);
+        dropConnections();
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            mConnectionCount.incrementAndGet();
+            mSockets.add(socket);
+            final Thread connectionThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            }, "TestHttpServer-connection");
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void serve(@NonNull Socket socket) {
+        try {
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            // head and body go out in one segment, so the client's delayed ACK of the head does
+            // not hold back the body
+            final OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                final RecordedRequest request = readRequest(input);
+                if (request == null) {
+                    break;
+                }
+                final int requestNumber = mRequestCount.incrementAndGet();
+                if (mRecordRequests) {
+                    mRequests.add(request);
+                }
+                if (mResponseDelayMs > 0) {
+                    Thread.sleep(mResponseDelayMs);
+                }
+
+                final Dispatcher dispatcher = mDispatcher;
+                final Response response = dispatcher != null
+                        ? dispatcher.dispatch(request)
+                        : new Response(mResponseCode, mResponseBody);
+                final boolean closeAfterResponse = mCloseAfterResponse;
+                final boolean gzipResponse = mGzipResponses;
+                final byte[] body = gzipResponse
+                        ? gzip(response.body.getBytes(UTF_8))
+                        : response.body.getBytes(UTF_8);
+                final String head = "HTTP/1.1 " + response.code + " OK\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + (gzipResponse ? "Content-Encoding: gzip\r\n" : "")
+                        + "Content-Length: " + body.length + "\r\n"
+                        + "Request-Id: req_" + requestNumber + "\r\n"
+                        + (closeAfterResponse ? "Connection: close\r\n" : "")
+                        + "\r\n";
+                output.write(head.getBytes(ISO_8859_1));
+                output.write(body);
+                output.flush();
+
+                if (closeAfterResponse) {
+                    break;
+                }
+            }
+        } catch (IOException | InterruptedException ignore) {
+            // the client or the test closed the connection
+        } finally {
+            mSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    @Nullable
+    private static RecordedRequest readRequest(@NonNull InputStream input) throws IOException {
+        final String requestLine = readLine(input);
+        if (requestLine == null) {
+            return null;
+        }
+
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String line;
+        while ((line = readLine(input)) != null && !line.isEmpty()) {
+            final int separator = line.indexOf(':');
+            headers.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+        }
+
+        final String contentLength = headers.get("Content-Length");
+        final byte[] body = new byte[contentLength != null ? Integer.parseInt(contentLength) : 0];
+        int read = 0;
+        while (read < body.length) {
+            final int count = input.read(body, read, body.length - read);
+            if (count == -1) {
+                throw new SocketException("Unexpected end of request body");
+            }
+            read += count;
+        }
+        return new RecordedRequest(requestLine, headers, body);
+    }
+
+    @Nullable
+    private static String readLine(@NonNull InputStream input) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = input.read()) != -1) {
+            if (c == '\n') {
+                final String value = new String(line.toByteArray(), ISO_8859_1);
+                return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+            }
+            line.write(c);
+        }
+        return null;
+    }
+
+    @NonNull
+    private static byte[] gzip(@NonNull byte[] bytes) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+            gzipOutput.write(bytes);
+        }
+        return output.toByteArray();
+    }
+
+    private static void closeQuietly(@NonNull Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Chooses the response to each request received by a {@link TestHttpServer}. Called on the
+     * thread that serves the request's connection, so it may block to simulate latency.
+     */
+    public interface Dispatcher {
+        @NonNull
+        Response dispatch(@NonNull RecordedRequest request) throws InterruptedException;
+    }
+
+    /**
+     * A response sent by a {@link TestHttpServer}.
+     */
+    public static final class Response {
+        public final int code;
+        @NonNull public final String body;
+
+        public Response(int code, @NonNull String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+
+    /**
+     * A request received by a {@link TestHttpServer}.
+     */
+    public static final class RecordedRequest {
+        @NonNull public final String requestLine;
+        @NonNull public final Map<String, String> headers;
+        @NonNull public final byte[] body;
+
+        RecordedRequest(@NonNull String requestLine,
+                        @NonNull Map<String, String> headers,
+                        @NonNull byte[] body) {
+            this.requestLine = requestLine;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @NonNull
+        public String getBodyAsString() {
+            return new String(body, UTF_8);
+        }
+
+        /**
+         * @return the method of the request, e.g. {@code GET}
+         */
+        @NonNull
+        public String getMethod() {
+            return requestLine.substring(0, requestLine.indexOf(' '));
+        }
+
+        /**
+         * @return the path of the request, without the query string
+         */
+        @NonNull
+        public String getPath() {
+            final int start = requestLine.indexOf(' ') + 1;
+            int end = requestLine.indexOf(' ', start);
+            if (end < 0) {
+                end = requestLine.length();
+            }
+            final int queryStart = requestLine.indexOf('?', start);
+            return requestLine.substring(start,
+                    queryStart >= 0 && queryStart < end ? queryStart : end);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.stripe.android.ApiKeyFixtures;
 import com.stripe.android.ApiResultCallback;
+import com.stripe.android.ApiTask;
 import com.stripe.android.CustomerSession;
 import com.stripe.android.CustomerSessionTestHelper;
 import com.stripe.android.PaymentConfiguration;
@@ -184,6 +185,26 @@ public class AddPaymentMethodActivityTest extends BaseViewTest<AddPaymentMethodA
         verifyFinishesWithIntent();
     }
 
+    @Test
+    public void onDestroy_whileCreatingPaymentMethod_cancelsTask() {
+        setUpForLocalTest();
+        mWidgetControlGroup.cardNumberEditText.append(CardInputTestActivity.VALID_AMEX_NO_SPACES);
+        mWidgetControlGroup.expiryDateEditText.append("12");
+        mWidgetControlGroup.expiryDateEditText.append("50");
+        mWidgetControlGroup.cvcEditText.append("1234");
+        mWidgetControlGroup.postalCodeEditText.append("90210");
+        final ApiTask task = mock(ApiTask.class);
+        when(mStripe.createPaymentMethod(any(PaymentMethodCreateParams.class),
+                ArgumentMatchers.<ApiResultCallback<PaymentMethod>>any()))
+                .thenReturn(task);
+
+        mActivity.createPaymentMethod(mStripe);
+        verify(task, never()).cancel();
+
+        destroyActivity(mActivity);
+        verify(task).cancel();
+    }
+
     @Test
     public void addCardData_whenServerReturnsSuccessAndUpdatesCustomer_finishesWithIntent() {
         setUpForProxySessionTest();
@@ -234,8 +255,7 @@ public class AddPaymentMethodActivityTest extends BaseViewTest<AddPaymentMethodA
         assertTrue(mActivity.isFinishing());
         assertTrue(intent.hasExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD));
         final PaymentMethod paymentMethod =
-                PaymentMethod.fromString(
-                        intent.getStringExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD));
+                intent.getParcelableExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD);
         assertNotNull(paymentMethod);
         assertEquals(expectedPaymentMethod, paymentMethod);
     }
@@ -363,8 +383,7 @@ public class AddPaymentMethodActivityTest extends BaseViewTest<AddPaymentMethodA
         assertTrue(mActivity.isFinishing());
         assertTrue(intent.hasExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD));
         final PaymentMethod newPaymentMethod =
-                PaymentMethod.fromString(
-                        intent.getStringExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD));
+                intent.getParcelableExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD);
         assertNotNull(newPaymentMethod);
         assertEquals(expectedPaymentMethod, newPaymentMethod);
     }
@@ -61,6 +61,18 @@ public abstract class BaseViewTest<T extends Activity> {
         }
     }
 
+    /**
+     * Destroy an Activity that was created with {@link #createActivity(Intent)} before the test
+     * ends.
+     */
+    protected void destroyActivity(T activity) {
+        final ActivityController<T> activityController =
+                mActivityControllers.remove(activity.hashCode());
+        if (activityController != null) {
+            activityController.pause().stop().destroy();
+        }
+    }
+
     @CallSuper
     @After
     public void tearDown() {
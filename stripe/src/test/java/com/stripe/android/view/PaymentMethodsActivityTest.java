@@ -171,7 +171,7 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
 
         final Intent resultIntent =
                 new Intent().putExtra(AddPaymentMethodActivity.EXTRA_NEW_PAYMENT_METHOD,
-                        paymentMethod.toJson().toString());
+                        paymentMethod);
 
         mPaymentMethodsActivity.onActivityResult(REQUEST_CODE_ADD_CARD, RESULT_OK, resultIntent);
         assertEquals(View.VISIBLE, mProgressBar.getVisibility());